@@ -1,5 +1,6 @@
 package org.johnnei.javatorrent.phases;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Optional;
 
@@ -41,13 +42,18 @@ public class DownloadMetadataPhase extends AbstractMetadataPhase {
 			return;
 		}
 
+		// The downloaded metadata is replaced by the metadata read from the completed file.
+		Optional<AbstractFileSet> downloadedFileSet = torrent.getMetadata().getFileSet();
 		try {
 			torrent.setMetadata(UtMetadata.from(metadataFile).build());
 		} catch (IOException e) {
 			throw new TorrentException("Failed to read metadata", e);
 		}
 
-		torrent.setFileSet(new TorrentFileSet(torrent.getMetadata(), downloadFolderRoot.resolve(torrent.getDisplayName()).toFile()));
+		downloadedFileSet.ifPresent(AbstractFileSet::close);
+
+		File downloadFolder = downloadFolderRoot.resolve(torrent.getDisplayName()).toFile();
+		torrent.setFileSet(new TorrentFileSet(torrent.getMetadata(), downloadFolder, torrent.getStorageFactory()));
 	}
 
 	@Override
@@ -43,6 +43,7 @@ public class MessageRequest extends AbstractMessage {
 						piece,
 						blockIndex * MetadataFileSet.BLOCK_SIZE,
 						piece.getBlockSize(blockIndex),
+						metadataFileSet.getFileForBytes(0, 0, 0),
 						diskJob -> onReadMetadataBlockCompleted(peer, metadataExtensionId, diskJob)));
 				},
 				() -> {
@@ -11,6 +11,7 @@ import org.mockito.ArgumentCaptor;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.javatorrent.disk.IFileStorageFactory;
 import org.johnnei.javatorrent.module.UTMetadataExtension;
 import org.johnnei.javatorrent.protocol.extension.ExtensionModule;
 import org.johnnei.javatorrent.torrent.Metadata;
@@ -86,8 +87,12 @@ public class DownloadMetadataPhaseTest {
 
 	@Test
 	public void testOnPhaseExit() {
+		MetadataFileSet metadataFileSetMock = mock(MetadataFileSet.class);
+
 		when(torrentMock.isDownloadingMetadata()).thenReturn(true);
 		when(torrentMock.getDisplayName()).thenReturn("OnPhaseExit");
+		when(torrentMock.getStorageFactory()).thenReturn(mock(IFileStorageFactory.class));
+		when(metadataMock.getFileSet()).thenReturn(Optional.of(metadataFileSetMock));
 
 		when(metadataMock.getFileEntries()).thenReturn(Collections.emptyList());
 		when(metadataMock.getPieceHashes()).thenReturn(Collections.emptyList());
@@ -97,6 +102,8 @@ public class DownloadMetadataPhaseTest {
 
 		ArgumentCaptor<Metadata> metadataCaptor = ArgumentCaptor.forClass(Metadata.class);
 		verify(torrentMock).setFileSet(isA(TorrentFileSet.class));
+		verify(torrentMock).getStorageFactory();
+		verify(metadataFileSetMock).close();
 		verify(torrentMock).setMetadata(metadataCaptor.capture());
 		assertNotNull(metadataCaptor.getValue().getFileSet().orElse(null));
 	}
@@ -1,6 +1,7 @@
 package org.johnnei.javatorrent.ut.metadata.protocol.messages;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
@@ -25,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.mock;
@@ -98,6 +100,7 @@ public class MessageRequestTest {
 		ArgumentCaptor<IDiskJob> diskJobCapture = ArgumentCaptor.forClass(IDiskJob.class);
 
 		when(peerMock.getBitTorrentSocket()).thenReturn(socketMock);
+		when(pieceMock.loadBlock(anyInt(), anyInt())).thenReturn(ByteBuffer.allocate(0));
 
 		cut.read(inStream);
 		cut.process(peerMock);
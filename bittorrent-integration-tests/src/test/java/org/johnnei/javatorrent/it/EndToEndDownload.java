@@ -162,6 +162,11 @@ public abstract class EndToEndDownload {
 			clientOne.download(torrentOne);
 			clientTwo.download(torrentTwo);
 
+			LOGGER.info("Waiting for the progress checks to complete.");
+			await("Progress checks to complete")
+				.atMost(1, TimeUnit.MINUTES)
+				.until(() -> !torrentOne.isCheckingProgress() && !torrentTwo.isCheckingProgress());
+
 			assertAll(
 				() -> assertEquals(184, torrentOne.getFileSet().countCompletedPieces(), "Incorrect amount of completed pieces for client one"),
 				() -> assertEquals(186, torrentTwo.getFileSet().countCompletedPieces(), "Incorrect amount of completed pieces for client two")
@@ -1,5 +1,7 @@
 package org.johnnei.javatorrent.tracker.http;
 
+import java.util.concurrent.TimeUnit;
+
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
@@ -9,7 +11,6 @@ import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerEvent;
 import org.johnnei.javatorrent.internal.tracker.http.HttpTracker;
 import org.johnnei.javatorrent.test.DummyEntity;
-import org.johnnei.javatorrent.test.ExecutorServiceMock;
 import org.johnnei.javatorrent.torrent.Metadata;
 import org.johnnei.javatorrent.torrent.Torrent;
 
@@ -50,12 +51,9 @@ public class HttpTrackerCompatibilityIT {
 
 		LOGGER.info("Preparing Tracker instance");
 
-		ExecutorServiceMock executorServiceMock = new ExecutorServiceMock();
-
 		byte[] peerId = DummyEntity.createPeerId();
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
 		when(torrentClientMock.getPeerId()).thenReturn(peerId);
-		when(torrentClientMock.getExecutorService()).thenReturn(executorServiceMock);
 
 		Torrent torrentMock = mock(Torrent.class);
 		Metadata metadataMock = mock(Metadata.class);
@@ -70,7 +68,7 @@ public class HttpTrackerCompatibilityIT {
 		LOGGER.info("Announcing with start event to tracker...");
 
 		tracker.addTorrent(torrentMock);
-		tracker.announce(torrentMock);
+		tracker.announce(torrentMock).get(5, TimeUnit.SECONDS);
 
 		assertEquals("Idle", tracker.getStatus(), "Status should have returned to idle");
 
@@ -79,7 +77,7 @@ public class HttpTrackerCompatibilityIT {
 		tracker.getInfo(torrentMock).get().setEvent(TrackerEvent.EVENT_STOPPED);
 		LOGGER.info("Announcing with stopped event to tracker...");
 
-		tracker.announce(torrentMock);
+		tracker.announce(torrentMock).get(5, TimeUnit.SECONDS);
 
 		assertEquals("Idle", tracker.getStatus(), "Status should have returned to idle");
 
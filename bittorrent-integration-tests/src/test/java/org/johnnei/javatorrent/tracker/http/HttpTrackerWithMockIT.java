@@ -13,7 +13,6 @@ import org.johnnei.javatorrent.bittorrent.tracker.TrackerEvent;
 import org.johnnei.javatorrent.internal.tracker.http.HttpTracker;
 import org.johnnei.javatorrent.network.OutStream;
 import org.johnnei.javatorrent.network.PeerConnectInfo;
-import org.johnnei.javatorrent.test.ExecutorServiceMock;
 import org.johnnei.javatorrent.torrent.Metadata;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.tracker.IPeerConnector;
@@ -22,8 +21,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -59,7 +61,7 @@ public class HttpTrackerWithMockIT {
 	@Test
 	public void testAnnounce() throws Exception {
 		BencodedMap announceResult = new BencodedMap();
-		announceResult.put("interval", new BencodedInteger(15_000));
+		announceResult.put("interval", new BencodedInteger(1800));
 
 		BencodedList peerList = new BencodedList();
 
@@ -93,7 +95,7 @@ public class HttpTrackerWithMockIT {
 			.withQueryParam("uploaded", WireMock.equalTo("0"))
 			.withQueryParam("downloaded", WireMock.equalTo("0"))
 			.withQueryParam("left", WireMock.equalTo("0"))
-			.withQueryParam("compact", WireMock.equalTo("0"))
+			.withQueryParam("compact", WireMock.equalTo("1"))
 			.withQueryParam("event", WireMock.equalTo("started"))
 			.willReturn(WireMock.aResponse().withBody(outStream.toByteArray()))
 		);
@@ -103,7 +105,6 @@ public class HttpTrackerWithMockIT {
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
 		when(torrentClientMock.getPeerId()).thenReturn(PEER_ID);
 		when(torrentClientMock.getDownloadPort()).thenReturn(27960);
-		when(torrentClientMock.getExecutorService()).thenReturn(new ExecutorServiceMock());
 		when(torrentClientMock.getPeerConnector()).thenReturn(peerConnectorMock);
 
 		Torrent torrentMock = mock(Torrent.class);
@@ -117,7 +118,7 @@ public class HttpTrackerWithMockIT {
 			.build();
 
 		cut.addTorrent(torrentMock);
-		cut.announce(torrentMock);
+		cut.announce(torrentMock).get(5, TimeUnit.SECONDS);
 
 		ArgumentCaptor<PeerConnectInfo> connectInfo = ArgumentCaptor.forClass(PeerConnectInfo.class);
 		verify(peerConnectorMock).enqueuePeer(connectInfo.capture());
@@ -125,13 +126,71 @@ public class HttpTrackerWithMockIT {
 		assertEquals(InetSocketAddress.createUnresolved("127.0.0.1", 123), connectInfo.getValue().getAddress(), "Incorrect connect info: host");
 		assertEquals(torrentMock, connectInfo.getValue().getTorrent(), "Incorrect connect info: torrent");
 		assertEquals("Idle", cut.getStatus(), "Status should have returned to idle");
-		assertEquals(15_000, cut.getAnnounceInterval(), "Incorrect interval");
+		assertEquals(Duration.ofSeconds(1800), cut.getInfo(torrentMock).get().getAnnounceInterval(), "Incorrect interval");
+	}
+
+	@Test
+	public void testAnnounceCompactPeers() throws Exception {
+		BencodedMap announceResult = new BencodedMap();
+		announceResult.put("interval", new BencodedInteger(1800));
+		announceResult.put("min interval", new BencodedInteger(900));
+		// 127.0.0.1:27960
+		announceResult.put("peers", new BencodedString(new byte[] { 0x7F, 0x00, 0x00, 0x01, 0x6D, 0x38 }));
+		// [::1]:6881
+		announceResult.put("peers6", new BencodedString(new byte[] {
+			0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x1A, (byte) 0xE1
+		}));
+		OutStream outStream = new OutStream();
+		outStream.write(announceResult.serialize());
+
+		final String url = String.format("http://localhost:%d/announce", wireMock.port());
+
+		WireMock.stubFor(WireMock.get(WireMock.urlPathEqualTo("/announce"))
+			// Can't match the exact requests as jetty parses the incorrect UTF-8.
+			.withQueryParam("info_hash", WireMock.matching(".*"))
+			.withQueryParam("peer_id", WireMock.matching(".*"))
+			.withQueryParam("compact", WireMock.equalTo("1"))
+			.withQueryParam("event", WireMock.equalTo("started"))
+			.willReturn(WireMock.aResponse().withBody(outStream.toByteArray()))
+		);
+
+		IPeerConnector peerConnectorMock = mock(IPeerConnector.class);
+
+		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		when(torrentClientMock.getPeerId()).thenReturn(PEER_ID);
+		when(torrentClientMock.getDownloadPort()).thenReturn(27960);
+		when(torrentClientMock.getPeerConnector()).thenReturn(peerConnectorMock);
+
+		Torrent torrentMock = mock(Torrent.class);
+		Metadata metadataMock = mock(Metadata.class);
+		when(torrentMock.getMetadata()).thenReturn(metadataMock);
+		when(metadataMock.getHash()).thenReturn(TORRENT_HASH);
+
+		HttpTracker cut = new HttpTracker.Builder()
+			.setTorrentClient(torrentClientMock)
+			.setUrl(url)
+			.build();
+
+		cut.addTorrent(torrentMock);
+		cut.announce(torrentMock).get(5, TimeUnit.SECONDS);
+
+		ArgumentCaptor<PeerConnectInfo> connectInfo = ArgumentCaptor.forClass(PeerConnectInfo.class);
+		verify(peerConnectorMock, times(2)).enqueuePeer(connectInfo.capture());
+
+		assertEquals(
+			new InetSocketAddress(InetAddress.getByAddress(new byte[] { 127, 0, 0, 1 }), 27960),
+			connectInfo.getAllValues().get(0).getAddress(),
+			"Incorrect IPv4 peer"
+		);
+		assertEquals(new InetSocketAddress(InetAddress.getByName("::1"), 6881), connectInfo.getAllValues().get(1).getAddress(), "Incorrect IPv6 peer");
+		assertEquals(Duration.ofSeconds(900), cut.getInfo(torrentMock).get().getMinAnnounceInterval(), "Incorrect min interval");
+		assertEquals("Idle", cut.getStatus(), "Status should have returned to idle");
 	}
 
 	@Test
 	public void testAnnounceCompleted() throws Exception {
 		BencodedMap announceResult = new BencodedMap();
-		announceResult.put("interval", new BencodedInteger(15_000));
+		announceResult.put("interval", new BencodedInteger(1800));
 
 		announceResult.put("peers", new BencodedList());
 		OutStream outStream = new OutStream();
@@ -147,7 +206,7 @@ public class HttpTrackerWithMockIT {
 			.withQueryParam("uploaded", WireMock.equalTo("0"))
 			.withQueryParam("downloaded", WireMock.equalTo("0"))
 			.withQueryParam("left", WireMock.equalTo("0"))
-			.withQueryParam("compact", WireMock.equalTo("0"))
+			.withQueryParam("compact", WireMock.equalTo("1"))
 			.withQueryParam("event", WireMock.equalTo("completed"))
 			.willReturn(WireMock.aResponse().withBody(outStream.toByteArray()))
 		);
@@ -155,7 +214,6 @@ public class HttpTrackerWithMockIT {
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
 		when(torrentClientMock.getPeerId()).thenReturn(PEER_ID);
 		when(torrentClientMock.getDownloadPort()).thenReturn(27960);
-		when(torrentClientMock.getExecutorService()).thenReturn(new ExecutorServiceMock());
 
 		Torrent torrentMock = mock(Torrent.class);
 		Metadata metadataMock = mock(Metadata.class);
@@ -172,9 +230,9 @@ public class HttpTrackerWithMockIT {
 		assertTrue(cut.hasTorrent(torrentMock), "Add of torrent failed");
 
 		cut.getInfo(torrentMock).get().setEvent(TrackerEvent.EVENT_COMPLETED);
-		cut.announce(torrentMock);
+		cut.announce(torrentMock).get(5, TimeUnit.SECONDS);
 
-		assertEquals(15_000, cut.getAnnounceInterval(), "Incorrect interval");
+		assertEquals(Duration.ofSeconds(1800), cut.getInfo(torrentMock).get().getAnnounceInterval(), "Incorrect interval");
 		assertEquals("Idle", cut.getStatus(), "Status should have returned to idle");
 		verify(torrentClientMock, never()).getPeerConnector();
 	}
@@ -182,7 +240,7 @@ public class HttpTrackerWithMockIT {
 	@Test
 	public void testAnnounceNoEvent() throws Exception {
 		BencodedMap announceResult = new BencodedMap();
-		announceResult.put("interval", new BencodedInteger(15_000));
+		announceResult.put("interval", new BencodedInteger(1800));
 
 		announceResult.put("peers", new BencodedList());
 		OutStream outStream = new OutStream();
@@ -198,7 +256,7 @@ public class HttpTrackerWithMockIT {
 			.withQueryParam("uploaded", WireMock.equalTo("0"))
 			.withQueryParam("downloaded", WireMock.equalTo("0"))
 			.withQueryParam("left", WireMock.equalTo("0"))
-			.withQueryParam("compact", WireMock.equalTo("0"))
+			.withQueryParam("compact", WireMock.equalTo("1"))
 			.withQueryParam("event", WireMock.absent())
 			.willReturn(WireMock.aResponse().withBody(outStream.toByteArray()))
 		);
@@ -206,7 +264,6 @@ public class HttpTrackerWithMockIT {
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
 		when(torrentClientMock.getPeerId()).thenReturn(PEER_ID);
 		when(torrentClientMock.getDownloadPort()).thenReturn(27960);
-		when(torrentClientMock.getExecutorService()).thenReturn(new ExecutorServiceMock());
 
 		Torrent torrentMock = mock(Torrent.class);
 		Metadata metadataMock = mock(Metadata.class);
@@ -223,9 +280,9 @@ public class HttpTrackerWithMockIT {
 		assertTrue(cut.hasTorrent(torrentMock), "Add of torrent failed");
 
 		cut.getInfo(torrentMock).get().setEvent(TrackerEvent.EVENT_NONE);
-		cut.announce(torrentMock);
+		cut.announce(torrentMock).get(5, TimeUnit.SECONDS);
 
-		assertEquals(15_000, cut.getAnnounceInterval(), "Incorrect interval");
+		assertEquals(Duration.ofSeconds(1800), cut.getInfo(torrentMock).get().getAnnounceInterval(), "Incorrect interval");
 		assertEquals("Idle", cut.getStatus(), "Status should have returned to idle");
 		verify(torrentClientMock, never()).getPeerConnector();
 	}
@@ -233,7 +290,7 @@ public class HttpTrackerWithMockIT {
 	@Test
 	public void testAnnounceBlockDuplicateAnnounce() throws Exception {
 		BencodedMap announceResult = new BencodedMap();
-		announceResult.put("interval", new BencodedInteger(15_000));
+		announceResult.put("interval", new BencodedInteger(1800));
 
 		announceResult.put("peers", new BencodedList());
 		OutStream outStream = new OutStream();
@@ -249,14 +306,13 @@ public class HttpTrackerWithMockIT {
 			.withQueryParam("uploaded", WireMock.equalTo("0"))
 			.withQueryParam("downloaded", WireMock.equalTo("0"))
 			.withQueryParam("left", WireMock.equalTo("0"))
-			.withQueryParam("compact", WireMock.equalTo("0"))
+			.withQueryParam("compact", WireMock.equalTo("1"))
 			.willReturn(WireMock.aResponse().withBody(outStream.toByteArray()))
 		);
 
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
 		when(torrentClientMock.getPeerId()).thenReturn(PEER_ID);
 		when(torrentClientMock.getDownloadPort()).thenReturn(27960);
-		when(torrentClientMock.getExecutorService()).thenReturn(new ExecutorServiceMock());
 
 		Torrent torrentMock = mock(Torrent.class);
 		Metadata metadataMock = mock(Metadata.class);
@@ -273,14 +329,14 @@ public class HttpTrackerWithMockIT {
 		assertTrue(cut.hasTorrent(torrentMock), "Add of torrent failed");
 
 		cut.getInfo(torrentMock).get().setEvent(TrackerEvent.EVENT_NONE);
-		cut.announce(torrentMock);
+		cut.announce(torrentMock).get(5, TimeUnit.SECONDS);
 
-		assertEquals(15_000, cut.getAnnounceInterval(), "Incorrect interval");
+		assertEquals(Duration.ofSeconds(1800), cut.getInfo(torrentMock).get().getAnnounceInterval(), "Incorrect interval");
 		assertEquals("Idle", cut.getStatus(), "Status should have returned to idle");
 		verify(torrentClientMock, never()).getPeerConnector();
 
 		// This request should be denied because the interval hasn't expired yet.
-		cut.announce(torrentMock);
+		cut.announce(torrentMock).get(5, TimeUnit.SECONDS);
 
 		WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlPathEqualTo("/announce")));
 	}
@@ -303,7 +359,7 @@ public class HttpTrackerWithMockIT {
 			.withQueryParam("uploaded", WireMock.equalTo("0"))
 			.withQueryParam("downloaded", WireMock.equalTo("0"))
 			.withQueryParam("left", WireMock.equalTo("0"))
-			.withQueryParam("compact", WireMock.equalTo("0"))
+			.withQueryParam("compact", WireMock.equalTo("1"))
 			.withQueryParam("event", WireMock.equalTo("completed"))
 			.willReturn(WireMock.aResponse().withBody(outStream.toByteArray()))
 		);
@@ -311,7 +367,6 @@ public class HttpTrackerWithMockIT {
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
 		when(torrentClientMock.getPeerId()).thenReturn(PEER_ID);
 		when(torrentClientMock.getDownloadPort()).thenReturn(27960);
-		when(torrentClientMock.getExecutorService()).thenReturn(new ExecutorServiceMock());
 
 		Torrent torrentMock = mock(Torrent.class);
 		Metadata metadataMock = mock(Metadata.class);
@@ -328,7 +383,7 @@ public class HttpTrackerWithMockIT {
 		assertTrue(cut.hasTorrent(torrentMock), "Add of torrent failed");
 
 		cut.getInfo(torrentMock).get().setEvent(TrackerEvent.EVENT_COMPLETED);
-		cut.announce(torrentMock);
+		cut.announce(torrentMock).get(5, TimeUnit.SECONDS);
 
 		assertEquals("Announce failed", cut.getStatus(), "Status should not have returned to idle");
 		verify(torrentClientMock, never()).getPeerConnector();
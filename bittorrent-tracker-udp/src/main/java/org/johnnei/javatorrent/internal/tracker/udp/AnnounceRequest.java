@@ -2,11 +2,13 @@ package org.johnnei.javatorrent.internal.tracker.udp;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import org.johnnei.javatorrent.network.InStream;
 import org.johnnei.javatorrent.network.OutStream;
@@ -36,6 +38,8 @@ public class AnnounceRequest implements IUdpTrackerPayload {
 
 	private final int downloadPort;
 
+	private final CompletableFuture<Void> result;
+
 	// Response
 	private Collection<SocketInfo> sockets;
 
@@ -54,6 +58,7 @@ public class AnnounceRequest implements IUdpTrackerPayload {
 			throw new IllegalArgumentException(String.format("Given peer ID is %d bytes instead of the expected 20.", peerId.length));
 		}
 		sockets = new ArrayList<>();
+		result = new CompletableFuture<>();
 	}
 
 	@Override
@@ -113,7 +118,8 @@ public class AnnounceRequest implements IUdpTrackerPayload {
 	@Override
 	public void process(UdpTracker tracker) {
 		torrentInfo.setInfo(seeders, leechers);
-		tracker.setAnnounceInterval(interval);
+		// The interval is defined in seconds.
+		torrentInfo.setAnnounceInterval(Duration.ofSeconds(interval));
 		sockets.stream()
 			.filter(this::isValidSocket)
 			.map(socket -> {
@@ -129,6 +135,19 @@ public class AnnounceRequest implements IUdpTrackerPayload {
 			.filter(peer -> peer.isPresent())
 			.map(peer -> (PeerConnectInfo) peer.get())
 			.forEach(tracker::connectPeer);
+		result.complete(null);
+	}
+
+	@Override
+	public void onFailure() {
+		result.complete(null);
+	}
+
+	/**
+	 * @return The future which completes once the announce has either succeeded or failed.
+	 */
+	public CompletableFuture<Void> getResult() {
+		return result;
 	}
 
 	private boolean isValidSocket(SocketInfo socket) {
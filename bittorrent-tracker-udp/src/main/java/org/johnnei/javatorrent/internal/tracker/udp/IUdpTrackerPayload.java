@@ -29,6 +29,13 @@ public interface IUdpTrackerPayload {
 	 */
 	public void process(UdpTracker tracker);
 
+	/**
+	 * Called when no valid response has been received for the request.
+	 */
+	public default void onFailure() {
+		// Most requests don't need to act on failures.
+	}
+
 	/**
 	 * Gets the expected response action
 	 * @return The tracker action
@@ -12,6 +12,7 @@ import org.johnnei.javatorrent.bittorrent.tracker.TorrentInfo;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerAction;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerException;
 import org.johnnei.javatorrent.tracker.UdpTracker;
+import org.johnnei.javatorrent.utils.Argument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,12 +20,19 @@ public class ScrapeRequest implements IUdpTrackerPayload {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ScrapeRequest.class);
 
+	/**
+	 * The maximum amount of torrents which can be scraped in a single request as defined in BEP #15.
+	 */
+	public static final int MAX_TORRENTS = 74;
+
 	private List<Torrent> torrents;
 
 	private List<ScrapeResult> results;
 
 	public ScrapeRequest(List<Torrent> torrents) {
 		this.torrents = Objects.requireNonNull(torrents);
+		Argument.requireWithinBounds(torrents.size(), 0, MAX_TORRENTS + 1, () -> String.format(
+				"A scrape request can contain at most %d torrents but got %d.", MAX_TORRENTS, torrents.size()));
 		this.results = new ArrayList<>(torrents.size());
 	}
 
@@ -150,6 +150,7 @@ public class TrackerRequest {
 	 * Called when the request must be reported to the tracker as failed.
 	 */
 	public void onFailure() {
+		message.onFailure();
 		tracker.onRequestFailed(message);
 	}
 
@@ -1,27 +1,28 @@
 package org.johnnei.javatorrent.internal.tracker.udp;
 
 import java.io.IOException;
-import java.net.DatagramSocket;
-import java.net.SocketException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.time.Clock;
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerAction;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerException;
+import org.johnnei.javatorrent.internal.utils.IntObjectMap;
 import org.johnnei.javatorrent.network.InStream;
 import org.johnnei.javatorrent.network.OutStream;
+import org.johnnei.javatorrent.network.udp.IUdpPacketHandler;
+import org.johnnei.javatorrent.network.udp.UdpDemultiplexer;
 import org.johnnei.javatorrent.tracker.UdpTracker;
 
 import org.slf4j.Logger;
@@ -29,62 +30,74 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A wrapper around the UDP logic for testability and separation of IO interaction.
- *
+ * All requests are sent, received and retransmitted on the thread of the {@link UdpDemultiplexer} which shares the UDP port with the other UDP based
+ * protocols. Only {@link #submitRequest(UdpTracker, IUdpTrackerPayload)} may be invoked from other threads.
  */
-public class UdpTrackerSocket implements Runnable {
+public class UdpTrackerSocket implements IUdpPacketHandler {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(UdpTrackerSocket.class);
 
+	/**
+	 * The amount of times a request is resent before it is considered failed.
+	 */
+	private static final int MAX_ATTEMPTS = 8;
+
+	/**
+	 * The timeout of the first attempt as defined in BEP #15, the timeout doubles for every retransmission.
+	 */
+	private static final long BASE_TIMEOUT_MILLIS = 15_000;
+
 	private final Clock clock;
 
 	private final TorrentClient torrentClient;
 
-	private volatile boolean keepRunning = true;
+	private final UdpDemultiplexer demultiplexer;
+
+	private final UdpSocketUtils socketUtils;
 
 	/**
-	 * The lock protecting the state of the tracker request map {@link #pendingRespones} and
-	 * {@link #unsentRequests}
+	 * Requests which have been submitted but not yet picked up by the demultiplexer thread.
 	 */
-	private final Object lock = new Object();
+	private final Queue<UnsetRequest> submittedRequests;
 
 	/**
 	 * Map containing all tracker requests which didn't have a response yet.
 	 * Mapped: TransactionID to request
 	 */
-	private Map<Integer, SentRequest> pendingRespones;
+	private final IntObjectMap<SentRequest> pendingRespones;
 
 	/**
-	 * Requests which are waiting for a connection id to arrive
+	 * The pending requests ordered by the time at which they time out.
+	 * Requests which received a response stay in the queue and are discarded once they reach the head of the queue.
 	 */
-	private Collection<UnsetRequest> unsentRequests;
-
-	private UdpSocketUtils socketUtils;
+	private final PriorityQueue<SentRequest> retransmitQueue;
 
-	private DatagramSocket udpSocket;
+	/**
+	 * Requests which have been submitted with a delay, ordered by the time at which they may be sent.
+	 */
+	private final PriorityQueue<UnsetRequest> delayedRequests;
 
 	/**
-	 * A lock providing condition objects to signal new tasks
+	 * Requests which are waiting for a connection id to arrive
 	 */
-	private final Lock taskLock = new ReentrantLock();
+	private final Queue<UnsetRequest> unsentRequests;
 
 	/**
-	 * Condition
+	 * The trackers for which a {@link TrackerAction#CONNECT} request is either unsent or pending.
 	 */
-	private final Condition newWork;
+	private final Set<UdpTracker> connectingTrackers;
 
-	private UdpTrackerSocket(Builder builder) throws TrackerException {
+	private UdpTrackerSocket(Builder builder) {
 		clock = builder.clock;
-		newWork = taskLock.newCondition();
 		torrentClient = builder.torrentClient;
 		socketUtils = builder.socketUtils;
-		try {
-			udpSocket = new DatagramSocket(torrentClient.getSettings().getAcceptingPort());
-			udpSocket.setSoTimeout((int) Duration.of(5, ChronoUnit.SECONDS).toMillis());
-		} catch (SocketException e) {
-			throw new TrackerException("Failed to create UDP Socket", e);
-		}
-		pendingRespones = new HashMap<>();
-		unsentRequests = new LinkedList<>();
+		demultiplexer = builder.demultiplexer;
+		submittedRequests = new ConcurrentLinkedQueue<>();
+		pendingRespones = new IntObjectMap<>();
+		retransmitQueue = new PriorityQueue<>(Comparator.comparingLong(SentRequest::getDeadline));
+		delayedRequests = new PriorityQueue<>(Comparator.comparingLong(request -> request.sendTime));
+		unsentRequests = new ArrayDeque<>();
+		connectingTrackers = new HashSet<>();
 	}
 
 	/**
@@ -94,141 +107,157 @@ public class UdpTrackerSocket implements Runnable {
 	 * @param request The request to send
 	 */
 	public void submitRequest(UdpTracker tracker, IUdpTrackerPayload request) {
-		// Queue the request for sending
-		synchronized (lock) {
-			unsentRequests.add(new UnsetRequest(tracker, request));
-		}
+		submitRequest(tracker, request, Duration.ZERO);
+	}
 
-		taskLock.lock();
-		try {
-			newWork.signalAll();
-		} finally {
-			taskLock.unlock();
-		}
+	/**
+	 * Submits the request to be send to the tracker once the delay has passed.
+	 *
+	 * @param tracker The tracker which is sending this request
+	 * @param request The request to send
+	 * @param delay The minimal duration before the request is sent
+	 */
+	public void submitRequest(UdpTracker tracker, IUdpTrackerPayload request, Duration delay) {
+		submittedRequests.add(new UnsetRequest(tracker, request, clock.millis() + delay.toMillis()));
+		demultiplexer.wakeup();
 	}
 
 	/**
-	 * Runs the UDP Tracker worker thread until {@link #shutdown()} is invoked
+	 * Sends the submitted requests and resends the requests which timed out.
 	 */
 	@Override
-	public void run() {
-		try {
-			while (keepRunning) {
-				processWork();
-				waitForWork();
+	public void process() {
+		long now = clock.millis();
+		UnsetRequest submittedRequest;
+		while ((submittedRequest = submittedRequests.poll()) != null) {
+			if (submittedRequest.sendTime > now) {
+				delayedRequests.add(submittedRequest);
+			} else {
+				queueRequest(submittedRequest);
 			}
-		} finally {
-			// Always clean up the socket
-			udpSocket.close();
-		}
-	}
-
-	private void waitForWork() {
-		if (!pendingRespones.isEmpty()) {
-			return;
 		}
 
-		if (!unsentRequests.isEmpty()) {
-			return;
+		UnsetRequest delayedRequest;
+		while ((delayedRequest = delayedRequests.peek()) != null && delayedRequest.sendTime <= now) {
+			queueRequest(delayedRequests.poll());
 		}
 
-		if (!keepRunning) {
-			return;
-		}
+		// Resend first as requests of which the connection expired are queued to be sent along with a new connect request.
+		resendTimedoutRequests();
 
-		taskLock.lock();
-		try {
-			newWork.awaitUninterruptibly();
-		} finally {
-			taskLock.unlock();
+		if (!unsentRequests.isEmpty()) {
+			sendRequests();
 		}
 	}
 
-	private void processWork() {
-		if (!unsentRequests.isEmpty()) {
-			sendRequests();
+	@Override
+	public long getMillisUntilProcess() {
+		if (!submittedRequests.isEmpty()) {
+			return 0;
 		}
 
-		Collection<SentRequest> timedoutRequests = findTimedoutRequests();
-		if (!timedoutRequests.isEmpty()) {
-			resendRequests(timedoutRequests);
+		discardAnsweredRequests();
+		SentRequest firstTimeout = retransmitQueue.peek();
+		UnsetRequest firstDelayed = delayedRequests.peek();
+		if (firstTimeout == null && firstDelayed == null) {
+			return -1;
 		}
 
-		if (!pendingRespones.isEmpty()) {
-			receiveResponse();
+		long processTime = Math.min(
+			firstTimeout == null ? Long.MAX_VALUE : firstTimeout.getDeadline(),
+			firstDelayed == null ? Long.MAX_VALUE : firstDelayed.sendTime
+		);
+		return Math.max(0, processTime - clock.millis());
+	}
+
+	private void queueRequest(UnsetRequest request) {
+		if (request.payload.getAction() == TrackerAction.CONNECT) {
+			connectingTrackers.add(request.tracker);
 		}
+		unsentRequests.add(request);
 	}
 
 	private void sendRequests() {
-		Collection<UnsetRequest> unsentRequestsCopy;
-		synchronized (lock) {
-			unsentRequestsCopy = new ArrayList<>(unsentRequests);
-		}
-		for (UnsetRequest request : unsentRequestsCopy) {
+		Collection<UnsetRequest> blockedRequests = new ArrayList<>();
+
+		// Connect requests which get queued while sending are appended to the queue and thus get sent in this pass as well.
+		UnsetRequest request;
+		while ((request = unsentRequests.poll()) != null) {
 			if (!canSendRequest(request.tracker, request.payload.getAction())) {
+				blockedRequests.add(request);
 				continue;
 			}
 
 			TrackerRequest wrappedRequest = new TrackerRequest(request.tracker, torrentClient.createUniqueTransactionId(), request.payload);
 
-			// List this packet as sent before the actual write to prevent race conditions
-			synchronized (lock) {
-				pendingRespones.put(wrappedRequest.getTransactionId(), new SentRequest(wrappedRequest, clock));
-			}
-
 			try {
 				writeRequest(wrappedRequest);
-				// When the write call completed successfully we will remove the request from the queue
-				synchronized (lock) {
-					unsentRequests.remove(request);
-				}
+				SentRequest sentRequest = new SentRequest(request, wrappedRequest, clock.millis());
+				pendingRespones.put(wrappedRequest.getTransactionId(), sentRequest);
+				retransmitQueue.add(sentRequest);
 			} catch (IOException e) {
+				// The request will be retried on the next pass.
 				LOGGER.warn("Tracker request failed to write: {}, resubmitted request.", wrappedRequest, e);
-				synchronized (lock) {
-					pendingRespones.remove(wrappedRequest.getTransactionId());
-				}
+				blockedRequests.add(request);
 			}
 		}
+
+		unsentRequests.addAll(blockedRequests);
 	}
 
-	private Collection<SentRequest> findTimedoutRequests() {
-		synchronized (lock) {
-			return pendingRespones.values().stream()
-					.filter(SentRequest::isTimedout)
-					.collect(Collectors.toList());
+	private void resendTimedoutRequests() {
+		long now = clock.millis();
+		discardAnsweredRequests();
+
+		SentRequest pendingResponse;
+		while ((pendingResponse = retransmitQueue.peek()) != null && pendingResponse.getDeadline() <= now) {
+			retransmitQueue.poll();
+			resendRequest(pendingResponse, now);
+			discardAnsweredRequests();
 		}
 	}
 
-	private void resendRequests(Collection<SentRequest> timedoutRequests) {
-		for (SentRequest pendingResponse : timedoutRequests) {
-			if (!canResendRequest(pendingResponse)) {
-				continue;
-			}
-
-			try {
-				writeRequest(pendingResponse.request);
-				pendingResponse.attempt++;
-			} catch (IOException e) {
-				LOGGER.warn("Tracker request failed to write: {}. Delayed resend of timedout request.", pendingResponse.request, e);
-			}
+	/**
+	 * Removes the requests which are no longer pending from the head of {@link #retransmitQueue}.
+	 */
+	private void discardAnsweredRequests() {
+		SentRequest head;
+		while ((head = retransmitQueue.peek()) != null && pendingRespones.get(head.request.getTransactionId()) != head) {
+			retransmitQueue.poll();
 		}
 	}
 
-	private boolean canResendRequest(SentRequest pendingResponse) {
-		if (pendingResponse.attempt == 8) {
-			LOGGER.warn("Tracker failed to respond to {} after 8 attempts. Discarding request.", pendingResponse.request);
-			synchronized (lock) {
-				pendingRespones.remove(pendingResponse.request.getTransactionId());
-			}
-			pendingResponse.request.onFailure();
-			return false;
+	private void resendRequest(SentRequest pendingResponse, long now) {
+		TrackerRequest request = pendingResponse.request;
+		if (pendingResponse.attempt == MAX_ATTEMPTS) {
+			LOGGER.warn("Tracker failed to respond to {} after {} attempts. Discarding request.", request, MAX_ATTEMPTS);
+			removePendingResponse(request);
+			request.onFailure();
+			return;
 		}
 
-		if (!canSendRequest(pendingResponse.request.getTracker(), pendingResponse.request.getAction())) {
-			return false;
+		if (!canSendRequest(request.getTracker(), request.getAction())) {
+			// The connection id expired, send the request again once a new connection id has been obtained.
+			removePendingResponse(request);
+			unsentRequests.add(pendingResponse.source);
+			return;
 		}
 
-		return true;
+		try {
+			writeRequest(request);
+			pendingResponse.attempt++;
+		} catch (IOException e) {
+			LOGGER.warn("Tracker request failed to write: {}. Delayed resend of timedout request.", request, e);
+		}
+		pendingResponse.sentTime = now;
+		retransmitQueue.add(pendingResponse);
+	}
+
+	private void removePendingResponse(TrackerRequest request) {
+		pendingRespones.remove(request.getTransactionId());
+		if (request.getAction() == TrackerAction.CONNECT) {
+			connectingTrackers.remove(request.getTracker());
+		}
 	}
 
 	private boolean canSendRequest(UdpTracker tracker, TrackerAction action) {
@@ -237,12 +266,12 @@ public class UdpTrackerSocket implements Runnable {
 		}
 
 		// Need to obtain a new connection token first.
-		if (!isConnectRequestQueued(tracker)) {
+		if (!connectingTrackers.contains(tracker)) {
 			// No connect request has been sent or current one is expired.
 			// Reset it to a new connect-state connection and submit connection request.
 			LOGGER.debug("Refreshing connection ID for tracker: {}.", tracker);
 			tracker.setConnection(new Connection(clock));
-			submitRequest(tracker, new ConnectionRequest(clock));
+			queueRequest(new UnsetRequest(tracker, new ConnectionRequest(clock), clock.millis()));
 		}
 
 		// Don't sent this request just yet as the connection isn't valid
@@ -253,121 +282,88 @@ public class UdpTrackerSocket implements Runnable {
 		LOGGER.trace("Sending tracker request: {}.", wrappedRequest);
 		OutStream outStream = new OutStream();
 		wrappedRequest.writeRequest(outStream);
-		socketUtils.write(udpSocket, wrappedRequest.getTracker().getSocketAddress(), outStream);
+		socketUtils.write(demultiplexer.getChannel(), wrappedRequest.getTracker().getSocketAddress(), outStream);
 	}
 
 	/**
-	 * Checks if one of the queues contains a {@link TrackerAction#CONNECT} request.
-	 *
-	 * @param tracker
-	 * @return
+	 * Matches the responses of which the transaction id belongs to one of the pending requests.
+	 * @param datagram The received datagram.
+	 * @return <code>true</code> when the datagram is a response to one of our requests.
 	 */
-	private boolean isConnectRequestQueued(UdpTracker tracker) {
-		synchronized (lock) {
-			if (pendingRespones.values().stream()
-					.filter(pendingRequest -> pendingRequest.request.getTracker().equals(tracker))
-					.anyMatch(pendingRequest -> pendingRequest.request.getAction() == TrackerAction.CONNECT)) {
-				return true;
-			}
-
-			if (unsentRequests.stream()
-					.filter(unsentRequest -> unsentRequest.tracker.equals(tracker))
-					.anyMatch(unsetRequest -> unsetRequest.payload.getAction() == TrackerAction.CONNECT)) {
-				return true;
-			}
+	@Override
+	public boolean isMatch(ByteBuffer datagram) {
+		if (datagram.remaining() < 8) {
+			return false;
 		}
 
-		return false;
-	}
-
-	private void receiveResponse() {
-		SentRequest sentRequest;
-		InStream inStream;
-		try {
-			// Read packet and find the corresponding request
-			inStream = socketUtils.read(udpSocket);
-		} catch (IOException e) {
-			LOGGER.warn("Tracker request failed to read.", e);
-			return;
+		int action = datagram.getInt(datagram.position());
+		if (action < TrackerAction.CONNECT.getId() || action > TrackerAction.ERROR.getId()) {
+			return false;
 		}
 
-		int transactionId = peekTransactionId(inStream);
+		return pendingRespones.containsKey(datagram.getInt(datagram.position() + 4));
+	}
 
-		synchronized (lock) {
-			sentRequest = pendingRespones.remove(transactionId);
-		}
+	@Override
+	public void onReceivedPacket(SocketAddress socketAddress, ByteBuffer datagram) {
+		int transactionId = datagram.getInt(datagram.position() + 4);
+		byte[] data = new byte[datagram.remaining()];
+		datagram.get(data);
 
-		if (sentRequest == null) {
-			LOGGER.warn("Received response with an unknown transaction id: {}", transactionId);
-			return;
-		}
-		try {
-			sentRequest.request.readResponse(inStream);
-			sentRequest.request.process();
-		} catch (TrackerException e) {
-			LOGGER.warn("Failed to process tracker response for {}", sentRequest.request, e);
-		}
-	}
+		// The datagram has been matched on this thread, so the request is still pending.
+		TrackerRequest request = pendingRespones.get(transactionId).request;
+		removePendingResponse(request);
 
-	public void shutdown() {
-		keepRunning = false;
-		taskLock.lock();
 		try {
-			newWork.signalAll();
-		} finally {
-			taskLock.unlock();
+			request.readResponse(new InStream(data));
+			request.process();
+		} catch (TrackerException | RuntimeException e) {
+			// Truncated or otherwise malformed responses fail the read with an unchecked exception.
+			LOGGER.warn("Failed to process tracker response for {}", request, e);
+			request.onFailure();
 		}
 	}
 
-	private int peekTransactionId(InStream inStream) {
-		inStream.mark();
-		// Ignore the 'action' field
-		inStream.readInt();
-
-		int transactionId = inStream.readInt();
-		inStream.resetToMark();
-		return transactionId;
-	}
-
 	private static final class UnsetRequest {
 
 		private final IUdpTrackerPayload payload;
 
 		private final UdpTracker tracker;
 
-		public UnsetRequest(UdpTracker tracker, IUdpTrackerPayload payload) {
+		/**
+		 * The time in milliseconds before which the request must not be sent.
+		 */
+		private final long sendTime;
+
+		public UnsetRequest(UdpTracker tracker, IUdpTrackerPayload payload, long sendTime) {
 			this.tracker = tracker;
 			this.payload = payload;
+			this.sendTime = sendTime;
 		}
 
 	}
 
 	private static final class SentRequest {
 
-		private final TrackerRequest request;
+		private final UnsetRequest source;
 
-		private final Clock clock;
+		private final TrackerRequest request;
 
-		private LocalDateTime sentTime;
+		private long sentTime;
 
 		private int attempt;
 
-		public SentRequest(TrackerRequest request, Clock clock) {
+		public SentRequest(UnsetRequest source, TrackerRequest request, long sentTime) {
+			this.source = source;
 			this.request = request;
-			this.clock = clock;
-			sentTime = LocalDateTime.ofInstant(clock.instant(), clock.getZone());
+			this.sentTime = sentTime;
 		}
 
-		public boolean isTimedout() {
-			Duration timeoutPeriod = Duration.ofSeconds(15L * (int) Math.pow(2, attempt));
-			Duration timeSinceRequest = Duration.between(sentTime, LocalDateTime.now(clock));
-			if (timeSinceRequest.minus(timeoutPeriod).isNegative()) {
-				LOGGER.trace("Request not timed out: {}, Sent: {}", LocalDateTime.now(clock), sentTime);
-				// There is still some time left before the timeout hits
-				return false;
-			}
-
-			return true;
+		/**
+		 * @return The time in milliseconds at which the last transmission times out.
+		 */
+		public long getDeadline() {
+			return sentTime + (BASE_TIMEOUT_MILLIS << attempt);
 		}
 	}
 
@@ -377,6 +373,8 @@ public class UdpTrackerSocket implements Runnable {
 
 		private UdpSocketUtils socketUtils;
 
+		private UdpDemultiplexer demultiplexer;
+
 		private Clock clock;
 
 		public Builder() {
@@ -398,7 +396,12 @@ public class UdpTrackerSocket implements Runnable {
 			return this;
 		}
 
-		public UdpTrackerSocket build() throws TrackerException {
+		public Builder setDemultiplexer(UdpDemultiplexer demultiplexer) {
+			this.demultiplexer = demultiplexer;
+			return this;
+		}
+
+		public UdpTrackerSocket build() {
 			return new UdpTrackerSocket(this);
 		}
 	}
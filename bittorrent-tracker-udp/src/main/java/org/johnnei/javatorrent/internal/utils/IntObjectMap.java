@@ -0,0 +1,161 @@
+package org.johnnei.javatorrent.internal.utils;
+
+import java.util.Objects;
+
+/**
+ * A hash map with primitive <code>int</code> keys which uses open addressing with linear probing. Unlike a {@link java.util.HashMap} the keys are neither
+ * boxed nor wrapped in entry objects. <code>null</code> values are not supported as they mark the empty slots.
+ * This class is not thread-safe.
+ *
+ * @param <V> The type of the values.
+ */
+public class IntObjectMap<V> {
+
+	private static final int MINIMAL_CAPACITY = 16;
+
+	private int[] keys;
+
+	private Object[] values;
+
+	/**
+	 * The mask to map a hash onto a slot. The capacity is always a power of two.
+	 */
+	private int mask;
+
+	private int size;
+
+	/**
+	 * Creates a new empty map.
+	 */
+	public IntObjectMap() {
+		allocate(MINIMAL_CAPACITY);
+	}
+
+	/**
+	 * @param key The key to find.
+	 * @return The value associated with the key or <code>null</code> when the key isn't in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int slot = findSlot(key);
+		return (V) values[slot];
+	}
+
+	/**
+	 * @param key The key to find.
+	 * @return <code>true</code> when a value is associated with the key.
+	 */
+	public boolean containsKey(int key) {
+		return values[findSlot(key)] != null;
+	}
+
+	/**
+	 * Associates the value with the key.
+	 * @param key The key.
+	 * @param value The value.
+	 * @return The value which was previously associated with the key or <code>null</code> if there was none.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		Objects.requireNonNull(value, "Value can not be null.");
+
+		int slot = findSlot(key);
+		V previous = (V) values[slot];
+		keys[slot] = key;
+		values[slot] = value;
+
+		if (previous == null) {
+			size++;
+			// Keep the load factor at most one half so probe sequences stay short.
+			if (size * 2 > keys.length) {
+				resize(keys.length * 2);
+			}
+		}
+
+		return previous;
+	}
+
+	/**
+	 * Removes the value associated with the key.
+	 * @param key The key.
+	 * @return The removed value or <code>null</code> when the key isn't in the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int slot = findSlot(key);
+		V previous = (V) values[slot];
+		if (previous == null) {
+			return null;
+		}
+
+		values[slot] = null;
+		size--;
+
+		// Shift the entries which probed past the removed slot back so no lookup terminates early on the new gap.
+		int gap = slot;
+		int next = (gap + 1) & mask;
+		while (values[next] != null) {
+			int home = hash(keys[next]);
+			if (((next - home) & mask) >= ((next - gap) & mask)) {
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				values[next] = null;
+				gap = next;
+			}
+			next = (next + 1) & mask;
+		}
+
+		return previous;
+	}
+
+	/**
+	 * @return The amount of entries in the map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return <code>true</code> when the map doesn't contain any entries.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return The slot which contains the key or the empty slot at which the key must be inserted.
+	 */
+	private int findSlot(int key) {
+		int slot = hash(key);
+		while (values[slot] != null && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int hash(int key) {
+		// Spread the bits as sequential keys would otherwise form long runs of occupied slots.
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private void resize(int capacity) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+	}
+}
@@ -6,11 +6,13 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -76,11 +78,6 @@ public class UdpTracker implements ITracker {
 	 */
 	private LocalDateTime lastScrapeTime;
 
-	/**
-	 * The minimum announce interval as requested by the tracker
-	 */
-	private int announceInterval;
-
 	/**
 	 * The endpoint at which the tracker is available
 	 */
@@ -109,7 +106,6 @@ public class UdpTracker implements ITracker {
 
 		activeConnection = new Connection(clock);
 		torrentMap = new HashMap<>();
-		announceInterval = (int) Duration.ofSeconds(30).toMillis();
 		lastScrapeTime = LocalDateTime.now(clock).minus(DEFAULT_SCRAPE_INTERVAL, ChronoUnit.MILLIS);
 
 		// Parse URL
@@ -173,20 +169,33 @@ public class UdpTracker implements ITracker {
 	}
 
 	/**
-	 * Scrapes all torrents for this tracker
-	 * TODO Improve the tracker implementation to allow multiple torrents to be scraped at once
+	 * Scrapes all torrents for this tracker.
+	 * The torrents are scraped in batches of at most {@link ScrapeRequest#MAX_TORRENTS} torrents which are spread across the scrape interval.
 	 */
 	@Override
 	public void scrape() {
-		if(Duration.between(lastScrapeTime, LocalDateTime.now(clock)).compareTo(Duration.of(DEFAULT_SCRAPE_INTERVAL, ChronoUnit.MILLIS)) < 0) {
-			// We're not allowed to scrape yet
+		List<Torrent> torrents;
+		synchronized (this) {
+			LocalDateTime now = LocalDateTime.now(clock);
+			if(Duration.between(lastScrapeTime, now).compareTo(Duration.of(DEFAULT_SCRAPE_INTERVAL, ChronoUnit.MILLIS)) < 0) {
+				// We're not allowed to scrape yet
+				return;
+			}
+
+			lastScrapeTime = now;
+			torrents = new ArrayList<>(torrentMap.keySet());
+		}
+
+		if (torrents.isEmpty()) {
 			return;
 		}
 
-		synchronized (this) {
-			torrentMap.values().stream()
-					.map(torrentInfo -> torrentInfo.getTorrent())
-					.forEach(torrent -> trackerSocket.submitRequest(this, new ScrapeRequest(Collections.singletonList(torrent))));
+		int batchCount = (torrents.size() + ScrapeRequest.MAX_TORRENTS - 1) / ScrapeRequest.MAX_TORRENTS;
+		Duration batchSpacing = Duration.ofMillis(DEFAULT_SCRAPE_INTERVAL).dividedBy(batchCount);
+		for (int batch = 0; batch < batchCount; batch++) {
+			int start = batch * ScrapeRequest.MAX_TORRENTS;
+			int end = Math.min(torrents.size(), start + ScrapeRequest.MAX_TORRENTS);
+			trackerSocket.submitRequest(this, new ScrapeRequest(new ArrayList<>(torrents.subList(start, end))), batchSpacing.multipliedBy(batch));
 		}
 	}
 
@@ -194,19 +203,21 @@ public class UdpTracker implements ITracker {
 	 * @see torrent.download.tracker.ITracker#announce(torrent.download.Torrent)
 	 */
 	@Override
-	public void announce(Torrent torrent) {
+	public CompletableFuture<Void> announce(Torrent torrent) {
 		TorrentInfo torrentInfo;
 
 		synchronized (this) {
 			torrentInfo = torrentMap.get(torrent);
 		}
 
-		if(torrentInfo.getTimeSinceLastAnnounce().compareTo(Duration.of(announceInterval, ChronoUnit.MILLIS)) < 0) {
+		if (!torrentInfo.isAnnounceAllowed()) {
 			// We're not allowed to announce yet
-			return;
+			return CompletableFuture.completedFuture(null);
 		}
 
-		trackerSocket.submitRequest(this, new AnnounceRequest(torrentInfo, torrentClient.getPeerId(), torrentClient.getDownloadPort()));
+		AnnounceRequest request = new AnnounceRequest(torrentInfo, torrentClient.getPeerId(), torrentClient.getDownloadPort());
+		trackerSocket.submitRequest(this, request);
+		return request.getResult();
 	}
 
 	/**
@@ -277,10 +288,6 @@ public class UdpTracker implements ITracker {
 		return activeConnection;
 	}
 
-	public void setAnnounceInterval(int interval) {
-		announceInterval = interval;
-	}
-
 	public InetSocketAddress getSocketAddress() {
 		return trackerAddress;
 	}
@@ -1,20 +1,23 @@
 package org.johnnei.javatorrent.tracker;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 
 import org.johnnei.javatorrent.TorrentClient;
-import org.johnnei.javatorrent.bittorrent.tracker.TrackerException;
 import org.johnnei.javatorrent.internal.tracker.udp.UdpSocketUtils;
 import org.johnnei.javatorrent.internal.tracker.udp.UdpTrackerSocket;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.module.ModuleBuildException;
+import org.johnnei.javatorrent.network.udp.UdpDemultiplexer;
 import org.johnnei.javatorrent.torrent.peer.Peer;
 
 public final class UdpTrackerModule implements IModule {
 
 	private UdpTrackerSocket socket;
 
+	private UdpDemultiplexer demultiplexer;
+
 	private UdpTrackerModule() {
 	}
 
@@ -45,21 +48,21 @@ public final class UdpTrackerModule implements IModule {
 	@Override
 	public void onBuild(TorrentClient torrentClient) throws ModuleBuildException {
 		try {
+			demultiplexer = torrentClient.getUdpDemultiplexer();
 			socket = new UdpTrackerSocket.Builder()
 					.setTorrentClient(torrentClient)
 					.setSocketUtils(new UdpSocketUtils())
+					.setDemultiplexer(demultiplexer)
 					.build();
-			Thread thread = new Thread(socket, "UdpTracker Worker Thread");
-			thread.setDaemon(true);
-			thread.start();
-		} catch (TrackerException e) {
+			demultiplexer.register(socket);
+		} catch (IOException e) {
 			throw new ModuleBuildException("Failed to initialize tracker", e);
 		}
 	}
 
 	@Override
 	public void onShutdown() {
-		socket.shutdown();
+		demultiplexer.unregister(socket);
 	}
 
 	public static final class Builder {
@@ -3,6 +3,8 @@ package org.johnnei.javatorrent.internal.tracker.udp;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.Test;
 import org.powermock.reflect.Whitebox;
@@ -22,7 +24,9 @@ import org.johnnei.javatorrent.tracker.UdpTracker;
 import static org.johnnei.javatorrent.test.TestUtils.copySection;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -102,7 +106,7 @@ public class AnnounceRequestTest {
 				.build();
 		torrent.setFileSet(torrentFileSetMock);
 
-		Whitebox.setInternalState(torrent, "downloadedBytes", 5);
+		Whitebox.<AtomicLong>getInternalState(torrent, "downloadedBytes").set(5);
 		torrent.addUploadedBytes(7);
 
 		TorrentInfo info = new TorrentInfo(torrent, Clock.systemDefaultZone());
@@ -135,7 +139,7 @@ public class AnnounceRequestTest {
 	public void testReadResponse() throws Exception {
 		byte[] inputData = new byte[] {
 				// Interval: 30 seconds
-				0x00, 0x00, 0x75, 0x30,
+				0x00, 0x00, 0x00, 0x1E,
 				// 5 leechers
 				0x00, 0x00, 0x00, 0x05,
 				// 42 seeders
@@ -158,7 +162,8 @@ public class AnnounceRequestTest {
 		request.process(trackerMock);
 
 		verify(trackerMock).connectPeer(eq(peerInfo));
-		verify(trackerMock).setAnnounceInterval(eq(30_000));
+		assertEquals(Duration.ofSeconds(30), info.getAnnounceInterval(), "Incorrect announce interval");
+		assertTrue(request.getResult().isDone(), "Announce should have completed");
 
 		assertEquals(5, info.getLeechers(), "Incorrect leechers amount");
 		assertEquals(42, info.getSeeders(), "Incorrect seeders amount");
@@ -168,7 +173,7 @@ public class AnnounceRequestTest {
 	public void testReadBrokenResponse() throws Exception {
 		byte[] inputData = new byte[] {
 				// Interval: 30 seconds
-				0x00, 0x00, 0x75, 0x30,
+				0x00, 0x00, 0x00, 0x1E,
 				// 5 leechers
 				0x00, 0x00, 0x00, 0x05,
 				// 42 seeders
@@ -189,12 +194,24 @@ public class AnnounceRequestTest {
 
 		request.process(trackerMock);
 
-		verify(trackerMock).setAnnounceInterval(eq(30_000));
+		assertEquals(Duration.ofSeconds(30), info.getAnnounceInterval(), "Incorrect announce interval");
 
 		assertEquals(5, info.getLeechers(), "Incorrect leechers amount");
 		assertEquals(42, info.getSeeders(), "Incorrect seeders amount");
 	}
 
+	@Test
+	public void testOnFailure() {
+		TorrentInfo info = new TorrentInfo(DummyEntity.createUniqueTorrent(), Clock.systemDefaultZone());
+		AnnounceRequest request = new AnnounceRequest(info, DummyEntity.createPeerId(), 27960);
+
+		assertFalse(request.getResult().isDone(), "Announce should not have completed before the response");
+
+		request.onFailure();
+
+		assertTrue(request.getResult().isDone(), "Failed announce should have completed");
+	}
+
 	@Test
 	public void testGetAction() {
 		AnnounceRequest request = new AnnounceRequest(
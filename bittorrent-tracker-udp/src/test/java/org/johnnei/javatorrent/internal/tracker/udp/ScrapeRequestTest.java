@@ -1,7 +1,9 @@
 package org.johnnei.javatorrent.internal.tracker.udp;
 
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import org.junit.jupiter.api.Test;
@@ -118,6 +120,16 @@ public class ScrapeRequestTest {
 		assertThrows(TrackerException.class, () -> request.readResponse(inStream));
 	}
 
+	@Test
+	public void testTooManyTorrents() {
+		List<Torrent> torrents = new ArrayList<>();
+		for (int i = 0; i <= ScrapeRequest.MAX_TORRENTS; i++) {
+			torrents.add(DummyEntity.createUniqueTorrent());
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> new ScrapeRequest(torrents));
+	}
+
 	@Test
 	public void testMinimalSize() {
 		ScrapeRequest request = new ScrapeRequest(Collections.emptyList());
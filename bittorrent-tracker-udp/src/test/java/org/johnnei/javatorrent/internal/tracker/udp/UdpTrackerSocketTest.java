@@ -1,26 +1,20 @@
 package org.johnnei.javatorrent.internal.tracker.udp;
 
-import java.net.DatagramSocket;
-import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.time.Clock;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import org.johnnei.javatorrent.TorrentClient;
-import org.johnnei.javatorrent.TorrentClientSettings;
 import org.johnnei.javatorrent.bittorrent.tracker.TorrentInfo;
-import org.johnnei.javatorrent.bittorrent.tracker.TrackerAction;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerException;
-import org.johnnei.javatorrent.network.InStream;
 import org.johnnei.javatorrent.network.OutStream;
+import org.johnnei.javatorrent.network.udp.UdpDemultiplexer;
 import org.johnnei.javatorrent.test.TestClock;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.tracker.UdpTracker;
@@ -29,20 +23,36 @@ import static org.johnnei.javatorrent.test.DummyEntity.createUniqueTorrent;
 import static org.johnnei.javatorrent.test.TestUtils.assertPresent;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+/**
+ * Tests {@link UdpTrackerSocket}
+ */
 public class UdpTrackerSocketTest {
 
-	private Thread thread;
+	private static final byte[] CONNECT_RESPONSE = new byte[] {
+			// Action
+			0x00, 0x00, 0x00, 0x00,
+			// Transaction ID
+			0x00, 0x00, 0x00, 0x01,
+			// Connection ID
+			0x01, 0x23, 0x45, 0x67, (byte) 0x89, (byte) 0xAB, (byte) 0xCD, (byte) 0xEF
+	};
 
 	private TorrentClient torrentClientMock = mock(TorrentClient.class);
 
+	private UdpDemultiplexer demultiplexerMock = mock(UdpDemultiplexer.class);
+
 	private int transactionId;
 
 	private UdpSocketUtils utilsMock = mock(UdpSocketUtils.class);
@@ -51,43 +61,17 @@ public class UdpTrackerSocketTest {
 
 	private UdpTrackerSocket cut;
 
-	private int readAttempt;
-
-	// Locks to delay the assertions until the worker thread has completed its work.
-
-	private Lock resultLock;
-
-	private Condition condition;
-
-	/**
-	 * The exception thrown on the worker thread if any
-	 */
-	private Throwable threadException;
-
-	/**
-	 * The thread on which the test is being run
-	 */
-	private Thread testThread;
-
 	private TestClock testClock;
 
 	@BeforeEach
 	public void setUp() throws Exception {
-		// Thread sync
-		resultLock = new ReentrantLock();
-		condition = resultLock.newCondition();
-		testThread = Thread.currentThread();
 		testClock = new TestClock(Clock.systemDefaultZone());
+		when(demultiplexerMock.getChannel()).thenReturn(mock(DatagramChannel.class));
 
-		TorrentClientSettings settings = mock(TorrentClientSettings.class);
-		when(settings.getAcceptingPort()).thenReturn(27500);
-		when(torrentClientMock.getSettings()).thenReturn(settings);
-
-		// Prepare context
-		readAttempt = 0;
 		cut = new UdpTrackerSocket.Builder()
 				.setTorrentClient(torrentClientMock)
 				.setSocketUtils(utilsMock)
+				.setDemultiplexer(demultiplexerMock)
 				.setClock(testClock)
 				.build();
 		tracker = new UdpTracker.Builder()
@@ -95,43 +79,36 @@ public class UdpTrackerSocketTest {
 				.setTorrentClient(torrentClientMock)
 				.setUrl("udp://localhost:80")
 				.build();
-		thread = new Thread(cut, "UDP Tracker Test Thread");
-		thread.setDaemon(true);
-
-		// Obtain information to rethrow exceptions
-		thread.setUncaughtExceptionHandler((Thread t, Throwable e) -> {
-			threadException = e;
-			testThread.interrupt();
-		});
-		thread.start();
 	}
 
-	@AfterEach
-	public void tearDown() throws Exception {
-		cut.shutdown();
-		thread.join();
+	/**
+	 * Passes the response to the socket in the same way as the demultiplexer does.
+	 */
+	private void receive(byte[] response) {
+		ByteBuffer datagram = ByteBuffer.wrap(response);
+		assertTrue(cut.isMatch(datagram), "Response should have been matched");
+		cut.onReceivedPacket(tracker.getSocketAddress(), datagram);
+	}
+
+	private void verifyWrites(int count) throws Exception {
+		verify(utilsMock, times(count)).write(isA(DatagramChannel.class), notNull(), isA(OutStream.class));
+	}
+
+	private void setClockOffset(Duration offset) {
+		testClock.setClock(Clock.offset(Clock.systemDefaultZone(), offset));
 	}
 
 	@Test
 	public void testAnnounceBeforeConnect() throws Exception {
-		InStream connectResponse = new InStream(new byte[] {
-				// Action
-				0x00, 0x00, 0x00, 0x00,
-				// Transaction ID
-				0x00, 0x00, 0x00, 0x01,
-				// Connection ID
-				0x01, 0x23, 0x45, 0x67, (byte) 0x89, (byte) 0xAB, (byte) 0xCD, (byte) 0xEF
-		});
-
-		InStream malformedResponse = new InStream(new byte[] {
+		byte[] malformedResponse = new byte[] {
 				0x00, 0x00, 0x00, 0x02,
 				0x00, 0x12, 0x00, 0x00,
 				0x00, 0x00, 0x00, 0x08,
 				0x00, 0x00, 0x00, 0x08,
 				0x00, 0x00, 0x00, 0x08
-		});
+		};
 
-		InStream scrapeResponse = new InStream(new byte[] {
+		byte[] scrapeResponse = new byte[] {
 				// Action
 				0x00, 0x00, 0x00, 0x02,
 				// Transaction ID
@@ -142,31 +119,30 @@ public class UdpTrackerSocketTest {
 				0x00, 0x00, 0x00, 0x03,
 				// Leechers
 				0x00, 0x00, 0x00, 0x02
-		});
+		};
 
 		Torrent torrent = createUniqueTorrent();
 		tracker.addTorrent(torrent);
 
-		ScrapeRequest scrapeMessage = new ScrapeRequest(Collections.singletonList(torrent));
-
 		when(torrentClientMock.createUniqueTransactionId()).thenReturn(++transactionId).thenReturn(++transactionId);
 
-		when(utilsMock.read(isA(DatagramSocket.class))).thenReturn(malformedResponse).thenReturn(connectResponse).thenReturn(scrapeResponse);
+		cut.submitRequest(tracker, new ScrapeRequest(Collections.singletonList(torrent)));
+		verify(demultiplexerMock).wakeup();
+		assertEquals(0, cut.getMillisUntilProcess(), "Submitted request should be processed right away");
 
-		cut.submitRequest(tracker, new MessageWrapper(resultLock, condition, scrapeMessage));
+		cut.process();
 
-		resultLock.lock();
-		try {
-			// Await at most 10 seconds in case we already missed the wake up call at this point
-			condition.await(10, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			throw new AssertionError("Worker thread failed.", threadException);
-		} finally {
-			resultLock.unlock();
-		}
+		// Only the connect request can be sent.
+		verifyWrites(1);
+		assertFalse(cut.isMatch(ByteBuffer.wrap(malformedResponse)), "Response with an unknown transaction id should not be matched");
+		receive(CONNECT_RESPONSE);
+
+		cut.process();
 
-		verify(utilsMock, times(2)).write(isA(DatagramSocket.class), notNull(), isA(OutStream.class));
+		verifyWrites(2);
+		receive(scrapeResponse);
 
+		assertEquals(-1, cut.getMillisUntilProcess(), "No requests are pending");
 		TorrentInfo info = assertPresent("Torrent should have been registered.", tracker.getInfo(torrent));
 
 		assertAll(
@@ -177,162 +153,165 @@ public class UdpTrackerSocketTest {
 	}
 
 	@Test
-	public void testPacketTimeouts() throws Exception {
-		InStream connectResponse = new InStream(new byte[] {
-				// Action
-				0x00, 0x00, 0x00, 0x00,
-				// Transaction ID
-				0x00, 0x00, 0x00, 0x01,
-				// Connection ID
-				0x01, 0x23, 0x45, 0x67, (byte) 0x89, (byte) 0xAB, (byte) 0xCD, (byte) 0xEF
-		});
+	public void testIsMatch() {
+		when(torrentClientMock.createUniqueTransactionId()).thenReturn(++transactionId);
 
-		Torrent torrent = createUniqueTorrent();
-		tracker.addTorrent(torrent);
+		assertFalse(cut.isMatch(ByteBuffer.wrap(CONNECT_RESPONSE)), "Response should not match before the request is sent");
+
+		cut.submitRequest(tracker, new ConnectionRequest(Clock.systemDefaultZone()));
+		cut.process();
 
+		assertTrue(cut.isMatch(ByteBuffer.wrap(CONNECT_RESPONSE)), "Response should match the pending request");
+		assertFalse(cut.isMatch(ByteBuffer.wrap(new byte[] { 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00 })), "Too short datagram should not match");
+
+		byte[] unknownAction = CONNECT_RESPONSE.clone();
+		unknownAction[3] = 0x04;
+		assertFalse(cut.isMatch(ByteBuffer.wrap(unknownAction)), "Unknown action should not match");
+
+		ByteBuffer datagram = ByteBuffer.wrap(CONNECT_RESPONSE);
+		cut.isMatch(datagram);
+		assertEquals(0, datagram.position(), "Position must not be changed");
+	}
+
+	@Test
+	public void testTruncatedResponseFailsRequest() {
 		when(torrentClientMock.createUniqueTransactionId()).thenReturn(++transactionId);
 
-		when(utilsMock.read(isA(DatagramSocket.class))).thenAnswer(inv -> {
-			testClock.setClock(Clock.offset(Clock.systemDefaultZone(), Duration.ofSeconds(16)));
-			throw new SocketTimeoutException();
-		}).thenAnswer(inv -> {
-			testClock.setClock(Clock.offset(Clock.systemDefaultZone(), Duration.ofSeconds(60)));
-			throw new SocketTimeoutException();
-		}).thenReturn(connectResponse);
-
-		cut.submitRequest(tracker, new MessageWrapper(resultLock, condition, new ConnectionRequest(Clock.systemDefaultZone())));
-
-		resultLock.lock();
-		try {
-			// Await at most 10 seconds as the test fakes the time passing by offset
-			condition.await(10, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			throw new AssertionError("Worker thread failed.", threadException);
-		} finally {
-			resultLock.unlock();
-		}
+		ConnectionRequest request = spy(new ConnectionRequest(Clock.systemDefaultZone()));
+		cut.submitRequest(tracker, request);
+		cut.process();
 
-		verify(utilsMock, times(3)).write(isA(DatagramSocket.class), notNull(), isA(OutStream.class));
+		receive(Arrays.copyOf(CONNECT_RESPONSE, 8));
 
-		assertEquals(81985529216486895L, tracker.getConnection().getId(), "Invalid connection id");
+		verify(request).onFailure();
+		verify(request, never()).process(any());
+		assertEquals(-1, cut.getMillisUntilProcess(), "Failed request should no longer be pending");
 	}
 
 	@Test
-	public void testPacketFullyTimedout() throws Exception {
+	public void testSubmitDelayedRequest() throws Exception {
+		when(torrentClientMock.createUniqueTransactionId()).thenReturn(++transactionId);
+
+		cut.submitRequest(tracker, new ConnectionRequest(Clock.systemDefaultZone()), Duration.ofSeconds(5));
+		cut.process();
+
+		verifyWrites(0);
+		long timeout = cut.getMillisUntilProcess();
+		assertTrue(timeout > 4_000 && timeout <= 5_000, "Process should be invoked once the delay has passed but was " + timeout);
+
+		setClockOffset(Duration.ofSeconds(5));
+		cut.process();
+
+		verifyWrites(1);
+	}
+
+	@Test
+	public void testPacketTimeouts() throws Exception {
 		Torrent torrent = createUniqueTorrent();
 		tracker.addTorrent(torrent);
 
-		tracker = new UdpTrackerWrapper(new UdpTracker.Builder()
-				.setSocket(cut)
-				.setTorrentClient(torrentClientMock)
-				.setUrl("udp://localhost:80"),
-				resultLock, condition);
-
 		when(torrentClientMock.createUniqueTransactionId()).thenReturn(++transactionId);
 
-		when(utilsMock.read(isA(DatagramSocket.class))).thenAnswer(inv -> {
-			Duration newOffset = Duration.ofSeconds((readAttempt + 1) + (15L * (int) Math.pow(2, readAttempt)));
-			++readAttempt;
+		cut.submitRequest(tracker, new ConnectionRequest(Clock.systemDefaultZone()));
+		cut.process();
+		verifyWrites(1);
 
-			testClock.setClock(Clock.offset(Clock.systemDefaultZone(), newOffset));
-			throw new SocketTimeoutException();
-		});
+		long timeout = cut.getMillisUntilProcess();
+		assertTrue(timeout > 14_000 && timeout <= 15_000, "Process should be invoked once the request times out but was " + timeout);
 
-		// Test with a connection request to prevent connection ID timeouts to cause extra calls.
-		cut.submitRequest(tracker, new MessageWrapper(resultLock, condition, new ConnectionRequest(Clock.systemDefaultZone())));
-
-		resultLock.lock();
-		try {
-			// Await at most 10 seconds as the test fakes the time passing by offset
-			condition.await(10, TimeUnit.SECONDS);
-		} catch (InterruptedException e) {
-			throw new AssertionError("Worker thread failed.", threadException);
-		} finally {
-			resultLock.unlock();
-		}
+		setClockOffset(Duration.ofSeconds(16));
+		cut.process();
+		verifyWrites(2);
+
+		// The retransmission times out after 30 seconds.
+		setClockOffset(Duration.ofSeconds(29));
+		cut.process();
+		verifyWrites(2);
+
+		setClockOffset(Duration.ofSeconds(47));
+		cut.process();
+		verifyWrites(3);
 
-		verify(utilsMock, times(9)).write(isA(DatagramSocket.class), notNull(), isA(OutStream.class));
+		receive(CONNECT_RESPONSE);
+		cut.process();
 
-		assertTrue(((UdpTrackerWrapper)tracker).failed, "Expected packet failure");
+		verifyWrites(3);
+		assertEquals(81985529216486895L, tracker.getConnection().getId(), "Invalid connection id");
 	}
 
-	private static final class MessageWrapper implements IUdpTrackerPayload {
+	@Test
+	public void testResendAfterConnectionExpired() throws Exception {
+		Torrent torrent = createUniqueTorrent();
+		tracker.addTorrent(torrent);
 
-		private final Lock lock;
+		when(torrentClientMock.createUniqueTransactionId()).thenReturn(1, 2, 3, 4);
 
-		private final Condition condition;
+		cut.submitRequest(tracker, new ScrapeRequest(Collections.singletonList(torrent)));
+		cut.process();
+		receive(CONNECT_RESPONSE);
+		cut.process();
+		verifyWrites(2);
 
-		private final IUdpTrackerPayload message;
+		// Both the scrape request and the connection id have timed out.
+		setClockOffset(Duration.ofSeconds(61));
+		cut.process();
 
-		public MessageWrapper(Lock lock, Condition condition, IUdpTrackerPayload message) {
-			this.lock = lock;
-			this.condition = condition;
-			this.message = message;
-		}
+		verifyWrites(3);
+		assertFalse(cut.isMatch(ByteBuffer.wrap(new byte[] { 0x00, 0x00, 0x00, 0x02, 0x00, 0x00, 0x00, 0x02 })),
+				"Scrape request with the expired connection id should no longer be pending");
 
-		@Override
-		public void writeRequest(OutStream outStream) {
-			message.writeRequest(outStream);
-		}
+		byte[] connectResponse = CONNECT_RESPONSE.clone();
+		connectResponse[7] = 0x03;
+		receive(connectResponse);
+		cut.process();
 
-		@Override
-		public void readResponse(InStream inStream) throws TrackerException {
-			message.readResponse(inStream);
-		}
+		verifyWrites(4);
+		assertTrue(cut.isMatch(ByteBuffer.wrap(new byte[] { 0x00, 0x00, 0x00, 0x02, 0x00, 0x00, 0x00, 0x04 })),
+				"Scrape request should have been resent with a new transaction id");
+	}
 
-		@Override
-		public void process(UdpTracker tracker) {
-			message.process(tracker);
-			lock.lock();
-			try {
-				condition.signalAll();
-			} finally {
-				lock.unlock();
-			}
-		}
+	@Test
+	public void testPacketFullyTimedout() throws Exception {
+		Torrent torrent = createUniqueTorrent();
+		tracker.addTorrent(torrent);
 
-		@Override
-		public TrackerAction getAction() {
-			return message.getAction();
-		}
+		UdpTrackerWrapper trackerWrapper = new UdpTrackerWrapper(new UdpTracker.Builder()
+				.setSocket(cut)
+				.setTorrentClient(torrentClientMock)
+				.setUrl("udp://localhost:80"));
+		tracker = trackerWrapper;
 
-		@Override
-		public int getMinimalSize() {
-			return message.getMinimalSize();
-		}
+		when(torrentClientMock.createUniqueTransactionId()).thenReturn(++transactionId);
 
-		@Override
-		public String toString() {
-			return message.toString();
+		// Test with a connection request to prevent connection ID timeouts to cause extra calls.
+		cut.submitRequest(tracker, new ConnectionRequest(Clock.systemDefaultZone()));
+		cut.process();
+
+		Duration offset = Duration.ZERO;
+		for (int attempt = 0; attempt <= 8; attempt++) {
+			offset = offset.plusSeconds(1 + (15L * (int) Math.pow(2, attempt)));
+			setClockOffset(offset);
+			cut.process();
 		}
 
+		verifyWrites(9);
+
+		assertTrue(trackerWrapper.failed, "Expected packet failure");
+		assertEquals(-1, cut.getMillisUntilProcess(), "Failed request should no longer be pending");
 	}
 
 	private static class UdpTrackerWrapper extends UdpTracker {
 
-		private final Lock lock;
-
-		private final Condition condition;
-
 		private boolean failed;
 
-		public UdpTrackerWrapper(UdpTracker.Builder builder, Lock lock, Condition condition) throws TrackerException {
+		public UdpTrackerWrapper(UdpTracker.Builder builder) throws TrackerException {
 			super(builder);
-			this.lock = lock;
-			this.condition = condition;
 		}
 
 		@Override
 		public void onRequestFailed(IUdpTrackerPayload payload) {
 			super.onRequestFailed(payload);
 			failed = true;
-
-			lock.lock();
-			try {
-				condition.signalAll();
-			} finally {
-				lock.unlock();
-			}
 		}
 
 	}
@@ -0,0 +1,70 @@
+package org.johnnei.javatorrent.internal.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link IntObjectMap}
+ */
+public class IntObjectMapTest {
+
+	@Test
+	public void testPutGetRemove() {
+		IntObjectMap<String> cut = new IntObjectMap<>();
+
+		assertTrue(cut.isEmpty(), "New map should be empty");
+		assertNull(cut.put(5, "five"), "No value should have been replaced");
+		assertNull(cut.put(-7, "minus seven"), "No value should have been replaced");
+		assertEquals("five", cut.put(5, "FIVE"), "Old value should have been returned");
+
+		assertEquals(2, cut.size(), "Incorrect size");
+		assertEquals("FIVE", cut.get(5), "Incorrect value for key 5");
+		assertEquals("minus seven", cut.get(-7), "Incorrect value for key -7");
+		assertTrue(cut.containsKey(-7), "Key -7 should be in the map");
+		assertFalse(cut.containsKey(6), "Key 6 should not be in the map");
+		assertNull(cut.get(6), "Missing key should return null");
+
+		assertEquals("FIVE", cut.remove(5), "Removed value should have been returned");
+		assertNull(cut.remove(5), "Key was already removed");
+		assertFalse(cut.containsKey(5), "Key 5 should have been removed");
+		assertEquals(1, cut.size(), "Incorrect size after removal");
+	}
+
+	@Test
+	public void testRejectNullValue() {
+		IntObjectMap<String> cut = new IntObjectMap<>();
+		assertThrows(NullPointerException.class, () -> cut.put(1, null));
+	}
+
+	@Test
+	public void testMatchesHashMap() {
+		IntObjectMap<Integer> cut = new IntObjectMap<>();
+		Map<Integer, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		// A small key range causes collisions, resizes and removals in the middle of probe sequences.
+		for (int i = 0; i < 20_000; i++) {
+			int key = random.nextInt(512) * 1024;
+			if (random.nextBoolean()) {
+				assertEquals(expected.put(key, i), cut.put(key, i), "Put returned a different previous value for " + key);
+			} else {
+				assertEquals(expected.remove(key), cut.remove(key), "Remove returned a different value for " + key);
+			}
+			assertEquals(expected.size(), cut.size(), "Size diverged");
+		}
+
+		for (int key = 0; key < 512 * 1024; key += 1024) {
+			assertEquals(expected.get(key), cut.get(key), "Incorrect value for " + key);
+		}
+	}
+
+}
@@ -1,21 +1,21 @@
 package org.johnnei.javatorrent.tracker;
 
-import java.net.DatagramSocket;
+import java.nio.channels.DatagramChannel;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.powermock.reflect.Whitebox;
 
 import org.johnnei.javatorrent.TorrentClient;
-import org.johnnei.javatorrent.TorrentClientSettings;
 import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerException;
 import org.johnnei.javatorrent.internal.tracker.udp.UdpTrackerSocket;
+import org.johnnei.javatorrent.network.udp.UdpDemultiplexer;
 import org.johnnei.javatorrent.utils.CheckedBiFunction;
 
-import static org.johnnei.javatorrent.test.DummyEntity.findAvailableUdpPort;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.notNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -47,22 +47,24 @@ public class UdpTrackerModuleTest {
 
 	@Test
 	public void testOnBuildAndShutdown() throws Exception {
-		final int port = findAvailableUdpPort();
 		UdpTrackerModule cut = new UdpTrackerModule.Builder()
 				.build();
 
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
-		TorrentClientSettings settingsMock = mock(TorrentClientSettings.class);
-		when(torrentClientMock.getSettings()).thenReturn(settingsMock);
+		UdpDemultiplexer demultiplexerMock = mock(UdpDemultiplexer.class);
+		DatagramChannel channelMock = mock(DatagramChannel.class);
+		when(demultiplexerMock.getChannel()).thenReturn(channelMock);
+		when(torrentClientMock.getUdpDemultiplexer()).thenReturn(demultiplexerMock);
 
 		try {
 			cut.onBuild(torrentClientMock);
 		} finally {
-			// Clean up the socket after the test to prevent retaining a bound socket.
+			// Unregister from the demultiplexer after the test.
 			cut.onShutdown();
 		}
 
-		verify(settingsMock, times(1)).getAcceptingPort();
+		verify(demultiplexerMock, times(1)).register(isA(UdpTrackerSocket.class));
+		verify(demultiplexerMock, times(1)).unregister(isA(UdpTrackerSocket.class));
 	}
 
 	@Test
@@ -5,18 +5,20 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.tracker.TorrentInfo;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerAction;
+import org.johnnei.javatorrent.bittorrent.tracker.TrackerEvent;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerException;
 import org.johnnei.javatorrent.internal.tracker.udp.IUdpTrackerPayload;
 import org.johnnei.javatorrent.internal.tracker.udp.UdpTrackerSocket;
+import org.johnnei.javatorrent.network.OutStream;
 import org.johnnei.javatorrent.test.DummyEntity;
 import org.johnnei.javatorrent.test.TestClock;
 import org.johnnei.javatorrent.torrent.Torrent;
@@ -29,10 +31,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
-import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 public class UdpTrackerTest {
@@ -134,10 +139,11 @@ public class UdpTrackerTest {
 		Torrent torrent = createUniqueTorrent();
 
 		cut.addTorrent(torrent);
-		cut.announce(torrent);
+		CompletableFuture<Void> result = cut.announce(torrent);
 
 		verify(udpTrackerSocketMock).submitRequest(same(cut), payloadCapture.capture());
 		assertEquals(TrackerAction.ANNOUNCE, payloadCapture.getValue().getAction(), "Incorrect Tracker request type");
+		assertFalse(result.isDone(), "Announce should complete once the tracker responded");
 	}
 
 	@Test
@@ -145,9 +151,12 @@ public class UdpTrackerTest {
 		Torrent torrent = createUniqueTorrent();
 
 		cut.addTorrent(torrent);
+		// The started event has been sent, only regular announces remain.
+		cut.getInfo(torrent).get().setEvent(TrackerEvent.EVENT_NONE);
 		// Move clock back to simulate that we're still in the interval period
 		clock.setClock(Clock.offset(fixedClock, Duration.ofSeconds(-10)));
-		cut.announce(torrent);
+		assertTrue(cut.announce(torrent).isDone(), "Ignored announce should be completed");
+		verifyNoInteractions(udpTrackerSocketMock);
 	}
 
 	@Test
@@ -177,9 +186,13 @@ public class UdpTrackerTest {
 		cut.addTorrent(torrent);
 		cut.scrape();
 
-		verify(udpTrackerSocketMock).submitRequest(same(cut), payloadCapture.capture());
+		verify(udpTrackerSocketMock).submitRequest(same(cut), payloadCapture.capture(), eq(Duration.ZERO));
 
 		assertEquals(TrackerAction.SCRAPE, payloadCapture.getValue().getAction(), "Incorrect Tracker request type");
+
+		// The next scrape is only allowed after the interval.
+		cut.scrape();
+		verifyNoMoreInteractions(udpTrackerSocketMock);
 	}
 
 	@Test
@@ -191,22 +204,49 @@ public class UdpTrackerTest {
 
 		cut.addTorrent(torrent);
 		cut.scrape();
+
+		verifyNoInteractions(udpTrackerSocketMock);
 	}
 
+	private static int getScrapedTorrentCount(IUdpTrackerPayload payload) {
+		OutStream outStream = new OutStream();
+		payload.writeRequest(outStream);
+		// Each torrent is identified by its 20 byte info hash.
+		return outStream.size() / 20;
+	}
 
-	@Disabled("Feature not yet supported")
 	@Test
 	public void testScrapeMultiTorrent() {
-		fail("Not yet implemented");
+		ArgumentCaptor<IUdpTrackerPayload> payloadCapture = ArgumentCaptor.forClass(IUdpTrackerPayload.class);
+
+		cut.addTorrent(createUniqueTorrent());
+		cut.addTorrent(createUniqueTorrent());
+		cut.addTorrent(createUniqueTorrent());
+		cut.scrape();
+
+		verify(udpTrackerSocketMock).submitRequest(same(cut), payloadCapture.capture(), eq(Duration.ZERO));
+		assertEquals(3, getScrapedTorrentCount(payloadCapture.getValue()), "All torrents should have been scraped in a single request");
 	}
 
 	/**
 	 * Tests a scrape with 75 torrents which 1 above the protocol limit.
 	 */
-	@Disabled("Feature not yet supported")
 	@Test
 	public void testScrapeMultiTorrentLimit() {
-		fail("Not yet implemented");
+		ArgumentCaptor<IUdpTrackerPayload> payloadCapture = ArgumentCaptor.forClass(IUdpTrackerPayload.class);
+		ArgumentCaptor<Duration> delayCapture = ArgumentCaptor.forClass(Duration.class);
+
+		for (int i = 0; i < 75; i++) {
+			cut.addTorrent(createUniqueTorrent());
+		}
+		cut.scrape();
+
+		verify(udpTrackerSocketMock, times(2)).submitRequest(same(cut), payloadCapture.capture(), delayCapture.capture());
+
+		assertEquals(74, getScrapedTorrentCount(payloadCapture.getAllValues().get(0)), "First request should be filled up to the limit");
+		assertEquals(1, getScrapedTorrentCount(payloadCapture.getAllValues().get(1)), "Second request should contain the remaining torrent");
+		assertEquals(Duration.ZERO, delayCapture.getAllValues().get(0), "First batch should be sent right away");
+		assertEquals(Duration.ofSeconds(5), delayCapture.getAllValues().get(1), "Batches should be spread across the scrape interval");
 	}
 
 }
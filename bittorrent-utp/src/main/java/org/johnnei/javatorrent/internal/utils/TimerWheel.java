@@ -0,0 +1,131 @@
+package org.johnnei.javatorrent.internal.utils;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * A hashed timer wheel which groups timers in slots of a fixed tick duration. Scheduling and expiring a timer are constant time operations regardless of the
+ * amount of timers. Timers which are further away than a single rotation of the wheel remain in their slot until their rotation comes up.
+ * This class is not thread-safe.
+ *
+ * @param <T> The type of the items which are scheduled.
+ */
+public class TimerWheel<T> {
+
+	private final long tickMillis;
+
+	private final Queue<Timer<T>>[] slots;
+
+	/**
+	 * The tick up to which all slots have been expired.
+	 */
+	private long currentTick;
+
+	private int size;
+
+	/**
+	 * Creates a new timer wheel.
+	 * @param tickMillis The duration of a single slot in milliseconds.
+	 * @param slotCount The amount of slots in the wheel.
+	 * @param nowMillis The current time in milliseconds.
+	 */
+	@SuppressWarnings("unchecked")
+	public TimerWheel(long tickMillis, int slotCount, long nowMillis) {
+		Argument.requireWithinBounds(slotCount, 1, Integer.MAX_VALUE, () -> "At least one slot is required.");
+		if (tickMillis <= 0) {
+			throw new IllegalArgumentException("Tick duration must be positive.");
+		}
+
+		this.tickMillis = tickMillis;
+		this.currentTick = nowMillis / tickMillis;
+		slots = new Queue[slotCount];
+		for (int i = 0; i < slotCount; i++) {
+			slots[i] = new ArrayDeque<>();
+		}
+	}
+
+	/**
+	 * Schedules the item to expire at the given deadline. Deadlines in the past will expire on the next call to {@link #expire(long, Consumer)}.
+	 * @param item The item to schedule.
+	 * @param deadlineMillis The time in milliseconds at which the item expires.
+	 */
+	public void schedule(T item, long deadlineMillis) {
+		long tick = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis);
+		slots[getSlot(tick)].add(new Timer<>(item, tick));
+		size++;
+	}
+
+	/**
+	 * Passes all items of which the deadline has passed to the consumer. The consumer is allowed to schedule new items.
+	 * @param nowMillis The current time in milliseconds.
+	 * @param consumer The consumer of the expired items.
+	 */
+	public void expire(long nowMillis, Consumer<T> consumer) {
+		long nowTick = nowMillis / tickMillis;
+		// No need to visit a slot more than once.
+		long lastTick = Math.min(nowTick, currentTick + slots.length);
+
+		while (currentTick < lastTick) {
+			currentTick++;
+			Queue<Timer<T>> slot = slots[getSlot(currentTick)];
+
+			// Items which get scheduled by the consumer are at least one tick away so they can't end up in this slot during the iteration.
+			int slotSize = slot.size();
+			for (int i = 0; i < slotSize; i++) {
+				Timer<T> timer = slot.poll();
+				if (timer.tick <= nowTick) {
+					size--;
+					consumer.accept(timer.item);
+				} else {
+					slot.add(timer);
+				}
+			}
+		}
+
+		currentTick = Math.max(currentTick, nowTick);
+	}
+
+	/**
+	 * @param nowMillis The current time in milliseconds.
+	 * @return The amount of milliseconds until the next slot with items must be expired or <code>-1</code> when no items are scheduled.
+	 */
+	public long getMillisUntilNextExpiry(long nowMillis) {
+		if (size == 0) {
+			return -1;
+		}
+
+		for (int i = 1; i <= slots.length; i++) {
+			if (!slots[getSlot(currentTick + i)].isEmpty()) {
+				return Math.max(0, (currentTick + i) * tickMillis - nowMillis);
+			}
+		}
+
+		return 0;
+	}
+
+	/**
+	 * @return The amount of scheduled items.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private int getSlot(long tick) {
+		return (int) Math.floorMod(tick, (long) slots.length);
+	}
+
+	private static final class Timer<T> {
+
+		private final T item;
+
+		private final long tick;
+
+		Timer(T item, long tick) {
+			this.item = item;
+			this.tick = tick;
+		}
+	}
+}
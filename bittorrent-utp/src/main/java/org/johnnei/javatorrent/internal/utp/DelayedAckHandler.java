@@ -0,0 +1,97 @@
+package org.johnnei.javatorrent.internal.utp;
+
+import java.util.concurrent.TimeUnit;
+
+import org.johnnei.javatorrent.internal.utils.PrecisionTimer;
+
+/**
+ * Decides when the received packets must be acknowledged with an ST_STATE packet.
+ * Instead of acknowledging every packet individually the acknowledgements are coalesced into a single ST_STATE which carries the highest in-order sequence
+ * number (and a selective ACK when applicable). Any packet sent in the meantime carries the same information and makes the ST_STATE redundant.
+ */
+public class DelayedAckHandler {
+
+	/**
+	 * The amount of received packets after which an acknowledgement is sent without further delay.
+	 */
+	static final int DELAYED_ACK_PACKET_THRESHOLD = 2;
+
+	/**
+	 * The amount of received payload bytes after which an acknowledgement is sent without further delay.
+	 */
+	static final int DELAYED_ACK_BYTE_THRESHOLD = 2400;
+
+	/**
+	 * The maximum amount of time to delay an acknowledgement.
+	 */
+	static final long DELAYED_ACK_MILLIS = 10;
+
+	private final PrecisionTimer timer;
+
+	private int unacknowledgedPackets;
+
+	private int unacknowledgedBytes;
+
+	private int firstUnacknowledgedMicros;
+
+	private boolean isImmediate;
+
+	public DelayedAckHandler(PrecisionTimer timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * Registers a received packet which must be acknowledged.
+	 * @param payloadSize The amount of payload bytes in the packet.
+	 * @param immediate <code>true</code> when the acknowledgement must not be delayed. For example because the packet was received out of order.
+	 */
+	public void onPacketToAcknowledge(int payloadSize, boolean immediate) {
+		if (unacknowledgedPackets == 0) {
+			firstUnacknowledgedMicros = timer.getCurrentMicros();
+		}
+
+		unacknowledgedPackets++;
+		unacknowledgedBytes += payloadSize;
+		isImmediate |= immediate;
+	}
+
+	/**
+	 * Resets the pending acknowledgements as a packet with the current acknowledge number has been sent.
+	 */
+	public void onAcknowledgementSent() {
+		unacknowledgedPackets = 0;
+		unacknowledgedBytes = 0;
+		isImmediate = false;
+	}
+
+	/**
+	 * @return <code>true</code> when received packets are waiting to be acknowledged.
+	 */
+	public boolean hasPendingAcknowledgement() {
+		return unacknowledgedPackets > 0;
+	}
+
+	/**
+	 * @return <code>true</code> when the pending acknowledgement must be sent out now.
+	 */
+	public boolean isAcknowledgementDue() {
+		return hasPendingAcknowledgement() && (
+			isImmediate ||
+			unacknowledgedPackets >= DELAYED_ACK_PACKET_THRESHOLD ||
+			unacknowledgedBytes >= DELAYED_ACK_BYTE_THRESHOLD ||
+			getMillisUntilAcknowledgement() == 0
+		);
+	}
+
+	/**
+	 * @return The amount of milliseconds until the pending acknowledgement must be sent or <code>-1</code> when there is no pending acknowledgement.
+	 */
+	public long getMillisUntilAcknowledgement() {
+		if (!hasPendingAcknowledgement()) {
+			return -1;
+		}
+
+		long elapsedMillis = TimeUnit.MICROSECONDS.toMillis(timer.getCurrentMicros() - firstUnacknowledgedMicros);
+		return Math.max(0, DELAYED_ACK_MILLIS - elapsedMillis);
+	}
+}
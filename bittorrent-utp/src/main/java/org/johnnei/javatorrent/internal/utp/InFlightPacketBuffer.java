@@ -0,0 +1,184 @@
+package org.johnnei.javatorrent.internal.utp;
+
+import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
+
+/**
+ * The packets which have been sent but have not been acknowledged yet, shared by the loss, size, window and timeout handling of a {@link UtpSocket}.
+ * Packets are stored in a circular buffer indexed by their sequence number so that sending and acknowledging a packet doesn't require boxing or hashing.
+ * The packet itself holds the send timestamp (in its header) and the amount of times it has been sent. The size is recorded at the time it was first sent as
+ * the extensions of the header may change when the packet is resent.
+ * ST_STATE packets don't consume a sequence number and are never tracked.
+ */
+public class InFlightPacketBuffer {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private UtpPacket[] packets;
+
+	private int[] sizes;
+
+	/**
+	 * The sequence number of the first slot in the window. All packets before it have been acknowledged.
+	 */
+	private short oldestSequenceNumber;
+
+	/**
+	 * The amount of sequence numbers from {@link #oldestSequenceNumber} up to and including the newest packet which is in flight.
+	 */
+	private int span;
+
+	private int packetCount;
+
+	private volatile int bytesInFlight;
+
+	public InFlightPacketBuffer() {
+		packets = new UtpPacket[INITIAL_CAPACITY];
+		sizes = new int[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Registers the packet as in flight. Packets which are resent keep their original entry and have their sent count incremented.
+	 * @param packet The packet which has been sent.
+	 */
+	public synchronized void onSentPacket(UtpPacket packet) {
+		UtpHeader header = packet.getHeader();
+		if (header.getType() == PacketType.STATE.getTypeField()) {
+			return;
+		}
+
+		short sequenceNumber = header.getSequenceNumber();
+		if (span == 0) {
+			oldestSequenceNumber = sequenceNumber;
+		}
+
+		int offset = (short) (sequenceNumber - oldestSequenceNumber);
+		if (offset < 0) {
+			// The packet has already been acknowledged.
+			return;
+		}
+
+		if (offset >= packets.length) {
+			grow(offset + 1);
+		}
+
+		int slot = getSlot(sequenceNumber);
+		if (packets[slot] == null) {
+			packets[slot] = packet;
+			sizes[slot] = header.getType() == PacketType.DATA.getTypeField() ? packet.getSize() : 0;
+			packetCount++;
+			bytesInFlight += sizes[slot];
+		}
+
+		packets[slot].incrementSentCount();
+		span = Math.max(span, offset + 1);
+	}
+
+	/**
+	 * Removes the packets which are acknowledged by the given header. The <code>ack_nr</code> acknowledges all packets up to and including it, the selective
+	 * ACK (if any) acknowledges individual packets after it.
+	 * @param header The header of the received packet.
+	 * @return The amount of bytes of ST_DATA packets which got acknowledged.
+	 */
+	public synchronized int acknowledge(UtpHeader header) {
+		short acknowledgeNumber = header.getAcknowledgeNumber();
+		int ackedBytes = 0;
+
+		int cumulativeCount = Math.min(span, (short) (acknowledgeNumber - oldestSequenceNumber) + 1);
+		for (int i = 0; i < cumulativeCount; i++) {
+			ackedBytes += remove(oldestSequenceNumber);
+			oldestSequenceNumber++;
+			span--;
+		}
+
+		SelectiveAck selectiveAck = header.getSelectiveAck();
+		if (selectiveAck != null) {
+			for (int i = 0; i < selectiveAck.getBitCount(); i++) {
+				if (selectiveAck.isAcknowledged(i)) {
+					short sequenceNumber = SelectiveAck.getSequenceNumber(acknowledgeNumber, i);
+					if (isWithinWindow(sequenceNumber)) {
+						ackedBytes += remove(sequenceNumber);
+					}
+				}
+			}
+		}
+
+		// Skip the holes left by selectively acknowledged packets so the window starts at the oldest packet in flight.
+		while (span > 0 && packets[getSlot(oldestSequenceNumber)] == null) {
+			oldestSequenceNumber++;
+			span--;
+		}
+
+		bytesInFlight -= ackedBytes;
+		return ackedBytes;
+	}
+
+	/**
+	 * @param sequenceNumber The sequence number of the packet.
+	 * @return The packet or <code>null</code> when the packet is not in flight.
+	 */
+	public synchronized UtpPacket get(short sequenceNumber) {
+		if (!isWithinWindow(sequenceNumber)) {
+			return null;
+		}
+
+		return packets[getSlot(sequenceNumber)];
+	}
+
+	/**
+	 * @return The sum of the sizes of the ST_DATA packets in flight.
+	 */
+	public int getBytesInFlight() {
+		return bytesInFlight;
+	}
+
+	/**
+	 * @return The amount of packets in flight.
+	 */
+	public synchronized int size() {
+		return packetCount;
+	}
+
+	private boolean isWithinWindow(short sequenceNumber) {
+		int offset = (short) (sequenceNumber - oldestSequenceNumber);
+		return offset >= 0 && offset < span;
+	}
+
+	private int remove(short sequenceNumber) {
+		int slot = getSlot(sequenceNumber);
+		if (packets[slot] == null) {
+			return 0;
+		}
+
+		packets[slot] = null;
+		packetCount--;
+		return sizes[slot];
+	}
+
+	private void grow(int minimumCapacity) {
+		// The offset of a sequence number is at most half of the sequence number space, which bounds the capacity.
+		int capacity = packets.length;
+		while (capacity < minimumCapacity) {
+			capacity <<= 1;
+		}
+
+		UtpPacket[] grownPackets = new UtpPacket[capacity];
+		int[] grownSizes = new int[capacity];
+		for (int i = 0; i < span; i++) {
+			short sequenceNumber = (short) (oldestSequenceNumber + i);
+			int oldSlot = getSlot(sequenceNumber);
+			int newSlot = Short.toUnsignedInt(sequenceNumber) & (capacity - 1);
+			grownPackets[newSlot] = packets[oldSlot];
+			grownSizes[newSlot] = sizes[oldSlot];
+		}
+
+		packets = grownPackets;
+		sizes = grownSizes;
+	}
+
+	private int getSlot(short sequenceNumber) {
+		return Short.toUnsignedInt(sequenceNumber) & (packets.length - 1);
+	}
+}
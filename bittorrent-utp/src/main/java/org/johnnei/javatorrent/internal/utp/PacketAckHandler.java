@@ -3,6 +3,8 @@ package org.johnnei.javatorrent.internal.utp;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
 /**
@@ -10,6 +12,11 @@ import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
  */
 public class PacketAckHandler {
 
+	/**
+	 * The maximum amount of packets beyond the first missing packet which are reported in a selective ACK.
+	 */
+	private static final int MAX_SELECTIVE_ACK_BITS = 256;
+
 	private final UtpSocket socket;
 
 	private boolean isInitialized;
@@ -21,6 +28,11 @@ public class PacketAckHandler {
 
 	private Map<Short, Acknowledgement> acknowledgements;
 
+	/**
+	 * The highest sequence number which has been received.
+	 */
+	private short highestSequenceNumber;
+
 	/**
 	 * Created an Ack Handler with an uninitialized initial packet. The first packet passed in {@link #onReceivedPacket(UtpPacket)} will be considered the first
 	 * packet to ack.
@@ -40,17 +52,18 @@ public class PacketAckHandler {
 		this.socket = socket;
 		this.acknowledgements = new HashMap<>();
 		this.acknowledgeNumber = acknowledgeNumber;
+		this.highestSequenceNumber = acknowledgeNumber;
 		isInitialized = true;
 	}
 
 	/**
-	 * Processes the acknowledgement in the received packet and potentially marks a packet to be resent.
+	 * Processes the sequence number of the received packet and requests the socket to acknowledge it.
+	 * In-order packets may be acknowledged with a delay, packets which reveal a gap or were received before are acknowledged immediately so that the remote
+	 * learns about the loss.
 	 * @param packet The received packet.
 	 */
 	public void onReceivedPacket(UtpPacket packet) {
 		short sequenceNumber = packet.getHeader().getSequenceNumber();
-		Acknowledgement acknowledgement = acknowledgements.computeIfAbsent(sequenceNumber, Acknowledgement::new);
-		acknowledgement.packetSeen();
 
 		if (!isInitialized) {
 			isInitialized = true;
@@ -59,16 +72,67 @@ public class PacketAckHandler {
 			 * So don't explicitly request this packet to be ACK'ed but rely on it being included as the ack field on the first ST_DATA being sent out.
 			 */
 			acknowledgeNumber = sequenceNumber;
+			highestSequenceNumber = sequenceNumber;
 			socket.setAcknowledgeNumber(acknowledgeNumber);
+			return;
+		}
+
+		if (packet.getHeader().getType() == PacketType.STATE.getTypeField()) {
+			// ST_STATE packets don't consume a sequence number and are never acknowledged.
+			return;
+		}
+
+		if ((short) (sequenceNumber - acknowledgeNumber) <= 0) {
+			// Our acknowledgement got lost, repeat it.
+			socket.requestAcknowledgement(packet.getSize(), true);
+			return;
+		}
+
+		Acknowledgement acknowledgement = acknowledgements.computeIfAbsent(sequenceNumber, Acknowledgement::new);
+		acknowledgement.packetSeen();
+		boolean isDuplicate = acknowledgement.getTimesSeen() > 1;
+
+		if ((short) (sequenceNumber - highestSequenceNumber) > 0) {
+			highestSequenceNumber = sequenceNumber;
 		}
 
 		while (acknowledgement != null && isNextPacketToAcknowledge(acknowledgement)) {
+			acknowledgements.remove(sequenceNumber);
 			socket.acknowledgePacket(acknowledgement);
 			acknowledgeNumber = sequenceNumber;
 
 			sequenceNumber++;
 			acknowledgement = acknowledgements.get(sequenceNumber);
 		}
+
+		boolean hasMissingPackets = acknowledgeNumber != highestSequenceNumber;
+		boolean isData = packet.getHeader().getType() == PacketType.DATA.getTypeField();
+		socket.requestAcknowledgement(packet.getSize(), isDuplicate || hasMissingPackets || !isData);
+	}
+
+	/**
+	 * Creates the selective ACK which reports the packets that have been received out of order.
+	 * @param ackNumber The <code>ack_nr</code> of the packet which will contain the selective ACK.
+	 * @return The selective ACK or <code>null</code> when no packets have been received out of order or when <code>ackNumber</code> is lagging behind.
+	 */
+	public SelectiveAck createSelectiveAck(short ackNumber) {
+		if (ackNumber != acknowledgeNumber) {
+			// Packets between ackNumber and the actual acknowledge number would be reported as missing, causing needless resends.
+			return null;
+		}
+
+		int bitCount = Math.min(MAX_SELECTIVE_ACK_BITS, (short) (highestSequenceNumber - ackNumber) - 1);
+		if (bitCount <= 0) {
+			return null;
+		}
+
+		SelectiveAck selectiveAck = SelectiveAck.withCapacity(bitCount);
+		for (int i = 0; i < bitCount; i++) {
+			if (acknowledgements.containsKey(SelectiveAck.getSequenceNumber(ackNumber, i))) {
+				selectiveAck.setAcknowledged(i);
+			}
+		}
+		return selectiveAck;
 	}
 
 	private boolean isNextPacketToAcknowledge(Acknowledgement acknowledgement) {
@@ -2,10 +2,9 @@ package org.johnnei.javatorrent.internal.utp;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
 /**
@@ -13,9 +12,14 @@ import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
  */
 public class PacketLossHandler {
 
+	/**
+	 * The amount of packets which must have been received after a packet to consider it lost.
+	 */
+	private static final int LOSS_THRESHOLD = 3;
+
 	private final UtpSocket socket;
 
-	private final Map<Short, UtpPacket> packetsInFlight;
+	private final InFlightPacketBuffer packetsInFlight;
 
 	private final Collection<UtpPacket> pendingResend;
 
@@ -23,9 +27,16 @@ public class PacketLossHandler {
 
 	private int duplicateCount;
 
-	public PacketLossHandler(UtpSocket socket) {
+	/**
+	 * The lowest sequence number which may be resend based on a selective ACK. Packets before it have already been resend.
+	 */
+	private short fastResendSequenceNumber;
+
+	private boolean hasSentPacket;
+
+	public PacketLossHandler(UtpSocket socket, InFlightPacketBuffer packetsInFlight) {
 		this.socket = socket;
-		this.packetsInFlight = new HashMap<>();
+		this.packetsInFlight = packetsInFlight;
 		pendingResend = new ArrayList<>();
 	}
 
@@ -38,27 +49,64 @@ public class PacketLossHandler {
 		}
 
 		synchronized (this) {
-			// Purge the second to last packet as we no longer need it to track packet loss of n + 1.
-			packetsInFlight.remove((short) (packet.getHeader().getAcknowledgeNumber() - 1));
-
 			final short nextPacketSeqNr = (short) (packet.getHeader().getAcknowledgeNumber() + 1);
-			if (duplicateCount >= 3 && canResendPacket(nextPacketSeqNr)) {
-				UtpPacket nextPacket = packetsInFlight.get(nextPacketSeqNr);
-				socket.resend(nextPacket);
-				pendingResend.add(nextPacket);
+			if (duplicateCount >= LOSS_THRESHOLD && canResendPacket(nextPacketSeqNr)) {
+				resend(nextPacketSeqNr);
+			}
+
+			SelectiveAck selectiveAck = packet.getHeader().getSelectiveAck();
+			if (selectiveAck != null) {
+				onSelectiveAck(packet.getHeader().getAcknowledgeNumber(), selectiveAck);
 			}
 		}
 	}
 
+	/**
+	 * Resends the packets which have been missed by at least {@link #LOSS_THRESHOLD} packets that did arrive.
+	 * The acknowledged packets have already been removed from {@link #packetsInFlight} by {@link UtpSocket}.
+	 */
+	private void onSelectiveAck(short acknowledgeNumber, SelectiveAck selectiveAck) {
+		short nextFastResendSequenceNumber = fastResendSequenceNumber;
+		int receivedAfter = 0;
+		// Walk backwards so we know how many packets arrived after the current one. Index -1 represents ack_nr + 1 which is always missing.
+		for (int i = selectiveAck.getBitCount() - 1; i >= -1; i--) {
+			short sequenceNumber = SelectiveAck.getSequenceNumber(acknowledgeNumber, i);
+			if (i >= 0 && selectiveAck.isAcknowledged(i)) {
+				receivedAfter++;
+			} else if (receivedAfter >= LOSS_THRESHOLD && isAfterFastResendMarker(sequenceNumber) && canResendPacket(sequenceNumber)) {
+				resend(sequenceNumber);
+				if ((short) (sequenceNumber - nextFastResendSequenceNumber) >= 0) {
+					nextFastResendSequenceNumber = (short) (sequenceNumber + 1);
+				}
+			}
+		}
+
+		fastResendSequenceNumber = nextFastResendSequenceNumber;
+	}
+
+	private boolean isAfterFastResendMarker(short sequenceNumber) {
+		return (short) (sequenceNumber - fastResendSequenceNumber) >= 0;
+	}
+
+	private void resend(short sequenceNumber) {
+		UtpPacket packet = packetsInFlight.get(sequenceNumber);
+		socket.resend(packet);
+		pendingResend.add(packet);
+	}
+
 	public void onSentPacket(UtpPacket packet) {
 		synchronized (this) {
-			packetsInFlight.computeIfAbsent(packet.getHeader().getSequenceNumber(), s -> packet).incrementSentCount();
+			if (!hasSentPacket) {
+				hasSentPacket = true;
+				fastResendSequenceNumber = packet.getHeader().getSequenceNumber();
+			}
+
 			pendingResend.removeIf(p -> p.getHeader().getSequenceNumber() == packet.getHeader().getSequenceNumber());
 		}
 	}
 
 	private boolean canResendPacket(short sequenceNumber) {
-		return packetsInFlight.containsKey(sequenceNumber) &&
+		return packetsInFlight.get(sequenceNumber) != null &&
 			pendingResend.stream().noneMatch(packet -> packet.getHeader().getSequenceNumber() == sequenceNumber);
 	}
 }
@@ -1,12 +1,8 @@
 package org.johnnei.javatorrent.internal.utp;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
 /**
  * This handler is responsible to reduce packet overhead on reliable/fast sockets by changing the amount of payload in DATA packets.
@@ -19,26 +15,22 @@ public class PacketSizeHandler {
 
 	private final SocketWindowHandler windowHandler;
 
-	private final Map<Short, UtpPacket> packetsInFlight;
-
 	private int packetSize;
 
 	private int targetPacketCount;
 
-
 	public PacketSizeHandler(SocketWindowHandler windowHandler) {
 		this.windowHandler = windowHandler;
-		packetsInFlight = new HashMap<>();
 		packetSize = 150;
 		targetPacketCount = 10;
 	}
 
-	public void onSentPacket(UtpPacket packet) {
-		packetsInFlight.put(packet.getHeader().getSequenceNumber(), packet);
-	}
-
-	public void onReceivedPacket(UtpPacket packet) {
-		if (packetsInFlight.remove(packet.getHeader().getAcknowledgeNumber()) == null) {
+	/**
+	 * Updates the packet size when the received packet acknowledged data.
+	 * @param ackedBytes The amount of bytes which got acknowledged by the received packet.
+	 */
+	public void onReceivedPacket(int ackedBytes) {
+		if (ackedBytes == 0) {
 			return;
 		}
 
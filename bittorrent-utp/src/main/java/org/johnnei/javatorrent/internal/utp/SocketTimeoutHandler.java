@@ -80,6 +80,14 @@ public class SocketTimeoutHandler {
 		return Duration.of((long) timer.getCurrentMicros() - lastActivity, ChronoUnit.MICROS).compareTo(timeout) > 0;
 	}
 
+	/**
+	 * @return The amount of milliseconds until the timeout expires when no activity happens in the meantime.
+	 */
+	public long getMillisUntilTimeout() {
+		long elapsedMillis = ((long) timer.getCurrentMicros() - lastActivity) / 1000L;
+		return Math.max(0, timeout.toMillis() - elapsedMillis);
+	}
+
 	int getRoundTripTime() {
 		return roundTripTime;
 	}
@@ -2,16 +2,11 @@ package org.johnnei.javatorrent.internal.utp;
 
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.johnnei.javatorrent.internal.utils.SlidingTimedValue;
-import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
 /**
@@ -26,87 +21,57 @@ public class SocketWindowHandler {
 
 	private static final int MAX_WINDOW_CHANGE_PER_PACKET = 500;
 
+	private final InFlightPacketBuffer packetsInFlight;
+
 	private int maxWindow;
 
 	private SlidingTimedValue<Integer> measuredDelays;
 
-	private Map<Short, UtpPacket> packetsInFlight;
-
-	public SocketWindowHandler() {
+	public SocketWindowHandler(InFlightPacketBuffer packetsInFlight) {
+		this.packetsInFlight = packetsInFlight;
 		maxWindow = 150;
 		measuredDelays = new SlidingTimedValue<>();
-		packetsInFlight = new HashMap<>();
 	}
 
 	/**
 	 * Updates the Socket Window based on the received packet.
 	 *
 	 * @param packet The received packet.
-	 * @return The acked packet or {@link Optional#empty()} if no new packet was acked.
+	 * @param ackedBytes The amount of bytes which got acknowledged by the packet.
 	 */
-	public Optional<UtpPacket> onReceivedPacket(UtpPacket packet) {
+	public void onReceivedPacket(UtpPacket packet, int ackedBytes) {
 		int measuredDelay = packet.getHeader().getTimestampDifference();
 		measuredDelays.addValue(measuredDelay);
 
 		Duration ourDelay = Duration.of((long) measuredDelay - measuredDelays.getMinimum(), ChronoUnit.MICROS);
 
-		UtpPacket ackedPacket;
-		synchronized (this) {
-			ackedPacket = packetsInFlight.remove(packet.getHeader().getAcknowledgeNumber());
-		}
-
-		if (!ourDelay.isZero() && ackedPacket != null) {
-			Duration offTarget = CCONTROL_TARGET.minus(ourDelay);
-			double delayFactor = offTarget.toNanos() / (double) CCONTROL_TARGET.toNanos();
-
-			// Due to window violations the window factor may exceed 1.0d which shouldn't be allow as we shouldn't exceed the max window.
-			int ackedBytes = ackedPacket.getSize();
-
-			double windowFactor = Math.min(ackedBytes, (double) maxWindow) / Math.max(ackedBytes, (double) maxWindow);
-			int scaledGain = (int) (MAX_WINDOW_CHANGE_PER_PACKET * delayFactor * windowFactor);
-
-			maxWindow = Math.max(0, maxWindow + scaledGain);
-
-			synchronized (this) {
-				if (LOGGER.isTraceEnabled()) {
-					LOGGER.trace(
-						"our_delay: [{}] us, off_target: [{}] us, delayFactor [{}], windowFactor [{}], scaledGain [{}] bytes, maxWindow [{}] bytes, packets in flight: {}",
-						ourDelay,
-						offTarget,
-						delayFactor,
-						windowFactor,
-						scaledGain,
-						maxWindow,
-						packetsInFlight.values()
-							.stream()
-							.map(p -> Short.toUnsignedInt(p.getHeader().getSequenceNumber()) + "-" + p.getSize())
-							.collect(Collectors.toList())
-					);
-				}
-			}
-		}
-
-		return Optional.ofNullable(ackedPacket);
-	}
-
-	public void onSentPacket(UtpPacket packet) {
-		if (packet.getHeader().getType() != PacketType.DATA.getTypeField()) {
+		if (ourDelay.isZero() || ackedBytes == 0) {
 			return;
 		}
 
-		synchronized (this) {
-			packetsInFlight.putIfAbsent(packet.getHeader().getSequenceNumber(), packet);
-		}
+		Duration offTarget = CCONTROL_TARGET.minus(ourDelay);
+		double delayFactor = offTarget.toNanos() / (double) CCONTROL_TARGET.toNanos();
+
+		// Due to window violations the window factor may exceed 1.0d which shouldn't be allow as we shouldn't exceed the max window.
+		double windowFactor = Math.min(ackedBytes, (double) maxWindow) / Math.max(ackedBytes, (double) maxWindow);
+		int scaledGain = (int) (MAX_WINDOW_CHANGE_PER_PACKET * delayFactor * windowFactor);
+
+		maxWindow = Math.max(0, maxWindow + scaledGain);
+
+		LOGGER.trace(
+			"our_delay: [{}] us, off_target: [{}] us, delayFactor [{}], windowFactor [{}], scaledGain [{}] bytes, maxWindow [{}] bytes, bytes in flight: {}",
+			ourDelay,
+			offTarget,
+			delayFactor,
+			windowFactor,
+			scaledGain,
+			maxWindow,
+			packetsInFlight.getBytesInFlight()
+		);
 	}
 
 	public int getBytesInFlight() {
-		synchronized (this) {
-			return packetsInFlight.values()
-				.stream()
-				.map(UtpPacket::getSize)
-				.reduce((a, b) -> a + b)
-				.orElse(0);
-		}
+		return packetsInFlight.getBytesInFlight();
 	}
 
 	public int getMaxWindow() {
@@ -2,100 +2,132 @@ package org.johnnei.javatorrent.internal.utp;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.TorrentClientSettings;
-import org.johnnei.javatorrent.async.LoopingRunnable;
-import org.johnnei.javatorrent.internal.utils.CheckedSupplier;
 import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
 import org.johnnei.javatorrent.internal.utp.protocol.UtpProtocolViolationException;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 import org.johnnei.javatorrent.internal.utp.stream.PacketReader;
+import org.johnnei.javatorrent.internal.utp.stream.PacketWriter;
 import org.johnnei.javatorrent.network.socket.ISocket;
+import org.johnnei.javatorrent.network.udp.IUdpPacketHandler;
+import org.johnnei.javatorrent.network.udp.UdpDemultiplexer;
 
-public class UtpMultiplexer implements Closeable {
+/**
+ * Multiplexes all uTP connections over the channel of the {@link UdpDemultiplexer}.
+ * All sockets are processed by the thread of the demultiplexer which blocks until a datagram arrives, a socket has work or a timeout is due.
+ * Received datagrams are dispatched to their {@link UtpSocket} in batches.
+ */
+public class UtpMultiplexer implements IUdpPacketHandler, Closeable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(UtpMultiplexer.class);
 
-	private static final int BUFFER_SIZE = 32_768;
+	/**
+	 * The version of the uTP protocol which is stored in the lower 4 bits of the first byte.
+	 */
+	private static final int VERSION = 1;
 
 	private final PacketReader packetReader;
 
+	/**
+	 * The writer which encodes the packets of all sockets on the {@link #channel} into a single reusable buffer.
+	 */
+	private final PacketWriter packetWriter;
+
 	private final UtpSocketRegistry socketRegistry;
 
 	private final UtpPeerConnectionAcceptor connectionAcceptor;
 
-	private final LoopingRunnable connectionAcceptorRunnable;
-
-	private final Thread connectionAcceptorThread;
+	private final UdpDemultiplexer demultiplexer;
 
 	private final DatagramChannel channel;
 
-	private final Future<?> poller;
+	/**
+	 * The packets of the current batch grouped by the socket which must process them.
+	 */
+	private final Map<UtpSocket, List<UtpPacket>> receivedPackets;
+
+	private final UtpSocketScheduler scheduler;
 
 	private final TorrentClientSettings clientSettings;
 
-	public UtpMultiplexer(Builder builder) throws IOException {
+	private final int receiveBufferSize;
+
+	public UtpMultiplexer(Builder builder) {
 		this.connectionAcceptor = builder.connectionAcceptor;
 		this.packetReader = builder.packetReader;
 		this.clientSettings = builder.client.getSettings();
+		this.receiveBufferSize = builder.receiveBufferSize;
+
+		demultiplexer = builder.demultiplexer;
+		channel = demultiplexer.getChannel();
+		packetWriter = new PacketWriter();
+		socketRegistry = new UtpSocketRegistry(channel, receiveBufferSize, packetWriter);
+		receivedPackets = new LinkedHashMap<>();
+		scheduler = new UtpSocketScheduler(demultiplexer::wakeup, () -> System.nanoTime() / 1_000_000L, socketRegistry::removeSocket);
+		demultiplexer.register(this);
+	}
 
-		channel = builder.channelFactory.get();
-		channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-		channel.bind(new InetSocketAddress(clientSettings.getAcceptingPort()));
-		channel.configureBlocking(false);
-		LOGGER.trace("Configured to listen on {}", channel.getLocalAddress());
-		socketRegistry = new UtpSocketRegistry(channel);
-
-		if (clientSettings.isAcceptingConnections()) {
-			connectionAcceptorRunnable = new LoopingRunnable(connectionAcceptor);
-			connectionAcceptorThread = new Thread(connectionAcceptorRunnable, "uTP Connection Acceptor");
-			connectionAcceptorThread.start();
-		} else {
-			connectionAcceptorRunnable = null;
-			connectionAcceptorThread = null;
+	@Override
+	public boolean isMatch(ByteBuffer datagram) {
+		if (datagram.remaining() < PacketWriter.OVERHEAD_IN_BYTES) {
+			return false;
 		}
 
-
-		poller = builder.client.getExecutorService().scheduleWithFixedDelay(this::pollPackets, 50, 10, TimeUnit.MILLISECONDS);
+		int typeAndVersion = datagram.get(datagram.position());
+		return (typeAndVersion & 0xF) == VERSION && (typeAndVersion >>> 4) <= PacketType.SYN.getTypeField();
 	}
 
-	void pollPackets() {
+	@Override
+	public void onReceivedPacket(SocketAddress socketAddress, ByteBuffer datagram) {
 		try {
-			ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
-			SocketAddress socketAddress = channel.receive(buffer);
+			UtpPacket packet = packetReader.read(datagram);
+			findSocketForPacket(socketAddress, packet)
+				.ifPresent(socket -> receivedPackets.computeIfAbsent(socket, key -> new ArrayList<>()).add(packet));
+		} catch (UtpProtocolViolationException e) {
+			LOGGER.trace("uTP protocol was violated.", e);
+		}
+	}
 
-			if (socketAddress == null) {
-				return;
-			}
+	@Override
+	public void process() {
+		dispatchReceivedPackets();
+		scheduler.processReadySockets();
+		scheduler.processTimeouts();
+	}
 
-			buffer.flip();
-			onPacketReceived(socketAddress, buffer);
-		} catch (IOException e) {
-			LOGGER.warn("Failed to process uTP packets.", e);
+	@Override
+	public long getMillisUntilProcess() {
+		if (scheduler.hasReadySockets()) {
+			return 0;
 		}
+
+		return scheduler.getMillisUntilNextTimeout();
 	}
 
-	private void onPacketReceived(SocketAddress socketAddress, ByteBuffer buffer) {
-		try {
-			UtpPacket packet = packetReader.read(buffer);
-			findSocketForPacket(socketAddress, packet)
-				.ifPresent(socket -> socket.onReceivedPacket(packet));
-		} catch (UtpProtocolViolationException e) {
-			LOGGER.trace("uTP protocol was violated.", e);
+	private void dispatchReceivedPackets() {
+		for (Map.Entry<UtpSocket, List<UtpPacket>> entry : receivedPackets.entrySet()) {
+			try {
+				entry.getKey().onReceivedPackets(entry.getValue());
+			} catch (UtpProtocolViolationException e) {
+				LOGGER.trace("uTP protocol was violated.", e);
+			}
+			scheduler.schedule(entry.getKey());
 		}
+		receivedPackets.clear();
 	}
 
 	private Optional<UtpSocket> findSocketForPacket(SocketAddress socketAddress, UtpPacket packet) {
@@ -103,45 +135,26 @@ public class UtpMultiplexer implements Closeable {
 			if (clientSettings.isAcceptingConnections()) {
 				LOGGER.debug("Received connection with id [{}]", Short.toUnsignedInt(packet.getHeader().getConnectionId()));
 				UtpSocket socket = socketRegistry.createSocket(socketAddress, packet);
+				scheduler.register(socket);
 				connectionAcceptor.onReceivedConnection(socket);
 				return Optional.of(socket);
 			} else {
 				return Optional.empty();
 			}
 		} else {
-			return Optional.of(socketRegistry.getSocket(packet.getHeader().getConnectionId()));
+			return Optional.of(socketRegistry.getSocket(socketAddress, packet.getHeader().getConnectionId()));
 		}
 	}
 
 	public ISocket createUnconnectedSocket() {
-		return socketRegistry.allocateSocket(connectionId -> UtpSocket.createInitiatingSocket(channel, connectionId));
+		UtpSocket socket = socketRegistry.allocateSocket(connectionId -> UtpSocket.createInitiatingSocket(channel, connectionId, receiveBufferSize, packetWriter));
+		scheduler.register(socket);
+		return socket;
 	}
 
-	public void updateSockets() {
-		try {
-			for (UtpSocket socket : socketRegistry.getAllSockets()) {
-				socket.processSendQueue();
-				socket.processTimeout();
-			}
-			socketRegistry.removeShutdownSockets();
-		} catch (Exception e) {
-			LOGGER.warn("uTP socket caused exception", e);
-		}
-	}
-
-	public void close() throws IOException {
-		poller.cancel(false);
-		channel.close();
-		if (connectionAcceptorRunnable != null) {
-			connectionAcceptorRunnable.stop();
-			try {
-				connectionAcceptorThread.interrupt();
-				connectionAcceptorThread.join();
-			} catch (InterruptedException e) {
-				Thread.currentThread().interrupt();
-				LOGGER.warn("Interrupted while waiting for connection acceptor thread to shutdown.", e);
-			}
-		}
+	@Override
+	public void close() {
+		demultiplexer.unregister(this);
 	}
 
 	public static final class Builder {
@@ -152,7 +165,9 @@ public class UtpMultiplexer implements Closeable {
 
 		private UtpPeerConnectionAcceptor connectionAcceptor;
 
-		private CheckedSupplier<DatagramChannel, IOException> channelFactory = DatagramChannel::open;
+		private UdpDemultiplexer demultiplexer;
+
+		private int receiveBufferSize = UtpSocket.DEFAULT_RECEIVE_BUFFER_SIZE;
 
 		public Builder(TorrentClient client, PacketReader packetReader) {
 			this.client = client;
@@ -164,8 +179,23 @@ public class UtpMultiplexer implements Closeable {
 			return this;
 		}
 
-		public Builder withChannelFactory(CheckedSupplier<DatagramChannel, IOException> channelFactory) {
-			this.channelFactory = channelFactory;
+		/**
+		 * Configures the demultiplexer which provides the datagrams. Defaults to {@link TorrentClient#getUdpDemultiplexer()}.
+		 * @param demultiplexer The demultiplexer.
+		 * @return The updated builder (this).
+		 */
+		public Builder withDemultiplexer(UdpDemultiplexer demultiplexer) {
+			this.demultiplexer = demultiplexer;
+			return this;
+		}
+
+		/**
+		 * Configures the amount of bytes each socket can receive before the BitTorrent layer reads them.
+		 * @param receiveBufferSize The receive buffer size in bytes.
+		 * @return The updated builder (this).
+		 */
+		public Builder withReceiveBufferSize(int receiveBufferSize) {
+			this.receiveBufferSize = receiveBufferSize;
 			return this;
 		}
 
@@ -173,6 +203,9 @@ public class UtpMultiplexer implements Closeable {
 			if (client.getSettings().isAcceptingConnections()) {
 				Objects.requireNonNull(connectionAcceptor, "Connection Acceptor is required when accepting connections");
 			}
+			if (demultiplexer == null) {
+				demultiplexer = client.getUdpDemultiplexer();
+			}
 			return new UtpMultiplexer(this);
 		}
 	}
@@ -1,32 +1,18 @@
 package org.johnnei.javatorrent.internal.utp;
 
-import java.util.Collection;
-import java.util.LinkedList;
-import java.util.Optional;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import org.johnnei.javatorrent.TorrentClient;
-import org.johnnei.javatorrent.internal.utils.Sync;
-import org.johnnei.javatorrent.internal.utp.protocol.ConnectionState;
 
 /**
- * Accepts connection which have been detected as a new connection in {@link UtpMultiplexer}
+ * Accepts connection which have been detected as a new connection in {@link UtpMultiplexer}.
+ * The sockets are passed on to the handshake handler as soon as they become connected.
  */
-public class UtpPeerConnectionAcceptor implements Runnable {
+public class UtpPeerConnectionAcceptor {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(UtpPeerConnectionAcceptor.class);
 
-	private final Lock notifyLock = new ReentrantLock();
-
-	private final Condition onNewConnection = notifyLock.newCondition();
-
-	private final Collection<UtpSocket> socketQueue;
-
 	private final TorrentClient torrentClient;
 
 	/**
@@ -35,57 +21,17 @@ public class UtpPeerConnectionAcceptor implements Runnable {
 	 */
 	public UtpPeerConnectionAcceptor(TorrentClient torrentClient) {
 		this.torrentClient = torrentClient;
-		socketQueue = new LinkedList<>();
 	}
 
 	/**
-	 * Adds a newly found uTP connection to the queue to be connected.
-	 * @param socket The socket to add.
+	 * Registers a newly found uTP connection to be passed on once it has been connected.
+	 * This must be called before the socket processes the ST_SYN packet, otherwise the transition to connected might be missed.
+	 * @param socket The socket to accept.
 	 */
 	public void onReceivedConnection(UtpSocket socket) {
-		synchronized (this) {
-			socketQueue.add(socket);
-		}
-
-		Sync.signalAll(notifyLock, onNewConnection);
-	}
-
-	/**
-	 * FIXME: Run should be able to run on the Executor Pool instead of a dedicated thread.
-	 */
-	@Override
-	public void run() {
-		notifyLock.lock();
-
-		Optional<UtpSocket> connectedSocket;
-		try {
-			while (!hasPendingConnection()) {
-				onNewConnection.await();
-			}
-
-			while (!(connectedSocket = getEstablishedConnection()).isPresent()) {
-				LOGGER.trace("Waiting for {} sockets to become connected.", socketQueue.size());
-				// Check the condition every once in a while to check that the socket has become connected.
-				Thread.sleep(500);
-			}
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
-			throw new IllegalStateException("Interrupted while waiting for a new connection", e);
-		} finally {
-			notifyLock.unlock();
-		}
-
-		synchronized (this) {
-			socketQueue.remove(connectedSocket.get());
-			torrentClient.getHandshakeHandler().onConnectionReceived(connectedSocket.get());
-		}
-	}
-
-	private synchronized boolean hasPendingConnection() {
-		return !socketQueue.isEmpty();
-	}
-
-	private synchronized Optional<UtpSocket> getEstablishedConnection() {
-		return socketQueue.stream().filter(socket -> socket.getConnectionState() == ConnectionState.CONNECTED).findAny();
+		socket.setConnectedListener(() -> {
+			LOGGER.trace("Accepted connection {}", socket);
+			torrentClient.getHandshakeHandler().onConnectionReceived(socket);
+		});
 	}
 }
@@ -6,10 +6,10 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
-import java.nio.channels.Pipe;
 import java.time.Clock;
 import java.util.Date;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 import java.util.Random;
 import java.util.concurrent.locks.Condition;
@@ -33,6 +33,7 @@ import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 import org.johnnei.javatorrent.internal.utp.stream.InputPacketSorter;
 import org.johnnei.javatorrent.internal.utp.stream.PacketWriter;
+import org.johnnei.javatorrent.internal.utp.stream.RingBufferPipe;
 import org.johnnei.javatorrent.internal.utp.stream.StreamState;
 import org.johnnei.javatorrent.network.socket.ISocket;
 
@@ -43,6 +44,26 @@ public class UtpSocket implements ISocket, Closeable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(UtpSocket.class);
 
+	/**
+	 * The default amount of bytes which can be received before the BitTorrent layer reads them.
+	 */
+	public static final int DEFAULT_RECEIVE_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The amount of bytes which can be buffered between the BitTorrent layer and the socket before they are sent.
+	 */
+	private static final int SEND_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The smallest payload which is expected in an ST_DATA packet, used to bound the amount of packets in the reorder buffer.
+	 */
+	private static final int MIN_PACKET_PAYLOAD_SIZE = 128;
+
+	/**
+	 * Half of the sequence number space, packets further ahead can't be ordered.
+	 */
+	private static final int MAX_BUFFERED_PACKETS = 1 << 15;
+
 	private final Lock notifyLock = new ReentrantLock();
 
 	private final Condition onStateChange = notifyLock.newCondition();
@@ -55,6 +76,8 @@ public class UtpSocket implements ISocket, Closeable {
 
 	private final short sendConnectionId;
 
+	private final short receiveConnectionId;
+
 	private final DatagramChannel channel;
 
 	private short sequenceNumberCounter;
@@ -65,13 +88,27 @@ public class UtpSocket implements ISocket, Closeable {
 
 	private final Queue<UtpPacket> resendQueue;
 
-	private final Queue<Acknowledgement> acknowledgeQueue;
+	/**
+	 * The highest sequence number up to which all packets have been received.
+	 */
+	private short acknowledgeNumber;
 
 	private short lastSentAcknowledgeNumber;
 
-	private final Pipe inputPipe;
+	private final RingBufferPipe inputPipe;
 
-	private final Pipe outputPipe;
+	private final RingBufferPipe outputPipe;
+
+	/**
+	 * The receive window which has been advertised in the last sent packet.
+	 */
+	private int advertisedReceiveWindow;
+
+	/**
+	 * The last sent ST_STATE packet. State packets are not retained once sent, so it is renewed and sent again for as long as no other packet increased
+	 * the sequence number.
+	 */
+	private UtpPacket statePacket;
 
 	private PacketAckHandler packetAckHandler;
 
@@ -81,6 +118,8 @@ public class UtpSocket implements ISocket, Closeable {
 
 	private SocketTimeoutHandler timeoutHandler;
 
+	private final InFlightPacketBuffer packetsInFlight;
+
 	private PacketLossHandler packetLossHandler;
 
 	private SocketWindowHandler windowHandler;
@@ -89,10 +128,16 @@ public class UtpSocket implements ISocket, Closeable {
 
 	private final SocketDelayHandler delayHandler;
 
+	private final DelayedAckHandler delayedAckHandler;
+
 	private StreamState outputStreamState;
 
 	private StreamState inputStreamState;
 
+	private volatile Runnable processRequestListener;
+
+	private volatile Runnable connectedListener;
+
 	/**
 	 * Creates a new {@link UtpSocket} and configures it to be the initiating side.
 	 *
@@ -101,46 +146,77 @@ public class UtpSocket implements ISocket, Closeable {
 	 * @return The newly created socket.
 	 */
 	public static UtpSocket createInitiatingSocket(DatagramChannel channel, short receiveConnectionId) {
-		UtpSocket socket = new UtpSocket(channel, (short) (receiveConnectionId + 1));
+		return createInitiatingSocket(channel, receiveConnectionId, DEFAULT_RECEIVE_BUFFER_SIZE, new PacketWriter());
+	}
+
+	/**
+	 * Creates a new {@link UtpSocket} and configures it to be the initiating side.
+	 *
+	 * @param channel The channel to write data on.
+	 * @param receiveConnectionId The ID on which this socket will receive data.
+	 * @param receiveBufferSize The amount of bytes which can be received before the BitTorrent layer reads them.
+	 * @param packetWriter The writer which encodes the packets. It can be shared with the other sockets on the channel.
+	 * @return The newly created socket.
+	 */
+	public static UtpSocket createInitiatingSocket(DatagramChannel channel, short receiveConnectionId, int receiveBufferSize, PacketWriter packetWriter) {
+		UtpSocket socket = new UtpSocket(channel, (short) (receiveConnectionId + 1), receiveConnectionId, receiveBufferSize, packetWriter);
 		socket.sequenceNumberCounter = 0;
 		socket.packetAckHandler = new PacketAckHandler(socket);
 		return socket;
 	}
 
 	public static UtpSocket createRemoteConnecting(DatagramChannel channel, UtpPacket synPacket) {
+		return createRemoteConnecting(channel, synPacket, DEFAULT_RECEIVE_BUFFER_SIZE, new PacketWriter());
+	}
+
+	/**
+	 * Creates a new {@link UtpSocket} for a connection which has been initiated by the remote.
+	 *
+	 * @param channel The channel to write data on.
+	 * @param synPacket The ST_SYN packet which initiated the connection.
+	 * @param receiveBufferSize The amount of bytes which can be received before the BitTorrent layer reads them.
+	 * @param packetWriter The writer which encodes the packets. It can be shared with the other sockets on the channel.
+	 * @return The newly created socket.
+	 */
+	public static UtpSocket createRemoteConnecting(DatagramChannel channel, UtpPacket synPacket, int receiveBufferSize, PacketWriter packetWriter) {
 		short sendConnectionId = synPacket.getHeader().getConnectionId();
-		UtpSocket socket = new UtpSocket(channel, sendConnectionId);
+		UtpSocket socket = new UtpSocket(channel, sendConnectionId, (short) (sendConnectionId + 1), receiveBufferSize, packetWriter);
 		socket.sequenceNumberCounter = (short) new Random().nextInt();
 		socket.packetAckHandler = new PacketAckHandler(socket, (short) (synPacket.getHeader().getSequenceNumber() - 1));
 		return socket;
 	}
 
-	private UtpSocket(DatagramChannel channel, short sendConnectionId) {
+	private UtpSocket(DatagramChannel channel, short sendConnectionId, short receiveConnectionId, int receiveBufferSize, PacketWriter packetWriter) {
 		this.channel = channel;
 		this.sendConnectionId = sendConnectionId;
+		this.receiveConnectionId = receiveConnectionId;
+		this.packetWriter = packetWriter;
 		clock = Clock.systemDefaultZone();
 		connectionState = ConnectionState.PENDING;
-		acknowledgeQueue = new LinkedList<>();
 		resendQueue = new LinkedList<>();
-		packetWriter = new PacketWriter();
 		precisionTimer = new PrecisionTimer();
 		timeoutHandler = new SocketTimeoutHandler(precisionTimer);
-		packetLossHandler = new PacketLossHandler(this);
-		windowHandler = new SocketWindowHandler();
+		packetsInFlight = new InFlightPacketBuffer();
+		packetLossHandler = new PacketLossHandler(this, packetsInFlight);
+		windowHandler = new SocketWindowHandler(packetsInFlight);
 		packetSizeHandler = new PacketSizeHandler(windowHandler);
 		inputStreamState = StreamState.ACTIVE;
 		outputStreamState = StreamState.ACTIVE;
 		delayHandler = new SocketDelayHandler(precisionTimer);
-		try {
-			inputPipe = Pipe.open();
-			inputPipe.sink().configureBlocking(false);
-			inputPipe.source().configureBlocking(false);
-			outputPipe = Pipe.open();
-			outputPipe.sink().configureBlocking(false);
-			outputPipe.source().configureBlocking(false);
-		} catch (IOException e) {
-			throw new IllegalStateException("Failed to open uTP pipe", e);
-		}
+		delayedAckHandler = new DelayedAckHandler(precisionTimer);
+		inputPipe = new RingBufferPipe(receiveBufferSize);
+		outputPipe = new RingBufferPipe(SEND_BUFFER_SIZE);
+		// Data to send and room for data which couldn't be passed on yet are both work for the socket.
+		outputPipe.source().setReadinessListener(this::requestProcessing);
+		inputPipe.sink().setReadinessListener(this::requestProcessing);
+		advertisedReceiveWindow = receiveBufferSize;
+	}
+
+	/**
+	 * @return The connection id which the remote uses in the packets it sends to this socket.
+	 */
+	public short getReceiveConnectionId() {
+		return receiveConnectionId;
 	}
 
 	public void bind(SocketAddress remoteAddress) {
@@ -177,22 +253,73 @@ public class UtpSocket implements ISocket, Closeable {
 	 */
 	public void onReceivedPacket(UtpPacket packet) {
 		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", Integer.toString(Short.toUnsignedInt(sendConnectionId)))) {
-			LOGGER.trace(
-				"Received [{}] packet [{}]",
-				PacketType.getByType(packet.getHeader().getType()),
-				Short.toUnsignedInt(packet.getHeader().getSequenceNumber())
-			);
+			processReceivedPacket(packet);
+		}
+	}
 
+	/**
+	 * Updates the socket state based on the received packets in the order in which they were received.
+	 *
+	 * @param packets The packets which have been received by the multiplexer in a single batch.
+	 */
+	public void onReceivedPackets(List<UtpPacket> packets) {
+		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", Integer.toString(Short.toUnsignedInt(sendConnectionId)))) {
+			for (UtpPacket packet : packets) {
+				processReceivedPacket(packet);
+			}
+		}
+	}
+
+	private void processReceivedPacket(UtpPacket packet) {
+		LOGGER.trace(
+			"Received [{}] packet [{}]",
+			PacketType.getByType(packet.getHeader().getType()),
+			Short.toUnsignedInt(packet.getHeader().getSequenceNumber())
+		);
+
+		boolean isAccepted = isWithinReceiveWindow(packet);
+		if (isAccepted) {
 			packetAckHandler.onReceivedPacket(packet);
-			packetLossHandler.onReceivedPacket(packet);
-			timeoutHandler.onReceivedPacket();
-			windowHandler.onReceivedPacket(packet).ifPresent(timeoutHandler::onAckedPacket);
-			packetSizeHandler.onReceivedPacket(packet);
-			delayHandler.onReceivedPacket(packet);
+		} else {
+			LOGGER.trace("Dropping packet [{}] as it exceeds the receive window.", Short.toUnsignedInt(packet.getHeader().getSequenceNumber()));
+		}
+
+		UtpPacket ackedPacket = packetsInFlight.get(packet.getHeader().getAcknowledgeNumber());
+		int ackedBytes = packetsInFlight.acknowledge(packet.getHeader());
+
+		packetLossHandler.onReceivedPacket(packet);
+		timeoutHandler.onReceivedPacket();
+		if (ackedPacket != null) {
+			timeoutHandler.onAckedPacket(ackedPacket);
+		}
+		windowHandler.onReceivedPacket(packet, ackedBytes);
+		packetSizeHandler.onReceivedPacket(ackedBytes);
+		delayHandler.onReceivedPacket(packet);
+		if (isAccepted) {
 			packet.getPayload().onReceivedPayload(packet.getHeader(), this);
 		}
 	}
 
+	/**
+	 * Checks if the ST_DATA packet can be buffered. Packets which can't be buffered are not acknowledged so the remote will resend them.
+	 * Packets which have been received before are always accepted so the acknowledgement will be repeated.
+	 *
+	 * @param packet The received packet.
+	 * @return <code>true</code> when the packet can be processed.
+	 */
+	private boolean isWithinReceiveWindow(UtpPacket packet) {
+		if (inputStream == null || packet.getPayload().getType() != PacketType.DATA) {
+			return true;
+		}
+
+		short sequenceNumber = packet.getHeader().getSequenceNumber();
+		if (inputStream.isReceived(sequenceNumber)) {
+			return true;
+		}
+
+		return inputStream.isWithinReorderWindow(sequenceNumber) && packet.getPayload().getData().length <= getReceiveWindow();
+	}
+
 	/**
 	 * Submits a packet that has been previously sent but has not arrived on the remote.
 	 *
@@ -205,15 +332,34 @@ public class UtpSocket implements ISocket, Closeable {
 	}
 
 	public void acknowledgePacket(Acknowledgement acknowledgement) {
-		acknowledgeQueue.add(acknowledgement);
+		acknowledgeNumber = acknowledgement.getSequenceNumber();
+	}
+
+	/**
+	 * Registers that a received packet must be acknowledged. The acknowledgement is sent with the next outgoing packet or as a single ST_STATE once
+	 * {@link DelayedAckHandler} considers it due.
+	 *
+	 * @param packetSize The size of the received packet.
+	 * @param immediate <code>true</code> when the acknowledgement must not be delayed.
+	 */
+	public void requestAcknowledgement(int packetSize, boolean immediate) {
+		delayedAckHandler.onPacketToAcknowledge(packetSize, immediate);
 	}
 
 	/**
 	 * Writes the {@link UtpPacket} onto the {@link #channel} if the window allows for it.
-	 * This will consume elements from {@link #resendQueue}, {@link #outputPipe} and {@link #packetAckHandler}
+	 * This will consume elements from {@link #resendQueue} and {@link #outputPipe} and sends the pending acknowledgement when it is due.
 	 */
 	public void processSendQueue() throws IOException {
 		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", Integer.toString(Short.toUnsignedInt(sendConnectionId)))) {
+			if (inputStream != null) {
+				inputStream.flush();
+				if (isReceiveWindowReopened()) {
+					LOGGER.trace("Receive window reopened to [{}] bytes.", getReceiveWindow());
+					sendState();
+				}
+			}
+
 			boolean canSendMultiple;
 			do {
 				canSendMultiple = false;
@@ -221,38 +367,87 @@ public class UtpSocket implements ISocket, Closeable {
 					send(resendQueue.poll(), false);
 					canSendMultiple = true;
 				} else {
-					int maxPayloadSize = Math.max(0, Math.min(getPacketPayloadSize(), windowHandler.getMaxWindow() - windowHandler.getBytesInFlight() - PacketWriter.OVERHEAD_IN_BYTES));
+					int maxPayloadSize = getAvailablePayloadSize();
+					int payloadSize = Math.min(maxPayloadSize, outputPipe.available());
 
-					ByteBuffer sendBuffer = ByteBuffer.allocate(maxPayloadSize);
-					int bytesRead = outputPipe.source().read(sendBuffer);
-					sendBuffer.flip();
-
-					if (bytesRead > 0) {
-						send(new DataPayload(sendBuffer));
-						canSendMultiple = bytesRead == maxPayloadSize;
-					} else if (bytesRead == 0 && outputStreamState == StreamState.SHUTDOWN_PENDING) {
+					if (payloadSize > 0) {
+						sendData(payloadSize);
+						canSendMultiple = payloadSize == maxPayloadSize;
+					} else if (outputPipe.available() == 0 && outputStreamState == StreamState.SHUTDOWN_PENDING) {
 						send(new FinPayload());
 						outputStreamState = StreamState.SHUTDOWN;
-					} else if (!acknowledgeQueue.isEmpty()) {
-						sendStatePackets(maxPayloadSize);
 					}
 				}
 			} while (canSendMultiple);
+
+			if (delayedAckHandler.isAcknowledgementDue()) {
+				// No packet could carry the acknowledgement, send it on its own.
+				sendState();
+			}
 		}
 	}
 
-	private void sendStatePackets(int maxPayLoadSize) throws IOException {
-		// Send out at least 1 state packet with a limit of n packets.
-		// Where n is the smaller of the ack queue size or the amount of packets to fit in the payload size.
-		int remainingPackets = Math.min(acknowledgeQueue.size(), Math.max(1, maxPayLoadSize / PacketWriter.OVERHEAD_IN_BYTES));
+	private int getAvailablePayloadSize() {
+		return Math.max(0, Math.min(getPacketPayloadSize(), windowHandler.getMaxWindow() - windowHandler.getBytesInFlight() - PacketWriter.OVERHEAD_IN_BYTES));
+	}
 
-		if (remainingPackets > 1) {
-			LOGGER.trace("Sending out ST_STATE burst of [{}] packets.", remainingPackets);
-		}
+	/**
+	 * The receive window is the amount of bytes which can still be buffered. Data which has been received but couldn't be passed on to the input pipe yet is
+	 * subtracted so the remote stops sending when the BitTorrent layer doesn't keep up.
+	 *
+	 * @return The amount of bytes the remote is allowed to send.
+	 */
+	private int getReceiveWindow() {
+		int bufferedBytes = inputStream == null ? 0 : inputStream.getBufferedBytes();
+		return Math.max(0, inputPipe.remaining() - bufferedBytes);
+	}
 
-		while (remainingPackets > 0) {
-			send(new StatePayload());
-			remainingPackets--;
+	/**
+	 * @return <code>true</code> when the remote has been told that the window was (nearly) closed, but at least half of the buffer is free again.
+	 */
+	private boolean isReceiveWindowReopened() {
+		int threshold = inputPipe.capacity() / 2;
+		return advertisedReceiveWindow < threshold && getReceiveWindow() >= threshold;
+	}
+
+	/**
+	 * @return The amount of milliseconds until {@link #processTimeout()} must be called.
+	 */
+	long getMillisUntilTimeout() {
+		return timeoutHandler.getMillisUntilTimeout();
+	}
+
+	/**
+	 * @return The amount of milliseconds until {@link #processSendQueue()} must be called to send the delayed acknowledgement or <code>-1</code> when no
+	 * acknowledgement is pending.
+	 */
+	long getMillisUntilAcknowledgement() {
+		return delayedAckHandler.getMillisUntilAcknowledgement();
+	}
+
+	/**
+	 * Sets the listener which will be notified when the socket has work which must be handled by {@link #processSendQueue()} and which hasn't been
+	 * triggered by a received packet.
+	 *
+	 * @param listener The listener.
+	 */
+	public void setProcessRequestListener(Runnable listener) {
+		this.processRequestListener = listener;
+	}
+
+	/**
+	 * Sets the listener which will be notified when the socket transitions to the {@link ConnectionState#CONNECTED} state.
+	 *
+	 * @param listener The listener.
+	 */
+	public void setConnectedListener(Runnable listener) {
+		this.connectedListener = listener;
+	}
+
+	private void requestProcessing() {
+		Runnable listener = processRequestListener;
+		if (listener != null) {
+			listener.run();
 		}
 	}
 
@@ -266,12 +461,12 @@ public class UtpSocket implements ISocket, Closeable {
 
 		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", Integer.toString(Short.toUnsignedInt(sendConnectionId)))) {
 			LOGGER.trace(
-				"Socket triggered timeout. Window: {} bytes. Bytes in flight: {}. Payload Size: {} bytes. Resend Queue: {} packets. Ack Queue: {} packets.",
+				"Socket triggered timeout. Window: {} bytes. Bytes in flight: {}. Payload Size: {} bytes. Resend Queue: {} packets. Ack pending: {}.",
 				windowHandler.getMaxWindow(),
 				windowHandler.getBytesInFlight(),
 				getPacketPayloadSize(),
 				resendQueue.size(),
-				acknowledgeQueue.size()
+				delayedAckHandler.hasPendingAcknowledgement()
 			);
 
 			timeoutHandler.onTimeout();
@@ -281,30 +476,85 @@ public class UtpSocket implements ISocket, Closeable {
 	}
 
 	private void send(Payload payload) throws IOException {
-		UtpHeader header = new UtpHeader.Builder()
-			.setType(payload.getType().getTypeField())
-			.setSequenceNumber(getPacketSequenceNumber(payload.getType()))
-			.setExtension((byte) 0)
-			.setConnectionId(getSendConnectionId(payload.getType()))
-			.setWindowSize(windowHandler.getBytesInFlight())
-			.build();
-		UtpPacket packet = new UtpPacket(header, payload);
+		UtpPacket packet = new UtpPacket(createHeader(payload.getType()), payload);
 		send(packet, true);
 	}
 
+	private void sendState() throws IOException {
+		if (connectionState == ConnectionState.SYN_RECEIVED) {
+			// The state packet acking the SYN increases the sequence number.
+			send(new StatePayload());
+			return;
+		}
+
+		if (statePacket == null || statePacket.getHeader().getSequenceNumber() != sequenceNumberCounter) {
+			statePacket = new UtpPacket(createHeader(PacketType.STATE), new StatePayload());
+		}
+
+		send(statePacket, true);
+	}
+
+	/**
+	 * Sends an ST_DATA packet of which the payload is read from the {@link #outputPipe} straight into the datagram buffer.
+	 *
+	 * @param payloadSize The amount of bytes to send, must not exceed the amount of bytes available in the {@link #outputPipe}.
+	 */
+	private void sendData(int payloadSize) throws IOException {
+		UtpHeader header = createHeader(PacketType.DATA);
+		renewHeader(header, true);
+
+		synchronized (packetWriter) {
+			ByteBuffer buffer = packetWriter.write(header, outputPipe.source(), payloadSize);
+
+			// The payload must be retained until it has been acknowledged as it might need to be resent.
+			byte[] data = new byte[payloadSize];
+			buffer.position(PacketWriter.getPayloadOffset(header));
+			buffer.get(data);
+			buffer.rewind();
+
+			transmit(new UtpPacket(header, new DataPayload(data)), buffer);
+		}
+	}
+
 	private void send(UtpPacket packet, boolean renewAck) throws IOException {
-		short ackNumber = lastSentAcknowledgeNumber;
+		renewHeader(packet.getHeader(), renewAck);
+
+		synchronized (packetWriter) {
+			transmit(packet, packetWriter.write(packet));
+		}
+	}
+
+	private UtpHeader createHeader(PacketType type) {
+		return new UtpHeader.Builder()
+			.setType(type.getTypeField())
+			.setSequenceNumber(getPacketSequenceNumber(type))
+			.setExtension((byte) 0)
+			.setConnectionId(getSendConnectionId(type))
+			.setWindowSize(getReceiveWindow())
+			.build();
+	}
+
+	private void renewHeader(UtpHeader header, boolean renewAck) {
+		short ackNumber = acknowledgeNumber;
 		if (!renewAck) {
-			ackNumber = packet.getHeader().getAcknowledgeNumber();
-		} else if (!acknowledgeQueue.isEmpty()) {
-			ackNumber = acknowledgeQueue.poll().getSequenceNumber();
+			ackNumber = header.getAcknowledgeNumber();
+		} else {
+			// Every packet carries the cumulative acknowledgement, so nothing is left to acknowledge separately.
 			lastSentAcknowledgeNumber = ackNumber;
+			delayedAckHandler.onAcknowledgementSent();
 		}
 
-		packet.getHeader().renew(ackNumber, precisionTimer.getCurrentMicros(), delayHandler.getMeasuredDelay());
-
-		ByteBuffer buffer = packetWriter.write(packet);
+		advertisedReceiveWindow = getReceiveWindow();
+		header.renew(
+			ackNumber,
+			precisionTimer.getCurrentMicros(),
+			delayHandler.getMeasuredDelay(),
+			advertisedReceiveWindow,
+			packetAckHandler.createSelectiveAck(ackNumber)
+		);
+	}
 
+	private void transmit(UtpPacket packet, ByteBuffer buffer) throws IOException {
 		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", Integer.toString(Short.toUnsignedInt(sendConnectionId)))) {
 			LOGGER.trace(
 				"Writing [{}] packet [{}] acking [{}] of [{}] bytes",
@@ -315,10 +565,9 @@ public class UtpSocket implements ISocket, Closeable {
 			);
 
 			channel.send(buffer, remoteAddress);
+			packetsInFlight.onSentPacket(packet);
 			packetLossHandler.onSentPacket(packet);
 			timeoutHandler.onSentPacket();
-			windowHandler.onSentPacket(packet);
-			packetSizeHandler.onSentPacket(packet);
 		}
 
 		if (buffer.hasRemaining()) {
@@ -354,6 +603,7 @@ public class UtpSocket implements ISocket, Closeable {
 	public void close() {
 		setConnectionState(ConnectionState.CLOSING);
 		outputStreamState = StreamState.SHUTDOWN_PENDING;
+		requestProcessing();
 	}
 
 	public void submitData(short sequenceNumber, byte[] data) {
@@ -389,21 +639,21 @@ public class UtpSocket implements ISocket, Closeable {
 		return connectionState == ConnectionState.CONNECTED;
 	}
 
-	public Pipe getInputPipe() {
+	public RingBufferPipe getInputPipe() {
 		return inputPipe;
 	}
 
-	public Pipe getOutputPipe() {
+	public RingBufferPipe getOutputPipe() {
 		return outputPipe;
 	}
 
 	@Override
-	public Pipe.SourceChannel getReadableChannel() {
+	public RingBufferPipe.SourceChannel getReadableChannel() {
 		return inputPipe.source();
 	}
 
 	@Override
-	public Pipe.SinkChannel getWritableChannel() {
+	public RingBufferPipe.SinkChannel getWritableChannel() {
 		return outputPipe.sink();
 	}
 
@@ -422,13 +672,20 @@ public class UtpSocket implements ISocket, Closeable {
 				newState
 			);
 		}
+		boolean isConnecting = connectionState != ConnectionState.CONNECTED && newState == ConnectionState.CONNECTED;
 		connectionState = newState;
 
-		if (connectionState == ConnectionState.CONNECTED) {
-			inputStream = new InputPacketSorter(inputPipe.sink(), (short) (lastSentAcknowledgeNumber + 1));
+		if (isConnecting) {
+			int maxBufferedPackets = Math.min(MAX_BUFFERED_PACKETS, Math.max(1, inputPipe.capacity() / MIN_PACKET_PAYLOAD_SIZE));
+			inputStream = new InputPacketSorter(inputPipe.sink(), (short) (lastSentAcknowledgeNumber + 1), maxBufferedPackets);
 		}
 
 		Sync.signalAll(notifyLock, onStateChange);
+
+		Runnable listener = connectedListener;
+		if (isConnecting && listener != null) {
+			listener.run();
+		}
 	}
 
 	public ConnectionState getConnectionState() {
@@ -436,6 +693,7 @@ public class UtpSocket implements ISocket, Closeable {
 	}
 
 	public void setAcknowledgeNumber(short acknowledgeNumber) {
+		this.acknowledgeNumber = acknowledgeNumber;
 		this.lastSentAcknowledgeNumber = acknowledgeNumber;
 	}
 
@@ -4,10 +4,8 @@ import java.net.SocketAddress;
 import java.nio.channels.DatagramChannel;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 
 import org.slf4j.Logger;
@@ -15,93 +13,207 @@ import org.slf4j.LoggerFactory;
 
 import org.johnnei.javatorrent.internal.utp.protocol.UtpProtocolViolationException;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
-
+import org.johnnei.javatorrent.internal.utp.stream.PacketWriter;
+
+/**
+ * Maps the received packets onto the sockets. Sockets are identified by the connection id on which they receive in combination with the remote address, so
+ * remotes which pick the same connection id don't collide.
+ * The registrations are stored in a table indexed by the connection id. Each slot holds an immutable chain of the registrations for that id, which allows
+ * lookups to be done without locking or boxing the id. Sockets which we initiate pick an unused connection id and match on any address as the remote address
+ * isn't known yet when the id is allocated.
+ */
 public class UtpSocketRegistry {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(UtpSocketRegistry.class);
 
+	private static final int CONNECTION_ID_COUNT = 1 << 16;
+
 	private final Object createLock = new Object();
 
 	private final DatagramChannel channel;
 
-	private final Map<Short, UtpSocket> socketMap;
+	private final int receiveBufferSize;
+
+	private final PacketWriter packetWriter;
+
+	private final AtomicReferenceArray<Registration> registrations;
 
 	private final Random random;
 
 	public UtpSocketRegistry(DatagramChannel channel) {
+		this(channel, UtpSocket.DEFAULT_RECEIVE_BUFFER_SIZE, new PacketWriter());
+	}
+
+	/**
+	 * Creates a new registry.
+	 * @param channel The channel on which the sockets send their packets.
+	 * @param receiveBufferSize The receive buffer size of the sockets which are created for remote initiated connections.
+	 * @param packetWriter The writer which is shared by the sockets which are created for remote initiated connections.
+	 */
+	public UtpSocketRegistry(DatagramChannel channel, int receiveBufferSize, PacketWriter packetWriter) {
 		this.channel = channel;
-		socketMap = new HashMap<>();
+		this.receiveBufferSize = receiveBufferSize;
+		this.packetWriter = packetWriter;
+		registrations = new AtomicReferenceArray<>(CONNECTION_ID_COUNT);
 		random = new Random();
 	}
 
-	public UtpSocket getSocket(short connectionId) {
-		UtpSocket socket = socketMap.get(connectionId);
-		if (socket == null) {
+	/**
+	 * Finds the socket which receives packets from the given address on the given connection id.
+	 * @param socketAddress The address which sent the packet.
+	 * @param connectionId The connection id of the packet.
+	 * @return The registered socket.
+	 * @throws UtpProtocolViolationException When no socket is registered for the packet.
+	 */
+	public UtpSocket getSocket(SocketAddress socketAddress, short connectionId) {
+		UtpSocket initiatedSocket = null;
+		for (Registration registration = registrations.get(getSlot(connectionId)); registration != null; registration = registration.next) {
+			if (registration.address == null) {
+				initiatedSocket = registration.socket;
+			} else if (registration.address.equals(socketAddress)) {
+				return registration.socket;
+			}
+		}
+
+		if (initiatedSocket == null) {
 			throw new UtpProtocolViolationException(String.format(
-				"Packet received for [%s] but no socket has been registered.",
-				Short.toUnsignedInt(connectionId)
+				"Packet received for [%s] from [%s] but no socket has been registered.",
+				Short.toUnsignedInt(connectionId),
+				socketAddress
 			));
 		}
 
-		return socket;
+		return initiatedSocket;
 	}
 
 	/**
 	 * Takes a function which creates, and stores, a socket based on the allocated connection id.
 	 * @param socketSupplier The function which is capable of creating a socket.
 	 * @return The allocated socket.
+	 * @throws IllegalStateException When all connection ids are in use.
 	 */
 	public UtpSocket allocateSocket(Function<Short, UtpSocket> socketSupplier) {
 		synchronized (createLock) {
-			// FIXME Infinite loop when all IDs are allocated.
-			UtpSocket socket = null;
-			do {
-				short receiveId = (short) random.nextInt();
-				if (!socketMap.containsKey(receiveId)) {
-					socket = socketSupplier.apply(receiveId);
+			int firstId = random.nextInt(CONNECTION_ID_COUNT);
+			for (int i = 0; i < CONNECTION_ID_COUNT; i++) {
+				short receiveId = (short) (firstId + i);
+				int slot = getSlot(receiveId);
+				// Only unused ids are allocated as the socket will match packets from any address.
+				if (registrations.get(slot) == null) {
+					UtpSocket socket = socketSupplier.apply(receiveId);
+					// Removals don't compete with this as the slot is empty and other registrations are made while holding the lock.
+					registrations.set(slot, new Registration(null, socket, null));
 					LOGGER.trace("Registered initiated socket to receive on id [{}]", Short.toUnsignedInt(receiveId));
-					socketMap.put(receiveId, socket);
+					return socket;
 				}
-			} while (socket == null);
-			return socket;
+			}
+
+			throw new IllegalStateException("All connection ids are in use.");
 		}
 	}
 
 	public UtpSocket createSocket(SocketAddress socketAddress, UtpPacket synPacket) {
 		synchronized (createLock) {
 			short receiveId = (short) (synPacket.getHeader().getConnectionId() + 1);
-			if (socketMap.containsKey(receiveId)) {
-				throw new UtpProtocolViolationException(String.format("Connection [%s] already registered before.", synPacket.getHeader().getConnectionId()));
-			}
+			int slot = getSlot(receiveId);
+
+			Registration head;
+			Registration registration;
+			UtpSocket socket = null;
+			do {
+				head = registrations.get(slot);
+				for (Registration other = head; other != null; other = other.next) {
+					if (socketAddress.equals(other.address)) {
+						throw new UtpProtocolViolationException(String.format(
+							"Connection [%s] already registered before for [%s].",
+							synPacket.getHeader().getConnectionId(),
+							socketAddress
+						));
+					}
+				}
+
+				if (socket == null) {
+					socket = UtpSocket.createRemoteConnecting(channel, synPacket, receiveBufferSize, packetWriter);
+					socket.bind(socketAddress);
+				}
+				registration = new Registration(socketAddress, socket, head);
+			} while (!registrations.compareAndSet(slot, head, registration));
 
-			UtpSocket socket = UtpSocket.createRemoteConnecting(channel, synPacket);
-			socket.bind(socketAddress);
 			LOGGER.trace("Registered received socket on to receive on id [{}] and send to [{}]", Short.toUnsignedInt(receiveId), socketAddress);
-			socketMap.put(receiveId, socket);
 			return socket;
 		}
 	}
 
 	public Collection<UtpSocket> getAllSockets() {
-		synchronized (createLock) {
-			return new ArrayList<>(socketMap.values());
+		Collection<UtpSocket> sockets = new ArrayList<>();
+		for (int slot = 0; slot < CONNECTION_ID_COUNT; slot++) {
+			for (Registration registration = registrations.get(slot); registration != null; registration = registration.next) {
+				sockets.add(registration.socket);
+			}
 		}
+		return sockets;
 	}
 
 	/**
-	 * Removes all shutdown sockets freeing up their allocated IDs.
+	 * Removes the registration of the socket, freeing up the connection id.
+	 * @param socket The socket which has been shutdown.
 	 */
-	public void removeShutdownSockets() {
-		synchronized (createLock) {
-			Iterator<Map.Entry<Short, UtpSocket>> iterator = socketMap.entrySet().iterator();
-			while (iterator.hasNext()) {
-				Map.Entry<Short, UtpSocket> socketEntry = iterator.next();
-				UtpSocket socket = socketEntry.getValue();
-				if (socket.isShutdown()) {
-					LOGGER.trace("Removed registration of socket with receive id [{}]", Short.toUnsignedInt(socketEntry.getKey()));
-					iterator.remove();
-				}
+	public void removeSocket(UtpSocket socket) {
+		int slot = getSlot(socket.getReceiveConnectionId());
+
+		Registration head;
+		Registration remaining;
+		do {
+			head = registrations.get(slot);
+			remaining = remove(head, socket);
+			if (remaining == head) {
+				// Not registered (anymore).
+				return;
 			}
+		} while (!registrations.compareAndSet(slot, head, remaining));
+
+		LOGGER.trace("Removed registration of socket with receive id [{}]", Short.toUnsignedInt(socket.getReceiveConnectionId()));
+	}
+
+	/**
+	 * @return The chain without the registration of the socket. The given chain is returned when the socket is not registered.
+	 */
+	private static Registration remove(Registration registration, UtpSocket socket) {
+		if (registration == null) {
+			return null;
+		}
+
+		if (registration.socket == socket) {
+			return registration.next;
+		}
+
+		Registration next = remove(registration.next, socket);
+		if (next == registration.next) {
+			return registration;
+		}
+
+		return new Registration(registration.address, registration.socket, next);
+	}
+
+	private static int getSlot(short connectionId) {
+		return Short.toUnsignedInt(connectionId);
+	}
+
+	private static final class Registration {
+
+		/**
+		 * The remote address or <code>null</code> for sockets which we initiated.
+		 */
+		private final SocketAddress address;
+
+		private final UtpSocket socket;
+
+		private final Registration next;
+
+		Registration(SocketAddress address, UtpSocket socket, Registration next) {
+			this.address = address;
+			this.socket = socket;
+			this.next = next;
 		}
 	}
 }
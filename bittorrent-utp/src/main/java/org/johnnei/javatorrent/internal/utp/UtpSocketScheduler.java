@@ -0,0 +1,202 @@
+package org.johnnei.javatorrent.internal.utp;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.internal.utils.TimerWheel;
+
+/**
+ * Schedules the processing of {@link UtpSocket}s on the thread of the {@link UtpMultiplexer}.
+ * A socket is only processed when it has work: data has been written to its output, room became available in its input, packets have been received, a
+ * delayed acknowledgement or its timeout is due. Timeouts are kept in a {@link TimerWheel} so that idle sockets don't have to be visited.
+ * All methods except {@link #register(UtpSocket)} and {@link #schedule(UtpSocket)} must be called from the multiplexer thread.
+ */
+public class UtpSocketScheduler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(UtpSocketScheduler.class);
+
+	private static final long TICK_MILLIS = 10;
+
+	private static final int SLOT_COUNT = 512;
+
+	private final Runnable wakeup;
+
+	private final LongSupplier clock;
+
+	private final Consumer<UtpSocket> onShutdown;
+
+	private final Queue<UtpSocket> pendingRegistrations;
+
+	private final Queue<UtpSocket> readySockets;
+
+	/**
+	 * The sockets which are in {@link #readySockets}, used to prevent a socket from being queued more than once.
+	 */
+	private final Set<UtpSocket> queuedSockets;
+
+	/**
+	 * The sockets of which the registration has been completed and which haven't been shutdown yet.
+	 */
+	private final Set<UtpSocket> registeredSockets;
+
+	private final TimerWheel<UtpSocket> timeouts;
+
+	private final TimerWheel<UtpSocket> delayedAcknowledgements;
+
+	/**
+	 * The sockets which are in {@link #delayedAcknowledgements}, used to prevent a socket from being scheduled more than once.
+	 */
+	private final Set<UtpSocket> delayedAcknowledgementSockets;
+
+	/**
+	 * Creates a new scheduler.
+	 * @param wakeup Wakes up the thread which processes the sockets when a socket has work.
+	 * @param clock The supplier of the current time in milliseconds.
+	 * @param onShutdown The consumer which is notified when a socket has been shutdown and is no longer scheduled.
+	 */
+	public UtpSocketScheduler(Runnable wakeup, LongSupplier clock, Consumer<UtpSocket> onShutdown) {
+		this.wakeup = wakeup;
+		this.clock = clock;
+		this.onShutdown = onShutdown;
+		pendingRegistrations = new ConcurrentLinkedQueue<>();
+		readySockets = new ConcurrentLinkedQueue<>();
+		queuedSockets = ConcurrentHashMap.newKeySet();
+		registeredSockets = new HashSet<>();
+		timeouts = new TimerWheel<>(TICK_MILLIS, SLOT_COUNT, clock.getAsLong());
+		delayedAcknowledgements = new TimerWheel<>(TICK_MILLIS, SLOT_COUNT, clock.getAsLong());
+		delayedAcknowledgementSockets = new HashSet<>();
+	}
+
+	/**
+	 * Registers a new socket to be scheduled. The registration is completed on the multiplexer thread.
+	 * @param socket The socket to register.
+	 */
+	public void register(UtpSocket socket) {
+		socket.setProcessRequestListener(() -> schedule(socket));
+		pendingRegistrations.add(socket);
+		wakeup.run();
+	}
+
+	/**
+	 * Queues the socket to have its send queue processed.
+	 * @param socket The socket which has work.
+	 */
+	public void schedule(UtpSocket socket) {
+		if (queuedSockets.add(socket)) {
+			readySockets.add(socket);
+			wakeup.run();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> when sockets are waiting to be processed.
+	 */
+	public boolean hasReadySockets() {
+		return !readySockets.isEmpty() || !pendingRegistrations.isEmpty();
+	}
+
+	/**
+	 * @return The amount of milliseconds until a timeout must be processed or <code>-1</code> when no timeouts are scheduled.
+	 */
+	public long getMillisUntilNextTimeout() {
+		long now = clock.getAsLong();
+		long untilTimeout = timeouts.getMillisUntilNextExpiry(now);
+		long untilAcknowledgement = delayedAcknowledgements.getMillisUntilNextExpiry(now);
+		if (untilTimeout < 0 || untilAcknowledgement < 0) {
+			return Math.max(untilTimeout, untilAcknowledgement);
+		}
+		return Math.min(untilTimeout, untilAcknowledgement);
+	}
+
+	/**
+	 * Processes the send queue of all sockets which have work.
+	 */
+	public void processReadySockets() {
+		UtpSocket socket;
+		while ((socket = pendingRegistrations.poll()) != null) {
+			completeRegistration(socket);
+		}
+
+		while ((socket = readySockets.poll()) != null) {
+			queuedSockets.remove(socket);
+			if (registeredSockets.contains(socket)) {
+				processSocket(socket);
+			}
+		}
+	}
+
+	/**
+	 * Processes the timeouts which have expired.
+	 */
+	public void processTimeouts() {
+		long now = clock.getAsLong();
+		delayedAcknowledgements.expire(now, this::onAcknowledgementDue);
+		timeouts.expire(now, this::onTimeout);
+	}
+
+	private void completeRegistration(UtpSocket socket) {
+		registeredSockets.add(socket);
+		scheduleTimeout(socket);
+		// Data might have been written before the socket got registered.
+		processSocket(socket);
+	}
+
+	private void processSocket(UtpSocket socket) {
+		try {
+			socket.processSendQueue();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to process send queue of {}.", socket, e);
+		}
+
+		if (socket.isShutdown()) {
+			unregister(socket);
+			return;
+		}
+
+		long millisUntilAcknowledgement = socket.getMillisUntilAcknowledgement();
+		if (millisUntilAcknowledgement >= 0 && delayedAcknowledgementSockets.add(socket)) {
+			delayedAcknowledgements.schedule(socket, clock.getAsLong() + millisUntilAcknowledgement);
+		}
+	}
+
+	private void onAcknowledgementDue(UtpSocket socket) {
+		delayedAcknowledgementSockets.remove(socket);
+		if (registeredSockets.contains(socket)) {
+			processSocket(socket);
+		}
+	}
+
+	private void onTimeout(UtpSocket socket) {
+		if (!registeredSockets.contains(socket)) {
+			return;
+		}
+
+		socket.processTimeout();
+		if (socket.isShutdown()) {
+			unregister(socket);
+		} else {
+			scheduleTimeout(socket);
+		}
+	}
+
+	private void scheduleTimeout(UtpSocket socket) {
+		timeouts.schedule(socket, clock.getAsLong() + socket.getMillisUntilTimeout());
+	}
+
+	private void unregister(UtpSocket socket) {
+		delayedAcknowledgementSockets.remove(socket);
+		if (registeredSockets.remove(socket)) {
+			LOGGER.trace("Unregistered {}", socket);
+			onShutdown.accept(socket);
+		}
+	}
+}
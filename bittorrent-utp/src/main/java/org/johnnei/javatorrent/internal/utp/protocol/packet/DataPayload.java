@@ -15,7 +15,16 @@ public class DataPayload implements Payload {
 		Objects.requireNonNull(data);
 
 		this.data = new byte[data.remaining()];
-		System.arraycopy(data.array(), data.arrayOffset() + data.position(), this.data, 0, this.data.length);
+		// Read from a duplicate as the buffer might be a direct buffer which doesn't have a backing array.
+		data.duplicate().get(this.data);
+	}
+
+	/**
+	 * Creates a payload which takes ownership of the given array.
+	 * @param data The data of the payload.
+	 */
+	public DataPayload(byte[] data) {
+		this.data = Objects.requireNonNull(data);
 	}
 
 	@Override
@@ -0,0 +1,76 @@
+package org.johnnei.javatorrent.internal.utp.protocol.packet;
+
+import java.util.Arrays;
+
+/**
+ * The selective ACK extension (BEP 29, extension 1). Each bit in the mask represents a packet beyond the first missing packet. The first bit represents
+ * <code>ack_nr + 2</code> as <code>ack_nr + 1</code> is assumed to be missing.
+ */
+public class SelectiveAck {
+
+	/**
+	 * The value which identifies the extension in the extension chain.
+	 */
+	public static final byte EXTENSION_TYPE = 1;
+
+	private final byte[] bitmask;
+
+	/**
+	 * Creates a new selective ACK.
+	 * @param bitmask The bitmask in which the least significant bit of the first byte represents <code>ack_nr + 2</code>.
+	 */
+	public SelectiveAck(byte[] bitmask) {
+		this.bitmask = bitmask;
+	}
+
+	/**
+	 * Creates the selective ACK of which the mask is sized to the next multiple of 32 bits which fits all given packets.
+	 * @param bitCount The amount of packets after <code>ack_nr + 1</code> to represent.
+	 * @return The empty selective ACK.
+	 */
+	public static SelectiveAck withCapacity(int bitCount) {
+		int byteCount = (bitCount + 7) / 8;
+		return new SelectiveAck(new byte[Math.max(4, (byteCount + 3) / 4 * 4)]);
+	}
+
+	/**
+	 * Marks the packet at the given offset as received.
+	 * @param index The offset of the packet from <code>ack_nr + 2</code>.
+	 */
+	public void setAcknowledged(int index) {
+		bitmask[index / 8] |= (byte) (1 << (index % 8));
+	}
+
+	/**
+	 * @param index The offset of the packet from <code>ack_nr + 2</code>.
+	 * @return <code>true</code> when the remote has received the packet.
+	 */
+	public boolean isAcknowledged(int index) {
+		return (bitmask[index / 8] & (1 << (index % 8))) != 0;
+	}
+
+	/**
+	 * @param acknowledgeNumber The <code>ack_nr</code> of the packet which contained this extension.
+	 * @param index The offset in the bitmask.
+	 * @return The sequence number represented by the bit at the given offset.
+	 */
+	public static short getSequenceNumber(short acknowledgeNumber, int index) {
+		return (short) (acknowledgeNumber + 2 + index);
+	}
+
+	/**
+	 * @return The amount of packets represented in the bitmask.
+	 */
+	public int getBitCount() {
+		return bitmask.length * 8;
+	}
+
+	public byte[] getBitmask() {
+		return bitmask;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SelectiveAck[bitmask=%s]", Arrays.toString(bitmask));
+	}
+}
@@ -18,7 +18,7 @@ public class UtpHeader {
 
 	private final short connectionId;
 
-	private final int windowSize;
+	private int windowSize;
 
 	private final short sequenceNumber;
 
@@ -28,6 +28,8 @@ public class UtpHeader {
 
 	private short acknowledgeNumber;
 
+	private SelectiveAck selectiveAck;
+
 	private UtpHeader(UtpHeader.Builder builder) {
 		type = builder.type;
 		version = IMPLEMENTED_VERSION;
@@ -38,6 +40,7 @@ public class UtpHeader {
 		windowSize = builder.windowSize;
 		sequenceNumber = builder.sequenceNumber;
 		acknowledgeNumber = builder.acknowledgeNumber;
+		selectiveAck = builder.selectiveAck;
 	}
 
 	/**
@@ -46,9 +49,13 @@ public class UtpHeader {
 	 * @param acknowledgeNumber The new packet to acknowledge
 	 * @param timestamp The time at which this was sent.
 	 * @param timestampDifference The measured delay on the socket.
+	 * @param windowSize The currently advertised receive window.
+	 * @param selectiveAck The packets received beyond the acknowledge number or <code>null</code> when all packets have been received in order.
 	 */
-	public void renew(short acknowledgeNumber, int timestamp, int timestampDifference) {
+	public void renew(short acknowledgeNumber, int timestamp, int timestampDifference, int windowSize, SelectiveAck selectiveAck) {
 		this.acknowledgeNumber = acknowledgeNumber;
+		this.selectiveAck = selectiveAck;
+		this.windowSize = windowSize;
 		this.timestamp = timestamp;
 		this.timestampDifference = timestampDifference;
 	}
@@ -61,8 +68,26 @@ public class UtpHeader {
 		return version;
 	}
 
+	/**
+	 * @return The type of the first extension in the extension chain.
+	 */
 	public byte getExtension() {
-		return extension;
+		return selectiveAck != null ? SelectiveAck.EXTENSION_TYPE : extension;
+	}
+
+	/**
+	 * @return The selective ACK extension or <code>null</code> when the extension is not present.
+	 */
+	public SelectiveAck getSelectiveAck() {
+		return selectiveAck;
+	}
+
+	/**
+	 * @return The amount of bytes which the extensions take in the packet.
+	 */
+	public int getExtensionSize() {
+		// Each extension is prefixed with the type of the next extension and its length.
+		return selectiveAck == null ? 0 : 2 + selectiveAck.getBitmask().length;
 	}
 
 	public short getConnectionId() {
@@ -113,6 +138,8 @@ public class UtpHeader {
 
 		private short acknowledgeNumber;
 
+		private SelectiveAck selectiveAck;
+
 		public Builder setType(byte type) {
 			this.type = type;
 			return this;
@@ -153,6 +180,11 @@ public class UtpHeader {
 			return this;
 		}
 
+		public Builder setSelectiveAck(SelectiveAck selectiveAck) {
+			this.selectiveAck = selectiveAck;
+			return this;
+		}
+
 		public UtpHeader build() {
 			return new UtpHeader(this);
 		}
@@ -36,6 +36,6 @@ public class UtpPacket {
 	}
 
 	public int getSize() {
-		return PacketWriter.OVERHEAD_IN_BYTES + payload.getData().length;
+		return PacketWriter.OVERHEAD_IN_BYTES + header.getExtensionSize() + payload.getData().length;
 	}
 }
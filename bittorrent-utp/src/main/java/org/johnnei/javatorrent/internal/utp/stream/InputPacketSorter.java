@@ -2,37 +2,71 @@ package org.johnnei.javatorrent.internal.utp.stream;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.Pipe;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.channels.WritableByteChannel;
 
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * Passes the received ST_DATA payloads in order of their sequence number onto the input sink.
+ * Payloads which can't be passed on yet are kept in a fixed size ring indexed by sequence number. Payloads which are too far ahead to fit in the ring are
+ * ignored and will have to be resent by the remote.
+ */
 public class InputPacketSorter {
 
-	private final Pipe.SinkChannel inputSink;
+	private final WritableByteChannel inputSink;
+
+	private final ByteBuffer[] packets;
 
 	private short nextSequenceNumber;
 
-	private Map<Short, ByteBuffer> sequenceToBuffer;
+	/**
+	 * The amount of bytes which have been received but not yet written to the {@link #inputSink}.
+	 */
+	private int bufferedBytes;
 
-	public InputPacketSorter(Pipe.SinkChannel inputSink, short nextSequenceNumber) {
+	/**
+	 * Creates a new sorter.
+	 * @param inputSink The sink to which the data is written.
+	 * @param nextSequenceNumber The sequence number of the first ST_DATA packet.
+	 * @param maxPackets The amount of packets which can be buffered. Rounded up to the next power of two.
+	 */
+	public InputPacketSorter(WritableByteChannel inputSink, short nextSequenceNumber, int maxPackets) {
+		Argument.requireWithinBounds(maxPackets, 1, (1 << 15) + 1, () -> "Buffered packet count must be between 1 and 32768.");
 		this.inputSink = inputSink;
 		this.nextSequenceNumber = nextSequenceNumber;
-		sequenceToBuffer = new HashMap<>();
+
+		int capacity = 1;
+		while (capacity < maxPackets) {
+			capacity <<= 1;
+		}
+		packets = new ByteBuffer[capacity];
 	}
 
 	public void submitData(short sequenceNumber, byte[] data) {
-		try {
-			sequenceToBuffer.put(sequenceNumber, ByteBuffer.wrap(data));
+		if (isReceived(sequenceNumber) || !isWithinReorderWindow(sequenceNumber)) {
+			// Duplicate or too far ahead to be buffered.
+			return;
+		}
 
-			while (sequenceToBuffer.containsKey(nextSequenceNumber)) {
-				ByteBuffer buffer = sequenceToBuffer.get(nextSequenceNumber);
-				inputSink.write(buffer);
+		packets[getSlot(sequenceNumber)] = ByteBuffer.wrap(data);
+		bufferedBytes += data.length;
+		flush();
+	}
+
+	/**
+	 * Writes the buffered data which is in order onto the input sink until the sink is full.
+	 */
+	public void flush() {
+		try {
+			ByteBuffer buffer;
+			while ((buffer = packets[getSlot(nextSequenceNumber)]) != null) {
+				bufferedBytes -= inputSink.write(buffer);
 
 				if (buffer.hasRemaining()) {
 					break;
 				}
 
-				sequenceToBuffer.remove(nextSequenceNumber);
+				packets[getSlot(nextSequenceNumber)] = null;
 				nextSequenceNumber++;
 			}
 		} catch (IOException e) {
@@ -40,20 +74,50 @@ public class InputPacketSorter {
 		}
 	}
 
+	/**
+	 * @param sequenceNumber The sequence number of the packet.
+	 * @return <code>true</code> when the packet has already been passed on or is buffered.
+	 */
+	public boolean isReceived(short sequenceNumber) {
+		int offset = getOffset(sequenceNumber);
+		return offset < 0 || (offset < packets.length && packets[getSlot(sequenceNumber)] != null);
+	}
+
+	/**
+	 * @param sequenceNumber The sequence number of the packet.
+	 * @return <code>true</code> when the packet is not too far ahead of the next expected packet to be buffered.
+	 */
+	public boolean isWithinReorderWindow(short sequenceNumber) {
+		return getOffset(sequenceNumber) < packets.length;
+	}
+
+	/**
+	 * @return The amount of bytes which have been received but not yet written to the input sink.
+	 */
+	public int getBufferedBytes() {
+		return bufferedBytes;
+	}
+
 	public boolean isCompleteUntil(short sequenceNumber) {
-		if (nextSequenceNumber == sequenceNumber) {
-			return true;
+		int missingPackets = getOffset(sequenceNumber);
+		if (missingPackets > packets.length) {
+			return false;
 		}
 
-		short seq = nextSequenceNumber;
-		while (seq < sequenceNumber) {
-			if (!sequenceToBuffer.containsKey(seq)) {
+		for (int i = 0; i < missingPackets; i++) {
+			if (packets[getSlot((short) (nextSequenceNumber + i))] == null) {
 				return false;
 			}
-
-			seq++;
 		}
 
 		return true;
 	}
+
+	private int getOffset(short sequenceNumber) {
+		return (short) (sequenceNumber - nextSequenceNumber);
+	}
+
+	private int getSlot(short sequenceNumber) {
+		return Short.toUnsignedInt(sequenceNumber) & (packets.length - 1);
+	}
 }
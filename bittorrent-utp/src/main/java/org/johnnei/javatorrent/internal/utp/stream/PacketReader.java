@@ -3,26 +3,58 @@ package org.johnnei.javatorrent.internal.utp.stream;
 import java.nio.ByteBuffer;
 
 import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
+import org.johnnei.javatorrent.internal.utp.protocol.UtpProtocolViolationException;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.Payload;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
 public class PacketReader {
 
+	/**
+	 * The size of the next extension type and length fields which precede the data of each extension.
+	 */
+	private static final int EXTENSION_HEADER_SIZE = 2;
+
 	public UtpPacket read(ByteBuffer inStream) {
 
 		int typeAndVersion = inStream.get();
+		byte extension = inStream.get();
 
-		UtpHeader header = new UtpHeader.Builder()
+		UtpHeader.Builder headerBuilder = new UtpHeader.Builder()
 			.setType((byte) (typeAndVersion >>> 4))
-			.setExtension(inStream.get())
+			.setExtension(extension)
 			.setConnectionId(inStream.getShort())
 			.setTimestamp(inStream.getInt())
 			.setTimestampDifference(inStream.getInt())
 			.setWindowSize(inStream.getInt())
 			.setSequenceNumber(inStream.getShort())
-			.setAcknowledgeNumber(inStream.getShort())
-			.build();
+			.setAcknowledgeNumber(inStream.getShort());
+
+		while (extension != 0) {
+			if (inStream.remaining() < EXTENSION_HEADER_SIZE) {
+				throw new UtpProtocolViolationException(String.format("Extension [%d] header exceeds the packet size.", extension));
+			}
+
+			byte nextExtension = inStream.get();
+			int length = Byte.toUnsignedInt(inStream.get());
+			if (length > inStream.remaining()) {
+				throw new UtpProtocolViolationException(String.format("Extension [%d] exceeds the packet size.", extension));
+			}
+
+			if (extension == SelectiveAck.EXTENSION_TYPE) {
+				byte[] bitmask = new byte[length];
+				inStream.get(bitmask);
+				headerBuilder.setSelectiveAck(new SelectiveAck(bitmask));
+			} else {
+				// Unknown extensions must be skipped.
+				inStream.position(inStream.position() + length);
+			}
+
+			extension = nextExtension;
+		}
+
+		UtpHeader header = headerBuilder.build();
 
 		Payload payload = PacketType.getByType(header.getType())
 			.createPayload(inStream);
@@ -1,9 +1,17 @@
 package org.johnnei.javatorrent.internal.utp.stream;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
+/**
+ * Encodes packets into a single reusable direct buffer which can be handed to the channel as is.
+ * The returned buffer is only valid until the next write, callers sharing a writer must hold the lock on the writer while using the buffer.
+ */
 public class PacketWriter {
 
 	/**
@@ -11,22 +19,75 @@ public class PacketWriter {
 	 */
 	public static final int OVERHEAD_IN_BYTES = 20;
 
-	public ByteBuffer write(UtpPacket packet) {
-		ByteBuffer buffer = ByteBuffer.allocate(packet.getSize());
+	/**
+	 * The largest payload a UDP datagram can carry.
+	 */
+	static final int MAX_PACKET_SIZE = 65_507;
 
-		byte typeAndVersion = (byte) ((packet.getHeader().getType() << 4) | (packet.getHeader().getVersion() & 0xF));
-		buffer.put(typeAndVersion);
-		// We don't support extension yet.
-		buffer.put((byte) 0);
-		buffer.putShort(packet.getHeader().getConnectionId());
-		buffer.putInt(packet.getHeader().getTimestamp());
-		buffer.putInt(packet.getHeader().getTimestampDifference());
-		buffer.putInt(packet.getHeader().getWindowSize());
-		buffer.putShort(packet.getHeader().getSequenceNumber());
-		buffer.putShort(packet.getHeader().getAcknowledgeNumber());
+	private final ByteBuffer buffer;
+
+	public PacketWriter() {
+		buffer = ByteBuffer.allocateDirect(MAX_PACKET_SIZE);
+	}
+
+	/**
+	 * Encodes the packet.
+	 * @param packet The packet to encode.
+	 * @return The buffer containing the encoded packet, ready to be sent.
+	 */
+	public ByteBuffer write(UtpPacket packet) {
+		writeHeader(packet.getHeader());
 		buffer.put(packet.getPayload().getData());
 
 		buffer.flip();
 		return buffer;
 	}
+
+	/**
+	 * Encodes the header and reads the payload from the source directly after it.
+	 * @param header The header to encode.
+	 * @param payloadSource The channel to read the payload from.
+	 * @param maxPayloadSize The maximum amount of bytes to read from the source.
+	 * @return The buffer containing the encoded packet, ready to be sent. The payload starts at {@link #getPayloadOffset(UtpHeader)}.
+	 * @throws IOException When the source fails to read.
+	 */
+	public ByteBuffer write(UtpHeader header, ReadableByteChannel payloadSource, int maxPayloadSize) throws IOException {
+		writeHeader(header);
+
+		buffer.limit(buffer.position() + maxPayloadSize);
+		payloadSource.read(buffer);
+
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * @param header The header of the packet.
+	 * @return The offset at which the payload starts in the encoded packet.
+	 */
+	public static int getPayloadOffset(UtpHeader header) {
+		return OVERHEAD_IN_BYTES + header.getExtensionSize();
+	}
+
+	private void writeHeader(UtpHeader header) {
+		buffer.clear();
+
+		byte typeAndVersion = (byte) ((header.getType() << 4) | (header.getVersion() & 0xF));
+		buffer.put(typeAndVersion);
+		buffer.put(header.getExtension());
+		buffer.putShort(header.getConnectionId());
+		buffer.putInt(header.getTimestamp());
+		buffer.putInt(header.getTimestampDifference());
+		buffer.putInt(header.getWindowSize());
+		buffer.putShort(header.getSequenceNumber());
+		buffer.putShort(header.getAcknowledgeNumber());
+
+		SelectiveAck selectiveAck = header.getSelectiveAck();
+		if (selectiveAck != null) {
+			// Selective ACK is the only extension we send, so it is always the last in the chain.
+			buffer.put((byte) 0);
+			buffer.put((byte) selectiveAck.getBitmask().length);
+			buffer.put(selectiveAck.getBitmask());
+		}
+	}
 }
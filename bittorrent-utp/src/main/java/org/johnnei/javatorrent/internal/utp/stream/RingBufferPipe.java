@@ -0,0 +1,267 @@
+package org.johnnei.javatorrent.internal.utp.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.spi.AbstractSelectableChannel;
+
+import org.johnnei.javatorrent.network.socket.INotifyingChannel;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * An in-memory replacement of {@link java.nio.channels.Pipe} which stores the written bytes in a fixed size ring buffer.
+ * Both channels are always in non-blocking mode. As they are not backed by a file descriptor they can't be registered on a selector but notify their
+ * {@link INotifyingChannel#setReadinessListener(Runnable) readiness listener} instead:
+ * <ul>
+ *     <li>The source is notified when the buffer is no longer empty or when the sink got closed.</li>
+ *     <li>The sink is notified when the buffer is no longer full, when the free space has grown to at least half of the capacity or when the source got
+ *     closed.</li>
+ * </ul>
+ */
+public class RingBufferPipe {
+
+	private final Object lock = new Object();
+
+	private final byte[] buffer;
+
+	private final SourceChannel source;
+
+	private final SinkChannel sink;
+
+	private int readPosition;
+
+	private int size;
+
+	/**
+	 * Creates a new pipe.
+	 * @param capacity The maximum amount of bytes which can be buffered.
+	 */
+	public RingBufferPipe(int capacity) {
+		Argument.requireWithinBounds(capacity, 1, Integer.MAX_VALUE, () -> "Capacity must be positive.");
+		buffer = new byte[capacity];
+		source = new SourceChannel();
+		sink = new SinkChannel();
+
+		try {
+			source.configureBlocking(false);
+			sink.configureBlocking(false);
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to configure ring buffer channels.", e);
+		}
+	}
+
+	/**
+	 * @return The channel from which the written bytes can be read.
+	 */
+	public SourceChannel source() {
+		return source;
+	}
+
+	/**
+	 * @return The channel to which bytes can be written.
+	 */
+	public SinkChannel sink() {
+		return sink;
+	}
+
+	/**
+	 * @return The maximum amount of bytes which can be buffered.
+	 */
+	public int capacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * @return The amount of bytes which are available to be read.
+	 */
+	public int available() {
+		synchronized (lock) {
+			return size;
+		}
+	}
+
+	/**
+	 * @return The amount of bytes which can be written before the buffer is full.
+	 */
+	public int remaining() {
+		synchronized (lock) {
+			return buffer.length - size;
+		}
+	}
+
+	private int read(ByteBuffer dst) {
+		int freeBefore;
+		int freeAfter;
+		int bytesRead;
+
+		synchronized (lock) {
+			if (size == 0) {
+				return sink.isOpen() ? 0 : -1;
+			}
+
+			bytesRead = Math.min(dst.remaining(), size);
+			int firstChunk = Math.min(bytesRead, buffer.length - readPosition);
+			dst.put(buffer, readPosition, firstChunk);
+			dst.put(buffer, 0, bytesRead - firstChunk);
+
+			freeBefore = buffer.length - size;
+			readPosition = (readPosition + bytesRead) % buffer.length;
+			size -= bytesRead;
+			freeAfter = buffer.length - size;
+		}
+
+		int halfCapacity = buffer.length / 2;
+		if (bytesRead > 0 && (freeBefore == 0 || (freeBefore < halfCapacity && freeAfter >= halfCapacity))) {
+			sink.notifyReadiness();
+		}
+
+		return bytesRead;
+	}
+
+	private int write(ByteBuffer src) throws IOException {
+		boolean wasEmpty;
+		int bytesWritten;
+
+		synchronized (lock) {
+			if (!source.isOpen()) {
+				throw new IOException("Source of the pipe has been closed.");
+			}
+
+			bytesWritten = Math.min(src.remaining(), buffer.length - size);
+			int writePosition = (readPosition + size) % buffer.length;
+			int firstChunk = Math.min(bytesWritten, buffer.length - writePosition);
+			src.get(buffer, writePosition, firstChunk);
+			src.get(buffer, 0, bytesWritten - firstChunk);
+
+			wasEmpty = size == 0;
+			size += bytesWritten;
+		}
+
+		if (wasEmpty && bytesWritten > 0) {
+			source.notifyReadiness();
+		}
+
+		return bytesWritten;
+	}
+
+	private abstract static class RingBufferChannel extends AbstractSelectableChannel implements INotifyingChannel {
+
+		private volatile Runnable readinessListener;
+
+		RingBufferChannel() {
+			// There is no provider which can select this channel.
+			super(null);
+		}
+
+		@Override
+		public void setReadinessListener(Runnable listener) {
+			this.readinessListener = listener;
+		}
+
+		void notifyReadiness() {
+			Runnable listener = readinessListener;
+			if (listener != null) {
+				listener.run();
+			}
+		}
+
+		void ensureOpen() throws ClosedChannelException {
+			if (!isOpen()) {
+				throw new ClosedChannelException();
+			}
+		}
+
+		@Override
+		protected void implConfigureBlocking(boolean block) {
+			if (block) {
+				throw new IllegalBlockingModeException();
+			}
+		}
+	}
+
+	/**
+	 * The readable end of the {@link RingBufferPipe}.
+	 */
+	public final class SourceChannel extends RingBufferChannel implements ReadableByteChannel {
+
+		private SourceChannel() {
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			ensureOpen();
+			return RingBufferPipe.this.read(dst);
+		}
+
+		@Override
+		public int readyOps() {
+			synchronized (lock) {
+				return isOpen() && (size > 0 || !sink.isOpen()) ? SelectionKey.OP_READ : 0;
+			}
+		}
+
+		@Override
+		public int validOps() {
+			return SelectionKey.OP_READ;
+		}
+
+		@Override
+		protected void implCloseSelectableChannel() {
+			sink.notifyReadiness();
+		}
+	}
+
+	/**
+	 * The writable end of the {@link RingBufferPipe}.
+	 */
+	public final class SinkChannel extends RingBufferChannel implements GatheringByteChannel {
+
+		private SinkChannel() {
+		}
+
+		@Override
+		public int write(ByteBuffer src) throws IOException {
+			ensureOpen();
+			return RingBufferPipe.this.write(src);
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+			ensureOpen();
+			long bytesWritten = 0;
+			for (int i = offset; i < offset + length; i++) {
+				bytesWritten += RingBufferPipe.this.write(srcs[i]);
+				if (srcs[i].hasRemaining()) {
+					break;
+				}
+			}
+			return bytesWritten;
+		}
+
+		@Override
+		public long write(ByteBuffer[] srcs) throws IOException {
+			return write(srcs, 0, srcs.length);
+		}
+
+		@Override
+		public int readyOps() {
+			synchronized (lock) {
+				return isOpen() && (size < buffer.length || !source.isOpen()) ? SelectionKey.OP_WRITE : 0;
+			}
+		}
+
+		@Override
+		public int validOps() {
+			return SelectionKey.OP_WRITE;
+		}
+
+		@Override
+		protected void implCloseSelectableChannel() {
+			source.notifyReadiness();
+		}
+	}
+}
@@ -3,14 +3,8 @@ package org.johnnei.javatorrent.utp;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.TorrentClientSettings;
 import org.johnnei.javatorrent.internal.utp.UtpMultiplexer;
@@ -21,22 +15,27 @@ import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.module.ModuleBuildException;
 import org.johnnei.javatorrent.network.socket.ISocket;
 import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.javatorrent.utils.Argument;
 
 /**
  * Module which allows for creating connections via uTP.
  *
- * Recommendations for: {@link TorrentClient.Builder#setExecutorService(ScheduledExecutorService)}. The module will use 1 'dedicated' task which is likely to
- * run constantly on high throughput, and 1 irregular task.
+ * The module processes all uTP sockets on the thread of the {@link TorrentClient#getUdpDemultiplexer()} and doesn't use the
+ * {@link TorrentClient#getExecutorService()}.
  */
 public class UtpModule implements IModule {
 
-	private static final Logger LOGGER = LoggerFactory.getLogger(UtpModule.class);
+	/**
+	 * The smallest receive buffer which can hold a full packet.
+	 */
+	private static final int MIN_RECEIVE_BUFFER_SIZE = 1024;
 
-	private UtpMultiplexer multiplexer;
+	private final int receiveBufferSize;
 
-	private ScheduledFuture<?> socketProcessorTask;
+	private UtpMultiplexer multiplexer;
 
-	private UtpModule() {
+	private UtpModule(Builder builder) {
+		receiveBufferSize = builder.receiveBufferSize;
 	}
 
 	@Override
@@ -64,8 +63,8 @@ public class UtpModule implements IModule {
 		try {
 			multiplexer = new UtpMultiplexer.Builder(torrentClient, new PacketReader())
 				.withConnectionAcceptor(new UtpPeerConnectionAcceptor(torrentClient))
+				.withReceiveBufferSize(receiveBufferSize)
 				.build();
-			socketProcessorTask = torrentClient.getExecutorService().scheduleAtFixedRate(multiplexer::updateSockets, 0, 1, TimeUnit.MILLISECONDS);
 		} catch (IOException e) {
 			throw new ModuleBuildException("Failed to create uTP Multiplexer.", e);
 		}
@@ -73,12 +72,7 @@ public class UtpModule implements IModule {
 
 	@Override
 	public void onShutdown() {
-		try {
-			multiplexer.close();
-		} catch (IOException e) {
-			LOGGER.warn("Failed to shutdown uTP Multiplexer", e);
-		}
-		socketProcessorTask.cancel(true);
+		multiplexer.close();
 	}
 
 	/**
@@ -98,6 +92,8 @@ public class UtpModule implements IModule {
 
 	public static final class Builder {
 
+		private int receiveBufferSize = UtpSocket.DEFAULT_RECEIVE_BUFFER_SIZE;
+
 		/**
 		 * Configures on which UDP port uTP connections will be accepted.
 		 * @param port The UDP port.
@@ -109,11 +105,26 @@ public class UtpModule implements IModule {
 			return this;
 		}
 
+		/**
+		 * Configures the amount of bytes each uTP connection can receive before the BitTorrent layer reads them. This is the window which is advertised to
+		 * the remote and bounds the memory used to buffer received data per connection. Defaults to 64 KiB.
+		 * @param receiveBufferSize The receive buffer size in bytes.
+		 * @return The updated builder (this).
+		 */
+		public Builder setReceiveBufferSize(int receiveBufferSize) {
+			Argument.requireWithinBounds(receiveBufferSize, MIN_RECEIVE_BUFFER_SIZE, Integer.MAX_VALUE, () -> String.format(
+				"Receive buffer must be at least %d bytes.",
+				MIN_RECEIVE_BUFFER_SIZE
+			));
+			this.receiveBufferSize = receiveBufferSize;
+			return this;
+		}
+
 		/**
 		 * @return The newly created and configured UtpModule instance.
 		 */
 		public UtpModule build() {
-			return new UtpModule();
+			return new UtpModule(this);
 		}
 
 	}
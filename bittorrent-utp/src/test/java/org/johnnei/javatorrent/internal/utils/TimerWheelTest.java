@@ -0,0 +1,94 @@
+package org.johnnei.javatorrent.internal.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link TimerWheel}
+ */
+public class TimerWheelTest {
+
+	@Test
+	public void testInvalidArguments() {
+		assertThrows(IllegalArgumentException.class, () -> new TimerWheel<>(0, 8, 0));
+		assertThrows(IllegalArgumentException.class, () -> new TimerWheel<>(10, 0, 0));
+	}
+
+	@Test
+	public void testExpire() {
+		TimerWheel<String> cut = new TimerWheel<>(10, 8, 0);
+		cut.schedule("a", 25);
+		cut.schedule("b", 40);
+
+		assertEquals(2, cut.size());
+		assertEquals(30, cut.getMillisUntilNextExpiry(0), "Deadlines are rounded up to the next tick.");
+
+		List<String> expired = new ArrayList<>();
+		cut.expire(29, expired::add);
+		assertTrue(expired.isEmpty(), "Nothing should have expired yet.");
+
+		cut.expire(30, expired::add);
+		assertEquals(List.of("a"), expired);
+		assertEquals(10, cut.getMillisUntilNextExpiry(30));
+
+		cut.expire(45, expired::add);
+		assertEquals(List.of("a", "b"), expired);
+		assertEquals(0, cut.size());
+		assertEquals(-1, cut.getMillisUntilNextExpiry(45));
+	}
+
+	@Test
+	public void testExpireBeyondRotation() {
+		TimerWheel<String> cut = new TimerWheel<>(10, 4, 0);
+		// Shares the slot with tick 1 but must only expire on the third rotation.
+		cut.schedule("far", 90);
+		cut.schedule("near", 10);
+
+		List<String> expired = new ArrayList<>();
+		cut.expire(50, expired::add);
+		assertEquals(List.of("near"), expired);
+
+		cut.expire(89, expired::add);
+		assertEquals(List.of("near"), expired);
+
+		cut.expire(90, expired::add);
+		assertEquals(List.of("near", "far"), expired);
+	}
+
+	@Test
+	public void testExpirePastDeadline() {
+		TimerWheel<String> cut = new TimerWheel<>(10, 4, 100);
+		cut.schedule("past", 50);
+
+		assertEquals(10, cut.getMillisUntilNextExpiry(100), "Past deadlines expire on the next tick.");
+
+		List<String> expired = new ArrayList<>();
+		cut.expire(1_000, expired::add);
+		assertEquals(List.of("past"), expired, "A large jump in time must still expire the item.");
+	}
+
+	@Test
+	public void testRescheduleDuringExpire() {
+		TimerWheel<String> cut = new TimerWheel<>(10, 4, 0);
+		cut.schedule("a", 10);
+
+		List<String> expired = new ArrayList<>();
+		cut.expire(10, item -> {
+			expired.add(item);
+			cut.schedule(item, 10);
+		});
+
+		assertEquals(List.of("a"), expired, "Rescheduled items must not expire in the same call.");
+		assertEquals(1, cut.size());
+
+		cut.expire(20, expired::add);
+		assertEquals(List.of("a", "a"), expired);
+	}
+
+}
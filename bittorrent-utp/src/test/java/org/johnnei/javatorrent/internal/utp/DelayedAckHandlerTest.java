@@ -0,0 +1,87 @@
+package org.johnnei.javatorrent.internal.utp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.internal.utils.PrecisionTimer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link DelayedAckHandler}
+ */
+public class DelayedAckHandlerTest {
+
+	private PrecisionTimer timer;
+
+	private DelayedAckHandler cut;
+
+	@BeforeEach
+	public void setUp() {
+		timer = mock(PrecisionTimer.class);
+		when(timer.getCurrentMicros()).thenReturn(1_000_000);
+		cut = new DelayedAckHandler(timer);
+	}
+
+	@Test
+	public void testNoPendingAcknowledgement() {
+		assertFalse(cut.hasPendingAcknowledgement());
+		assertFalse(cut.isAcknowledgementDue());
+		assertEquals(-1, cut.getMillisUntilAcknowledgement());
+	}
+
+	@Test
+	public void testDelayUntilInterval() {
+		cut.onPacketToAcknowledge(150, false);
+
+		assertTrue(cut.hasPendingAcknowledgement());
+		assertFalse(cut.isAcknowledgementDue(), "A single small packet should be delayed.");
+		assertEquals(DelayedAckHandler.DELAYED_ACK_MILLIS, cut.getMillisUntilAcknowledgement());
+
+		when(timer.getCurrentMicros()).thenReturn(1_000_000 + (int) DelayedAckHandler.DELAYED_ACK_MILLIS * 1000);
+
+		assertTrue(cut.isAcknowledgementDue(), "Acknowledgement should be due once the interval has passed.");
+		assertEquals(0, cut.getMillisUntilAcknowledgement());
+	}
+
+	@Test
+	public void testDueAfterPacketThreshold() {
+		for (int i = 0; i < DelayedAckHandler.DELAYED_ACK_PACKET_THRESHOLD; i++) {
+			assertFalse(cut.isAcknowledgementDue());
+			cut.onPacketToAcknowledge(150, false);
+		}
+
+		assertTrue(cut.isAcknowledgementDue());
+	}
+
+	@Test
+	public void testDueAfterByteThreshold() {
+		cut.onPacketToAcknowledge(DelayedAckHandler.DELAYED_ACK_BYTE_THRESHOLD, false);
+
+		assertTrue(cut.isAcknowledgementDue());
+	}
+
+	@Test
+	public void testDueImmediately() {
+		cut.onPacketToAcknowledge(150, true);
+
+		assertTrue(cut.isAcknowledgementDue());
+	}
+
+	@Test
+	public void testOnAcknowledgementSent() {
+		cut.onPacketToAcknowledge(150, true);
+		cut.onAcknowledgementSent();
+
+		assertFalse(cut.hasPendingAcknowledgement());
+		assertFalse(cut.isAcknowledgementDue());
+
+		cut.onPacketToAcknowledge(150, false);
+		assertFalse(cut.isAcknowledgementDue(), "Immediate flag should have been reset.");
+	}
+
+}
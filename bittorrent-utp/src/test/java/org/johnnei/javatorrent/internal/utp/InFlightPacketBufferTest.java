@@ -0,0 +1,171 @@
+package org.johnnei.javatorrent.internal.utp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link InFlightPacketBuffer}
+ */
+public class InFlightPacketBufferTest {
+
+	private InFlightPacketBuffer cut;
+
+	@BeforeEach
+	public void setUp() {
+		cut = new InFlightPacketBuffer();
+	}
+
+	@Test
+	public void testOnSentPacket() {
+		UtpPacket packet = createPacket((short) 5, PacketType.DATA, 100);
+
+		cut.onSentPacket(packet);
+
+		assertSame(packet, cut.get((short) 5));
+		assertNull(cut.get((short) 4));
+		assertNull(cut.get((short) 6));
+		assertEquals(1, cut.size());
+		assertEquals(100, cut.getBytesInFlight());
+		verify(packet).incrementSentCount();
+	}
+
+	@Test
+	public void testOnSentPacketIgnoresState() {
+		cut.onSentPacket(createPacket((short) 5, PacketType.STATE, 20));
+
+		assertNull(cut.get((short) 5));
+		assertEquals(0, cut.size());
+	}
+
+	@Test
+	public void testOnSentPacketOnlyCountsDataBytes() {
+		UtpPacket packet = createPacket((short) 5, PacketType.FIN, 20);
+		cut.onSentPacket(packet);
+
+		assertSame(packet, cut.get((short) 5), "FIN must be tracked to be resent.");
+		assertEquals(0, cut.getBytesInFlight());
+	}
+
+	@Test
+	public void testResendKeepsEntry() {
+		UtpPacket packet = createPacket((short) 5, PacketType.DATA, 100);
+
+		cut.onSentPacket(packet);
+		// The size may change when the packet gets a different extension on resend.
+		when(packet.getSize()).thenReturn(120);
+		cut.onSentPacket(packet);
+
+		assertEquals(1, cut.size());
+		assertEquals(100, cut.getBytesInFlight());
+		verify(packet, times(2)).incrementSentCount();
+
+		assertEquals(100, cut.acknowledge(createAck((short) 5, null)));
+		assertEquals(0, cut.getBytesInFlight());
+	}
+
+	@Test
+	public void testAcknowledgeIsCumulative() {
+		for (short i = 1; i <= 4; i++) {
+			cut.onSentPacket(createPacket(i, PacketType.DATA, 100));
+		}
+
+		assertEquals(300, cut.acknowledge(createAck((short) 3, null)));
+		assertEquals(1, cut.size());
+		assertEquals(100, cut.getBytesInFlight());
+		assertNull(cut.get((short) 3));
+
+		assertEquals(0, cut.acknowledge(createAck((short) 3, null)), "Duplicate ack must not ack anything.");
+	}
+
+	@Test
+	public void testAcknowledgeSelectively() {
+		for (short i = 1; i <= 5; i++) {
+			cut.onSentPacket(createPacket(i, PacketType.DATA, 100));
+		}
+
+		SelectiveAck selectiveAck = SelectiveAck.withCapacity(3);
+		// Packet 3 and 5.
+		selectiveAck.setAcknowledged(0);
+		selectiveAck.setAcknowledged(2);
+
+		assertEquals(300, cut.acknowledge(createAck((short) 1, selectiveAck)));
+		assertEquals(2, cut.size());
+		assertEquals(200, cut.getBytesInFlight());
+		assertNull(cut.get((short) 3));
+		assertNull(cut.get((short) 5));
+
+		assertEquals(200, cut.acknowledge(createAck((short) 4, null)));
+		assertEquals(0, cut.size());
+		assertEquals(0, cut.getBytesInFlight());
+	}
+
+	@Test
+	public void testSequenceNumberWrapAround() {
+		cut.onSentPacket(createPacket((short) 65535, PacketType.DATA, 100));
+		cut.onSentPacket(createPacket((short) 0, PacketType.DATA, 100));
+		cut.onSentPacket(createPacket((short) 1, PacketType.DATA, 100));
+
+		assertEquals(200, cut.acknowledge(createAck((short) 0, null)));
+		assertEquals(1, cut.size());
+		assertEquals(100, cut.getBytesInFlight());
+	}
+
+	@Test
+	public void testGrow() {
+		for (int i = 0; i < 200; i++) {
+			cut.onSentPacket(createPacket((short) (65500 + i), PacketType.DATA, 10));
+		}
+
+		assertEquals(200, cut.size());
+		assertEquals(2000, cut.getBytesInFlight());
+		for (int i = 0; i < 200; i++) {
+			assertEquals((short) (65500 + i), cut.get((short) (65500 + i)).getHeader().getSequenceNumber());
+		}
+
+		assertEquals(2000, cut.acknowledge(createAck((short) (65500 + 199), null)));
+		assertEquals(0, cut.size());
+	}
+
+	@Test
+	public void testIgnoreAlreadyAcknowledgedPacket() {
+		cut.onSentPacket(createPacket((short) 5, PacketType.DATA, 10));
+		cut.acknowledge(createAck((short) 5, null));
+		cut.onSentPacket(createPacket((short) 6, PacketType.DATA, 10));
+
+		cut.onSentPacket(createPacket((short) 5, PacketType.DATA, 10));
+
+		assertEquals(1, cut.size());
+		assertNull(cut.get((short) 5));
+	}
+
+	private static UtpPacket createPacket(short sequenceNumber, PacketType type, int size) {
+		UtpPacket packet = mock(UtpPacket.class);
+		UtpHeader header = mock(UtpHeader.class);
+		when(packet.getHeader()).thenReturn(header);
+		when(packet.getSize()).thenReturn(size);
+		when(header.getSequenceNumber()).thenReturn(sequenceNumber);
+		when(header.getType()).thenReturn(type.getTypeField());
+		return packet;
+	}
+
+	private static UtpHeader createAck(short acknowledgeNumber, SelectiveAck selectiveAck) {
+		UtpHeader header = mock(UtpHeader.class);
+		when(header.getAcknowledgeNumber()).thenReturn(acknowledgeNumber);
+		when(header.getSelectiveAck()).thenReturn(selectiveAck);
+		return header;
+	}
+
+}
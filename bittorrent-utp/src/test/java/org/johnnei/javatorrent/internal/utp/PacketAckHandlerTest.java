@@ -6,12 +6,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 
+import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -109,4 +116,74 @@ public class PacketAckHandlerTest {
 		assertThat("This is the first occurrence of the packet.", acknowledgement.getTimesSeen(), equalTo(1));
 	}
 
+	@Test
+	public void testCreateSelectiveAck() {
+		assertThat("All packets are received in order", cut.createSelectiveAck((short) 1), nullValue());
+
+		cut.onReceivedPacket(createPacket((short) 3));
+		cut.onReceivedPacket(createPacket((short) 5));
+
+		SelectiveAck selectiveAck = cut.createSelectiveAck((short) 1);
+
+		assertThat(selectiveAck.getBitCount(), equalTo(32));
+		assertThat("Packet 3 has been received", selectiveAck.isAcknowledged(0), is(true));
+		assertThat("Packet 4 is missing", selectiveAck.isAcknowledged(1), is(false));
+		assertThat("Packet 5 has been received", selectiveAck.isAcknowledged(2), is(true));
+		assertThat("Packet 6 has not been received", selectiveAck.isAcknowledged(3), is(false));
+	}
+
+	@Test
+	public void testCreateSelectiveAckLaggingAckNumber() {
+		cut.onReceivedPacket(createPacket((short) 2));
+		cut.onReceivedPacket(createPacket((short) 4));
+
+		assertThat("Packet 2 would be reported as missing", cut.createSelectiveAck((short) 1), nullValue());
+		assertThat(cut.createSelectiveAck((short) 2), notNullValue());
+	}
+
+	private static UtpPacket createPacket(short sequenceNumber) {
+		UtpPacket packet = mock(UtpPacket.class);
+		UtpHeader header = mock(UtpHeader.class);
+		when(packet.getHeader()).thenReturn(header);
+		when(header.getSequenceNumber()).thenReturn(sequenceNumber);
+		return packet;
+	}
+
+	@Test
+	public void testRequestAcknowledgementInOrder() {
+		cut.onReceivedPacket(createPacket((short) 2));
+
+		verify(socket).requestAcknowledgement(0, false);
+	}
+
+	@Test
+	public void testRequestAcknowledgementOutOfOrder() {
+		cut.onReceivedPacket(createPacket((short) 3));
+		verify(socket).requestAcknowledgement(0, true);
+
+		cut.onReceivedPacket(createPacket((short) 2));
+		verify(socket).requestAcknowledgement(0, false);
+	}
+
+	@Test
+	public void testRequestAcknowledgementDuplicate() {
+		cut.onReceivedPacket(createPacket((short) 2));
+		cut.onReceivedPacket(createPacket((short) 2));
+
+		verify(socket).requestAcknowledgement(0, false);
+		verify(socket).requestAcknowledgement(0, true);
+		verify(socket).acknowledgePacket(any(Acknowledgement.class));
+	}
+
+	@Test
+	public void testStatePacketIsNotAcknowledged() {
+		UtpPacket packet = createPacket((short) 2);
+		when(packet.getHeader().getType()).thenReturn(PacketType.STATE.getTypeField());
+
+		cut.onReceivedPacket(packet);
+
+		verify(socket, never()).requestAcknowledgement(anyInt(), anyBoolean());
+		verify(socket, never()).acknowledgePacket(any(Acknowledgement.class));
+	}
+
 }
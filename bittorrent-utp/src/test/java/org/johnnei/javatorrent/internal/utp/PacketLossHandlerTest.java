@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 
 import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.Payload;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
@@ -19,6 +20,8 @@ public class PacketLossHandlerTest {
 
 	private UtpSocket socket;
 
+	private InFlightPacketBuffer packetsInFlight;
+
 	private PacketLossHandler cut;
 
 	private UtpPacket sentPacket;
@@ -29,7 +32,8 @@ public class PacketLossHandlerTest {
 	@BeforeEach
 	public void setUp() {
 		socket = mock(UtpSocket.class);
-		cut = new PacketLossHandler(socket);
+		packetsInFlight = new InFlightPacketBuffer();
+		cut = new PacketLossHandler(socket, packetsInFlight);
 
 		Payload payload = mock(Payload.class);
 		when(payload.getType()).thenReturn(PacketType.STATE);
@@ -54,10 +58,10 @@ public class PacketLossHandlerTest {
 	@Test
 	public void testOnReceivedPacketNotBeenAckedAtLeastTrice() {
 		// Register packet as in flight
-		cut.onSentPacket(sentPacket);
+		send(sentPacket);
 
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
+		receive(packet);
+		receive(packet);
 
 		verify(socket, never()).resend(any());
 	}
@@ -65,12 +69,12 @@ public class PacketLossHandlerTest {
 	@Test
 	public void testOnReceivedPacketLostNotSentPacket() {
 		// Register packet as in flight
-		cut.onSentPacket(sentPacket);
+		send(sentPacket);
 
 		// Handle as if was lost.
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
+		receive(packet);
+		receive(packet);
+		receive(packet);
 
 		verify(socket, never()).resend(any());
 	}
@@ -78,14 +82,14 @@ public class PacketLossHandlerTest {
 	@Test
 	public void testOnReceivedPacket() {
 		// Register packet as in flight
-		cut.onSentPacket(sentPacket);
-		cut.onSentPacket(sentPacket2);
+		send(sentPacket);
+		send(sentPacket2);
 
 		// Handle as if was lost.
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
+		receive(packet);
+		receive(packet);
+		receive(packet);
+		receive(packet);
 
 		verify(socket).resend(sentPacket2);
 	}
@@ -93,19 +97,19 @@ public class PacketLossHandlerTest {
 	@Test
 	public void testOnReceivedPacketPreventDoubleResent() {
 		// Register packet as in flight
-		cut.onSentPacket(sentPacket);
-		cut.onSentPacket(sentPacket2);
+		send(sentPacket);
+		send(sentPacket2);
 
 		// Handle as if was lost.
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
+		receive(packet);
+		receive(packet);
+		receive(packet);
+		receive(packet);
 
 		// At this point the resend should be triggered.
 		verify(socket).resend(sentPacket2);
 
-		cut.onReceivedPacket(packet);
+		receive(packet);
 
 		// At this point no second resend should be triggered as the packet was not sent yet.
 		verify(socket).resend(sentPacket2);
@@ -114,23 +118,80 @@ public class PacketLossHandlerTest {
 	@Test
 	public void testOnReceivedPacketAllowResendAfterResend() {
 		// Register packet as in flight
-		cut.onSentPacket(sentPacket);
-		cut.onSentPacket(sentPacket2);
+		send(sentPacket);
+		send(sentPacket2);
 
 		// Handle as if was lost.
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
-		cut.onReceivedPacket(packet);
+		receive(packet);
+		receive(packet);
+		receive(packet);
+		receive(packet);
 
 		verify(socket).resend(sentPacket2);
 
 		// This should clear the resend queue
-		cut.onSentPacket(sentPacket2);
+		send(sentPacket2);
 
 		// This should trigger second resend
-		cut.onReceivedPacket(packet);
+		receive(packet);
 
 		verify(socket, times(2)).resend(sentPacket2);
 	}
+
+	@Test
+	public void testOnReceivedSelectiveAck() {
+		UtpPacket[] sentPackets = new UtpPacket[8];
+		for (int i = 0; i < sentPackets.length; i++) {
+			sentPackets[i] = createSentPacket((short) (10 + i));
+			send(sentPackets[i]);
+		}
+
+		// Packet 10 is acked, 11 and 13 are lost, 12, 14, 15 and 16 arrived.
+		SelectiveAck selectiveAck = SelectiveAck.withCapacity(5);
+		selectiveAck.setAcknowledged(0);
+		selectiveAck.setAcknowledged(2);
+		selectiveAck.setAcknowledged(3);
+		selectiveAck.setAcknowledged(4);
+
+		UtpPacket ackPacket = mock(UtpPacket.class);
+		UtpHeader ackHeader = mock(UtpHeader.class);
+		Payload payload = mock(Payload.class);
+		when(payload.getType()).thenReturn(PacketType.STATE);
+		when(ackPacket.getPayload()).thenReturn(payload);
+		when(ackPacket.getHeader()).thenReturn(ackHeader);
+		when(ackHeader.getAcknowledgeNumber()).thenReturn((short) 10);
+		when(ackHeader.getSelectiveAck()).thenReturn(selectiveAck);
+
+		receive(ackPacket);
+
+		verify(socket).resend(sentPackets[1]);
+		verify(socket).resend(sentPackets[3]);
+		verify(socket, times(2)).resend(any());
+
+		// The same selective ACK must not trigger the resends again once they have been sent.
+		send(sentPackets[1]);
+		send(sentPackets[3]);
+		receive(ackPacket);
+
+		verify(socket, times(2)).resend(any());
+	}
+
+	private static UtpPacket createSentPacket(short sequenceNumber) {
+		UtpPacket packet = mock(UtpPacket.class);
+		UtpHeader header = mock(UtpHeader.class);
+		when(packet.getHeader()).thenReturn(header);
+		when(header.getSequenceNumber()).thenReturn(sequenceNumber);
+		return packet;
+	}
+
+	private void send(UtpPacket packet) {
+		packetsInFlight.onSentPacket(packet);
+		cut.onSentPacket(packet);
+	}
+
+	private void receive(UtpPacket packet) {
+		packetsInFlight.acknowledge(packet.getHeader());
+		cut.onReceivedPacket(packet);
+	}
+
 }
@@ -129,4 +129,16 @@ public class SocketTimeoutHandlerTest {
 		assertThat(cut.getTimeout(), equalTo(2_000));
 	}
 
+	@Test
+	public void testGetMillisUntilTimeout() {
+		when(precisionTimer.getCurrentMicros()).thenReturn(0);
+		cut = new SocketTimeoutHandler(precisionTimer);
+
+		when(precisionTimer.getCurrentMicros()).thenReturn(250_000);
+		assertThat("250ms of the 1000ms initial timeout have passed", cut.getMillisUntilTimeout(), equalTo(750L));
+
+		when(precisionTimer.getCurrentMicros()).thenReturn(1_500_000);
+		assertThat("Expired timeouts are due immediately", cut.getMillisUntilTimeout(), equalTo(0L));
+	}
+
 }
@@ -1,7 +1,5 @@
 package org.johnnei.javatorrent.internal.utp;
 
-import java.util.Optional;
-
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -17,19 +15,21 @@ import static org.mockito.Mockito.when;
 
 public class SocketWindowHandlerTest {
 
+	private InFlightPacketBuffer packetsInFlight;
+
 	private SocketWindowHandler cut;
 
 	private UtpPacket sentPacket;
 	private UtpPacket receivedPacket;
 	private UtpHeader receivedHeader;
-	private UtpHeader sentHeader;
 
 	@BeforeEach
 	public void setUp() {
-		cut = new SocketWindowHandler();
+		packetsInFlight = new InFlightPacketBuffer();
+		cut = new SocketWindowHandler(packetsInFlight);
 
 		sentPacket = mock(UtpPacket.class);
-		sentHeader = mock(UtpHeader.class);
+		UtpHeader sentHeader = mock(UtpHeader.class);
 
 		when(sentPacket.getHeader()).thenReturn(sentHeader);
 		when(sentPacket.getSize()).thenReturn(25);
@@ -43,47 +43,21 @@ public class SocketWindowHandlerTest {
 		when(receivedHeader.getAcknowledgeNumber()).thenReturn((short) 42);
 	}
 
-	@Test
-	public void testCountBytesInFlightOnlyCountData() {
-		when(sentHeader.getType()).thenReturn(PacketType.STATE.getTypeField());
-		cut.onSentPacket(sentPacket);
-
-		assertThat(cut.getBytesInFlight(), is(0));
-	}
-
 	@Test
 	public void testCountBytesInFlight() {
-		cut.onSentPacket(sentPacket);
+		packetsInFlight.onSentPacket(sentPacket);
 
 		assertThat(cut.getBytesInFlight(), is(25));
 	}
 
-	@Test
-	public void testOnReceivedPacketReturnsAckedPacked() {
-		cut.onSentPacket(sentPacket);
-		Optional<UtpPacket> ackedPacket = cut.onReceivedPacket(receivedPacket);
-		assertThat(ackedPacket.orElse(null), is(sentPacket));
-	}
-
-	@Test
-	public void testCountBytesInFlightAckedPacket() {
-		cut.onSentPacket(sentPacket);
-		cut.onReceivedPacket(receivedPacket);
-
-		assertThat(cut.getBytesInFlight(), is(0));
-	}
-
 	@Test
 	public void testOnTimeout() {
 		// Cause the window to drift.
-		cut.onSentPacket(sentPacket);
-
 		when(receivedHeader.getTimestampDifference())
 			.thenReturn(75_521)
 			.thenReturn(78_344);
-		cut.onReceivedPacket(receivedPacket);
-		cut.onSentPacket(sentPacket);
-		cut.onReceivedPacket(receivedPacket);
+		cut.onReceivedPacket(receivedPacket, 25);
+		cut.onReceivedPacket(receivedPacket, 25);
 
 		assertThat(cut.getMaxWindow(), not(is(150)));
 
@@ -101,19 +75,27 @@ public class SocketWindowHandlerTest {
 	}
 
 	@Test
-	public void testIncreaseWindowSizeOnFastSocket() {
-		cut.onSentPacket(sentPacket);
+	public void testIgnoreWithoutAckedBytes() {
+		when(receivedHeader.getTimestampDifference())
+			.thenReturn(75_521)
+			.thenReturn(78_344);
+
+		cut.onReceivedPacket(receivedPacket, 0);
+		cut.onReceivedPacket(receivedPacket, 0);
 
+		assertThat("Duplicate acks should not change the window", cut.getMaxWindow(), is(150));
+	}
+
+	@Test
+	public void testIncreaseWindowSizeOnFastSocket() {
 		when(receivedHeader.getTimestampDifference())
 			.thenReturn(75_521)
 			.thenReturn(78_344);
 
-		cut.onReceivedPacket(receivedPacket);
+		cut.onReceivedPacket(receivedPacket, 25);
 
 		assertThat("The first packet can't have a delay", cut.getMaxWindow(), is(150));
 
-		cut.onSentPacket(sentPacket);
-
 		// our_delay = 2'823
 		// target = 100'000
 		// off_target = 97'177
@@ -122,27 +104,23 @@ public class SocketWindowHandlerTest {
 		// window_factor = 0.16666
 		// scaled gain -> 500 * 0.97177 * 0.15822 = 80.97 -> 80
 
-		cut.onReceivedPacket(receivedPacket);
+		cut.onReceivedPacket(receivedPacket, 25);
 
 		assertThat(cut.getMaxWindow(), is(230));
 	}
 
 	@Test
 	public void testIncreaseWindowSizeOnSlowSocket() {
-		cut.onSentPacket(sentPacket);
-
 		when(receivedHeader.getTimestampDifference())
 			.thenReturn(75_521)
 			.thenReturn(253_486);
 
 		// our_delay = 0 (the first packet can't have delay)
 
-		cut.onReceivedPacket(receivedPacket);
+		cut.onReceivedPacket(receivedPacket, 25);
 
 		assertThat("The first packet can't have a delay", cut.getMaxWindow(), is(150));
 
-		cut.onSentPacket(sentPacket);
-
 		// our_delay = 177'965
 		// target = 100'000
 		// off_target = -77'965
@@ -151,7 +129,7 @@ public class SocketWindowHandlerTest {
 		// window_factor = 0.16666
 		// scaled gain -> 500 * -0.77965 * 0.16666 = -64.94 -> -64
 
-		cut.onReceivedPacket(receivedPacket);
+		cut.onReceivedPacket(receivedPacket, 25);
 
 		assertThat(cut.getMaxWindow(), is(86));
 	}
@@ -1,9 +1,13 @@
 package org.johnnei.javatorrent.internal.utp;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.concurrent.Executors;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
@@ -14,50 +18,131 @@ import org.johnnei.javatorrent.internal.utp.protocol.packet.SynPayload;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 import org.johnnei.javatorrent.internal.utp.stream.PacketReader;
-import org.johnnei.javatorrent.mock.MockDatagramChannel;
+import org.johnnei.javatorrent.internal.utp.stream.PacketWriter;
+import org.johnnei.javatorrent.network.udp.UdpDemultiplexer;
+import org.johnnei.javatorrent.test.DummyEntity;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
+/**
+ * Tests {@link UtpMultiplexer}
+ */
 public class UtpMultiplexerTest {
 
-	@Test
-	@DisplayName("Discard ST_SYN when isAcceptingConnections = false")
-	public void testRejectSynPacketNotAcceptingConnection() throws IOException {
-		TorrentClient client = mock(TorrentClient.class);
-		TorrentClientSettings settings = mock(TorrentClientSettings.class);
-		PacketReader packetReader = mock(PacketReader.class);
-		MockDatagramChannel channel = new MockDatagramChannel();
-		UtpPeerConnectionAcceptor connectionAcceptor = mock(UtpPeerConnectionAcceptor.class);
+	private TorrentClient client;
+
+	private TorrentClientSettings settings;
+
+	private PacketReader packetReader;
+
+	private UtpPeerConnectionAcceptor connectionAcceptor;
+
+	private int port;
+
+	private UdpDemultiplexer demultiplexer;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		client = mock(TorrentClient.class);
+		settings = mock(TorrentClientSettings.class);
+		packetReader = mock(PacketReader.class);
+		connectionAcceptor = mock(UtpPeerConnectionAcceptor.class);
+		port = DummyEntity.findAvailableUdpPort();
+
+		when(client.getSettings()).thenReturn(settings);
+		when(settings.getAcceptingPort()).thenReturn(port);
+
+		DatagramChannel channel = DatagramChannel.open();
+		channel.bind(new InetSocketAddress(port));
+		demultiplexer = new UdpDemultiplexer(channel);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		demultiplexer.close();
+	}
+
+	private static UtpPacket createSynPacket(short connectionId) {
 		UtpHeader header = new UtpHeader.Builder()
 			.setType(PacketType.SYN.getTypeField())
 			.setExtension((byte) 0)
-			.setConnectionId((short) 0)
+			.setConnectionId(connectionId)
 			.setTimestamp(0)
 			.setTimestampDifference(0)
 			.setWindowSize(0)
 			.setSequenceNumber((short) 0)
 			.setAcknowledgeNumber((short) 0)
 			.build();
-		UtpPacket packet = new UtpPacket(header, new SynPayload());
+		return new UtpPacket(header, new SynPayload());
+	}
 
-		when(packetReader.read(any())).thenReturn(packet);
-		when(channel.getMockitoMock().receive(any()))
-			.thenReturn(InetSocketAddress.createUnresolved("localhost", 6881));
+	private void sendDatagrams(int count) throws IOException {
+		try (DatagramChannel remote = DatagramChannel.open()) {
+			for (int i = 0; i < count; i++) {
+				ByteBuffer buffer = new PacketWriter().write(createSynPacket((short) (i * 2)));
+				remote.send(buffer, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+			}
+		}
+	}
 
-		when(client.getSettings()).thenReturn(settings);
-		when(client.getExecutorService()).thenReturn(Executors.newSingleThreadScheduledExecutor());
+	@Test
+	@DisplayName("Discard ST_SYN when isAcceptingConnections = false")
+	public void testRejectSynPacketNotAcceptingConnection() throws IOException {
+		when(packetReader.read(any())).thenReturn(createSynPacket((short) 0));
 
-		try (UtpMultiplexer multiplexer = new UtpMultiplexer.Builder(client, packetReader)
-			.withChannelFactory(() -> channel)
+		try (UtpMultiplexer ignored = new UtpMultiplexer.Builder(client, packetReader)
 			.withConnectionAcceptor(connectionAcceptor)
+			.withDemultiplexer(demultiplexer)
 			.build()) {
-			multiplexer.pollPackets();
+			sendDatagrams(1);
+
+			verify(packetReader, timeout(5_000)).read(notNull());
 		}
 
 		verifyNoInteractions(connectionAcceptor);
 	}
 
+	@Test
+	@DisplayName("Only claim uTP datagrams")
+	public void testIsMatch() throws IOException {
+		try (UtpMultiplexer cut = new UtpMultiplexer.Builder(client, packetReader)
+			.withDemultiplexer(demultiplexer)
+			.build()) {
+			ByteBuffer synPacket = new PacketWriter().write(createSynPacket((short) 0));
+			assertThat("ST_SYN should be claimed", cut.isMatch(synPacket), is(true));
+
+			ByteBuffer trackerResponse = ByteBuffer.wrap(new byte[] { 0, 0, 0, 1, 0, 0, 0, 5, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 });
+			assertThat("UDP tracker response should not be claimed", cut.isMatch(trackerResponse), is(false));
+
+			ByteBuffer tooSmall = ByteBuffer.wrap(new byte[] { 0x41, 0 });
+			assertThat("Datagram smaller than the header should not be claimed", cut.isMatch(tooSmall), is(false));
+		}
+	}
+
+	@Test
+	@DisplayName("Receive all pending datagrams")
+	public void testReceivePackets() throws IOException {
+		when(settings.isAcceptingConnections()).thenReturn(true);
+		when(packetReader.read(any())).thenReturn(createSynPacket((short) 0), createSynPacket((short) 2), createSynPacket((short) 4));
+
+		try (UtpMultiplexer ignored = new UtpMultiplexer.Builder(client, packetReader)
+			.withConnectionAcceptor(connectionAcceptor)
+			.withDemultiplexer(demultiplexer)
+			.build()) {
+			sendDatagrams(3);
+
+			verify(connectionAcceptor, timeout(5_000).times(3)).onReceivedConnection(notNull());
+			verify(packetReader, after(100).times(3)).read(notNull());
+		}
+	}
+
 }
@@ -0,0 +1,54 @@
+package org.johnnei.javatorrent.internal.utp;
+
+import java.nio.channels.DatagramChannel;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.TorrentClient;
+import org.johnnei.javatorrent.internal.utp.protocol.ConnectionState;
+import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SynPayload;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
+import org.johnnei.javatorrent.network.connector.BitTorrentHandshakeHandler;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link UtpPeerConnectionAcceptor}
+ */
+public class UtpPeerConnectionAcceptorTest {
+
+	@Test
+	public void testPassOnConnectedSocket() {
+		TorrentClient torrentClient = mock(TorrentClient.class);
+		BitTorrentHandshakeHandler handshakeHandler = mock(BitTorrentHandshakeHandler.class);
+		when(torrentClient.getHandshakeHandler()).thenReturn(handshakeHandler);
+
+		UtpPacket synPacket = new UtpPacket(
+			new UtpHeader.Builder()
+				.setConnectionId((short) 5)
+				.setExtension((byte) 0)
+				.setSequenceNumber((short) 1)
+				.setType(PacketType.SYN.getTypeField())
+				.build(),
+			new SynPayload()
+		);
+		UtpSocket socket = UtpSocket.createRemoteConnecting(mock(DatagramChannel.class), synPacket);
+
+		UtpPeerConnectionAcceptor cut = new UtpPeerConnectionAcceptor(torrentClient);
+		cut.onReceivedConnection(socket);
+
+		socket.setConnectionState(ConnectionState.SYN_RECEIVED);
+		verifyNoInteractions(handshakeHandler);
+
+		socket.setConnectionState(ConnectionState.CONNECTED);
+		verify(handshakeHandler).onConnectionReceived(socket);
+
+		socket.setConnectionState(ConnectionState.CONNECTED);
+		verify(handshakeHandler).onConnectionReceived(socket);
+	}
+}
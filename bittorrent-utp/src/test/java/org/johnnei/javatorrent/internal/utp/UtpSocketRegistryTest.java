@@ -1,6 +1,7 @@
 package org.johnnei.javatorrent.internal.utp;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.channels.DatagramChannel;
 
@@ -15,6 +16,7 @@ import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
@@ -32,8 +34,7 @@ public class UtpSocketRegistryTest {
 		cut = new UtpSocketRegistry(channelMock);
 	}
 
-	private UtpSocket createSocket(int connectionId) throws IOException {
-		SocketAddress address = mock(SocketAddress.class);
+	private UtpSocket createSocket(SocketAddress address, int connectionId) throws IOException {
 		UtpPacket synPacket = mock(UtpPacket.class);
 		UtpHeader header = mock(UtpHeader.class);
 
@@ -43,9 +44,13 @@ public class UtpSocketRegistryTest {
 		return cut.createSocket(address, synPacket);
 	}
 
+	private UtpSocket createSocket(int connectionId) throws IOException {
+		return createSocket(new InetSocketAddress("localhost", 27960), connectionId);
+	}
+
 	@Test
 	public void testGetSocketCreateWhenNotExist() throws Exception {
-		assertThrows(UtpProtocolViolationException.class, () -> cut.getSocket((short) 5));
+		assertThrows(UtpProtocolViolationException.class, () -> cut.getSocket(new InetSocketAddress("localhost", 27960), (short) 5));
 	}
 
 	@Test
@@ -70,7 +75,7 @@ public class UtpSocketRegistryTest {
 	public void testGetSocketAfterCreation() throws Exception {
 		UtpSocket socket = createSocket(5);
 		// The socket is created on the RECEIVE id, the SYN packet contains the id on which we will SEND.
-		UtpSocket socketTwo = cut.getSocket((short) 6);
+		UtpSocket socketTwo = cut.getSocket(new InetSocketAddress("localhost", 27960), (short) 6);
 
 		assertThat("A socket must be reused when the same connection id is used.", socketTwo, sameInstance(socket));
 		assertThat("All sockets must be returned", cut.getAllSockets(), hasSize(1));
@@ -86,19 +91,50 @@ public class UtpSocketRegistryTest {
 	}
 
 	@Test
-	public void testRemoveShutdownSockets() {
-		UtpSocket socket1 = mock(UtpSocket.class);
-		when(socket1.isShutdown()).thenReturn(false);
-
-		UtpSocket socket2 = mock(UtpSocket.class);
-		when(socket2.isShutdown()).thenReturn(true);
+	public void testGetSocketSameIdOnDifferentAddress() throws Exception {
+		InetSocketAddress addressOne = new InetSocketAddress("localhost", 27960);
+		InetSocketAddress addressTwo = new InetSocketAddress("localhost", 27961);
+		UtpSocket socket = createSocket(addressOne, 5);
+		UtpSocket socketTwo = createSocket(addressTwo, 5);
+
+		assertThat("Remotes picking the same id must not collide.", socketTwo, not(sameInstance(socket)));
+		assertThat("Socket should be found by address", cut.getSocket(addressOne, (short) 6), sameInstance(socket));
+		assertThat("Socket should be found by address", cut.getSocket(addressTwo, (short) 6), sameInstance(socketTwo));
+	}
 
-		cut.allocateSocket((id) -> socket1);
-		cut.allocateSocket((id) -> socket2);
+	@Test
+	public void testGetInitiatedSocketOnAnyAddress() {
+		UtpSocket socket = mock(UtpSocket.class);
+		short[] allocatedId = new short[1];
+		cut.allocateSocket(id -> {
+			allocatedId[0] = id;
+			return socket;
+		});
+
+		assertThat(
+			"Initiated socket should match as the remote address isn't known when allocating.",
+			cut.getSocket(new InetSocketAddress("localhost", 27960), allocatedId[0]),
+			sameInstance(socket)
+		);
+	}
 
-		assertThat("Allocate failure", cut.getAllSockets(), hasSize(2));
-		cut.removeShutdownSockets();
-		assertThat("Socket 2 should have been removed.", cut.getAllSockets(), hasSize(1));
+	@Test
+	public void testRemoveSocket() throws Exception {
+		UtpSocket socket1 = createSocket(new InetSocketAddress("localhost", 27960), 5);
+		UtpSocket socket2 = createSocket(new InetSocketAddress("localhost", 27961), 5);
+		UtpSocket socket3 = mock(UtpSocket.class);
+		cut.allocateSocket(id -> {
+			when(socket3.getReceiveConnectionId()).thenReturn(id);
+			return socket3;
+		});
+
+		assertThat("Allocate failure", cut.getAllSockets(), hasSize(3));
+		cut.removeSocket(socket1);
+		assertThat("Socket 1 should have been removed.", cut.getAllSockets(), containsInAnyOrder(socket2, socket3));
+		cut.removeSocket(socket3);
+		assertThat("Socket 3 should have been removed.", cut.getAllSockets(), containsInAnyOrder(socket2));
+		cut.removeSocket(socket3);
+		assertThat("Removing twice should be ignored.", cut.getAllSockets(), hasSize(1));
 	}
 
 }
@@ -0,0 +1,139 @@
+package org.johnnei.javatorrent.internal.utp;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link UtpSocketScheduler}
+ */
+public class UtpSocketSchedulerTest {
+
+	private AtomicLong clock;
+
+	private Consumer<UtpSocket> onShutdown;
+
+	private UtpSocket socket;
+
+	private UtpSocketScheduler cut;
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() throws IOException {
+		clock = new AtomicLong(1_000);
+		onShutdown = mock(Consumer.class);
+		socket = mock(UtpSocket.class);
+		when(socket.getMillisUntilTimeout()).thenReturn(1_000L);
+		when(socket.getMillisUntilAcknowledgement()).thenReturn(-1L);
+
+		cut = new UtpSocketScheduler(() -> {}, clock::get, onShutdown);
+	}
+
+	@Test
+	public void testRegister() throws IOException {
+		ArgumentCaptor<Runnable> listenerCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+		cut.register(socket);
+		assertTrue(cut.hasReadySockets(), "Registration must be completed on the next pass.");
+		assertEquals(-1, cut.getMillisUntilNextTimeout(), "Timeout is only scheduled once the registration is completed.");
+
+		cut.processReadySockets();
+
+		assertFalse(cut.hasReadySockets());
+		assertEquals(1_000, cut.getMillisUntilNextTimeout());
+		verify(socket).setProcessRequestListener(listenerCaptor.capture());
+		verify(socket, times(1)).processSendQueue();
+
+		listenerCaptor.getValue().run();
+		assertTrue(cut.hasReadySockets(), "Listener must schedule the socket.");
+
+		cut.processReadySockets();
+		verify(socket, times(2)).processSendQueue();
+	}
+
+	@Test
+	public void testScheduleOnlyOnce() throws IOException {
+		cut.register(socket);
+		cut.processReadySockets();
+
+		cut.schedule(socket);
+		cut.schedule(socket);
+		cut.processReadySockets();
+
+		verify(socket, times(2)).processSendQueue();
+	}
+
+	@Test
+	public void testProcessTimeouts() {
+		cut.register(socket);
+		cut.processReadySockets();
+
+		clock.addAndGet(500);
+		cut.processTimeouts();
+		verify(socket, never()).processTimeout();
+
+		clock.addAndGet(500);
+		cut.processTimeouts();
+		verify(socket).processTimeout();
+		assertEquals(1_000, cut.getMillisUntilNextTimeout(), "Timeout must be rescheduled while the socket is alive.");
+	}
+
+	@Test
+	public void testUnregisterShutdownSocket() throws IOException {
+		cut.register(socket);
+		cut.processReadySockets();
+
+		when(socket.isShutdown()).thenReturn(true);
+		cut.schedule(socket);
+		cut.processReadySockets();
+
+		verify(onShutdown).accept(socket);
+
+		cut.schedule(socket);
+		cut.processReadySockets();
+		verify(socket, times(2)).processSendQueue();
+
+		clock.addAndGet(1_000);
+		cut.processTimeouts();
+		verify(socket, never()).processTimeout();
+	}
+
+	@Test
+	public void testDelayedAcknowledgement() throws IOException {
+		cut.register(socket);
+		cut.processReadySockets();
+
+		when(socket.getMillisUntilAcknowledgement()).thenReturn(10L);
+		cut.schedule(socket);
+		cut.processReadySockets();
+		verify(socket, times(2)).processSendQueue();
+		assertEquals(10, cut.getMillisUntilNextTimeout(), "Delayed acknowledgement must wake up the multiplexer before the timeout.");
+
+		// Scheduling again must not add a second delayed acknowledgement.
+		cut.schedule(socket);
+		cut.processReadySockets();
+		verify(socket, times(3)).processSendQueue();
+
+		when(socket.getMillisUntilAcknowledgement()).thenReturn(-1L);
+		clock.addAndGet(10);
+		cut.processTimeouts();
+
+		verify(socket, times(4)).processSendQueue();
+		verify(socket, never()).processTimeout();
+		assertEquals(990, cut.getMillisUntilNextTimeout());
+	}
+
+}
@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -38,14 +40,22 @@ public class UtpSocketTest {
 
 	private DatagramChannel channel;
 
+	/**
+	 * Copies of the sent datagrams, the socket reuses the buffer it passes to the channel.
+	 */
+	private List<ByteBuffer> sentPackets;
+
 	@BeforeEach
 	public void setUp() throws Exception {
+		sentPackets = new ArrayList<>();
 		channel = mock(DatagramChannel.class);
 		when(channel.send(any(ByteBuffer.class), any())).thenAnswer(invocation -> {
 			ByteBuffer buffer = invocation.getArgument(0);
-			int sent = buffer.remaining();
-			buffer.get(new byte[sent]);
-			return sent;
+			ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+			copy.put(buffer);
+			copy.flip();
+			sentPackets.add(copy);
+			return copy.limit();
 		});
 	}
 
@@ -306,6 +316,42 @@ public class UtpSocketTest {
 		assertThat(data.array(), equalTo(new byte[] { 1, 2, 3, 4 }));
 	}
 
+	@Test
+	public void testReceiveWindowReopened() throws Exception {
+		UtpSocket socket = prepareSocketAfterHandshake();
+		Runnable processRequestListener = mock(Runnable.class);
+		socket.setProcessRequestListener(processRequestListener);
+
+		UtpPacket dataPacket = new UtpPacket(
+			new UtpHeader.Builder()
+				.setAcknowledgeNumber((short) 1)
+				.setConnectionId((short) 42)
+				.setExtension((byte) 0)
+				.setSequenceNumber((short) 676)
+				.setType(PacketType.DATA.getTypeField())
+				.build(),
+			new DataPayload(ByteBuffer.wrap(new byte[40_000]))
+		);
+
+		socket.onReceivedPacket(dataPacket);
+		socket.processSendQueue();
+
+		ArgumentCaptor<ByteBuffer> bufferArgumentCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
+		verify(channel, times(2)).send(bufferArgumentCaptor.capture(), any());
+		ByteBuffer buffer = bufferArgumentCaptor.getAllValues().get(1);
+		assertThat("Buffered data must shrink the advertised window", buffer.getInt(12), equalTo(64 * 1024 - 40_000));
+
+		assertThat(socket.getReadableChannel().read(ByteBuffer.allocate(40_000)), equalTo(40_000));
+		verify(processRequestListener).run();
+
+		socket.processSendQueue();
+
+		verify(channel, times(3)).send(bufferArgumentCaptor.capture(), any());
+		buffer = bufferArgumentCaptor.getAllValues().get(bufferArgumentCaptor.getAllValues().size() - 1);
+		assertThat("Window update should be ST_STATE.", (byte) (buffer.get(0) >>> 4), equalTo(PacketType.STATE.getTypeField()));
+		assertThat("Reopened window must be advertised", buffer.getInt(12), equalTo(64 * 1024));
+	}
+
 	@Test
 	public void testShutdownInputOutOfOrder() throws Exception {
 		UtpSocket socket = prepareSocketAfterHandshake();
@@ -346,8 +392,6 @@ public class UtpSocketTest {
 
 	@Test
 	public void testShutdownOutputOutOfOrder() throws Exception {
-		ArgumentCaptor<ByteBuffer> bufferArgumentCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
-
 		UtpSocket socket = prepareSocketAfterHandshake();
 
 		socket.getWritableChannel().write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }));
@@ -374,14 +418,14 @@ public class UtpSocketTest {
 		// Should trigger the sending of FIN.
 		socket.processSendQueue();
 
-		verify(channel, times(3)).send(bufferArgumentCaptor.capture(), any(InetSocketAddress.class));
+		verify(channel, times(3)).send(any(ByteBuffer.class), any(InetSocketAddress.class));
 
 		// Validate packet 2 was DATA
-		ByteBuffer buffer = bufferArgumentCaptor.getAllValues().get(1);
+		ByteBuffer buffer = sentPackets.get(1);
 		assertThat("Data packet should have been sent.", (byte) (buffer.get(0) >>> 4), equalTo(PacketType.DATA.getTypeField()));
 
 		// Validate packet 3 was FIN
-		buffer = bufferArgumentCaptor.getAllValues().get(2);
+		buffer = sentPackets.get(2);
 		assertThat("FIN packet should have been sent.", (byte) (buffer.get(0) >>> 4), equalTo(PacketType.FIN.getTypeField()));
 
 		// Validate socket is not in shutdown state.
@@ -402,4 +446,113 @@ public class UtpSocketTest {
 		assertThat("All packets are received and sent, socket can be removed.", socket.isShutdown(), is(true));
 	}
 
+	@Test
+	public void testAcknowledgementsAreCoalesced() throws Exception {
+		UtpSocket socket = prepareSocketAfterHandshake();
+
+		socket.onReceivedPacket(createDataPacket((short) 676));
+		socket.processSendQueue();
+
+		verify(channel, times(1)).send(any(ByteBuffer.class), any());
+		assertThat("Single packet acknowledgement should be delayed", socket.getMillisUntilAcknowledgement(), not(equalTo(-1L)));
+
+		socket.onReceivedPacket(createDataPacket((short) 677));
+		socket.processSendQueue();
+
+		ArgumentCaptor<ByteBuffer> bufferArgumentCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
+		verify(channel, times(2)).send(bufferArgumentCaptor.capture(), any());
+		ByteBuffer buffer = bufferArgumentCaptor.getAllValues().get(1);
+		assertThat("Acknowledgement should be ST_STATE.", (byte) (buffer.get(0) >>> 4), equalTo(PacketType.STATE.getTypeField()));
+		assertThat("Both packets should be acked at once.", buffer.getShort(18), equalTo((short) 677));
+		assertThat(socket.getMillisUntilAcknowledgement(), equalTo(-1L));
+	}
+
+	@Test
+	public void testStatePacketIsRenewedForEachAcknowledgement() throws Exception {
+		UtpSocket socket = prepareSocketAfterHandshake();
+
+		socket.onReceivedPacket(createDataPacket((short) 677));
+		socket.processSendQueue();
+		socket.onReceivedPacket(createDataPacket((short) 676));
+		socket.processSendQueue();
+		socket.onReceivedPacket(createDataPacket((short) 678));
+		socket.processSendQueue();
+
+		verify(channel, times(3)).send(any(ByteBuffer.class), any());
+		ByteBuffer first = sentPackets.get(1);
+		ByteBuffer second = sentPackets.get(2);
+		assertThat("Acknowledgement should be ST_STATE.", (byte) (second.get(0) >>> 4), equalTo(PacketType.STATE.getTypeField()));
+		assertThat("Sequence number should not change between state packets.", second.getShort(16), equalTo(first.getShort(16)));
+		assertThat("First acknowledgement should report the missing packet.", first.getShort(18), equalTo((short) 675));
+		assertThat("Second acknowledgement should ack all packets.", second.getShort(18), equalTo((short) 678));
+		assertThat("Selective ACK should no longer be sent.", second.get(1), equalTo((byte) 0));
+	}
+
+	@Test
+	public void testAcknowledgementIsPiggybacked() throws Exception {
+		UtpSocket socket = prepareSocketAfterHandshake();
+
+		socket.onReceivedPacket(createDataPacket((short) 676));
+		socket.getWritableChannel().write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }));
+		socket.processSendQueue();
+
+		ArgumentCaptor<ByteBuffer> bufferArgumentCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
+		verify(channel, times(2)).send(bufferArgumentCaptor.capture(), any());
+		ByteBuffer buffer = bufferArgumentCaptor.getAllValues().get(1);
+		assertThat("Acknowledgement should be carried by ST_DATA.", (byte) (buffer.get(0) >>> 4), equalTo(PacketType.DATA.getTypeField()));
+		assertThat(buffer.getShort(18), equalTo((short) 676));
+		assertThat(socket.getMillisUntilAcknowledgement(), equalTo(-1L));
+	}
+
+	@Test
+	public void testOutOfOrderPacketIsAcknowledgedImmediately() throws Exception {
+		UtpSocket socket = prepareSocketAfterHandshake();
+
+		socket.onReceivedPacket(createDataPacket((short) 677));
+		socket.processSendQueue();
+
+		ArgumentCaptor<ByteBuffer> bufferArgumentCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
+		verify(channel, times(2)).send(bufferArgumentCaptor.capture(), any());
+		ByteBuffer buffer = bufferArgumentCaptor.getAllValues().get(1);
+		assertThat("Acknowledgement should be ST_STATE.", (byte) (buffer.get(0) >>> 4), equalTo(PacketType.STATE.getTypeField()));
+		assertThat("Packet 676 is missing.", buffer.getShort(18), equalTo((short) 675));
+		assertThat("Selective ACK should report packet 677.", buffer.get(1), equalTo((byte) 1));
+	}
+
+	private static UtpPacket createDataPacket(short sequenceNumber) {
+		return new UtpPacket(
+			new UtpHeader.Builder()
+				.setAcknowledgeNumber((short) 1)
+				.setConnectionId((short) 42)
+				.setExtension((byte) 0)
+				.setSequenceNumber(sequenceNumber)
+				.setType(PacketType.DATA.getTypeField())
+				.build(),
+			new DataPayload(ByteBuffer.wrap(new byte[] { 1 }))
+		);
+	}
+
+	@Test
+	public void testDropPacketBeyondReceiveWindow() throws Exception {
+		UtpSocket socket = prepareSocketAfterHandshake();
+
+		UtpPacket dataPacket = new UtpPacket(
+			new UtpHeader.Builder()
+				.setAcknowledgeNumber((short) 1)
+				.setConnectionId((short) 42)
+				.setExtension((byte) 0)
+				.setSequenceNumber((short) 676)
+				.setType(PacketType.DATA.getTypeField())
+				.build(),
+			new DataPayload(ByteBuffer.wrap(new byte[UtpSocket.DEFAULT_RECEIVE_BUFFER_SIZE + 1]))
+		);
+
+		socket.onReceivedPacket(dataPacket);
+		socket.processSendQueue();
+
+		verify(channel, times(1)).send(any(ByteBuffer.class), any());
+		assertThat("Dropped packet must not be acknowledged", socket.getMillisUntilAcknowledgement(), equalTo(-1L));
+		assertThat(socket.getReadableChannel().read(ByteBuffer.allocate(16)), equalTo(0));
+	}
+
 }
@@ -19,4 +19,16 @@ public class DataPayloadTest {
 		assertThat("Consumed data should not be copied.", cut.getData(), equalTo(new byte[] { 2, 3, 4, 5 } ));
 	}
 
+	@Test
+	public void testGetDataDirectBuffer() {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(5);
+		buffer.put(new byte[] { 1, 2, 3, 4, 5 });
+		buffer.flip();
+		buffer.get();
+
+		DataPayload cut = new DataPayload(buffer);
+		assertThat("Consumed data should not be copied.", cut.getData(), equalTo(new byte[] { 2, 3, 4, 5 } ));
+		assertThat("Buffer should not have been consumed.", buffer.remaining(), equalTo(4));
+	}
+
 }
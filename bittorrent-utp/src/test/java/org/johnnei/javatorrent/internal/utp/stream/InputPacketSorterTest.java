@@ -1,7 +1,6 @@
 package org.johnnei.javatorrent.internal.utp.stream;
 
 import java.nio.ByteBuffer;
-import java.nio.channels.Pipe;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,16 +12,14 @@ import static org.hamcrest.Matchers.is;
 
 public class InputPacketSorterTest {
 
-	private Pipe pipe;
+	private RingBufferPipe pipe;
 
 	private InputPacketSorter cut;
 
 	@BeforeEach
 	public void setUp() throws Exception {
-		pipe = Pipe.open();
-		pipe.sink().configureBlocking(false);
-		pipe.source().configureBlocking(false);
-		cut = new InputPacketSorter(pipe.sink(), (short) 1);
+		pipe = new RingBufferPipe(64);
+		cut = new InputPacketSorter(pipe.sink(), (short) 1, 16);
 	}
 
 	@AfterEach
@@ -115,4 +112,73 @@ public class InputPacketSorterTest {
 		assertThat(buffer.get(), equalTo((byte) 3));
 		assertThat(buffer.get(), equalTo((byte) 4));
 	}
+
+	@Test
+	public void testFlushWhenSinkIsFull() throws Exception {
+		pipe = new RingBufferPipe(4);
+		cut = new InputPacketSorter(pipe.sink(), (short) 1, 16);
+
+		cut.submitData((short) 1, new byte[]{ 1, 2, 3 });
+		cut.submitData((short) 2, new byte[]{ 4, 5, 6 });
+		cut.submitData((short) 4, new byte[]{ 9 });
+
+		assertThat("Bytes which didn't fit in the sink must remain buffered", cut.getBufferedBytes(), is(3));
+
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		assertThat(pipe.source().read(buffer), is(4));
+		cut.flush();
+
+		assertThat(cut.getBufferedBytes(), is(1));
+		buffer.clear();
+		assertThat(pipe.source().read(buffer), is(2));
+		assertThat(buffer.get(0), equalTo((byte) 5));
+		assertThat(buffer.get(1), equalTo((byte) 6));
+	}
+
+	@Test
+	public void testIgnoreDuplicateData() throws Exception {
+		cut.submitData((short) 1, new byte[]{ 1, 2 });
+		cut.submitData((short) 1, new byte[]{ 1, 2 });
+		cut.submitData((short) 3, new byte[]{ 5 });
+		cut.submitData((short) 3, new byte[]{ 5 });
+
+		assertThat(cut.getBufferedBytes(), is(1));
+		assertThat(pipe.source().read(ByteBuffer.allocate(8)), is(2));
+	}
+
+	@Test
+	public void testIgnoreDataBeyondReorderWindow() throws Exception {
+		cut = new InputPacketSorter(pipe.sink(), (short) 1, 3);
+
+		assertThat("Capacity should be rounded up to 4 packets", cut.isWithinReorderWindow((short) 4), is(true));
+		assertThat(cut.isWithinReorderWindow((short) 5), is(false));
+
+		cut.submitData((short) 5, new byte[]{ 1, 2 });
+
+		assertThat(cut.getBufferedBytes(), is(0));
+		assertThat(cut.isReceived((short) 5), is(false));
+	}
+
+	@Test
+	public void testIsReceived() throws Exception {
+		cut.submitData((short) 1, new byte[]{ 1 });
+		cut.submitData((short) 3, new byte[]{ 3 });
+
+		assertThat("Passed on to the sink", cut.isReceived((short) 1), is(true));
+		assertThat(cut.isReceived((short) 2), is(false));
+		assertThat("Buffered", cut.isReceived((short) 3), is(true));
+		assertThat(cut.isReceived((short) 4), is(false));
+	}
+
+	@Test
+	public void testIsCompleteUntilWrapAround() throws Exception {
+		cut = new InputPacketSorter(pipe.sink(), (short) 65535, 16);
+
+		cut.submitData((short) 0, new byte[]{ 2 });
+		assertThat(cut.isCompleteUntil((short) 1), is(false));
+
+		cut.submitData((short) 65535, new byte[]{ 1 });
+		assertThat(cut.isCompleteUntil((short) 1), is(true));
+	}
+
 }
@@ -4,10 +4,15 @@ import java.nio.ByteBuffer;
 
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
+import org.johnnei.javatorrent.internal.utp.protocol.UtpProtocolViolationException;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class PacketReaderTest {
 
@@ -38,4 +43,64 @@ public class PacketReaderTest {
 		assertThat("Bits 144 - 160 should be the acknowledge number", packet.getHeader().getAcknowledgeNumber(), equalTo((short) 0x7865));
 	}
 
+	@Test
+	public void testReadSelectiveAck() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(33);
+		buffer.put((byte) 0x21);
+		// Unknown extension 2 first, followed by the selective ACK.
+		buffer.put((byte) 2);
+		buffer.putShort((short) 0x1234);
+		buffer.putInt(0);
+		buffer.putInt(0);
+		buffer.putInt(0);
+		buffer.putShort((short) 5);
+		buffer.putShort((short) 10);
+		buffer.put(SelectiveAck.EXTENSION_TYPE);
+		buffer.put((byte) 1);
+		buffer.put((byte) 0x7F);
+		buffer.put((byte) 0);
+		buffer.put((byte) 4);
+		buffer.put(new byte[] { 0b0000_0101, 0, 0, 0 });
+		buffer.flip();
+
+		UtpPacket packet = new PacketReader().read(buffer);
+
+		SelectiveAck selectiveAck = packet.getHeader().getSelectiveAck();
+		assertThat("Selective ACK should have been read after the unknown extension", selectiveAck != null, is(true));
+		assertThat(selectiveAck.getBitCount(), equalTo(32));
+		assertThat("ack_nr + 2 is received", selectiveAck.isAcknowledged(0), is(true));
+		assertThat("ack_nr + 3 is missing", selectiveAck.isAcknowledged(1), is(false));
+		assertThat("ack_nr + 4 is received", selectiveAck.isAcknowledged(2), is(true));
+		assertThat("Payload should start after the extensions", packet.getPayload().getType(), equalTo(PacketType.STATE));
+	}
+
+	@Test
+	public void testReadTruncatedExtension() {
+		ByteBuffer buffer = ByteBuffer.allocate(24);
+		buffer.put((byte) 0x21);
+		buffer.put(SelectiveAck.EXTENSION_TYPE);
+		buffer.put(new byte[16]);
+		buffer.putShort((short) 0);
+		buffer.put((byte) 0);
+		buffer.put((byte) 32);
+		buffer.putShort((short) 0);
+		buffer.flip();
+
+		assertThrows(UtpProtocolViolationException.class, () -> new PacketReader().read(buffer));
+	}
+
+	@Test
+	public void testReadMissingExtensionHeader() {
+		ByteBuffer buffer = ByteBuffer.allocate(21);
+		buffer.put((byte) 0x21);
+		buffer.put(SelectiveAck.EXTENSION_TYPE);
+		buffer.put(new byte[16]);
+		buffer.putShort((short) 0);
+		// Only the next extension type is present, the length is missing.
+		buffer.put((byte) 0);
+		buffer.flip();
+
+		assertThrows(UtpProtocolViolationException.class, () -> new PacketReader().read(buffer));
+	}
+
 }
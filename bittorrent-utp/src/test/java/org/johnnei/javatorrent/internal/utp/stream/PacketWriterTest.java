@@ -1,14 +1,21 @@
 package org.johnnei.javatorrent.internal.utp.stream;
 
+import java.io.ByteArrayInputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.internal.utp.protocol.PacketType;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.Payload;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.SelectiveAck;
+import org.johnnei.javatorrent.internal.utp.protocol.packet.StatePayload;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpHeader;
 import org.johnnei.javatorrent.internal.utp.protocol.packet.UtpPacket;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -49,4 +56,58 @@ public class PacketWriterTest {
 		assertThat("Bits 144 - 160 should be the acknowledge number", buffer.getShort(), equalTo(header.getAcknowledgeNumber()));
 	}
 
+	@Test
+	public void testWriteSelectiveAck() {
+		SelectiveAck selectiveAck = SelectiveAck.withCapacity(3);
+		selectiveAck.setAcknowledged(2);
+		UtpHeader header = new UtpHeader.Builder()
+			.setType(PacketType.STATE.getTypeField())
+			.setExtension((byte) 0)
+			.setSelectiveAck(selectiveAck)
+			.build();
+		UtpPacket packet = new UtpPacket(header, new StatePayload());
+
+		ByteBuffer buffer = new PacketWriter().write(packet);
+
+		assertThat("20 packet overhead + 2 bytes extension header + 4 bytes bitmask.", buffer.limit(), equalTo(26));
+		assertThat("Extension field should announce the selective ACK", buffer.get(1), equalTo(SelectiveAck.EXTENSION_TYPE));
+		assertThat("Selective ACK should be the last extension", buffer.get(20), equalTo((byte) 0));
+		assertThat("Bitmask should be 4 bytes", buffer.get(21), equalTo((byte) 4));
+		assertThat("Bit for ack_nr + 4 should be set", buffer.get(22), equalTo((byte) 0b100));
+	}
+
+	@Test
+	public void testWritePayloadFromChannel() throws Exception {
+		UtpHeader header = new UtpHeader.Builder()
+			.setType(PacketType.DATA.getTypeField())
+			.setExtension((byte) 0)
+			.setSequenceNumber((short) 5)
+			.build();
+		ReadableByteChannel source = Channels.newChannel(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4, 5, 6 }));
+
+		ByteBuffer buffer = new PacketWriter().write(header, source, 4);
+
+		assertThat("20 packet overhead + 4 bytes of payload.", buffer.limit(), equalTo(24));
+		assertThat("Payload should start after the header", PacketWriter.getPayloadOffset(header), equalTo(20));
+		assertThat("Sequence number should be written", buffer.getShort(16), equalTo((short) 5));
+		assertThat("Payload should be read from the channel", buffer.get(20), equalTo((byte) 1));
+		assertThat("Payload should be read from the channel", buffer.get(23), equalTo((byte) 4));
+	}
+
+	@Test
+	public void testWriteReusesBuffer() {
+		PacketWriter cut = new PacketWriter();
+		UtpHeader header = new UtpHeader.Builder()
+			.setType(PacketType.STATE.getTypeField())
+			.setExtension((byte) 0)
+			.build();
+
+		ByteBuffer first = cut.write(new UtpPacket(header, new StatePayload()));
+		first.position(first.limit());
+		ByteBuffer second = cut.write(new UtpPacket(header, new StatePayload()));
+
+		assertThat("Buffer should be reused", second, sameInstance(first));
+		assertThat("Buffer should be ready to be sent again", second.remaining(), equalTo(20));
+	}
+
 }
@@ -0,0 +1,151 @@
+package org.johnnei.javatorrent.internal.utp.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.IllegalSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests {@link RingBufferPipe}
+ */
+public class RingBufferPipeTest {
+
+	@Test
+	public void testInvalidCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new RingBufferPipe(0));
+	}
+
+	@Test
+	public void testNonBlocking() {
+		RingBufferPipe cut = new RingBufferPipe(8);
+
+		assertFalse(cut.source().isBlocking());
+		assertFalse(cut.sink().isBlocking());
+	}
+
+	@Test
+	public void testCannotRegisterOnSelector() throws IOException {
+		RingBufferPipe cut = new RingBufferPipe(8);
+
+		try (Selector selector = Selector.open()) {
+			assertThrows(IllegalSelectorException.class, () -> cut.source().register(selector, SelectionKey.OP_READ));
+		}
+	}
+
+	@Test
+	public void testReadWriteWrapAround() throws IOException {
+		RingBufferPipe cut = new RingBufferPipe(8);
+
+		assertEquals(0, cut.source().read(ByteBuffer.allocate(8)), "Empty pipe must not block.");
+		assertEquals(6, cut.sink().write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6 })));
+
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		assertEquals(4, cut.source().read(buffer));
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, buffer.array());
+
+		ByteBuffer input = ByteBuffer.wrap(new byte[] { 7, 8, 9, 10, 11, 12, 13 });
+		assertEquals(6, cut.sink().write(input), "Only the free space must be written.");
+		assertEquals(1, input.remaining());
+		assertEquals(0, cut.remaining());
+		assertEquals(0, cut.sink().readyOps());
+
+		buffer = ByteBuffer.allocate(8);
+		assertEquals(8, cut.source().read(buffer));
+		assertArrayEquals(new byte[] { 5, 6, 7, 8, 9, 10, 11, 12 }, buffer.array());
+	}
+
+	@Test
+	public void testGatheringWrite() throws IOException {
+		RingBufferPipe cut = new RingBufferPipe(8);
+		ByteBuffer[] buffers = { ByteBuffer.wrap(new byte[] { 1, 2, 3 }), ByteBuffer.wrap(new byte[] { 4, 5, 6, 7, 8, 9 }) };
+
+		assertEquals(8, cut.sink().write(buffers));
+		assertEquals(1, buffers[1].remaining());
+		assertEquals(8, cut.available());
+	}
+
+	@Test
+	public void testSourceNotifiedWhenNoLongerEmpty() throws IOException {
+		RingBufferPipe cut = new RingBufferPipe(8);
+		Runnable listener = mock(Runnable.class);
+		cut.source().setReadinessListener(listener);
+
+		assertEquals(0, cut.source().readyOps());
+		cut.sink().write(ByteBuffer.wrap(new byte[] { 1 }));
+		cut.sink().write(ByteBuffer.wrap(new byte[] { 2 }));
+
+		verify(listener, times(1)).run();
+		assertEquals(SelectionKey.OP_READ, cut.source().readyOps());
+	}
+
+	@Test
+	public void testSinkNotifiedWhenSpaceBecomesAvailable() throws IOException {
+		RingBufferPipe cut = new RingBufferPipe(8);
+		Runnable listener = mock(Runnable.class);
+		cut.sink().setReadinessListener(listener);
+
+		cut.sink().write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+		cut.source().read(ByteBuffer.allocate(1));
+		verify(listener, times(1)).run();
+
+		cut.source().read(ByteBuffer.allocate(1));
+		verify(listener, times(1)).run();
+
+		// Free space grows from 2 to 4 bytes which is half the capacity.
+		cut.source().read(ByteBuffer.allocate(2));
+		verify(listener, times(2)).run();
+	}
+
+	@Test
+	public void testCloseSink() throws IOException {
+		RingBufferPipe cut = new RingBufferPipe(8);
+		Runnable listener = mock(Runnable.class);
+		cut.source().setReadinessListener(listener);
+
+		cut.sink().write(ByteBuffer.wrap(new byte[] { 1 }));
+		cut.sink().close();
+
+		verify(listener, times(2)).run();
+		assertEquals(1, cut.source().read(ByteBuffer.allocate(8)), "Buffered data must remain readable.");
+		assertEquals(-1, cut.source().read(ByteBuffer.allocate(8)));
+		assertThrows(ClosedChannelException.class, () -> cut.sink().write(ByteBuffer.allocate(1)));
+	}
+
+	@Test
+	public void testCloseSource() throws IOException {
+		RingBufferPipe cut = new RingBufferPipe(8);
+		Runnable listener = mock(Runnable.class);
+		cut.sink().setReadinessListener(listener);
+
+		cut.source().close();
+
+		verify(listener).run();
+		assertEquals(SelectionKey.OP_WRITE, cut.sink().readyOps());
+		assertThrows(IOException.class, () -> cut.sink().write(ByteBuffer.allocate(1)));
+		assertThrows(ClosedChannelException.class, () -> cut.source().read(ByteBuffer.allocate(1)));
+	}
+
+	@Test
+	public void testNoNotificationWithoutData() throws IOException {
+		RingBufferPipe cut = new RingBufferPipe(8);
+		Runnable listener = mock(Runnable.class);
+		cut.source().setReadinessListener(listener);
+
+		cut.sink().write(ByteBuffer.allocate(0));
+
+		verify(listener, never()).run();
+	}
+}
@@ -1,22 +1,19 @@
 package org.johnnei.javatorrent.utp;
 
+import java.nio.channels.DatagramChannel;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.TorrentClientSettings;
-import org.johnnei.javatorrent.module.ModuleBuildException;
-import org.johnnei.javatorrent.test.DummyEntity;
+import org.johnnei.javatorrent.network.udp.UdpDemultiplexer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -46,27 +43,56 @@ public class UtpModuleTest {
 		new UtpModule.Builder().build().onPostHandshake(null);
 	}
 
+	private static UdpDemultiplexer createDemultiplexerMock() {
+		UdpDemultiplexer demultiplexer = mock(UdpDemultiplexer.class);
+		when(demultiplexer.getChannel()).thenReturn(mock(DatagramChannel.class));
+		return demultiplexer;
+	}
+
 	@Test
-	public void testCreateSocketFactory() throws ModuleBuildException {
+	public void testCreateSocketFactory() throws Exception {
+		UtpModule cut = new UtpModule.Builder().build();
+
+		TorrentClient clientMock = mock(TorrentClient.class);
+		TorrentClientSettings clientSettingsMock = mock(TorrentClientSettings.class);
+		UdpDemultiplexer demultiplexerMock = createDemultiplexerMock();
+		when(clientMock.getSettings()).thenReturn(clientSettingsMock);
+		when(clientMock.getUdpDemultiplexer()).thenReturn(demultiplexerMock);
+
+		cut.onBuild(clientMock);
+
+		try {
+			assertNotNull(cut.createSocketFactory().get(), "Factory should never produce null objects");
+		} finally {
+			cut.onShutdown();
+		}
+	}
+
+	@Test
+	public void testSocketsAreNotProcessedOnExecutor() throws Exception {
 		UtpModule cut = new UtpModule.Builder().build();
 
 		ScheduledExecutorService scheduleServiceMock = mock(ScheduledExecutorService.class);
-		ScheduledFuture scheduledFuture = mock(ScheduledFuture.class);
 		TorrentClient clientMock = mock(TorrentClient.class);
 		TorrentClientSettings clientSettingsMock = mock(TorrentClientSettings.class);
-		when(clientSettingsMock.getAcceptingPort()).thenReturn(DummyEntity.findAvailableUdpPort());
+		UdpDemultiplexer demultiplexerMock = createDemultiplexerMock();
 		when(clientMock.getSettings()).thenReturn(clientSettingsMock);
+		when(clientMock.getUdpDemultiplexer()).thenReturn(demultiplexerMock);
 		when(clientMock.getExecutorService()).thenReturn(scheduleServiceMock);
-		when(scheduleServiceMock.scheduleAtFixedRate(any(), eq(0L), eq(1L), eq(TimeUnit.MILLISECONDS))).thenReturn(scheduledFuture);
-		when(scheduleServiceMock.scheduleWithFixedDelay(any(), eq(50L), eq(10L), eq(TimeUnit.MILLISECONDS))).thenReturn(scheduledFuture);
 
 		cut.onBuild(clientMock);
 
 		try {
-			assertNotNull(cut.createSocketFactory().get(), "Factory should never produce null objects");
+			cut.createSocketFactory().get();
+			verifyNoInteractions(scheduleServiceMock);
 		} finally {
 			cut.onShutdown();
-			verify(scheduledFuture).cancel(true);
 		}
 	}
+
+	@Test
+	public void testSetReceiveBufferSizeTooSmall() {
+		assertThrows(IllegalArgumentException.class, () -> new UtpModule.Builder().setReceiveBufferSize(512));
+	}
+
 }
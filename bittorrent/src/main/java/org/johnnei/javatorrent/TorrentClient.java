@@ -1,5 +1,9 @@
 package org.johnnei.javatorrent;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -9,6 +13,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -16,7 +21,6 @@ import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import org.johnnei.javatorrent.async.LoopingRunnable;
 import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
@@ -24,14 +28,16 @@ import org.johnnei.javatorrent.bittorrent.tracker.TrackerException;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerFactory;
 import org.johnnei.javatorrent.disk.IDiskJob;
 import org.johnnei.javatorrent.internal.TorrentClientSettingsImpl;
-import org.johnnei.javatorrent.internal.disk.IOManager;
+import org.johnnei.javatorrent.internal.disk.IOManagerPool;
 import org.johnnei.javatorrent.internal.network.PeerIoHandler;
 import org.johnnei.javatorrent.internal.network.connector.BitTorrentHandshakeHandlerImpl;
 import org.johnnei.javatorrent.internal.torrent.TorrentManager;
+import org.johnnei.javatorrent.internal.tracker.AnnounceScheduler;
 import org.johnnei.javatorrent.internal.tracker.TrackerManager;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.network.ConnectionDegradation;
 import org.johnnei.javatorrent.network.connector.BitTorrentHandshakeHandler;
+import org.johnnei.javatorrent.network.udp.UdpDemultiplexer;
 import org.johnnei.javatorrent.phases.PhaseRegulator;
 import org.johnnei.javatorrent.torrent.PeerStateAccess;
 import org.johnnei.javatorrent.torrent.Torrent;
@@ -67,9 +73,7 @@ public class TorrentClient {
 
 	private ScheduledExecutorService executorService;
 
-	private IOManager ioManager;
-
-	private LoopingRunnable ioManagerRunner;
+	private IOManagerPool ioManager;
 
 	private final byte[] extensionBytes;
 
@@ -85,6 +89,8 @@ public class TorrentClient {
 
 	private TorrentClientSettings settings;
 
+	private UdpDemultiplexer udpDemultiplexer;
+
 	private TorrentClient(Builder builder) {
 		settings = builder.settingsBuilder.build();
 		peerDistributor = Objects.requireNonNull(builder.peerDistributor.apply(this), "Peer distributor is invalid.");
@@ -102,7 +108,9 @@ public class TorrentClient {
 		Objects.requireNonNull(builder.trackerFactoryBuilder, "At least one tracker protocol must be configured.");
 		TrackerFactory trackerFactory = builder.trackerFactoryBuilder.setTorrentClient(this).build();
 
-		trackerManager = new TrackerManager(peerConnector, trackerFactory);
+		AnnounceScheduler announceScheduler = new AnnounceScheduler(settings.getMaxConcurrentAnnounces(), Clock.systemDefaultZone(), new Random());
+		executorService.scheduleAtFixedRate(announceScheduler::announceDueTorrents, 1, 1, TimeUnit.SECONDS);
+		trackerManager = new TrackerManager(peerConnector, trackerFactory, announceScheduler);
 		torrentManager = new TorrentManager(trackerManager);
 		LOGGER.info("Configured trackers: {}", trackerFactory);
 
@@ -115,14 +123,13 @@ public class TorrentClient {
 		peerId = createPeerId();
 		transactionId = new AtomicInteger(new Random().nextInt());
 
-		peerIoHandler = new PeerIoHandler(executorService);
+		peerIoHandler = new PeerIoHandler(settings.getPeerIoThreadCount());
 		handshakeHandler = new BitTorrentHandshakeHandlerImpl(this, peerIoHandler);
+		LOGGER.info("Configured peer IO threads: {}", peerIoHandler.getReactorCount());
 
-		ioManager = new IOManager();
-		ioManagerRunner = new LoopingRunnable(ioManager, true);
-		Thread ioManagerThread = new Thread(ioManagerRunner, String.format("Disk Manager - %s", ioManager.toString()));
-		ioManagerThread.setDaemon(true);
-		ioManagerThread.start();
+		ioManager = new IOManagerPool(settings.getDiskWorkerCount());
+		ioManager.start();
+		LOGGER.info("Configured disk workers: {}", ioManager.getWorkerCount());
 
 		torrentManager.start(this);
 		if (settings.isAcceptingConnections()) {
@@ -161,7 +168,8 @@ public class TorrentClient {
 	}
 
 	/**
-	 * Initiates the downloading of a torrent.
+	 * Initiates the downloading of a torrent. The progress of the files on disk is checked in the background, use {@link Torrent#isCheckingProgress()} to
+	 * find out if the check has completed.
 	 * @param torrent The torrent to download.
 	 */
 	public void download(Torrent torrent) {
@@ -175,10 +183,26 @@ public class TorrentClient {
 		peerConnector.stop();
 		handshakeHandler.stop();
 		torrentManager.stop();
-		ioManagerRunner.stop();
 		peerIoHandler.shutdown();
 		executorService.shutdown();
+		// The resume data is only valid when no blocks are received or written afterwards.
+		ioManager.stop();
+		torrentManager.saveResumeData();
+		torrentManager.closeFiles();
 		modules.stream().forEach(IModule::onShutdown);
+		closeUdpDemultiplexer();
+	}
+
+	private synchronized void closeUdpDemultiplexer() {
+		if (udpDemultiplexer == null) {
+			return;
+		}
+
+		try {
+			udpDemultiplexer.close();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to close UDP demultiplexer.", e);
+		}
 	}
 
 	public int createUniqueTransactionId() {
@@ -193,6 +217,13 @@ public class TorrentClient {
 		ioManager.addTask(task);
 	}
 
+	/**
+	 * @return The amount of workers which are processing disk jobs in parallel.
+	 */
+	public int getDiskWorkerCount() {
+		return ioManager.getWorkerCount();
+	}
+
 	/**
 	 * Calculates how many connections are assigned to the torrent but haven't passed the BitTorrent handshake yet.
 	 * @param torrent The torrent for which connections must be counted.
@@ -343,6 +374,28 @@ public class TorrentClient {
 		return handshakeHandler;
 	}
 
+	/**
+	 * Gets the demultiplexer which owns the UDP port ({@link TorrentClientSettings#getAcceptingPort()}) and is shared by all UDP based protocols.
+	 * The port is bound on the first invocation.
+	 * @return The UDP demultiplexer.
+	 * @throws IOException When the UDP port can't be bound.
+	 */
+	public synchronized UdpDemultiplexer getUdpDemultiplexer() throws IOException {
+		if (udpDemultiplexer == null) {
+			DatagramChannel channel = DatagramChannel.open();
+			try {
+				channel.bind(new InetSocketAddress(settings.getAcceptingPort()));
+				udpDemultiplexer = new UdpDemultiplexer(channel);
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+			LOGGER.info("Configured UDP port: {}", settings.getAcceptingPort());
+		}
+
+		return udpDemultiplexer;
+	}
+
 	/**
 	 * @return The configuration of the Torrent Client
 	 */
@@ -463,6 +516,39 @@ public class TorrentClient {
 			return this;
 		}
 
+		/**
+		 * Sets the amount of threads which process disk jobs. Jobs for the same file are always processed by the same thread, jobs for different
+		 * files are processed in parallel. By default a single thread is used.
+		 * @param diskWorkerCount The amount of disk threads.
+		 * @return The modified instance
+		 */
+		public Builder setDiskWorkerCount(int diskWorkerCount) {
+			settingsBuilder.withDiskWorkerCount(diskWorkerCount);
+			return this;
+		}
+
+		/**
+		 * Sets the amount of threads which process the IO and messages of peers. Each peer is always processed by the same thread, different peers are
+		 * processed in parallel. By default a single thread is used.
+		 * @param peerIoThreadCount The amount of peer IO threads.
+		 * @return The modified instance
+		 */
+		public Builder setPeerIoThreadCount(int peerIoThreadCount) {
+			settingsBuilder.withPeerIoThreadCount(peerIoThreadCount);
+			return this;
+		}
+
+		/**
+		 * Sets the maximum amount of tracker announces which are in progress at the same time. Announces which are due while the limit is reached are
+		 * delayed until another announce completes. By default 16 announces are allowed.
+		 * @param maxConcurrentAnnounces The maximum amount of concurrent announces.
+		 * @return The modified instance
+		 */
+		public Builder setMaxConcurrentAnnounces(int maxConcurrentAnnounces) {
+			settingsBuilder.withMaxConcurrentAnnounces(maxConcurrentAnnounces);
+			return this;
+		}
+
 		/**
 		 * Sets the peer distributor which is being used by the {@link IPeerConnector} implementation.
 		 * @param peerDistributor The peer distributor.
@@ -13,4 +13,19 @@ public interface TorrentClientSettings {
 	 */
 	int getAcceptingPort();
 
+	/**
+	 * @return The amount of threads which process disk jobs.
+	 */
+	int getDiskWorkerCount();
+
+	/**
+	 * @return The amount of threads which process the IO of peers.
+	 */
+	int getPeerIoThreadCount();
+
+	/**
+	 * @return The maximum amount of tracker announces which are in progress at the same time.
+	 */
+	int getMaxConcurrentAnnounces();
+
 }
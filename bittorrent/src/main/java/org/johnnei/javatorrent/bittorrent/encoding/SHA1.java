@@ -16,9 +16,17 @@ public class SHA1 {
 	 * @return The 20-byte hash
 	 */
 	public static byte[] hash(byte[] data) {
+		return createDigest().digest(data);
+	}
+
+	/**
+	 * Creates a new SHA-1 digest to allow for hashing data which is not available as a single array.
+	 *
+	 * @return The SHA-1 digest
+	 */
+	public static MessageDigest createDigest() {
 		try {
-			MessageDigest md = MessageDigest.getInstance("SHA-1");
-			return md.digest(data);
+			return MessageDigest.getInstance("SHA-1");
 		} catch (NoSuchAlgorithmException e) {
 			// SHA-1 is mandatory by the Java spec so this should never be thrown.
 			throw new UnsupportedOperationException("SHA-1 implementation is missing. Can't verify downloads", e);
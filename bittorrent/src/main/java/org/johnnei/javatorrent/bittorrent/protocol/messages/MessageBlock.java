@@ -1,9 +1,11 @@
 package org.johnnei.javatorrent.bittorrent.protocol.messages;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.Optional;
 
 import org.johnnei.javatorrent.bittorrent.protocol.BitTorrent;
+import org.johnnei.javatorrent.network.ByteBufferUtils;
 import org.johnnei.javatorrent.network.InStream;
 import org.johnnei.javatorrent.network.OutStream;
 import org.johnnei.javatorrent.torrent.TorrentFileSet;
@@ -11,9 +13,14 @@ import org.johnnei.javatorrent.torrent.peer.Peer;
 
 public class MessageBlock implements IMessage {
 
+	/**
+	 * The size of the length prefix, id, index and offset of the message.
+	 */
+	private static final int HEADER_SIZE = 13;
+
 	private int index;
 	private int offset;
-	private byte[] data;
+	private ByteBuffer data;
 
 	private Duration readDuration;
 
@@ -22,6 +29,16 @@ public class MessageBlock implements IMessage {
 	}
 
 	public MessageBlock(int index, int offset, byte[] data) {
+		this(index, offset, ByteBuffer.wrap(data));
+	}
+
+	/**
+	 * Creates a new block message for sending.
+	 * @param index The index of the piece.
+	 * @param offset The offset within the piece.
+	 * @param data The block data between position and limit. The buffer will not be modified.
+	 */
+	public MessageBlock(int index, int offset, ByteBuffer data) {
 		this.index = index;
 		this.offset = offset;
 		this.data = data;
@@ -34,11 +51,26 @@ public class MessageBlock implements IMessage {
 		outStream.write(data);
 	}
 
+	/**
+	 * Creates the buffers which represent this message on the wire without copying the block data.
+	 * The first buffer contains the length prefix, message id, index and offset. The second buffer is a view on the block data.
+	 * @return The buffers to write in order.
+	 */
+	public ByteBuffer[] createSendBuffers() {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(getLength());
+		header.put((byte) getId());
+		header.putInt(index);
+		header.putInt(offset);
+		header.flip();
+		return new ByteBuffer[] { header, data.duplicate() };
+	}
+
 	@Override
 	public void read(InStream inStream) {
 		index = inStream.readInt();
 		offset = inStream.readInt();
-		data = inStream.readFully(inStream.available());
+		data = ByteBuffer.wrap(inStream.readFully(inStream.available()));
 		readDuration = inStream.getReadDuration().orElse(null);
 	}
 
@@ -46,20 +78,29 @@ public class MessageBlock implements IMessage {
 	public void process(Peer peer) {
 		TorrentFileSet torrentFileSet = peer.getTorrent().getFileSet();
 
-		if (data.length <= 0) {
+		if (!data.hasRemaining()) {
 			peer.addStrike(1);
 			return;
 		}
 
-		peer.getTorrent().onReceivedBlock(torrentFileSet, index, offset, data);
+		peer.getTorrent().onReceivedBlock(torrentFileSet, index, offset, getBytes());
 		peer.getTorrent().getRequestLimiter().onReceivedBlock(peer, this);
 
 		peer.addStrike(-1);
 	}
 
+	private byte[] getBytes() {
+		if (data.hasArray() && data.arrayOffset() == 0 && data.position() == 0 && data.remaining() == data.array().length) {
+			// Received blocks are always backed by an exactly sized array.
+			return data.array();
+		}
+
+		return ByteBufferUtils.getBytes(data.duplicate(), data.remaining());
+	}
+
 	@Override
 	public int getLength() {
-		return 9 + data.length;
+		return 9 + data.remaining();
 	}
 
 	@Override
@@ -69,7 +110,7 @@ public class MessageBlock implements IMessage {
 
 	@Override
 	public String toString() {
-		return String.format("MessageBlock[index=%d, offset=%d, length=%d]", index, offset, data != null ? data.length : -1);
+		return String.format("MessageBlock[index=%d, offset=%d, length=%d]", index, offset, data != null ? data.remaining() : -1);
 	}
 
 	public Optional<Duration> getReadDuration() {
@@ -1,6 +1,7 @@
 package org.johnnei.javatorrent.bittorrent.tracker;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.network.PeerConnectInfo;
@@ -22,11 +23,12 @@ public interface ITracker {
 
 	/**
 	 * Requests the tracker to execute an announce event.
-	 * In case the tracker cannot immediately execute the request the call may be ignored or postponed.
+	 * In case the tracker does not allow an announce yet (see {@link TorrentInfo#isAnnounceAllowed()}) the call is ignored.
 	 * This call must return immediately.
 	 * @param torrent The torrent for which an announce event is being requested.
+	 * @return A future which completes once the announce has either succeeded or failed. When the call got ignored the future is already completed.
 	 */
-	void announce(Torrent torrent);
+	CompletableFuture<Void> announce(Torrent torrent);
 
 	/**
 	 * Requests a scrape off all known torrent in this tracker.
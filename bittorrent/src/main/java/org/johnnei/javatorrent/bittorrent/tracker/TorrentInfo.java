@@ -3,11 +3,17 @@ package org.johnnei.javatorrent.bittorrent.tracker;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.function.Consumer;
 
 import org.johnnei.javatorrent.torrent.Torrent;
 
 public class TorrentInfo {
 
+	/**
+	 * The announce interval which is used until the tracker has provided one.
+	 */
+	public static final Duration DEFAULT_ANNOUNCE_INTERVAL = Duration.ofSeconds(30);
+
 	/**
 	 * The clock instance to obtain the time
 	 */
@@ -23,6 +29,16 @@ public class TorrentInfo {
 	 */
 	private LocalDateTime lastAnnounceTime;
 
+	/**
+	 * The interval at which the tracker wants to receive regular announces
+	 */
+	private Duration announceInterval;
+
+	/**
+	 * The interval which the tracker requires between any two announces
+	 */
+	private Duration minAnnounceInterval;
+
 	/**
 	 * The amount of seeders as reported by the tracker
 	 */
@@ -43,11 +59,18 @@ public class TorrentInfo {
 	 */
 	private TrackerEvent event;
 
+	/**
+	 * The listener which is notified when the event changes
+	 */
+	private Consumer<TrackerEvent> eventListener;
+
 	public TorrentInfo(Torrent torrent, Clock clock) {
 		this.torrent = torrent;
 		this.clock = clock;
 		this.event = TrackerEvent.EVENT_STARTED;
-		lastAnnounceTime = LocalDateTime.now(clock).minus(Duration.ofSeconds(30));
+		announceInterval = DEFAULT_ANNOUNCE_INTERVAL;
+		minAnnounceInterval = Duration.ZERO;
+		lastAnnounceTime = LocalDateTime.now(clock).minus(DEFAULT_ANNOUNCE_INTERVAL);
 	}
 
 	/**
@@ -56,6 +79,17 @@ public class TorrentInfo {
 	 */
 	public void setEvent(TrackerEvent event) {
 		this.event = event;
+		if (eventListener != null) {
+			eventListener.accept(event);
+		}
+	}
+
+	/**
+	 * Sets the listener which is notified whenever {@link #setEvent(TrackerEvent)} is invoked.
+	 * @param eventListener The listener which receives the new event.
+	 */
+	public void setEventListener(Consumer<TrackerEvent> eventListener) {
+		this.eventListener = eventListener;
 	}
 
 	/**
@@ -82,6 +116,46 @@ public class TorrentInfo {
 		this.downloaded = downloadCount;
 	}
 
+	/**
+	 * Updates the interval at which the tracker wants to receive regular announces for this {@link Torrent}.
+	 * @param announceInterval The announce interval.
+	 */
+	public void setAnnounceInterval(Duration announceInterval) {
+		this.announceInterval = announceInterval;
+	}
+
+	/**
+	 * Updates the interval which the tracker requires between any two announces for this {@link Torrent}.
+	 * @param minAnnounceInterval The minimum announce interval.
+	 */
+	public void setMinAnnounceInterval(Duration minAnnounceInterval) {
+		this.minAnnounceInterval = minAnnounceInterval;
+	}
+
+	/**
+	 * @return The interval at which the tracker wants to receive regular announces.
+	 */
+	public Duration getAnnounceInterval() {
+		return announceInterval;
+	}
+
+	/**
+	 * @return The interval which the tracker requires between any two announces.
+	 */
+	public Duration getMinAnnounceInterval() {
+		return minAnnounceInterval;
+	}
+
+	/**
+	 * Checks if the tracker allows the next announce. Regular announces must respect the {@link #getAnnounceInterval() announce interval}, announces
+	 * which report an event only have to respect the {@link #getMinAnnounceInterval() minimum announce interval}.
+	 * @return <code>true</code> when the tracker allows an announce.
+	 */
+	public boolean isAnnounceAllowed() {
+		Duration interval = event == TrackerEvent.EVENT_NONE ? announceInterval : minAnnounceInterval;
+		return getTimeSinceLastAnnounce().compareTo(interval) >= 0;
+	}
+
 	/**
 	 * Gets the current tracker event for this {@link Torrent}
 	 * @return The tracker event.
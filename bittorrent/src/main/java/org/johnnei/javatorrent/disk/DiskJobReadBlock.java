@@ -1,9 +1,11 @@
 package org.johnnei.javatorrent.disk;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.function.Consumer;
 
 import org.johnnei.javatorrent.internal.disk.DiskJobPriority;
+import org.johnnei.javatorrent.network.ByteBufferUtils;
 import org.johnnei.javatorrent.torrent.files.Piece;
 
 public class DiskJobReadBlock implements IDiskJob {
@@ -14,13 +16,28 @@ public class DiskJobReadBlock implements IDiskJob {
 
 	private final int length;
 
-	private byte[] blockData;
+	private final Object affinity;
+
+	private ByteBuffer blockData;
 
 	public DiskJobReadBlock(Piece piece, int offset, int length, Consumer<DiskJobReadBlock> callback) {
+		this(piece, offset, length, null, callback);
+	}
+
+	/**
+	 * Creates a new job to read a block of a piece.
+	 * @param piece The piece from which the block is read.
+	 * @param offset The offset within the piece at which the block starts.
+	 * @param length The amount of bytes to read.
+	 * @param affinity The file in which the piece starts or <code>null</code> when the job may be processed by any worker.
+	 * @param callback The callback which gets called on completion of this job
+	 */
+	public DiskJobReadBlock(Piece piece, int offset, int length, Object affinity, Consumer<DiskJobReadBlock> callback) {
 		this.callback = callback;
 		this.piece = piece;
 		this.offset = offset;
 		this.length = length;
+		this.affinity = affinity;
 	}
 
 	/**
@@ -28,7 +45,7 @@ public class DiskJobReadBlock implements IDiskJob {
 	 */
 	@Override
 	public void process() throws IOException {
-		blockData = piece.loadPiece(offset, length);
+		blockData = piece.loadBlock(offset, length);
 		callback.accept(this);
 	}
 
@@ -40,13 +57,34 @@ public class DiskJobReadBlock implements IDiskJob {
 		return DiskJobPriority.OUTGOING_DATA.getPriority();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return The file in which the piece starts or <code>null</code> when no affinity was given.
+	 */
+	@Override
+	public Object getAffinity() {
+		return affinity;
+	}
+
 	/**
 	 * The read data from the piece
-	 * @return The read data
+	 * @return A copy of the read data
 	 * @see #getPiece()
+	 * @see #getBlockBuffer()
 	 */
 	public byte[] getBlockData() {
-		return blockData;
+		ByteBuffer buffer = getBlockBuffer();
+		return ByteBufferUtils.getBytes(buffer, buffer.remaining());
+	}
+
+	/**
+	 * The read data from the piece. The buffer may be backed by the file storage and is therefore read-only.
+	 * @return A view on the read data between position and limit.
+	 * @see #getPiece()
+	 */
+	public ByteBuffer getBlockBuffer() {
+		return blockData.duplicate();
 	}
 
 	/**
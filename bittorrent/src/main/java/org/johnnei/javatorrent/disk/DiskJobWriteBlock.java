@@ -12,6 +12,7 @@ public class DiskJobWriteBlock implements IDiskJob {
 	private final Piece piece;
 	private final int blockIndex;
 	private final byte[] data;
+	private final Object affinity;
 
 	/**
 	 * Creates a new job to store a block of a piece.
@@ -21,10 +22,23 @@ public class DiskJobWriteBlock implements IDiskJob {
 	 * @param callback The callback which gets called on completion of this job
 	 */
 	public DiskJobWriteBlock(Piece piece, int blockIndex, byte[] data, Consumer<DiskJobWriteBlock> callback) {
+		this(piece, blockIndex, data, null, callback);
+	}
+
+	/**
+	 * Creates a new job to store a block of a piece.
+	 * @param piece The piece in which this block is found
+	 * @param blockIndex The index of the block within the given piece.
+	 * @param data The bytes to write for the block
+	 * @param affinity The file in which the piece starts or <code>null</code> when the job may be processed by any worker.
+	 * @param callback The callback which gets called on completion of this job
+	 */
+	public DiskJobWriteBlock(Piece piece, int blockIndex, byte[] data, Object affinity, Consumer<DiskJobWriteBlock> callback) {
 		this.callback = callback;
 		this.piece = piece;
 		this.blockIndex = blockIndex;
 		this.data = data;
+		this.affinity = affinity;
 	}
 
 	@Override
@@ -59,6 +73,16 @@ public class DiskJobWriteBlock implements IDiskJob {
 		return DiskJobPriority.RECEIVED_DATA.getPriority();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @return The file in which the piece starts or <code>null</code> when no affinity was given.
+	 */
+	@Override
+	public Object getAffinity() {
+		return affinity;
+	}
+
 	@Override
 	public String toString() {
 		return String.format("DiskJobWriteBlock[piece=%d, block=%d]", piece.getIndex(), blockIndex);
@@ -0,0 +1,130 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * {@link IFileStorage} implementation which uses positional {@link FileChannel} IO for reads and writes.
+ * Views are served from read-only memory mapped windows of the file so that uploads don't need to copy the data onto the heap.
+ */
+public class FileChannelStorage implements IFileStorage {
+
+	/**
+	 * The default size of the sections in which the file gets mapped into memory.
+	 */
+	public static final int DEFAULT_WINDOW_SIZE = 1 << 26;
+
+	private final FileChannel channel;
+
+	private final int windowSize;
+
+	/**
+	 * The mapped sections of the file keyed by their index.
+	 */
+	private final ConcurrentMap<Long, MappedByteBuffer> windows;
+
+	/**
+	 * Creates a new storage on the given file with the {@link #DEFAULT_WINDOW_SIZE}.
+	 * @param file The file to open.
+	 * @throws IOException When the file can not be opened.
+	 */
+	public FileChannelStorage(File file) throws IOException {
+		this(file.toPath(), DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Creates a new storage on the given file.
+	 * @param file The file to open.
+	 * @param windowSize The size of the sections in which the file gets mapped into memory.
+	 * @throws IOException When the file can not be opened.
+	 */
+	public FileChannelStorage(Path file, int windowSize) throws IOException {
+		Argument.requireWithinBounds(windowSize, 1, Integer.MAX_VALUE, () -> "Window size must be at least 1 byte.");
+		this.windowSize = windowSize;
+		this.windows = new ConcurrentHashMap<>();
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	@Override
+	public void read(ByteBuffer buffer, long position) throws IOException {
+		long readPosition = position;
+		while (buffer.hasRemaining()) {
+			int readBytes = channel.read(buffer, readPosition);
+			if (readBytes < 0) {
+				throw new EOFException(String.format("Reached end of file at %d while reading from %d.", readPosition, position));
+			}
+			readPosition += readBytes;
+		}
+	}
+
+	@Override
+	public void write(ByteBuffer buffer, long position) throws IOException {
+		long writePosition = position;
+		while (buffer.hasRemaining()) {
+			writePosition += channel.write(buffer, writePosition);
+		}
+	}
+
+	@Override
+	public ByteBuffer view(long position, int length) throws IOException {
+		long windowIndex = position / windowSize;
+		long windowStart = windowIndex * windowSize;
+		int offsetInWindow = (int) (position - windowStart);
+
+		if (offsetInWindow + length > windowSize) {
+			// The section crosses the boundary of two windows, fall back to a regular read.
+			ByteBuffer buffer = ByteBuffer.allocate(length);
+			read(buffer, position);
+			buffer.flip();
+			return buffer.asReadOnlyBuffer();
+		}
+
+		MappedByteBuffer window = windows.get(windowIndex);
+		if (window == null || window.capacity() < offsetInWindow + length) {
+			// The window is either not mapped yet or the file has grown since it was mapped.
+			window = mapWindow(windowIndex, windowStart, offsetInWindow + length);
+		}
+
+		ByteBuffer view = window.duplicate();
+		view.position(offsetInWindow);
+		view.limit(offsetInWindow + length);
+		return view.slice();
+	}
+
+	private MappedByteBuffer mapWindow(long windowIndex, long windowStart, int requiredSize) throws IOException {
+		long availableBytes = channel.size() - windowStart;
+		if (availableBytes < requiredSize) {
+			throw new EOFException(String.format("File ends at %d but requested data up to %d.", windowStart + availableBytes, windowStart + requiredSize));
+		}
+
+		MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, availableBytes));
+		windows.put(windowIndex, window);
+		return window;
+	}
+
+	@Override
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		windows.clear();
+		channel.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("FileChannelStorage[windowSize=%d, mappedWindows=%d]", windowSize, windows.size());
+	}
+}
@@ -16,4 +16,14 @@ public interface IDiskJob {
 	 */
 	int getPriority();
 
+	/**
+	 * The key on which jobs are distributed over the disk workers. Jobs which share an equal key are processed by the same worker and thus
+	 * keep their relative (priority) ordering.
+	 *
+	 * @return The affinity key or <code>null</code> when this job may be processed by any worker.
+	 */
+	default Object getAffinity() {
+		return null;
+	}
+
 }
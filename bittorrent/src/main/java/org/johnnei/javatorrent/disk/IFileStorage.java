@@ -0,0 +1,45 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Provides positional access to the data of a single file within a fileset.
+ * Implementations must allow concurrent reads and writes on non-overlapping sections without external locking.
+ */
+public interface IFileStorage extends Closeable {
+
+	/**
+	 * Reads bytes starting at the given position in the file until the buffer has no remaining space.
+	 * @param buffer The buffer to read into.
+	 * @param position The position in the file at which to start reading.
+	 * @throws IOException When the file can not provide enough bytes or the underlying IO fails.
+	 */
+	void read(ByteBuffer buffer, long position) throws IOException;
+
+	/**
+	 * Writes all remaining bytes of the buffer starting at the given position in the file.
+	 * @param buffer The buffer to write from.
+	 * @param position The position in the file at which to start writing.
+	 * @throws IOException When the underlying IO fails.
+	 */
+	void write(ByteBuffer buffer, long position) throws IOException;
+
+	/**
+	 * Creates a read-only view on a section of the file. The returned buffer may be backed by memory mapped file data and therefore
+	 * does not require copying the data through the heap.
+	 * @param position The position in the file at which the section starts.
+	 * @param length The amount of bytes in the section.
+	 * @return A buffer containing the bytes of the section between position and limit.
+	 * @throws IOException When the file can not provide enough bytes or the underlying IO fails.
+	 */
+	ByteBuffer view(long position, int length) throws IOException;
+
+	/**
+	 * @return The amount of bytes currently stored in the file.
+	 * @throws IOException When the underlying IO fails.
+	 */
+	long size() throws IOException;
+
+}
@@ -0,0 +1,20 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Creates the {@link IFileStorage} instances which provide access to the files of a fileset.
+ */
+@FunctionalInterface
+public interface IFileStorageFactory {
+
+	/**
+	 * Opens read/write access to the given file. The file will be created when it does not exist yet.
+	 * @param file The file to open.
+	 * @return The storage backed by the given file.
+	 * @throws IOException When the file can not be opened.
+	 */
+	IFileStorage open(File file) throws IOException;
+
+}
@@ -9,9 +9,18 @@ public class TorrentClientSettingsImpl implements TorrentClientSettings {
 
 	private final int listeningPort;
 
+	private final int diskWorkerCount;
+
+	private final int peerIoThreadCount;
+
+	private final int maxConcurrentAnnounces;
+
 	private TorrentClientSettingsImpl(Builder builder) {
 		this.acceptingConnections = builder.acceptingConnections;
 		this.listeningPort = builder.listeningPort;
+		this.diskWorkerCount = builder.diskWorkerCount;
+		this.peerIoThreadCount = builder.peerIoThreadCount;
+		this.maxConcurrentAnnounces = builder.maxConcurrentAnnounces;
 	}
 
 	@Override
@@ -24,12 +33,33 @@ public class TorrentClientSettingsImpl implements TorrentClientSettings {
 		return listeningPort;
 	}
 
+	@Override
+	public int getDiskWorkerCount() {
+		return diskWorkerCount;
+	}
+
+	@Override
+	public int getPeerIoThreadCount() {
+		return peerIoThreadCount;
+	}
+
+	@Override
+	public int getMaxConcurrentAnnounces() {
+		return maxConcurrentAnnounces;
+	}
+
 	public static final class Builder {
 
 		private boolean acceptingConnections;
 
 		private int listeningPort = 6881;
 
+		private int diskWorkerCount = 1;
+
+		private int peerIoThreadCount = 1;
+
+		private int maxConcurrentAnnounces = 16;
+
 		public Builder withAcceptingConnections(boolean acceptingConnections) {
 			this.acceptingConnections = acceptingConnections;
 			return this;
@@ -42,6 +72,27 @@ public class TorrentClientSettingsImpl implements TorrentClientSettings {
 			return this;
 		}
 
+		public Builder withDiskWorkerCount(int diskWorkerCount) {
+			Argument.requireWithinBounds(diskWorkerCount, 1, Integer.MAX_VALUE,
+				() -> diskWorkerCount + " is not a valid amount of disk workers");
+			this.diskWorkerCount = diskWorkerCount;
+			return this;
+		}
+
+		public Builder withPeerIoThreadCount(int peerIoThreadCount) {
+			Argument.requireWithinBounds(peerIoThreadCount, 1, Integer.MAX_VALUE,
+				() -> peerIoThreadCount + " is not a valid amount of peer IO threads");
+			this.peerIoThreadCount = peerIoThreadCount;
+			return this;
+		}
+
+		public Builder withMaxConcurrentAnnounces(int maxConcurrentAnnounces) {
+			Argument.requireWithinBounds(maxConcurrentAnnounces, 1, Integer.MAX_VALUE,
+				() -> maxConcurrentAnnounces + " is not a valid amount of concurrent announces");
+			this.maxConcurrentAnnounces = maxConcurrentAnnounces;
+			return this;
+		}
+
 		public TorrentClientSettings build() {
 			return new TorrentClientSettingsImpl(this);
 		}
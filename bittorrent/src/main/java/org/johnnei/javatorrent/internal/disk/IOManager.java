@@ -21,6 +21,8 @@ public class IOManager implements Runnable {
 
 	private PriorityQueue<DiskJobWrapper> taskQueue;
 
+	private volatile boolean stopping;
+
 	public IOManager() {
 		taskQueue = new PriorityQueue<>();
 		lock = new ReentrantLock();
@@ -40,10 +42,21 @@ public class IOManager implements Runnable {
 
 	}
 
+	/**
+	 * Makes the worker return instead of waiting for new tasks once all pending tasks have been processed.
+	 */
+	public void stop() {
+		stopping = true;
+		Sync.signalAll(lock, newTaskEvent);
+	}
+
 	private boolean awaitTask() {
 		while (taskQueue.isEmpty()) {
 			try {
 				lock.lock();
+				if (stopping) {
+					return false;
+				}
 				newTaskEvent.await();
 			} catch (InterruptedException e) {
 				LOGGER.info("IO Manager was interrupted. Stopping thread.", e);
@@ -57,7 +70,7 @@ public class IOManager implements Runnable {
 	}
 
 	private void processTasks() {
-		while (!taskQueue.isEmpty()) {
+		while (!taskQueue.isEmpty() && !Thread.currentThread().isInterrupted()) {
 			DiskJobWrapper task;
 			synchronized (this) {
 				task = taskQueue.remove();
@@ -0,0 +1,124 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.async.LoopingRunnable;
+import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * Distributes {@link IDiskJob}s over a fixed set of {@link IOManager} workers which each run on their own thread.
+ * Jobs with an equal {@link IDiskJob#getAffinity()} are always assigned to the same worker so that their priority ordering is preserved.
+ * Jobs without affinity are distributed round-robin.
+ */
+public class IOManagerPool {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IOManagerPool.class);
+
+	/**
+	 * The maximum duration to wait for the workers to process their pending jobs when stopping.
+	 */
+	private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+	private final List<IOManager> workers;
+
+	private final List<LoopingRunnable> workerRunners;
+
+	private final List<Thread> workerThreads;
+
+	private final AtomicInteger nextWorker;
+
+	/**
+	 * Creates a new pool of disk workers. The workers will not be processing jobs until {@link #start()} has been called.
+	 * @param workerCount The amount of workers (and thus threads) to create.
+	 */
+	public IOManagerPool(int workerCount) {
+		Argument.requireWithinBounds(workerCount, 1, Integer.MAX_VALUE, () -> "At least one disk worker is required.");
+		workers = new ArrayList<>(workerCount);
+		workerRunners = new ArrayList<>(workerCount);
+		workerThreads = new ArrayList<>(workerCount);
+		nextWorker = new AtomicInteger();
+
+		for (int i = 0; i < workerCount; i++) {
+			IOManager worker = new IOManager();
+			workers.add(worker);
+			workerRunners.add(new LoopingRunnable(worker, true));
+		}
+	}
+
+	/**
+	 * Starts a daemon thread for each of the workers.
+	 */
+	public void start() {
+		for (int i = 0; i < workerRunners.size(); i++) {
+			Thread thread = new Thread(workerRunners.get(i), String.format("Disk Manager #%d", i));
+			thread.setDaemon(true);
+			thread.start();
+			workerThreads.add(thread);
+		}
+		LOGGER.debug("Started {} disk workers.", workerThreads.size());
+	}
+
+	/**
+	 * Stops all workers once they have processed their pending jobs. Workers which don't complete within {@link #DRAIN_TIMEOUT} are interrupted and
+	 * their remaining jobs will not be processed.
+	 */
+	public void stop() {
+		workerRunners.forEach(LoopingRunnable::stop);
+		workers.forEach(IOManager::stop);
+
+		long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+		try {
+			for (Thread thread : workerThreads) {
+				thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+			}
+		} catch (InterruptedException e) {
+			LOGGER.info("Interrupted while waiting for the disk workers to complete.", e);
+			Thread.currentThread().interrupt();
+		}
+
+		for (Thread thread : workerThreads) {
+			if (thread.isAlive()) {
+				LOGGER.warn("Disk worker {} did not complete its pending jobs in time.", thread.getName());
+				thread.interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Adds a task to the queue of the worker which is responsible for the affinity of the task.
+	 *
+	 * @param task The task to add
+	 */
+	public void addTask(IDiskJob task) {
+		workers.get(getWorkerIndex(task)).addTask(task);
+	}
+
+	int getWorkerIndex(IDiskJob task) {
+		if (workers.size() == 1) {
+			return 0;
+		}
+
+		Object affinity = task.getAffinity();
+		if (affinity == null) {
+			return Math.floorMod(nextWorker.getAndIncrement(), workers.size());
+		}
+
+		return Math.floorMod(affinity.hashCode(), workers.size());
+	}
+
+	/**
+	 * @return The amount of workers in this pool.
+	 */
+	public int getWorkerCount() {
+		return workers.size();
+	}
+
+}
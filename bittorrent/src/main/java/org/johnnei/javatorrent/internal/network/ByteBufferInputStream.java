@@ -0,0 +1,75 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link InputStream} which reads the remaining bytes of a {@link ByteBuffer} without copying them.
+ * The mark is initially set to the position of the buffer at construction.
+ */
+public class ByteBufferInputStream extends InputStream {
+
+	private final ByteBuffer buffer;
+
+	private int markPosition;
+
+	/**
+	 * Creates a new stream on the buffer. The position of the buffer will be advanced while reading.
+	 * @param buffer The buffer to read from.
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.markPosition = buffer.position();
+	}
+
+	@Override
+	public int read() {
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0) {
+			return 0;
+		}
+
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+
+		int readBytes = Math.min(len, buffer.remaining());
+		buffer.get(b, off, readBytes);
+		return readBytes;
+	}
+
+	@Override
+	public long skip(long n) {
+		int skippedBytes = (int) Math.max(0, Math.min(n, buffer.remaining()));
+		buffer.position(buffer.position() + skippedBytes);
+		return skippedBytes;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public void mark(int readlimit) {
+		markPosition = buffer.position();
+	}
+
+	@Override
+	public void reset() {
+		buffer.position(markPosition);
+	}
+}
@@ -0,0 +1,93 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link OutputStream} which writes into a {@link ByteBuffer}.
+ * When the stream owns the buffer it will grow as needed, a given buffer is written up to its limit.
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+	private final boolean growable;
+
+	private final int startPosition;
+
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates a new stream on a growable heap buffer.
+	 * @param initialCapacity The initial capacity of the buffer.
+	 */
+	public ByteBufferOutputStream(int initialCapacity) {
+		this.buffer = ByteBuffer.allocate(initialCapacity);
+		this.growable = true;
+		this.startPosition = 0;
+	}
+
+	/**
+	 * Creates a new stream which writes into the given buffer starting at its position.
+	 * @param buffer The buffer to write in.
+	 */
+	public ByteBufferOutputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.growable = false;
+		this.startPosition = buffer.position();
+	}
+
+	@Override
+	public void write(int b) {
+		ensureRemaining(1);
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		ensureRemaining(len);
+		buffer.put(b, off, len);
+	}
+
+	/**
+	 * Writes the remaining bytes of the given buffer.
+	 * @param src The buffer to copy from. Its position will be advanced to the limit.
+	 */
+	public void write(ByteBuffer src) {
+		ensureRemaining(src.remaining());
+		buffer.put(src);
+	}
+
+	private void ensureRemaining(int length) {
+		if (buffer.remaining() >= length) {
+			return;
+		}
+
+		if (!growable) {
+			throw new BufferOverflowException();
+		}
+
+		ByteBuffer grownBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+		buffer.flip();
+		grownBuffer.put(buffer);
+		buffer = grownBuffer;
+	}
+
+	/**
+	 * @return The amount of bytes written to this stream.
+	 */
+	public int size() {
+		return buffer.position() - startPosition;
+	}
+
+	/**
+	 * @return A copy of the bytes written to this stream.
+	 */
+	public byte[] toByteArray() {
+		ByteBuffer written = buffer.duplicate();
+		written.limit(written.position());
+		written.position(startPosition);
+		byte[] bytes = new byte[written.remaining()];
+		written.get(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,120 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * A thread-safe pool of direct {@link ByteBuffer}s which are grouped in power of two size classes.
+ * Requests which exceed the largest size class are served by a non-pooled heap buffer.
+ */
+public class ByteBufferPool {
+
+	/**
+	 * The smallest size class is 64 bytes.
+	 */
+	private static final int MIN_SIZE_SHIFT = 6;
+
+	/**
+	 * The largest size class is 32 KiB which fits a {@link org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock} of 16 KiB.
+	 */
+	private static final int MAX_SIZE_SHIFT = 15;
+
+	private static final int SHARED_BUFFERS_PER_CLASS = 256;
+
+	private static final ByteBufferPool SHARED = new ByteBufferPool(SHARED_BUFFERS_PER_CLASS);
+
+	private final int maxBuffersPerClass;
+
+	private final Queue<ByteBuffer>[] buffers;
+
+	private final AtomicInteger[] bufferCounts;
+
+	/**
+	 * Creates a new pool.
+	 * @param maxBuffersPerClass The maximum amount of idle buffers which are retained per size class.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public ByteBufferPool(int maxBuffersPerClass) {
+		Argument.requireWithinBounds(maxBuffersPerClass, 0, Integer.MAX_VALUE, () -> "Amount of buffers can not be negative.");
+		this.maxBuffersPerClass = maxBuffersPerClass;
+		int sizeClasses = MAX_SIZE_SHIFT - MIN_SIZE_SHIFT + 1;
+		buffers = new Queue[sizeClasses];
+		bufferCounts = new AtomicInteger[sizeClasses];
+		for (int i = 0; i < sizeClasses; i++) {
+			buffers[i] = new ConcurrentLinkedQueue<>();
+			bufferCounts[i] = new AtomicInteger();
+		}
+	}
+
+	/**
+	 * @return The pool which is shared by all sockets.
+	 */
+	public static ByteBufferPool getShared() {
+		return SHARED;
+	}
+
+	/**
+	 * Takes a buffer from the pool or allocates a new one when no buffer is available.
+	 * @param size The amount of bytes which are needed.
+	 * @return A buffer with position <code>0</code> and limit <code>size</code>. The capacity may be larger.
+	 */
+	public ByteBuffer acquire(int size) {
+		Argument.requirePositive(size, "Buffer size can not be negative.");
+		int sizeClass = getSizeClass(size);
+		if (sizeClass >= buffers.length) {
+			return ByteBuffer.allocate(size);
+		}
+
+		ByteBuffer buffer = buffers[sizeClass].poll();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(1 << (sizeClass + MIN_SIZE_SHIFT));
+		} else {
+			bufferCounts[sizeClass].decrementAndGet();
+		}
+
+		buffer.clear();
+		buffer.limit(size);
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool. The buffer <em>must not</em> be used anymore after this call.
+	 * Buffers which haven't been created by a pool are ignored.
+	 * @param buffer The buffer to return.
+	 */
+	public void release(ByteBuffer buffer) {
+		int sizeClass = getSizeClass(buffer.capacity());
+		if (!buffer.isDirect() || sizeClass >= buffers.length || buffer.capacity() != 1 << (sizeClass + MIN_SIZE_SHIFT)) {
+			return;
+		}
+
+		if (bufferCounts[sizeClass].incrementAndGet() > maxBuffersPerClass) {
+			bufferCounts[sizeClass].decrementAndGet();
+			return;
+		}
+
+		buffers[sizeClass].offer(buffer);
+	}
+
+	int getIdleBufferCount(int size) {
+		return bufferCounts[getSizeClass(size)].get();
+	}
+
+	private static int getSizeClass(int size) {
+		if (size <= (1 << MIN_SIZE_SHIFT)) {
+			return 0;
+		}
+
+		int sizeShift = Integer.SIZE - Integer.numberOfLeadingZeros(size - 1);
+		return sizeShift - MIN_SIZE_SHIFT;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ByteBufferPool[maxBuffersPerClass=%d]", maxBuffersPerClass);
+	}
+}
@@ -1,115 +1,66 @@
 package org.johnnei.javatorrent.internal.network;
 
-import java.io.IOException;
-import java.nio.channels.ClosedChannelException;
-import java.nio.channels.SelectionKey;
-import java.nio.channels.Selector;
-import java.util.Iterator;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.slf4j.MDC;
 
-import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentProtocolViolationException;
-import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
-import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.network.socket.ISocket;
 import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.javatorrent.utils.Argument;
 
 /**
  * Class which handles the processing of IO on {@link org.johnnei.javatorrent.network.socket.ISocket}.
+ * Peers are spread over a fixed set of {@link PeerIoReactor}s based on the hash of their ID. All IO and message processing of a peer happens on the thread
+ * of its reactor.
  */
 public class PeerIoHandler {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(PeerIoHandler.class);
 
-	private final ScheduledFuture<?> task;
-
-	private final Selector selector;
-
-	public PeerIoHandler(ScheduledExecutorService scheduledExecutorService) {
-		try {
-			selector = Selector.open();
-		} catch (IOException e) {
-			throw new IllegalStateException("Failed to create async selector.", e);
+	private final List<PeerIoReactor> reactors;
+
+	/**
+	 * Creates a new handler and starts the threads of the reactors.
+	 * @param reactorCount The amount of reactors (and thus threads) to create.
+	 */
+	public PeerIoHandler(int reactorCount) {
+		Argument.requireWithinBounds(reactorCount, 1, Integer.MAX_VALUE, () -> "At least one peer IO reactor is required.");
+		reactors = new ArrayList<>(reactorCount);
+		for (int i = 0; i < reactorCount; i++) {
+			PeerIoReactor reactor = new PeerIoReactor(String.format("Peer IO #%d", i));
+			reactor.start();
+			reactors.add(reactor);
 		}
-
-		task = scheduledExecutorService.scheduleWithFixedDelay(this::pollChannels, 50, 50, TimeUnit.MILLISECONDS);
+		LOGGER.debug("Started {} peer IO reactors.", reactorCount);
 	}
 
+	/**
+	 * Registers the peer to have its socket processed by the reactor which is responsible for the peer.
+	 * @param peer The peer to register.
+	 * @param socket The underlying socket of the peer.
+	 */
 	public void registerPeer(Peer peer, ISocket socket) {
-		try {
-			if ((socket.getReadableChannel().validOps() & SelectionKey.OP_WRITE) != 0) {
-				socket.getReadableChannel().register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, peer);
-			} else {
-				socket.getReadableChannel().register(selector, SelectionKey.OP_READ, peer);
-				socket.getWritableChannel().register(selector, SelectionKey.OP_WRITE, peer);
-			}
-		} catch (ClosedChannelException e) {
-			throw new IllegalStateException("Channel mustn't be closed to be handled.", e);
-		}
-	}
-
-	public void shutdown() {
-		task.cancel(false);
-	}
-
-	public void pollChannels() {
-		try {
-			selector.selectNow();
-
-			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
-			while (keys.hasNext()) {
-				SelectionKey key = keys.next();
-				Peer peer = (Peer) key.attachment();
-
-				handlePeer(key, peer);
-
-				keys.remove();
-			}
-		} catch (Exception e) {
-			LOGGER.warn("Failed to process ready channels.", e);
-		}
+		getReactorFor(peer).registerPeer(peer, socket);
 	}
 
-	public void handlePeer(SelectionKey key, Peer peer) {
-		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", peer.getIdAsString())) {
-			BitTorrentSocket socket = peer.getBitTorrentSocket();
-
-			try {
-				if (key.isReadable()) {
-					onDataAvailable(peer, socket);
-				}
-				if (key.isWritable()) {
-					onDataRequested(peer, socket);
-				}
-			} catch (IOException e) {
-				LOGGER.info("Failed to process peer.", e);
-				socket.close();
-			}
-		}
+	PeerIoReactor getReactorFor(Peer peer) {
+		return reactors.get(Math.floorMod(peer.hashCode(), reactors.size()));
 	}
 
-	private void onDataAvailable(Peer peer, BitTorrentSocket socket) throws IOException {
-		try {
-			while (socket.canReadMessage()) {
-				IMessage message = socket.readMessage();
-				message.process(peer);
-			}
-		} catch (BitTorrentProtocolViolationException e) {
-			throw new IOException(String.format("Peer %s violated protocol", peer), e);
-		}
+	/**
+	 * Stops all reactors.
+	 */
+	public void shutdown() {
+		reactors.forEach(PeerIoReactor::stop);
 	}
 
-	private void onDataRequested(Peer peer, BitTorrentSocket socket) throws IOException {
-		if (socket.hasOutboundMessages()) {
-			socket.sendMessages();
-		} else {
-			peer.queueNextPieceForSending();
-		}
+	/**
+	 * @return The amount of reactors which are processing peers in parallel.
+	 */
+	public int getReactorCount() {
+		return reactors.size();
 	}
 
 }
@@ -0,0 +1,293 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import org.johnnei.javatorrent.async.LoopingRunnable;
+import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentProtocolViolationException;
+import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.socket.INotifyingChannel;
+import org.johnnei.javatorrent.network.socket.ISocket;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+/**
+ * Processes the IO of a subset of the peers on its own {@link Selector} and thread.
+ * The thread blocks on the selector until a channel is ready. Channels are only selected for writing while the socket has messages queued.
+ * Channels which implement {@link INotifyingChannel} can't be selected and are processed when they notify their readiness instead.
+ * Other threads interact with the reactor by adding work to lock-free queues and waking up the selector.
+ */
+public class PeerIoReactor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PeerIoReactor.class);
+
+	/**
+	 * The maximum duration to wait for the IO thread to complete its current cycle when stopping.
+	 */
+	private static final Duration STOP_TIMEOUT = Duration.ofSeconds(1);
+
+	private final String name;
+
+	private final Selector selector;
+
+	private final LoopingRunnable runnable;
+
+	private volatile Thread thread;
+
+	/**
+	 * The peers which must be registered on the selector.
+	 */
+	private final Queue<PeerRegistration> pendingRegistrations;
+
+	/**
+	 * The peers of which the write interest must be updated as messages have been queued or of which a notifying channel became ready.
+	 */
+	private final Queue<PeerRegistration> pendingInterestUpdates;
+
+	/**
+	 * Creates a new reactor. Channels will not be processed until {@link #start()} has been called.
+	 * @param name The name of the thread which will process the channels.
+	 */
+	public PeerIoReactor(String name) {
+		this.name = name;
+		try {
+			selector = Selector.open();
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to create async selector.", e);
+		}
+
+		pendingRegistrations = new ConcurrentLinkedQueue<>();
+		pendingInterestUpdates = new ConcurrentLinkedQueue<>();
+		runnable = new LoopingRunnable(this::pollChannels, true);
+	}
+
+	/**
+	 * Starts the daemon thread which processes the channels.
+	 */
+	public void start() {
+		thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Registers the peer to have its socket processed. The registration is completed asynchronously by the IO thread.
+	 * @param peer The peer to register.
+	 * @param socket The underlying socket of the peer.
+	 */
+	public void registerPeer(Peer peer, ISocket socket) {
+		if (socket.getReadableChannel().isBlocking()) {
+			throw new IllegalStateException("Channel must be in non-blocking mode to be handled.");
+		}
+
+		PeerRegistration registration = new PeerRegistration(peer, socket);
+		peer.getBitTorrentSocket().setOutboundMessageListener(() -> requestInterestUpdate(registration));
+		pendingRegistrations.add(registration);
+		selector.wakeup();
+	}
+
+	private void requestInterestUpdate(PeerRegistration registration) {
+		pendingInterestUpdates.add(registration);
+		selector.wakeup();
+	}
+
+	/**
+	 * Stops the IO thread and closes the selector. Waits for the peers which are being processed to complete.
+	 */
+	public void stop() {
+		runnable.stop();
+		selector.wakeup();
+		if (thread != null && thread != Thread.currentThread()) {
+			try {
+				thread.join(STOP_TIMEOUT.toMillis());
+			} catch (InterruptedException e) {
+				LOGGER.info("Interrupted while waiting for {} to stop.", name, e);
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		try {
+			selector.close();
+		} catch (IOException e) {
+			LOGGER.warn("Failed to close selector.", e);
+		}
+	}
+
+	private void pollChannels() {
+		try {
+			selector.select();
+			registerPendingPeers();
+
+			Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+
+				PeerRegistration registration = (PeerRegistration) key.attachment();
+				handlePeer(key, registration.peer);
+				registration.updateInterest();
+			}
+
+			PeerRegistration registration;
+			while ((registration = pendingInterestUpdates.poll()) != null) {
+				if (registration.isNotifying()) {
+					handleNotifyingPeer(registration);
+				} else {
+					registration.updateInterest();
+				}
+			}
+		} catch (ClosedSelectorException e) {
+			LOGGER.debug("Selector got closed while processing channels.", e);
+		} catch (Exception e) {
+			LOGGER.warn("Failed to process ready channels.", e);
+		}
+	}
+
+	private void registerPendingPeers() {
+		PeerRegistration registration;
+		while ((registration = pendingRegistrations.poll()) != null) {
+			try {
+				if (registration.isNotifying()) {
+					PeerRegistration notifyingRegistration = registration;
+					registration.setReadinessListener(() -> requestInterestUpdate(notifyingRegistration));
+					// Data might have been buffered before the listener was set.
+					handleNotifyingPeer(registration);
+				} else {
+					registration.register(selector);
+					registration.updateInterest();
+				}
+			} catch (ClosedChannelException e) {
+				LOGGER.debug("Channel got closed before it could be registered.", e);
+				registration.peer.getBitTorrentSocket().close();
+			}
+		}
+	}
+
+	private void handleNotifyingPeer(PeerRegistration registration) {
+		int readyOps = registration.getReadyOps();
+		if (readyOps != 0) {
+			handlePeer(registration.peer, readyOps);
+		}
+	}
+
+	public void handlePeer(SelectionKey key, Peer peer) {
+		handlePeer(peer, key.readyOps());
+	}
+
+	private void handlePeer(Peer peer, int readyOps) {
+		try (MDC.MDCCloseable ignored = MDC.putCloseable("context", peer.getIdAsString())) {
+			BitTorrentSocket socket = peer.getBitTorrentSocket();
+
+			try {
+				if ((readyOps & SelectionKey.OP_READ) != 0) {
+					onDataAvailable(peer, socket);
+				}
+				if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+					onDataRequested(socket);
+				}
+				if (!socket.hasOutboundMessages()) {
+					peer.queueNextPieceForSending();
+				}
+			} catch (IOException e) {
+				LOGGER.info("Failed to process peer.", e);
+				socket.close();
+			}
+		}
+	}
+
+	private void onDataAvailable(Peer peer, BitTorrentSocket socket) throws IOException {
+		try {
+			while (socket.canReadMessage()) {
+				IMessage message = socket.readMessage();
+				message.process(peer);
+			}
+		} catch (BitTorrentProtocolViolationException e) {
+			throw new IOException(String.format("Peer %s violated protocol", peer), e);
+		}
+	}
+
+	private void onDataRequested(BitTorrentSocket socket) throws IOException {
+		if (socket.hasOutboundMessages()) {
+			socket.sendMessages();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("PeerIoReactor[name=%s]", name);
+	}
+
+	/**
+	 * The selection keys of a single peer. The readable and writable channel are registered separately when the readable channel doesn't support writing.
+	 * Peers of which the channels are {@link INotifyingChannel}s don't have selection keys.
+	 */
+	private static final class PeerRegistration {
+
+		private final Peer peer;
+
+		private final ISocket socket;
+
+		private SelectionKey readKey;
+
+		private SelectionKey writeKey;
+
+		PeerRegistration(Peer peer, ISocket socket) {
+			this.peer = peer;
+			this.socket = socket;
+		}
+
+		void register(Selector selector) throws ClosedChannelException {
+			SelectableChannel readableChannel = socket.getReadableChannel();
+			readKey = readableChannel.register(selector, SelectionKey.OP_READ, this);
+			if ((readableChannel.validOps() & SelectionKey.OP_WRITE) != 0) {
+				writeKey = readKey;
+			} else {
+				writeKey = socket.getWritableChannel().register(selector, 0, this);
+			}
+		}
+
+		boolean isNotifying() {
+			return socket.getReadableChannel() instanceof INotifyingChannel;
+		}
+
+		void setReadinessListener(Runnable listener) {
+			((INotifyingChannel) socket.getReadableChannel()).setReadinessListener(listener);
+			((INotifyingChannel) socket.getWritableChannel()).setReadinessListener(listener);
+		}
+
+		int getReadyOps() {
+			int readyOps = ((INotifyingChannel) socket.getReadableChannel()).readyOps() & SelectionKey.OP_READ;
+			if (peer.getBitTorrentSocket().hasOutboundMessages()) {
+				readyOps |= ((INotifyingChannel) socket.getWritableChannel()).readyOps() & SelectionKey.OP_WRITE;
+			}
+			return readyOps;
+		}
+
+		void updateInterest() {
+			if (writeKey == null || !writeKey.isValid() || !readKey.isValid()) {
+				// Not yet registered or the socket got closed.
+				return;
+			}
+
+			int writeInterest = peer.getBitTorrentSocket().hasOutboundMessages() ? SelectionKey.OP_WRITE : 0;
+			if (writeKey == readKey) {
+				writeKey.interestOps(SelectionKey.OP_READ | writeInterest);
+			} else {
+				writeKey.interestOps(writeInterest);
+			}
+		}
+	}
+
+}
@@ -4,11 +4,14 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.WritableByteChannel;
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -21,6 +24,7 @@ import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentProtocolViolationEx
 import org.johnnei.javatorrent.internal.network.PeerIoHandler;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.network.connector.BitTorrentHandshakeHandler;
+import org.johnnei.javatorrent.network.socket.INotifyingChannel;
 import org.johnnei.javatorrent.network.socket.ISocket;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.torrent.peer.Peer;
@@ -50,6 +54,12 @@ public class BitTorrentHandshakeHandlerImpl implements BitTorrentHandshakeHandle
 	private final Selector selector;
 
 	private final PeerIoHandler peerIoHandler;
+
+	/**
+	 * The handshakes of which the channel can't be registered on the {@link #selector}.
+	 */
+	private final Collection<HandshakeState> notifyingHandshakes;
+
 	private final ScheduledFuture<?> poller;
 
 
@@ -61,6 +71,7 @@ public class BitTorrentHandshakeHandlerImpl implements BitTorrentHandshakeHandle
 		this.torrentClient = torrentClient;
 		this.clock = clock;
 		this.peerIoHandler = peerIoHandler;
+		notifyingHandshakes = new ArrayList<>();
 
 		bittorrentHandshake.put((byte) 0x13);
 		putString(bittorrentHandshake, PROTOCOL_NAME);
@@ -87,8 +98,7 @@ public class BitTorrentHandshakeHandlerImpl implements BitTorrentHandshakeHandle
 			return;
 		}
 		try {
-			HandshakeState state = new HandshakeState(clock, socket, torrentHash);
-			socket.getReadableChannel().register(selector, SelectionKey.OP_READ, state);
+			awaitHandshake(new HandshakeState(clock, socket, torrentHash));
 		} catch (ClosedChannelException e) {
 			throw new IllegalStateException("Attempted to connect to peer on closed selector.", e);
 		}
@@ -106,13 +116,22 @@ public class BitTorrentHandshakeHandlerImpl implements BitTorrentHandshakeHandle
 	public synchronized void onConnectionReceived(ISocket socket) {
 		try {
 			LOGGER.debug("Expecting handshake from: {}", socket);
-			HandshakeState state = new HandshakeState(clock, socket,null);
-			socket.getReadableChannel().register(selector, SelectionKey.OP_READ, state);
+			awaitHandshake(new HandshakeState(clock, socket, null));
 		} catch (ClosedChannelException e) {
 			throw new IllegalStateException("Attempted to connect to peer on closed selector.", e);
 		}
 	}
 
+	private void awaitHandshake(HandshakeState state) throws ClosedChannelException {
+		SelectableChannel channel = state.getSocket().getReadableChannel();
+		if (channel instanceof INotifyingChannel) {
+			// The handshakes are polled anyway, so there is no need to listen for readiness.
+			notifyingHandshakes.add(state);
+		} else {
+			channel.register(selector, SelectionKey.OP_READ, state);
+		}
+	}
+
 	public void stop() {
 		selector.wakeup();
 		try {
@@ -144,7 +163,9 @@ public class BitTorrentHandshakeHandlerImpl implements BitTorrentHandshakeHandle
 
 				HandshakeState state = (HandshakeState) key.attachment();
 				ReadableByteChannel channel = (ReadableByteChannel) key.channel();
-				handlePeer(key, state, channel);
+				if (handlePeer(state, channel)) {
+					key.cancel();
+				}
 
 				keys.remove();
 			}
@@ -152,32 +173,63 @@ public class BitTorrentHandshakeHandlerImpl implements BitTorrentHandshakeHandle
 			LOGGER.warn("Failed to select channels.", e);
 		}
 
+		Iterator<HandshakeState> states = notifyingHandshakes.iterator();
+		while (states.hasNext()) {
+			HandshakeState state = states.next();
+			INotifyingChannel channel = (INotifyingChannel) state.getSocket().getReadableChannel();
+			if ((channel.readyOps() & SelectionKey.OP_READ) != 0 && handlePeer(state, (ReadableByteChannel) channel)) {
+				states.remove();
+			}
+		}
+
 		// Handles channels which didn't respond within 5 seconds.
 		for (SelectionKey key : selector.keys()) {
 			HandshakeState state = (HandshakeState) key.attachment();
-			ReadableByteChannel channel = (ReadableByteChannel) key.channel();
+			if (isTimedOut(state)) {
+				close(state.getSocket());
+			}
+		}
 
-			if (clock.instant().minusSeconds(5).isAfter(state.getConnectionStart())) {
-				LOGGER.debug("Handshake timed out for {} missing {} bytes.", channel, state.getHandshakeBuffer().remaining());
+		states = notifyingHandshakes.iterator();
+		while (states.hasNext()) {
+			HandshakeState state = states.next();
+			if (isTimedOut(state)) {
 				close(state.getSocket());
+				states.remove();
 			}
 		}
 	}
 
-	private void handlePeer(SelectionKey key, HandshakeState state, ReadableByteChannel channel) {
+	private boolean isTimedOut(HandshakeState state) {
+		if (clock.instant().minusSeconds(5).isAfter(state.getConnectionStart())) {
+			LOGGER.debug("Handshake timed out for {} missing {} bytes.", state.getSocket(), state.getHandshakeBuffer().remaining());
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reads the handshake of the peer.
+	 * @return <code>true</code> when the handshake has been processed or failed.
+	 */
+	private boolean handlePeer(HandshakeState state, ReadableByteChannel channel) {
 		try {
 			channel.read(state.getHandshakeBuffer());
 
 			if (!state.getHandshakeBuffer().hasRemaining()) {
-				onHandshakeReceived(key, state);
+				onHandshakeReceived(state);
+				return true;
 			}
+			return false;
 		} catch (Exception e) {
 			LOGGER.debug("Failed to process peer handshake.", e);
 			close(state.getSocket());
+			return true;
 		}
 	}
 
-	private void onHandshakeReceived(SelectionKey key, HandshakeState state) throws IOException {
+	private void onHandshakeReceived(HandshakeState state) throws IOException {
 		ByteBuffer buffer = state.getHandshakeBuffer();
 		buffer.flip();
 
@@ -221,7 +273,6 @@ public class BitTorrentHandshakeHandlerImpl implements BitTorrentHandshakeHandle
 
 		torrent.addPeer(peer);
 		peerIoHandler.registerPeer(peer, state.getSocket());
-		key.cancel();
 	}
 
 }
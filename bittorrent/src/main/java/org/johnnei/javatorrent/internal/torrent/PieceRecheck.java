@@ -0,0 +1,162 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.disk.DiskJobCheckHash;
+import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * Verifies the pieces which are already on disk by submitting {@link DiskJobCheckHash} jobs in piece (and thereby file) order.
+ * Only a bounded amount of jobs is pending at any time so that the disk reads of the workers stay close to each other.
+ * Pieces are reported as they get verified which allows them to be shared while the remaining pieces are still being checked.
+ */
+public class PieceRecheck {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PieceRecheck.class);
+
+	private final Consumer<IDiskJob> diskJobConsumer;
+
+	private final Consumer<Piece> verifiedPieceConsumer;
+
+	private final int maxPendingJobs;
+
+	private final List<Piece> pieces;
+
+	private final AtomicInteger checkedPieces;
+
+	private int nextPiece;
+
+	private int pendingJobs;
+
+	/**
+	 * Creates a new recheck for the given pieces.
+	 * @param pieces The pieces to check, in the order in which they should be read.
+	 * @param maxPendingJobs The maximum amount of jobs which are submitted but not yet completed.
+	 * @param diskJobConsumer The consumer which will process the hash check jobs.
+	 * @param verifiedPieceConsumer The consumer which is notified of pieces which passed the hash check.
+	 */
+	public PieceRecheck(Collection<Piece> pieces, int maxPendingJobs, Consumer<IDiskJob> diskJobConsumer, Consumer<Piece> verifiedPieceConsumer) {
+		Argument.requireNonNull(pieces, "Pieces can not be null.");
+		Argument.requireWithinBounds(maxPendingJobs, 1, Integer.MAX_VALUE, () -> "At least one job must be allowed to be pending.");
+		this.diskJobConsumer = Argument.requireNonNull(diskJobConsumer, "Disk job consumer can not be null.");
+		this.verifiedPieceConsumer = Argument.requireNonNull(verifiedPieceConsumer, "Verified piece consumer can not be null.");
+		this.maxPendingJobs = maxPendingJobs;
+		this.pieces = new ArrayList<>(pieces);
+		this.checkedPieces = new AtomicInteger();
+	}
+
+	/**
+	 * Marks all pieces as {@link BlockStatus#Stored} to prevent them from being requested while they are pending and submits the first jobs.
+	 */
+	public void start() {
+		LOGGER.info("Checking progress of {} pieces.", pieces.size());
+		for (Piece piece : pieces) {
+			for (int blockIndex = 0; blockIndex < piece.getBlockCount(); blockIndex++) {
+				piece.setBlockStatus(blockIndex, BlockStatus.Stored);
+			}
+		}
+		submitJobs();
+	}
+
+	private void submitJobs() {
+		Collection<IDiskJob> jobs = new ArrayList<>();
+		synchronized (this) {
+			while (pendingJobs < maxPendingJobs && nextPiece < pieces.size()) {
+				jobs.add(new RecheckJob(pieces.get(nextPiece++), this::onCheckComplete));
+				pendingJobs++;
+			}
+		}
+
+		jobs.forEach(diskJobConsumer);
+	}
+
+	private void onCheckComplete(DiskJobCheckHash job) {
+		Piece piece = job.getPiece();
+		if (job.isMatchingHash()) {
+			verifiedPieceConsumer.accept(piece);
+		} else {
+			for (int blockIndex = 0; blockIndex < piece.getBlockCount(); blockIndex++) {
+				piece.setBlockStatus(blockIndex, BlockStatus.Needed);
+			}
+		}
+
+		synchronized (this) {
+			pendingJobs--;
+		}
+
+		if (checkedPieces.incrementAndGet() == pieces.size()) {
+			LOGGER.info("Checking progress done.");
+		}
+		submitJobs();
+	}
+
+	/**
+	 * @return <code>true</code> when all pieces have been checked, otherwise <code>false</code>
+	 */
+	public boolean isDone() {
+		return checkedPieces.get() == pieces.size();
+	}
+
+	/**
+	 * @return The amount of pieces which have been checked.
+	 */
+	public int getCheckedPieceCount() {
+		return checkedPieces.get();
+	}
+
+	/**
+	 * @return The amount of pieces which are being checked by this recheck.
+	 */
+	public int getPieceCount() {
+		return pieces.size();
+	}
+
+	/**
+	 * A hash check which is not bound to a worker. The pieces don't have pending writes so they can be spread over all workers.
+	 * Pieces which can't be read are treated as mismatching instead of being retried as the files might not exist (yet).
+	 */
+	private static final class RecheckJob extends DiskJobCheckHash {
+
+		private final Consumer<DiskJobCheckHash> callback;
+
+		private boolean matchingHash;
+
+		RecheckJob(Piece piece, Consumer<DiskJobCheckHash> callback) {
+			super(piece, callback);
+			this.callback = callback;
+		}
+
+		@Override
+		public void process() {
+			try {
+				matchingHash = getPiece().checkHash();
+			} catch (IOException | RuntimeException e) {
+				LOGGER.warn("Failed hash check for piece {}.", getPiece().getIndex(), e);
+				matchingHash = false;
+			}
+			callback.accept(this);
+		}
+
+		@Override
+		public boolean isMatchingHash() {
+			return matchingHash;
+		}
+
+		@Override
+		public Object getAffinity() {
+			return null;
+		}
+	}
+
+}
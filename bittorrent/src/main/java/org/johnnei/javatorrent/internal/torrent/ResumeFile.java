@@ -0,0 +1,236 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedInteger;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedList;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedMap;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedString;
+import org.johnnei.javatorrent.bittorrent.encoding.Bencoding;
+import org.johnnei.javatorrent.bittorrent.encoding.IBencodedValue;
+import org.johnnei.javatorrent.internal.torrent.peer.Bitfield;
+import org.johnnei.javatorrent.network.InStream;
+import org.johnnei.javatorrent.torrent.FileInfo;
+import org.johnnei.javatorrent.torrent.TorrentFileSet;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * Persists the progress of a {@link TorrentFileSet} so that a restart doesn't require all pieces to be hashed again.
+ * The resume data is a bencoded dictionary containing:
+ * <ul>
+ *     <li><code>info-hash</code>: The hash of the torrent to which the data belongs.</li>
+ *     <li><code>pieces</code>: The bitfield of completed pieces.</li>
+ *     <li><code>files</code>: A list with the <code>length</code> and <code>mtime</code> of each file when the data was written.</li>
+ *     <li><code>blocks</code>: A list with the <code>piece</code> index and a bitfield of <code>stored</code> blocks of each partially stored piece.</li>
+ * </ul>
+ */
+public class ResumeFile {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResumeFile.class);
+
+	private static final String KEY_INFO_HASH = "info-hash";
+
+	private static final String KEY_PIECES = "pieces";
+
+	private static final String KEY_FILES = "files";
+
+	private static final String KEY_LENGTH = "length";
+
+	private static final String KEY_MTIME = "mtime";
+
+	private static final String KEY_BLOCKS = "blocks";
+
+	private static final String KEY_PIECE = "piece";
+
+	private static final String KEY_STORED = "stored";
+
+	private final File file;
+
+	/**
+	 * Creates a new resume file handler.
+	 * @param file The location of the resume file.
+	 */
+	public ResumeFile(File file) {
+		this.file = Argument.requireNonNull(file, "Resume file can not be null.");
+	}
+
+	/**
+	 * Writes the current progress of the file set to disk. The existing resume file is only replaced once the new data has been fully written.
+	 * @param infoHash The hash of the torrent to which the file set belongs.
+	 * @param fileSet The file set to persist.
+	 * @throws IOException When the file could not be written.
+	 */
+	public void write(byte[] infoHash, TorrentFileSet fileSet) throws IOException {
+		BencodedMap resumeData = new BencodedMap();
+		resumeData.put(KEY_INFO_HASH, new BencodedString(infoHash));
+		resumeData.put(KEY_PIECES, new BencodedString(fileSet.getBitfieldBytes()));
+		resumeData.put(KEY_BLOCKS, createBlocksList(fileSet));
+
+		// The file metadata must be captured after the block states. A block which is being written while the states are captured will then either be
+		// included in the states or cause the metadata to mismatch on the next start.
+		BencodedList files = new BencodedList();
+		for (FileInfo fileInfo : fileSet.getFiles()) {
+			BencodedMap fileMap = new BencodedMap();
+			fileMap.put(KEY_LENGTH, new BencodedInteger(fileInfo.getFile().length()));
+			fileMap.put(KEY_MTIME, new BencodedInteger(fileInfo.getFile().lastModified()));
+			files.add(fileMap);
+		}
+		resumeData.put(KEY_FILES, files);
+
+		Path target = file.toPath();
+		Path temporaryFile = target.resolveSibling(target.getFileName() + ".tmp");
+		Files.write(temporaryFile, resumeData.serialize());
+		Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static BencodedList createBlocksList(TorrentFileSet fileSet) {
+		BencodedList blocks = new BencodedList();
+		for (int pieceIndex = 0; pieceIndex < fileSet.getPieceCount(); pieceIndex++) {
+			Piece piece = fileSet.getPiece(pieceIndex);
+			if (piece.isDone() || !piece.hasBlockWithStatus(BlockStatus.Stored)) {
+				continue;
+			}
+
+			Bitfield storedBlocks = new Bitfield((piece.getBlockCount() + 7) / 8);
+			for (int blockIndex = 0; blockIndex < piece.getBlockCount(); blockIndex++) {
+				if (piece.getBlockStatus(blockIndex) == BlockStatus.Stored) {
+					storedBlocks.havePiece(blockIndex);
+				}
+			}
+
+			BencodedMap pieceMap = new BencodedMap();
+			pieceMap.put(KEY_PIECE, new BencodedInteger(pieceIndex));
+			pieceMap.put(KEY_STORED, new BencodedString(storedBlocks.getBytes()));
+			blocks.add(pieceMap);
+		}
+		return blocks;
+	}
+
+	/**
+	 * Restores the progress of the file set from the resume file. Pieces which are (partially) contained in a file which has been modified since the resume
+	 * file was written are not restored.
+	 * @param infoHash The hash of the torrent to which the file set belongs.
+	 * @param fileSet The file set to restore.
+	 * @return The pieces which must be verified by hashing them or {@link Optional#empty()} when the resume file is missing or not usable.
+	 */
+	public Optional<List<Piece>> restore(byte[] infoHash, TorrentFileSet fileSet) {
+		if (!file.isFile()) {
+			return Optional.empty();
+		}
+
+		Map<String, IBencodedValue> resumeData;
+		try {
+			resumeData = new Bencoding().decode(new InStream(Files.readAllBytes(file.toPath()))).asMap();
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Failed to read resume file {}.", file, e);
+			return Optional.empty();
+		}
+
+		try {
+			return restore(resumeData, infoHash, fileSet);
+		} catch (RuntimeException e) {
+			LOGGER.warn("Resume file {} is malformed.", file, e);
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Validates the entire resume data before the file set is changed so that a malformed file doesn't leave the file set partially restored.
+	 */
+	private Optional<List<Piece>> restore(Map<String, IBencodedValue> resumeData, byte[] infoHash, TorrentFileSet fileSet) {
+		List<IBencodedValue> files = resumeData.get(KEY_FILES).asList();
+		if (!Arrays.equals(infoHash, resumeData.get(KEY_INFO_HASH).asBytes()) || files.size() != fileSet.getFiles().size()) {
+			LOGGER.info("Resume file {} does not belong to {}.", file, fileSet);
+			return Optional.empty();
+		}
+
+		boolean[] changedFiles = new boolean[files.size()];
+		for (int i = 0; i < files.size(); i++) {
+			Map<String, IBencodedValue> fileMap = files.get(i).asMap();
+			File dataFile = fileSet.getFiles().get(i).getFile();
+			changedFiles[i] = dataFile.length() != fileMap.get(KEY_LENGTH).asLong() || dataFile.lastModified() != fileMap.get(KEY_MTIME).asLong();
+		}
+
+		Bitfield pieces = new Bitfield(resumeData.get(KEY_PIECES).asBytes());
+		Bitfield[] storedBlocks = new Bitfield[fileSet.getPieceCount()];
+		for (IBencodedValue pieceValue : resumeData.get(KEY_BLOCKS).asList()) {
+			Map<String, IBencodedValue> pieceMap = pieceValue.asMap();
+			storedBlocks[(int) pieceMap.get(KEY_PIECE).asLong()] = new Bitfield(pieceMap.get(KEY_STORED).asBytes());
+		}
+
+		List<Piece> uncheckedPieces = new ArrayList<>();
+		List<Piece> completedPieces = new ArrayList<>();
+		List<Piece> partialPieces = new ArrayList<>();
+		for (int pieceIndex = 0; pieceIndex < fileSet.getPieceCount(); pieceIndex++) {
+			Piece piece = fileSet.getPiece(pieceIndex);
+			if (isInChangedFile(fileSet, piece, changedFiles)) {
+				uncheckedPieces.add(piece);
+			} else if (pieces.hasPiece(pieceIndex)) {
+				completedPieces.add(piece);
+			} else if (storedBlocks[pieceIndex] != null) {
+				partialPieces.add(piece);
+				if (isAllStored(piece, storedBlocks[pieceIndex])) {
+					// All blocks were stored, but the piece wasn't verified yet.
+					uncheckedPieces.add(piece);
+				}
+			}
+		}
+
+		completedPieces.forEach(piece -> fileSet.setHavingPiece(piece.getIndex()));
+		partialPieces.forEach(piece -> restoreStoredBlocks(piece, storedBlocks[piece.getIndex()]));
+
+		LOGGER.info("Restored progress from {}, {} pieces need to be checked.", file, uncheckedPieces.size());
+		return Optional.of(uncheckedPieces);
+	}
+
+	private static boolean isInChangedFile(TorrentFileSet fileSet, Piece piece, boolean[] changedFiles) {
+		long pieceStart = piece.getIndex() * fileSet.getPieceSize();
+		long pieceEnd = pieceStart + piece.getSize();
+
+		for (int i = 0; i < changedFiles.length; i++) {
+			FileInfo fileInfo = fileSet.getFiles().get(i);
+			boolean overlaps = fileInfo.getFirstByteOffset() < pieceEnd && fileInfo.getFirstByteOffset() + fileInfo.getSize() > pieceStart;
+			if (changedFiles[i] && overlaps) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isAllStored(Piece piece, Bitfield storedBlocks) {
+		for (int blockIndex = 0; blockIndex < piece.getBlockCount(); blockIndex++) {
+			if (!storedBlocks.hasPiece(blockIndex)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void restoreStoredBlocks(Piece piece, Bitfield storedBlocks) {
+		for (int blockIndex = 0; blockIndex < piece.getBlockCount(); blockIndex++) {
+			if (storedBlocks.hasPiece(blockIndex)) {
+				piece.setBlockStatus(blockIndex, BlockStatus.Stored);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ResumeFile[file=%s]", file);
+	}
+}
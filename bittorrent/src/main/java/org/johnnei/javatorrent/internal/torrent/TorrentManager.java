@@ -53,6 +53,24 @@ public class TorrentManager {
 		}
 	}
 
+	/**
+	 * Saves the progress of all torrents. This should only be invoked once no more blocks are being received or written.
+	 *
+	 * @see Torrent#saveResumeData()
+	 */
+	public void saveResumeData() {
+		getTorrents().forEach(Torrent::saveResumeData);
+	}
+
+	/**
+	 * Closes the files of all torrents. This should only be invoked once no more blocks are being read or written.
+	 *
+	 * @see Torrent#closeFiles()
+	 */
+	public void closeFiles() {
+		getTorrents().forEach(Torrent::closeFiles);
+	}
+
 	/**
 	 * Registers a new torrent
 	 * @param torrent The torrent to register
@@ -47,7 +47,7 @@ class TorrentProcessor implements PeerStateAccess {
 		this.trackerManager = trackerManager;
 		this.torrentClient = torrentClient;
 		this.torrent = torrent;
-		scheduledTasks = new ArrayList<>(3);
+		scheduledTasks = new ArrayList<>(5);
 
 		downloadPhase = torrentClient.getPhaseRegulator().createInitialPhase(torrentClient, torrent);
 		doPhaseEnter();
@@ -55,11 +55,9 @@ class TorrentProcessor implements PeerStateAccess {
 		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::updateTorrentState, 0, 250, TimeUnit.MILLISECONDS));
 		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::updateChokingStates, 1, 10, TimeUnit.SECONDS));
 		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::removeDisconnectedPeers, 30, 60, TimeUnit.SECONDS));
-		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(this::updateTrackerStates, 10, 30, TimeUnit.SECONDS));
-	}
+		scheduledTasks.add(torrentClient.getExecutorService().scheduleAtFixedRate(torrent::saveResumeData, 60, 60, TimeUnit.SECONDS));
 
-	public void updateTrackerStates() {
-		trackerManager.announce(torrent);
+		trackerManager.startAnnouncing(torrent);
 	}
 
 	public void removeDisconnectedPeers() {
@@ -102,6 +100,11 @@ class TorrentProcessor implements PeerStateAccess {
 			task.cancel(false);
 		}
 
+		trackerManager.stopAnnouncing(torrent);
+
+		torrent.saveResumeData();
+		torrent.closeFiles();
+
 		torrentManager.removeTorrent(torrent);
 	}
 
@@ -20,6 +20,16 @@ public class Bitfield {
 		resizeLock = new ReentrantReadWriteLock();
 	}
 
+	/**
+	 * Creates a bitfield which is initialised with a copy of the given bytes.
+	 *
+	 * @param bytes The bitfield bytes as defined in BEP #3.
+	 */
+	public Bitfield(byte[] bytes) {
+		bitfieldBytes = bytes.clone();
+		resizeLock = new ReentrantReadWriteLock();
+	}
+
 	/**
 	 * Increases or decreased the bitfieldBytes size but it will preserve the old data
 	 *
@@ -80,10 +90,11 @@ public class Bitfield {
 	 *
 	 * @param pieceIndex The piece to add
 	 * @param mayExpand If the bitfieldBytes may grow to fit the new have data
+	 * @return <code>true</code> when the bit was not yet set.
 	 */
-	public void havePiece(int pieceIndex, boolean mayExpand) {
+	public boolean havePiece(int pieceIndex, boolean mayExpand) {
 		int byteIndex = pieceIndex / 8;
-		int bit = pieceIndex % 8;
+		int bitVal = 0x80 >> (pieceIndex % 8);
 		resizeLock.readLock().lock();
 		if (byteIndex >= bitfieldBytes.length) {
 			if (mayExpand) {
@@ -91,11 +102,14 @@ public class Bitfield {
 				setSize(byteIndex + 1);
 				resizeLock.readLock().lock();
 			} else {
-				return; // Prevent IndexOutOfRange
+				resizeLock.readLock().unlock();
+				return false; // Prevent IndexOutOfRange
 			}
 		}
-		bitfieldBytes[byteIndex] |= (0x80 >> bit);
+		boolean isNew = (bitfieldBytes[byteIndex] & bitVal) == 0;
+		bitfieldBytes[byteIndex] |= bitVal;
 		resizeLock.readLock().unlock();
+		return isNew;
 	}
 
 	/**
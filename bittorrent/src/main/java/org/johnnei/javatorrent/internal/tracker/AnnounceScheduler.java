@@ -0,0 +1,264 @@
+package org.johnnei.javatorrent.internal.tracker;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
+import org.johnnei.javatorrent.bittorrent.tracker.TorrentInfo;
+import org.johnnei.javatorrent.bittorrent.tracker.TrackerEvent;
+import org.johnnei.javatorrent.torrent.Torrent;
+import org.johnnei.javatorrent.utils.Argument;
+
+/**
+ * Schedules the announces of all torrents on their trackers. Each combination of torrent and tracker is announced once the interval which the tracker
+ * requested for that torrent has passed. A random jitter is added to the interval to prevent the announces of torrents which got started together from
+ * staying aligned. The amount of announces which are in progress at the same time is limited, due announces wait until another announce completes.
+ * When an event is set on the {@link TorrentInfo} the announce is moved forward to the moment the minimum announce interval of the tracker allows it.
+ */
+public class AnnounceScheduler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AnnounceScheduler.class);
+
+	/**
+	 * The maximum fraction of the announce interval which is added as jitter.
+	 */
+	private static final double MAX_JITTER = 0.1;
+
+	/**
+	 * The duration after which an announce which hasn't completed yet no longer counts towards the concurrency limit.
+	 */
+	private static final Duration ANNOUNCE_TIMEOUT = Duration.ofMinutes(2);
+
+	private final Clock clock;
+
+	private final Random random;
+
+	private final int maxConcurrentAnnounces;
+
+	/**
+	 * The scheduled announces ordered by the time at which they are due.
+	 */
+	private final PriorityQueue<ScheduledAnnounce> announceQueue;
+
+	private final Map<Torrent, Collection<ScheduledAnnounce>> torrentAnnounces;
+
+	private int activeAnnounces;
+
+	/**
+	 * Creates a new scheduler without any torrents.
+	 * @param maxConcurrentAnnounces The maximum amount of announces which are in progress at the same time.
+	 * @param clock The clock to obtain the time.
+	 * @param random The source of the jitter.
+	 */
+	public AnnounceScheduler(int maxConcurrentAnnounces, Clock clock, Random random) {
+		this.maxConcurrentAnnounces = maxConcurrentAnnounces;
+		this.clock = Argument.requireNonNull(clock, "Clock must be provided.");
+		this.random = Argument.requireNonNull(random, "Random must be provided.");
+		announceQueue = new PriorityQueue<>(Comparator.comparingLong(announce -> announce.dueTime));
+		torrentAnnounces = new HashMap<>();
+	}
+
+	/**
+	 * Starts the announcing of the torrent on the given trackers. The first announces are due immediately.
+	 * @param torrent The torrent to announce.
+	 * @param trackers The trackers which know the torrent.
+	 */
+	public synchronized void addTorrent(Torrent torrent, Collection<ITracker> trackers) {
+		torrentAnnounces.putIfAbsent(torrent, new ArrayList<>());
+		trackers.forEach(tracker -> addTracker(torrent, tracker));
+	}
+
+	/**
+	 * Starts the announcing of the torrent on an additional tracker. This call has no effect when the torrent isn't being announced or the tracker is
+	 * already known for the torrent.
+	 * @param torrent The torrent to announce.
+	 * @param tracker The tracker which knows the torrent.
+	 */
+	public synchronized void addTracker(Torrent torrent, ITracker tracker) {
+		Collection<ScheduledAnnounce> announces = torrentAnnounces.get(torrent);
+		if (announces == null || announces.stream().anyMatch(announce -> announce.tracker.equals(tracker))) {
+			return;
+		}
+
+		ScheduledAnnounce announce = new ScheduledAnnounce(torrent, tracker, clock.millis());
+		announces.add(announce);
+		announceQueue.add(announce);
+		tracker.getInfo(torrent).ifPresent(info -> info.setEventListener(event -> onEventChanged(announce, event)));
+	}
+
+	/**
+	 * Stops the announcing of the torrent. Trackers on which the torrent has been announced receive a final announce with the
+	 * {@link TrackerEvent#EVENT_STOPPED stopped} event. Announces which are in progress will complete but won't be rescheduled otherwise.
+	 * @param torrent The torrent to stop announcing.
+	 */
+	public synchronized void removeTorrent(Torrent torrent) {
+		Collection<ScheduledAnnounce> announces = torrentAnnounces.remove(torrent);
+		if (announces == null) {
+			return;
+		}
+
+		for (ScheduledAnnounce announce : announces) {
+			Optional<TorrentInfo> info = announce.tracker.getInfo(torrent);
+			if (announce.announced && info.isPresent()) {
+				announce.stopping = true;
+				info.get().setEvent(TrackerEvent.EVENT_STOPPED);
+			} else {
+				announce.cancelled = true;
+				announceQueue.remove(announce);
+			}
+		}
+	}
+
+	private synchronized void onEventChanged(ScheduledAnnounce announce, TrackerEvent event) {
+		if (event == TrackerEvent.EVENT_NONE || announce.cancelled) {
+			return;
+		}
+
+		if (announce.inProgress) {
+			// The announce might have been sent before the event got set, reschedule once it completes.
+			announce.eventPending = true;
+			return;
+		}
+
+		announceQueue.remove(announce);
+		announce.dueTime = getEventDueTime(announce);
+		announceQueue.add(announce);
+	}
+
+	/**
+	 * Calculates the earliest time at which the tracker allows an announce which reports an event.
+	 */
+	private long getEventDueTime(ScheduledAnnounce announce) {
+		long now = clock.millis();
+		return announce.tracker.getInfo(announce.torrent)
+			.map(info -> now + Math.max(0, info.getMinAnnounceInterval().minus(info.getTimeSinceLastAnnounce()).toMillis()))
+			.orElse(now);
+	}
+
+	/**
+	 * Starts the announces which are due as long as the concurrency limit allows it.
+	 */
+	public void announceDueTorrents() {
+		List<ScheduledAnnounce> dueAnnounces = new ArrayList<>();
+		synchronized (this) {
+			long now = clock.millis();
+			ScheduledAnnounce announce;
+			while (activeAnnounces < maxConcurrentAnnounces && (announce = announceQueue.peek()) != null && announce.dueTime <= now) {
+				announceQueue.poll();
+				activeAnnounces++;
+				announce.inProgress = true;
+				announce.announced = true;
+				dueAnnounces.add(announce);
+			}
+		}
+
+		// Trackers are invoked outside of the lock as completed announces reschedule themselves.
+		dueAnnounces.forEach(this::announce);
+	}
+
+	private void announce(ScheduledAnnounce announce) {
+		CompletableFuture<Void> result;
+		try {
+			result = announce.tracker.announce(announce.torrent).copy();
+		} catch (RuntimeException e) {
+			LOGGER.warn("Failed to announce {} on {}.", announce.torrent, announce.tracker.getName(), e);
+			result = CompletableFuture.completedFuture(null);
+		}
+
+		result
+			.orTimeout(ANNOUNCE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+			.whenComplete((ignored, error) -> onAnnounceCompleted(announce));
+	}
+
+	private synchronized void onAnnounceCompleted(ScheduledAnnounce announce) {
+		activeAnnounces--;
+		announce.inProgress = false;
+
+		if (announce.cancelled) {
+			return;
+		}
+
+		if (announce.eventPending) {
+			announce.eventPending = false;
+			announce.dueTime = getEventDueTime(announce);
+			announceQueue.add(announce);
+			return;
+		}
+
+		if (announce.stopping) {
+			announce.cancelled = true;
+			return;
+		}
+
+		Duration interval = announce.tracker.getInfo(announce.torrent)
+			.map(info -> max(info.getAnnounceInterval(), info.getMinAnnounceInterval()))
+			.orElse(TorrentInfo.DEFAULT_ANNOUNCE_INTERVAL);
+		long jitter = (long) (random.nextDouble() * MAX_JITTER * interval.toMillis());
+
+		announce.dueTime = clock.millis() + interval.toMillis() + jitter;
+		announceQueue.add(announce);
+	}
+
+	private static Duration max(Duration a, Duration b) {
+		return a.compareTo(b) >= 0 ? a : b;
+	}
+
+	/**
+	 * @return The amount of announces which are in progress.
+	 */
+	synchronized int getActiveAnnounces() {
+		return activeAnnounces;
+	}
+
+	private static final class ScheduledAnnounce {
+
+		private final Torrent torrent;
+
+		private final ITracker tracker;
+
+		private long dueTime;
+
+		private boolean cancelled;
+
+		/**
+		 * If the announce is currently being processed by the tracker.
+		 */
+		private boolean inProgress;
+
+		/**
+		 * If the announce has been started at least once.
+		 */
+		private boolean announced;
+
+		/**
+		 * If an event got set while the announce was in progress.
+		 */
+		private boolean eventPending;
+
+		/**
+		 * If the torrent has been removed and only the announce of the stopped event remains.
+		 */
+		private boolean stopping;
+
+		ScheduledAnnounce(Torrent torrent, ITracker tracker, long dueTime) {
+			this.torrent = torrent;
+			this.tracker = tracker;
+			this.dueTime = dueTime;
+		}
+
+	}
+}
@@ -18,24 +18,34 @@ public class TrackerManager {
 
 	private final TrackerFactory trackerFactory;
 
+	private final AnnounceScheduler announceScheduler;
+
 	private IPeerConnector peerConnector;
 
-	public TrackerManager(IPeerConnector peerConnector, TrackerFactory trackerFactory) {
+	public TrackerManager(IPeerConnector peerConnector, TrackerFactory trackerFactory, AnnounceScheduler announceScheduler) {
 		this.trackerFactory = trackerFactory;
 		this.peerConnector = peerConnector;
-
+		this.announceScheduler = announceScheduler;
 	}
 
 	/**
-	 * Invokes the {@link ITracker#announce(Torrent)} method for all trackers having the given torrent.
+	 * Starts the periodic announcing of the torrent on all trackers having the torrent.
 	 * @param torrent The torrent to announce.
 	 */
-	public void announce(Torrent torrent) {
-		getTrackersFor(torrent).forEach(tracker -> tracker.announce(torrent));
+	public void startAnnouncing(Torrent torrent) {
+		announceScheduler.addTorrent(torrent, getTrackersFor(torrent));
+	}
+
+	/**
+	 * Stops the periodic announcing of the torrent.
+	 * @param torrent The torrent to stop announcing.
+	 */
+	public void stopAnnouncing(Torrent torrent) {
+		announceScheduler.removeTorrent(torrent);
 	}
 
 	/**
-	 * Adds the torrent to the tracker and registers the tracker.
+	 * Adds the torrent to the tracker and registers the tracker. When the torrent is already being announced the tracker will be announced to as well.
 	 * If the tracker cannot be resolved this call will have no side-effects.
 	 * @param torrent The torrent to add
 	 * @param trackerUrl The tracker url
@@ -47,6 +57,7 @@ public class TrackerManager {
 		}
 
 		tracker.get().addTorrent(torrent);
+		announceScheduler.addTracker(torrent, tracker.get());
 	}
 
 	/**
@@ -1,17 +1,23 @@
 package org.johnnei.javatorrent.internal.tracker.http;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
 import java.time.Clock;
 import java.time.Duration;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.encoding.BencodedList;
 import org.johnnei.javatorrent.bittorrent.encoding.BencodedMap;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedString;
 import org.johnnei.javatorrent.bittorrent.encoding.Bencoding;
 import org.johnnei.javatorrent.bittorrent.encoding.IBencodedValue;
 import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
@@ -22,15 +28,19 @@ import org.johnnei.javatorrent.network.PeerConnectInfo;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.utils.Argument;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Implementation of {@link ITracker} by using the HTTP variant of the Tracker protocol as defined in BEP #3.
+ * Peers are requested in the compact format as defined in BEP #23 (and BEP #7 for IPv6 peers).
  */
 public class HttpTracker implements ITracker {
 
@@ -42,6 +52,16 @@ public class HttpTracker implements ITracker {
 
 	private static final String STATE_IDLE = "Idle";
 
+	/**
+	 * The size of a compact IPv4 peer entry: 4 bytes address and 2 bytes port.
+	 */
+	private static final int COMPACT_IPV4_PEER_SIZE = 6;
+
+	/**
+	 * The size of a compact IPv6 peer entry: 16 bytes address and 2 bytes port.
+	 */
+	private static final int COMPACT_IPV6_PEER_SIZE = 18;
+
 	private final Clock clock = Clock.systemDefaultZone();
 
 	private final TorrentClient torrentClient;
@@ -54,30 +74,28 @@ public class HttpTracker implements ITracker {
 
 	private Map<Torrent, TorrentInfo> torrentMap;
 
-	private long announceInterval = 30_000;
-
-	private String status;
+	private volatile String status;
 
 	public HttpTracker(Builder builder) {
 		torrentClient = Argument.requireNonNull(builder.torrentClient, "Torrent Client must be provided");
 		trackerUrl = new TrackerUrl(Argument.requireNonNull(builder.trackerUrl, "Tracker Url must be provided"));
-		httpClient = new OkHttpClient();
+		httpClient = builder.httpClient != null ? builder.httpClient : new OkHttpClient();
 		torrentMap = new HashMap<>();
 		bencoding = new Bencoding();
 		status = STATE_IDLE;
 	}
 
 	@Override
-	public void announce(Torrent torrent) {
+	public CompletableFuture<Void> announce(Torrent torrent) {
 		TorrentInfo torrentInfo;
 
 		synchronized (this) {
 			torrentInfo = torrentMap.get(torrent);
 		}
 
-		if(torrentInfo.getTimeSinceLastAnnounce().compareTo(Duration.of(announceInterval, ChronoUnit.MILLIS)) < 0) {
+		if (!torrentInfo.isAnnounceAllowed()) {
 			// We're not allowed to announce yet
-			return;
+			return CompletableFuture.completedFuture(null);
 		}
 
 		HttpUrl.Builder urlBuilder = new HttpUrl.Builder()
@@ -91,8 +109,7 @@ public class HttpTracker implements ITracker {
 				// TODO Add support for IP field
 				.addQueryParameter("uploaded", Long.toString(torrent.getUploadedBytes()))
 				.addQueryParameter("downloaded", Long.toString(torrent.getDownloadedBytes()))
-				// TODO Add support for BEP-23, for now enforce non-compact results.
-				.addQueryParameter("compact", "0");
+				.addQueryParameter("compact", "1");
 
 
 		if (torrent.getFileSet() != null) {
@@ -102,56 +119,118 @@ public class HttpTracker implements ITracker {
 			urlBuilder.addQueryParameter("left", "0");
 		}
 
-		TorrentInfo info = torrentMap.get(torrent);
-		TrackerEvent event = info.getEvent();
+		TrackerEvent event = torrentInfo.getEvent();
 		if (event != TrackerEvent.EVENT_NONE) {
-			info.setEvent(TrackerEvent.EVENT_NONE);
+			torrentInfo.setEvent(TrackerEvent.EVENT_NONE);
 
 			urlBuilder.addQueryParameter("event", event.getTextual());
 		}
 
 		Request request = new Request.Builder().url(urlBuilder.build()).build();
 
-		torrentClient.getExecutorService().submit(() -> doAnnounce(torrent, request));
-	}
-
-	private void doAnnounce(Torrent torrent, Request request) {
-		try {
-			status = STATE_ANNOUNCING;
-			LOGGER.debug("Sending query: {}", request);
-			Response response = httpClient.newCall(request).execute();
-
-			InStream inStream = new InStream(response.body().bytes());
-			BencodedMap result = (BencodedMap) bencoding.decode(inStream);
-			LOGGER.debug("Query response: {}", result.asMap());
+		status = STATE_ANNOUNCING;
+		LOGGER.debug("Sending query: {}", request);
 
-			Optional<IBencodedValue> failure = result.get("failure reason");
-			if (failure.isPresent()) {
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		httpClient.newCall(request).enqueue(new Callback() {
+			@Override
+			public void onFailure(Call call, IOException e) {
 				status = STATE_ANNOUNCE_ERROR;
-				LOGGER.error("Tracker returned \"{}\" for announce: {}", failure.get(), request);
-				return;
+				LOGGER.warn("Announce failed with error", e);
+				result.complete(null);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) {
+				try (ResponseBody body = response.body()) {
+					if (!response.isSuccessful()) {
+						status = STATE_ANNOUNCE_ERROR;
+						LOGGER.warn("Tracker responded with HTTP status {} for announce: {}", response.code(), request);
+						return;
+					}
+
+					onAnnounceResponse(torrentInfo, request, body.bytes());
+				} catch (IOException | RuntimeException e) {
+					// Responses which aren't valid bencoding or not a dictionary fail with an unchecked exception.
+					status = STATE_ANNOUNCE_ERROR;
+					LOGGER.warn("Announce failed with error", e);
+				} finally {
+					result.complete(null);
+				}
 			}
+		});
+		return result;
+	}
 
-			result.get("interval").ifPresent(interval -> announceInterval = interval.asLong());
-			result.get("peers").ifPresent(peers -> processPeers(torrent, peers));
-			// TODO Figure out how to find this information on HTTP trackers.
-			torrentMap.get(torrent).setInfo(0, 0);
+	private void onAnnounceResponse(TorrentInfo torrentInfo, Request request, byte[] responseBytes) throws IOException {
+		BencodedMap result = (BencodedMap) bencoding.decode(new InStream(responseBytes));
+		LOGGER.debug("Query response: {}", result.asMap());
 
-			status = STATE_IDLE;
-		} catch (IOException e) {
+		Optional<IBencodedValue> failure = result.get("failure reason");
+		if (failure.isPresent()) {
 			status = STATE_ANNOUNCE_ERROR;
-			LOGGER.warn("Announce failed with error", e);
+			LOGGER.error("Tracker returned \"{}\" for announce: {}", failure.get(), request);
+			return;
 		}
+
+		// Both intervals are defined in seconds.
+		result.get("interval").ifPresent(interval -> torrentInfo.setAnnounceInterval(Duration.ofSeconds(interval.asLong())));
+		result.get("min interval").ifPresent(interval -> torrentInfo.setMinAnnounceInterval(Duration.ofSeconds(interval.asLong())));
+		result.get("peers").ifPresent(peers -> processPeers(torrentInfo.getTorrent(), peers, COMPACT_IPV4_PEER_SIZE));
+		result.get("peers6").ifPresent(peers -> processPeers(torrentInfo.getTorrent(), peers, COMPACT_IPV6_PEER_SIZE));
+		// TODO Figure out how to find this information on HTTP trackers.
+		torrentInfo.setInfo(0, 0);
+
+		status = STATE_IDLE;
 	}
 
-	private void processPeers(Torrent torrent, IBencodedValue peers) {
-		if (!(peers instanceof BencodedList)) {
-			LOGGER.warn(String.format(
-					"Tracker \"%s\" returned peers list in an unsupported format. (Most likely BEP #23 is not configured).",
-					trackerUrl.getHost()));
+	private void processPeers(Torrent torrent, IBencodedValue peers, int compactPeerSize) {
+		if (peers instanceof BencodedList) {
+			// Trackers are allowed to ignore the compact request and respond with the dictionary model.
+			processPeerDictionaries(torrent, (BencodedList) peers);
+			return;
+		}
+
+		if (!(peers instanceof BencodedString)) {
+			LOGGER.warn("Tracker \"{}\" returned peers in an unsupported format.", trackerUrl.getHost());
 			return;
 		}
 
+		byte[] compactPeers = peers.asBytes();
+		if (compactPeers.length % compactPeerSize != 0) {
+			LOGGER.warn("Tracker \"{}\" returned {} peer bytes which aren't divisible by {}.", trackerUrl.getHost(), compactPeers.length, compactPeerSize);
+		}
+
+		for (InetSocketAddress address : parseCompactPeers(compactPeers, compactPeerSize)) {
+			connectPeer(new PeerConnectInfo(torrent, address));
+		}
+	}
+
+	/**
+	 * Parses a compact peer list in which each peer is represented by its address followed by the port, both in network byte order.
+	 * @param compactPeers The compact peer list.
+	 * @param compactPeerSize The amount of bytes per peer.
+	 * @return The socket addresses of the peers. Trailing bytes which don't form a complete peer are ignored.
+	 */
+	static List<InetSocketAddress> parseCompactPeers(byte[] compactPeers, int compactPeerSize) {
+		int addressSize = compactPeerSize - 2;
+		List<InetSocketAddress> addresses = new ArrayList<>(compactPeers.length / compactPeerSize);
+
+		for (int offset = 0; offset + compactPeerSize <= compactPeers.length; offset += compactPeerSize) {
+			int port = ((compactPeers[offset + addressSize] & 0xFF) << 8) | (compactPeers[offset + addressSize + 1] & 0xFF);
+			try {
+				InetAddress address = InetAddress.getByAddress(Arrays.copyOfRange(compactPeers, offset, offset + addressSize));
+				addresses.add(new InetSocketAddress(address, port));
+			} catch (UnknownHostException e) {
+				// Can't happen as the address length is always 4 or 16 bytes.
+				throw new IllegalArgumentException("Invalid address length: " + addressSize, e);
+			}
+		}
+
+		return addresses;
+	}
+
+	private void processPeerDictionaries(Torrent torrent, BencodedList peers) {
 		peers.asList().stream().map(entry -> (BencodedMap) entry).forEach(peer -> {
 			LOGGER.debug("Received peer: {}", peer);
 
@@ -226,10 +305,6 @@ public class HttpTracker implements ITracker {
 		return trackerUrl.getHost();
 	}
 
-	public long getAnnounceInterval() {
-		return announceInterval;
-	}
-
 	/**
 	 * A builder to create {@link HttpTracker} instances.
 	 */
@@ -239,6 +314,8 @@ public class HttpTracker implements ITracker {
 
 		private String trackerUrl;
 
+		private OkHttpClient httpClient;
+
 		/**
 		 * Sets the {@link TorrentClient} for which the tracker which will receiving peers.
 		 * @param torrentClient The client.
@@ -259,6 +336,17 @@ public class HttpTracker implements ITracker {
 			return this;
 		}
 
+		/**
+		 * Sets the HTTP client which sends the announces. The client should be shared between trackers so that connections are pooled and kept
+		 * alive. When no client is set a new client is created for the tracker.
+		 * @param httpClient The HTTP client.
+		 * @return The modified builder state.
+		 */
+		public Builder setHttpClient(OkHttpClient httpClient) {
+			this.httpClient = httpClient;
+			return this;
+		}
+
 		/**
 		 * @return The newly created {@link HttpTracker} instance.
 		 */
@@ -3,6 +3,7 @@ package org.johnnei.javatorrent.network;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ByteChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.time.Clock;
@@ -19,11 +20,10 @@ import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
+import org.johnnei.javatorrent.internal.network.ByteBufferPool;
 import org.johnnei.javatorrent.internal.network.TransferRate;
 import org.johnnei.javatorrent.network.socket.ISocket;
 
-import static org.johnnei.javatorrent.network.ByteBufferUtils.getBytes;
-
 /**
  * Handles the raw data on the {@link ByteChannel} provided by {@link ISocket}.
  */
@@ -33,12 +33,6 @@ public class BitTorrentSocket {
 
 	private static final int MESSAGE_LENGTH_SIZE = 4;
 
-	/**
-	 * The amount of bytes reserved for {@link #readBuffer}.
-	 * The size is chosen to be the 'largest' regular packet. ({@link MessageBlock}
-	 */
-	private static final int READ_BUFFER_SIZE = (1 << 14) + MESSAGE_LENGTH_SIZE;
-
 	private final Object queueLock = new Object();
 	private final Object blockQueueLock = new Object();
 
@@ -55,6 +49,13 @@ public class BitTorrentSocket {
 
 	private final TransferRate uploadRate;
 
+	private final ByteBufferPool bufferPool;
+
+	/**
+	 * Buffer holding the length prefix of the next {@link IMessage}.
+	 */
+	private final ByteBuffer lengthBuffer;
+
 	/**
 	 * The queue containing the messages which still have to be send
 	 */
@@ -66,14 +67,19 @@ public class BitTorrentSocket {
 	private Queue<IMessage> blockQueue;
 
 	/**
-	 * Buffer holding incomplete {@link IMessage} binary data.
+	 * Pooled buffer holding incomplete {@link IMessage} binary data or <code>null</code> when the length of the next message is not known yet.
 	 */
 	private ByteBuffer readBuffer;
 
 	/**
-	 * Buffer holding incomplete sent {@link IMessage} binary data.
+	 * Buffers holding incomplete sent {@link IMessage} binary data.
+	 */
+	private ByteBuffer[] writeBuffers;
+
+	/**
+	 * The buffer within {@link #writeBuffers} which must be returned to the {@link #bufferPool} once it has been sent.
 	 */
-	private ByteBuffer writeBuffer;
+	private ByteBuffer pooledWriteBuffer;
 
 	/**
 	 * The last time a buffer was created
@@ -85,6 +91,11 @@ public class BitTorrentSocket {
 	 */
 	private LocalDateTime lastActivity;
 
+	/**
+	 * The listener which is notified when a message has been queued.
+	 */
+	private volatile Runnable outboundMessageListener;
+
 	/**
 	 * Creates a new bound BitTorrent socket.
 	 * @param messageFactory The factory to create {@link IMessage} instances.
@@ -95,14 +106,18 @@ public class BitTorrentSocket {
 	}
 
 	BitTorrentSocket(MessageFactory messageFactory, ISocket socket, Clock clock) {
+		this(messageFactory, socket, clock, ByteBufferPool.getShared());
+	}
+
+	BitTorrentSocket(MessageFactory messageFactory, ISocket socket, Clock clock, ByteBufferPool bufferPool) {
 		this.clock = clock;
+		this.bufferPool = bufferPool;
 		this.messageFactory = messageFactory;
 		messageQueue = new LinkedList<>();
 		blockQueue = new LinkedList<>();
 		lastActivity = LocalDateTime.now(clock);
 		this.socket = Objects.requireNonNull(socket, "Socket cannot be null");
-		this.readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
-		this.readBuffer.limit(0);
+		this.lengthBuffer = ByteBuffer.allocate(MESSAGE_LENGTH_SIZE);
 		this.downloadRate = new TransferRate(clock);
 		this.uploadRate = new TransferRate(clock);
 	}
@@ -121,6 +136,20 @@ public class BitTorrentSocket {
 				messageQueue.add(message);
 			}
 		}
+
+		Runnable listener = outboundMessageListener;
+		if (listener != null) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * Sets the listener which will be notified after a message has been queued by {@link #enqueueMessage(IMessage)}.
+	 * The listener is invoked on the thread which queued the message.
+	 * @param listener The listener or <code>null</code> to remove the current listener.
+	 */
+	public void setOutboundMessageListener(Runnable listener) {
+		this.outboundMessageListener = listener;
 	}
 
 	/**
@@ -128,18 +157,24 @@ public class BitTorrentSocket {
 	 * @return The next message on the stream.
 	 */
 	public IMessage readMessage() {
-		InStream stream = getBufferedMessage();
-		int length = stream.readInt();
-		if (length == 0) {
-			return new MessageKeepAlive();
-		}
+		try {
+			InStream stream = getBufferedMessage();
+			int length = stream.readInt();
+			if (length == 0) {
+				return new MessageKeepAlive();
+			}
 
-		int id = stream.readByte();
-		IMessage message = messageFactory.createById(id);
-		message.read(stream);
+			int id = stream.readByte();
+			IMessage message = messageFactory.createById(id);
+			message.read(stream);
 
-		LOGGER.trace("Read message: {}", message);
-		return message;
+			LOGGER.trace("Read message: {}", message);
+			return message;
+		} finally {
+			// Messages copy the data they need, so the buffer can be reused immediately.
+			bufferPool.release(readBuffer);
+			readBuffer = null;
+		}
 	}
 
 	/**
@@ -147,27 +182,55 @@ public class BitTorrentSocket {
 	 * @throws IOException When write fails.
 	 */
 	public void sendMessages() throws IOException {
-		ByteBuffer buffer;
+		ByteBuffer[] buffers;
 
-		while ((buffer = prepareMessageForSending()) != null) {
-			int transferredBytes = ((WritableByteChannel) socket.getWritableChannel()).write(buffer);
+		while ((buffers = prepareMessageForSending()) != null) {
+			long transferredBytes = write(buffers);
 
-			uploadRate.addTransferredBytes(transferredBytes);
+			uploadRate.addTransferredBytes((int) transferredBytes);
 			lastActivity = LocalDateTime.now(clock);
 
-			if (buffer.hasRemaining()) {
-				writeBuffer = buffer;
+			if (buffers[buffers.length - 1].hasRemaining()) {
+				writeBuffers = buffers;
 				return;
 			} else {
-				writeBuffer = null;
+				writeBuffers = null;
+				releaseWriteBuffer();
 			}
 
 		}
 	}
 
-	private ByteBuffer prepareMessageForSending() {
-		if (writeBuffer != null) {
-			return writeBuffer;
+	private long write(ByteBuffer[] buffers) throws IOException {
+		WritableByteChannel channel = (WritableByteChannel) socket.getWritableChannel();
+		if (buffers.length == 1) {
+			return channel.write(buffers[0]);
+		}
+
+		if (channel instanceof GatheringByteChannel) {
+			return ((GatheringByteChannel) channel).write(buffers, 0, buffers.length);
+		}
+
+		long transferredBytes = 0;
+		for (ByteBuffer buffer : buffers) {
+			transferredBytes += channel.write(buffer);
+			if (buffer.hasRemaining()) {
+				break;
+			}
+		}
+		return transferredBytes;
+	}
+
+	private void releaseWriteBuffer() {
+		if (pooledWriteBuffer != null) {
+			bufferPool.release(pooledWriteBuffer);
+			pooledWriteBuffer = null;
+		}
+	}
+
+	private ByteBuffer[] prepareMessageForSending() {
+		if (writeBuffers != null) {
+			return writeBuffers;
 		}
 
 		IMessage message = null;
@@ -188,7 +251,13 @@ public class BitTorrentSocket {
 
 		LOGGER.trace("Writing message {}", message);
 
-		OutStream outBuffer = new OutStream(message.getLength() + 4);
+		if (message instanceof MessageBlock) {
+			// Blocks are written directly from the (possibly memory mapped) buffer of the storage.
+			return ((MessageBlock) message).createSendBuffers();
+		}
+
+		ByteBuffer buffer = bufferPool.acquire(message.getLength() + MESSAGE_LENGTH_SIZE);
+		OutStream outBuffer = new OutStream(buffer);
 		outBuffer.writeInt(message.getLength());
 
 		if (message.getLength() > 0) {
@@ -196,7 +265,9 @@ public class BitTorrentSocket {
 			message.write(outBuffer);
 		}
 
-		return ByteBuffer.wrap(outBuffer.toByteArray());
+		buffer.flip();
+		pooledWriteBuffer = buffer;
+		return new ByteBuffer[] { buffer };
 	}
 
 	/**
@@ -228,36 +299,38 @@ public class BitTorrentSocket {
 	 * @throws IOException When an IO error occurs during the buffering.
 	 */
 	public boolean canReadMessage() throws IOException {
-		if (readBuffer.position() == 0) {
-			lastBufferCreate = LocalDateTime.now(clock);
-			readBuffer.limit(4);
-		}
-
-		readInput();
+		if (readBuffer == null) {
+			if (lengthBuffer.position() == 0) {
+				lastBufferCreate = LocalDateTime.now(clock);
+			}
 
-		if (readBuffer.position() >= MESSAGE_LENGTH_SIZE) {
-			ByteBuffer buffer = readBuffer.asReadOnlyBuffer();
-			buffer.flip();
-			int messageLength = buffer.getInt();
-			int bytesNeeded = MESSAGE_LENGTH_SIZE + messageLength;
+			readInput(lengthBuffer);
 
-			if (readBuffer.capacity() < bytesNeeded) {
-				growReadBuffer(bytesNeeded);
+			if (lengthBuffer.hasRemaining()) {
+				return false;
 			}
 
-			readBuffer.limit(bytesNeeded);
-			if (readBuffer.hasRemaining()) {
-				readInput();
+			lengthBuffer.flip();
+			int messageLength = lengthBuffer.getInt(0);
+			if (messageLength < 0) {
+				throw new IOException(String.format("Received invalid message length: %d", messageLength));
 			}
 
-			return readBuffer.position() >= bytesNeeded;
+			// Only take a buffer from the pool once we know how large the message is to prevent idle peers from holding on to buffers.
+			readBuffer = bufferPool.acquire(MESSAGE_LENGTH_SIZE + messageLength);
+			readBuffer.put(lengthBuffer);
+			lengthBuffer.clear();
+		}
+
+		if (readBuffer.hasRemaining()) {
+			readInput(readBuffer);
 		}
 
-		return false;
+		return !readBuffer.hasRemaining();
 	}
 
-	private void readInput() throws IOException {
-		int readBytes = ((ReadableByteChannel) socket.getReadableChannel()).read(readBuffer);
+	private void readInput(ByteBuffer buffer) throws IOException {
+		int readBytes = ((ReadableByteChannel) socket.getReadableChannel()).read(buffer);
 		if (readBytes == -1) {
 			throw new IOException("Unexpected end of channel.");
 		} else {
@@ -265,18 +338,9 @@ public class BitTorrentSocket {
 		}
 	}
 
-	private void growReadBuffer(int desiredSize) {
-		ByteBuffer buffer = ByteBuffer.allocate(desiredSize);
-		readBuffer.flip();
-		buffer.put(readBuffer);
-		this.readBuffer = buffer;
-	}
-
 	private InStream getBufferedMessage() {
 		readBuffer.flip();
-		InStream messageStream = new InStream(getBytes(readBuffer, readBuffer.remaining()), getBufferLifetime());
-		readBuffer.clear();
-		return messageStream;
+		return new InStream(readBuffer, getBufferLifetime());
 	}
 
 	/**
@@ -326,7 +390,7 @@ public class BitTorrentSocket {
 		if (hasPendingMessages) {
 			LOGGER.trace("Pending outbound messages [{}] blocks [{}]", messageQueue.size(), blockQueue.size());
 		}
-		return writeBuffer != null || hasPendingMessages;
+		return writeBuffers != null || hasPendingMessages;
 	}
 
 	/**
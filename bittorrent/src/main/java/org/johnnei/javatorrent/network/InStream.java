@@ -1,12 +1,13 @@
 package org.johnnei.javatorrent.network;
 
-import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.time.Duration;
 import java.util.Optional;
 
+import org.johnnei.javatorrent.internal.network.ByteBufferInputStream;
 import org.johnnei.javatorrent.internal.utils.CheckedRunnable;
 import org.johnnei.javatorrent.internal.utils.CheckedSupplier;
 
@@ -20,9 +21,9 @@ public class InStream {
 	private Duration readDuration;
 
 	/**
-	 * The byte array reader
+	 * The byte buffer reader
 	 */
-	private ByteArrayInputStream buffer;
+	private ByteBufferInputStream buffer;
 
 	/**
 	 * The wrapper around the {@link #buffer} which provides data-type access.
@@ -79,9 +80,19 @@ public class InStream {
 	 * @param readDuration The duration it took to read the given buffer
 	 */
 	public InStream(byte[] data, int offset, int length, Duration readDuration) {
-		buffer = new ByteArrayInputStream(data, offset, length);
+		this(ByteBuffer.wrap(data, offset, length).slice(), readDuration);
+	}
+
+	/**
+	 * Creates a new input stream which reads the remaining bytes of the given buffer without copying them.
+	 * The buffer <em>must not</em> be modified or reused while the stream is in use.
+	 * @param data The buffer to read from.
+	 * @param readDuration The duration it took to read the given buffer
+	 */
+	public InStream(ByteBuffer data, Duration readDuration) {
+		buffer = new ByteBufferInputStream(data.slice());
 		in = new DataInputStream(buffer);
-		this.length = length;
+		this.length = data.remaining();
 		this.readDuration = readDuration;
 	}
 
@@ -1,10 +1,11 @@
 package org.johnnei.javatorrent.network;
 
-import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
+import org.johnnei.javatorrent.internal.network.ByteBufferOutputStream;
 import org.johnnei.javatorrent.internal.utils.CheckedRunnable;
 
 import org.slf4j.Logger;
@@ -14,7 +15,7 @@ public class OutStream {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(OutStream.class);
 
-	private ByteArrayOutputStream buffer;
+	private ByteBufferOutputStream buffer;
 	private DataOutputStream out;
 
 	public OutStream() {
@@ -22,7 +23,19 @@ public class OutStream {
 	}
 
 	public OutStream(int size) {
-		buffer = new ByteArrayOutputStream(size);
+		this(new ByteBufferOutputStream(size));
+	}
+
+	/**
+	 * Creates a stream which writes into the given buffer starting at its position. Writing beyond the limit of the buffer will fail.
+	 * @param target The buffer to write in.
+	 */
+	public OutStream(ByteBuffer target) {
+		this(new ByteBufferOutputStream(target));
+	}
+
+	private OutStream(ByteBufferOutputStream buffer) {
+		this.buffer = buffer;
 		out = new DataOutputStream(buffer);
 	}
 
@@ -34,6 +47,15 @@ public class OutStream {
 		writeUnchecked(() -> out.write(b, off, len));
 	}
 
+	/**
+	 * Writes the remaining bytes of the buffer. The position of the given buffer is not modified.
+	 * @param b The buffer to write.
+	 */
+	public void write(ByteBuffer b) {
+		// DataOutputStream doesn't buffer so the data can be written directly into the underlying buffer.
+		buffer.write(b.duplicate());
+	}
+
 	public void writeBoolean(boolean v) {
 		writeUnchecked(() -> out.writeBoolean(v));
 	}
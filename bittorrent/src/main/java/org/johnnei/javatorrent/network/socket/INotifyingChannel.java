@@ -0,0 +1,21 @@
+package org.johnnei.javatorrent.network.socket;
+
+/**
+ * A channel which is not backed by a file descriptor and therefore can't be registered on a {@link java.nio.channels.Selector}.
+ * Instead of being selected the channel notifies a listener when it might have become ready.
+ * Channels returned by {@link ISocket} which implement this interface are handled through the listener instead of a selector.
+ */
+public interface INotifyingChannel {
+
+	/**
+	 * Sets the listener which is notified when the channel might have become ready. The listener can be invoked from any thread and must not block.
+	 * @param listener The listener or <code>null</code> to remove the current listener.
+	 */
+	void setReadinessListener(Runnable listener);
+
+	/**
+	 * @return The operations, as defined by {@link java.nio.channels.SelectionKey}, for which the channel is currently ready.
+	 */
+	int readyOps();
+
+}
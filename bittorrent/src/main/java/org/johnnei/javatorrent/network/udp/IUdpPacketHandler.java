@@ -0,0 +1,38 @@
+package org.johnnei.javatorrent.network.udp;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * A protocol which receives its datagrams through the {@link UdpDemultiplexer}.
+ * All methods are invoked on the thread of the demultiplexer and must not block.
+ */
+public interface IUdpPacketHandler {
+
+	/**
+	 * Inspects the first bytes of the datagram to decide if it belongs to this protocol.
+	 * @param datagram The received datagram. The position and limit of the buffer must not be changed.
+	 * @return <code>true</code> when the datagram must be passed to {@link #onReceivedPacket(SocketAddress, ByteBuffer)}.
+	 */
+	boolean isMatch(ByteBuffer datagram);
+
+	/**
+	 * Processes a datagram which has been matched by {@link #isMatch(ByteBuffer)}.
+	 * @param socketAddress The address which sent the datagram.
+	 * @param datagram The received datagram. The buffer is reused once this method returns, data which is needed later on must be copied.
+	 */
+	void onReceivedPacket(SocketAddress socketAddress, ByteBuffer datagram);
+
+	/**
+	 * Processes the work which isn't directly triggered by a single datagram. This is invoked after every batch of received datagrams, after
+	 * {@link UdpDemultiplexer#wakeup()} and once the time returned by {@link #getMillisUntilProcess()} has elapsed.
+	 */
+	void process();
+
+	/**
+	 * @return The amount of milliseconds until {@link #process()} must be invoked or <code>-1</code> when it only has to be invoked for new datagrams or
+	 * wakeups.
+	 */
+	long getMillisUntilProcess();
+
+}
@@ -0,0 +1,202 @@
+package org.johnnei.javatorrent.network.udp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.johnnei.javatorrent.async.LoopingRunnable;
+
+/**
+ * Owns the UDP port of the client and passes each datagram to the protocol which claims it based on the first bytes of the datagram.
+ * All UDP based protocols share a single non-blocking channel and the thread of this demultiplexer, so datagrams are never delivered to the wrong protocol.
+ */
+public class UdpDemultiplexer implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(UdpDemultiplexer.class);
+
+	/**
+	 * The maximum size of a UDP datagram.
+	 */
+	private static final int BUFFER_SIZE = 65_536;
+
+	/**
+	 * The maximum amount of datagrams which are received before the handlers get to process them.
+	 */
+	private static final int MAX_BATCH_SIZE = 128;
+
+	private final DatagramChannel channel;
+
+	private final Selector selector;
+
+	/**
+	 * The buffer in which each datagram is received. Handlers copy the data they need so the buffer is reused for every datagram.
+	 */
+	private final ByteBuffer receiveBuffer;
+
+	private final Collection<IUdpPacketHandler> handlers;
+
+	private final LoopingRunnable runnable;
+
+	private final Thread thread;
+
+	/**
+	 * Creates a new demultiplexer and starts its thread.
+	 * @param channel The bound channel on which the datagrams are received and sent.
+	 * @throws IOException When the channel can't be configured.
+	 */
+	public UdpDemultiplexer(DatagramChannel channel) throws IOException {
+		this.channel = channel;
+		channel.configureBlocking(false);
+		LOGGER.trace("Configured to listen on {}", channel.getLocalAddress());
+
+		handlers = new CopyOnWriteArrayList<>();
+		receiveBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		selector = Selector.open();
+		channel.register(selector, SelectionKey.OP_READ);
+
+		runnable = new LoopingRunnable(this::poll, true);
+		thread = new Thread(runnable, "UDP Demultiplexer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Registers the handler to receive the datagrams which it matches.
+	 * @param handler The handler to register.
+	 */
+	public void register(IUdpPacketHandler handler) {
+		handlers.add(handler);
+		wakeup();
+	}
+
+	/**
+	 * Stops passing datagrams to the handler.
+	 * @param handler The handler to unregister.
+	 */
+	public void unregister(IUdpPacketHandler handler) {
+		handlers.remove(handler);
+	}
+
+	/**
+	 * Wakes up the thread of the demultiplexer to invoke {@link IUdpPacketHandler#process()} on all handlers.
+	 */
+	public void wakeup() {
+		selector.wakeup();
+	}
+
+	/**
+	 * @return The channel on which the datagrams must be sent.
+	 */
+	public DatagramChannel getChannel() {
+		return channel;
+	}
+
+	private void poll() {
+		try {
+			long timeout = getMillisUntilProcess();
+			int readyChannels;
+			if (timeout == 0) {
+				readyChannels = selector.selectNow();
+			} else if (timeout < 0) {
+				readyChannels = selector.select();
+			} else {
+				readyChannels = selector.select(timeout);
+			}
+
+			// The datagram channel is the only channel registered on the selector.
+			selector.selectedKeys().clear();
+			if (readyChannels > 0) {
+				receivePackets();
+			}
+
+			processHandlers();
+		} catch (ClosedSelectorException | ClosedChannelException e) {
+			LOGGER.debug("Channel got closed while processing datagrams.", e);
+		} catch (Exception e) {
+			LOGGER.warn("Failed to process datagrams.", e);
+		}
+	}
+
+	/**
+	 * Receives all datagrams which are available on the channel without blocking.
+	 * @throws IOException When the channel fails to receive a datagram.
+	 */
+	private void receivePackets() throws IOException {
+		int batchSize;
+		do {
+			batchSize = 0;
+			SocketAddress socketAddress;
+			while (batchSize < MAX_BATCH_SIZE && (socketAddress = channel.receive(receiveBuffer)) != null) {
+				receiveBuffer.flip();
+				onPacketReceived(socketAddress, receiveBuffer);
+				receiveBuffer.clear();
+				batchSize++;
+			}
+
+			if (batchSize == MAX_BATCH_SIZE) {
+				// More datagrams are waiting, let the handlers process this batch first.
+				processHandlers();
+			}
+		} while (batchSize == MAX_BATCH_SIZE);
+	}
+
+	private void onPacketReceived(SocketAddress socketAddress, ByteBuffer datagram) {
+		for (IUdpPacketHandler handler : handlers) {
+			if (handler.isMatch(datagram)) {
+				try {
+					handler.onReceivedPacket(socketAddress, datagram);
+				} catch (RuntimeException e) {
+					LOGGER.warn("Failed to process datagram from {}.", socketAddress, e);
+				}
+				return;
+			}
+		}
+
+		LOGGER.trace("Discarding datagram of [{}] bytes from [{}] which isn't claimed by any protocol.", datagram.remaining(), socketAddress);
+	}
+
+	private void processHandlers() {
+		for (IUdpPacketHandler handler : handlers) {
+			try {
+				handler.process();
+			} catch (RuntimeException e) {
+				LOGGER.warn("Failed to process {}.", handler, e);
+			}
+		}
+	}
+
+	private long getMillisUntilProcess() {
+		long timeout = -1;
+		for (IUdpPacketHandler handler : handlers) {
+			long handlerTimeout = handler.getMillisUntilProcess();
+			if (handlerTimeout >= 0 && (timeout < 0 || handlerTimeout < timeout)) {
+				timeout = handlerTimeout;
+			}
+		}
+		return timeout;
+	}
+
+	@Override
+	public void close() throws IOException {
+		runnable.stop();
+		selector.close();
+		channel.close();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			LOGGER.warn("Interrupted while waiting for demultiplexer thread to shutdown.", e);
+		}
+	}
+}
@@ -41,7 +41,7 @@ public class PhaseData implements IDownloadPhase {
 		this.torrentClient = torrentClient;
 		this.torrent = torrent;
 		chokingStrategy = new PermissiveStrategy();
-		piecePrioritizer = new AvailabilityPrioritizer();
+		piecePrioritizer = new AvailabilityPrioritizer(torrent.getPieceAvailability());
 	}
 
 	@Override
@@ -1,5 +1,6 @@
 package org.johnnei.javatorrent.torrent;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -12,8 +13,13 @@ import org.johnnei.javatorrent.torrent.fileset.Fileset;
 import org.johnnei.javatorrent.utils.Argument;
 import org.johnnei.javatorrent.utils.MathUtils;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 public abstract class AbstractFileSet implements Fileset {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(AbstractFileSet.class);
+
 	/**
 	 * The pieces which contain all the information to complete the downloading of the files.
 	 */
@@ -196,4 +202,17 @@ public abstract class AbstractFileSet implements Fileset {
 		return Collections.unmodifiableList(fileInfos);
 	}
 
+	/**
+	 * Closes the files in this fileset. A file which fails to close doesn't prevent the other files from being closed.
+	 */
+	public void close() {
+		for (FileInfo fileInfo : fileInfos) {
+			try {
+				fileInfo.close();
+			} catch (IOException e) {
+				LOGGER.warn("Failed to close {}.", fileInfo.getFile(), e);
+			}
+		}
+	}
+
 }
@@ -1,15 +1,19 @@
 package org.johnnei.javatorrent.torrent;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 
+import org.johnnei.javatorrent.disk.FileChannelStorage;
+import org.johnnei.javatorrent.disk.IFileStorage;
+import org.johnnei.javatorrent.disk.IFileStorageFactory;
 import org.johnnei.javatorrent.torrent.fileset.FileEntry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class FileInfo {
+public class FileInfo implements Closeable {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(FileInfo.class);
 
@@ -20,25 +24,50 @@ public class FileInfo {
 	 */
 	private int pieceCount;
 
+	/**
+	 * The file on the harddrive
+	 */
+	private final File file;
+
 	/**
 	 * The link between the file on the harddrive
 	 */
+	private IFileStorage storage;
+
+	/**
+	 * The legacy link between the file on the harddrive, only opened on request.
+	 */
 	private RandomAccessFile fileAccess;
 
 	/**
 	 * A lock to prevent concurrent writes to a single file
+	 * @deprecated {@link IFileStorage} implementations no longer require external locking.
 	 */
+	@Deprecated(forRemoval = true, since = "0.8.0")
 	public final Object fileLock = new Object();
 
 	public FileInfo(long filesize, long firstByteOffset, File file, int pieceCount) {
+		this(filesize, firstByteOffset, file, pieceCount, FileChannelStorage::new);
+	}
+
+	/**
+	 * Creates a new file within a fileset.
+	 * @param filesize The size of the file.
+	 * @param firstByteOffset The offset of the first byte as if the entire fileset is a single file.
+	 * @param file The file on the harddrive.
+	 * @param pieceCount The amount of pieces which contain a part of data for this file.
+	 * @param storageFactory The factory to create the storage with which the file will be accessed.
+	 */
+	public FileInfo(long filesize, long firstByteOffset, File file, int pieceCount, IFileStorageFactory storageFactory) {
 		this.fileEntry = new FileEntry(file.getName(), filesize, firstByteOffset);
 		this.pieceCount = pieceCount;
+		this.file = file;
 		try {
 			if (!file.exists()) {
 				file.getParentFile().mkdirs();
 				file.createNewFile();
 			}
-			fileAccess = new RandomAccessFile(file, "rw");
+			storage = storageFactory.open(file);
 		} catch (IOException ex) {
 			LOGGER.warn("Failed to open read/write access to {}", file.getAbsolutePath(), ex);
 		}
@@ -79,12 +108,39 @@ public class FileInfo {
 		return fileEntry.getFileName();
 	}
 
+	/**
+	 * Gets the location of this file on the harddrive.
+	 * @return The file on the harddrive.
+	 */
+	public File getFile() {
+		return file;
+	}
+
 	/**
 	 * Gets the handle to write/read from this file.
 	 * @return The IO handle.
 	 */
+	public IFileStorage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Gets the handle to write/read from this file.
+	 * @return The IO handle.
+	 * @deprecated Use {@link #getStorage()} instead. This will open a secondary handle on the file.
+	 */
+	@Deprecated(forRemoval = true, since = "0.8.0")
 	public RandomAccessFile getFileAccess() {
-		return fileAccess;
+		synchronized (fileLock) {
+			if (fileAccess == null) {
+				try {
+					fileAccess = new RandomAccessFile(file, "rw");
+				} catch (IOException ex) {
+					LOGGER.warn("Failed to open read/write access to {}", file.getAbsolutePath(), ex);
+				}
+			}
+			return fileAccess;
+		}
 	}
 
 	@Override
@@ -113,4 +169,19 @@ public class FileInfo {
 	public String toString() {
 		return String.format("FileInfo[entry=%s, pieceCount=%d]", fileEntry.toString(), pieceCount);
 	}
+	/**
+	 * Closes the storage and, when it has been opened, the legacy handle of this file.
+	 * @throws IOException When the underlying IO fails to close.
+	 */
+	@Override
+	public void close() throws IOException {
+		try (IFileStorage closedStorage = storage) {
+			synchronized (fileLock) {
+				if (fileAccess != null) {
+					fileAccess.close();
+				}
+			}
+		}
+	}
+
 }
@@ -0,0 +1,242 @@
+package org.johnnei.javatorrent.torrent;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+/**
+ * Tracks how many of the connected peers have each piece of a torrent. The counts are updated incrementally as peers announce pieces and disconnect.
+ * The pieces are kept ordered by their availability in buckets of equal count which allows iterating them rarest first without sorting and moves a piece to
+ * the adjacent bucket in constant time. For each peer the amount of pieces which the peer has and we still need is tracked as well so that our interest in
+ * the peer can be determined without scanning the needed pieces.
+ * <p>
+ * Changes to the have state of a peer must be made while holding the monitor of this object so that registering a peer doesn't count a piece twice.
+ */
+public class PieceAvailability {
+
+	/**
+	 * The registered peers mapped onto the amount of pieces which they have and we still need.
+	 */
+	private final Map<Peer, Integer> neededPieceCounts;
+
+	/**
+	 * The pieces which we have completed.
+	 */
+	private BitSet completedPieces;
+
+	/**
+	 * The amount of registered peers which have the piece, indexed by piece index.
+	 */
+	private int[] availability;
+
+	/**
+	 * The piece indices ordered by ascending availability.
+	 */
+	private int[] orderedPieces;
+
+	/**
+	 * The index in {@link #orderedPieces} of each piece, indexed by piece index.
+	 */
+	private int[] positions;
+
+	/**
+	 * The index in {@link #orderedPieces} of the first piece with at least the availability used as index.
+	 */
+	private int[] bucketStarts;
+
+	/**
+	 * Creates a new availability index without any pieces.
+	 */
+	public PieceAvailability() {
+		neededPieceCounts = new HashMap<>();
+		reset(0, pieceIndex -> false);
+	}
+
+	/**
+	 * Resizes the index to the pieces of the file set and recounts the pieces of all registered peers.
+	 * This must be invoked whenever pieces got completed without being reported through {@link #onPieceCompleted(int)}.
+	 *
+	 * @param fileSet The file set of which the pieces are tracked.
+	 */
+	public synchronized void setFileSet(AbstractFileSet fileSet) {
+		reset(fileSet.getPieceCount(), fileSet::hasPiece);
+	}
+
+	private void reset(int pieceCount, IntPredicate isCompleted) {
+		availability = new int[pieceCount];
+		orderedPieces = new int[pieceCount];
+		positions = new int[pieceCount];
+		completedPieces = new BitSet(pieceCount);
+		for (int pieceIndex = 0; pieceIndex < pieceCount; pieceIndex++) {
+			orderedPieces[pieceIndex] = pieceIndex;
+			positions[pieceIndex] = pieceIndex;
+			completedPieces.set(pieceIndex, isCompleted.test(pieceIndex));
+		}
+
+		bucketStarts = new int[0];
+		ensureBucketCapacity();
+
+		for (Peer peer : neededPieceCounts.keySet()) {
+			neededPieceCounts.put(peer, 0);
+			countPieces(peer);
+		}
+	}
+
+	/**
+	 * Registers the peer and counts the pieces which it already has.
+	 *
+	 * @param peer The peer which got connected.
+	 */
+	public synchronized void addPeer(Peer peer) {
+		if (neededPieceCounts.putIfAbsent(peer, 0) != null) {
+			return;
+		}
+
+		ensureBucketCapacity();
+		countPieces(peer);
+	}
+
+	/**
+	 * Unregisters the peer and removes its pieces from the counts.
+	 *
+	 * @param peer The peer which got disconnected.
+	 */
+	public synchronized void removePeer(Peer peer) {
+		if (neededPieceCounts.remove(peer) == null) {
+			return;
+		}
+
+		for (int pieceIndex = 0; pieceIndex < availability.length; pieceIndex++) {
+			if (peer.hasPiece(pieceIndex)) {
+				decrement(pieceIndex);
+			}
+		}
+	}
+
+	/**
+	 * Adds a piece which the peer didn't have before to the counts. Pieces of peers which are not registered are counted once they get registered.
+	 *
+	 * @param peer The peer which announced the piece.
+	 * @param pieceIndex The index of the piece.
+	 */
+	public synchronized void addPiece(Peer peer, int pieceIndex) {
+		if (pieceIndex >= availability.length || !neededPieceCounts.containsKey(peer)) {
+			return;
+		}
+
+		addRegisteredPiece(peer, pieceIndex);
+	}
+
+	/**
+	 * Marks the piece as completed which makes it no longer count towards the needed pieces of the peers.
+	 *
+	 * @param pieceIndex The index of the piece.
+	 */
+	public synchronized void onPieceCompleted(int pieceIndex) {
+		if (pieceIndex >= availability.length || completedPieces.get(pieceIndex)) {
+			return;
+		}
+
+		completedPieces.set(pieceIndex);
+		for (Map.Entry<Peer, Integer> entry : neededPieceCounts.entrySet()) {
+			if (entry.getKey().hasPiece(pieceIndex)) {
+				entry.setValue(entry.getValue() - 1);
+			}
+		}
+	}
+
+	/**
+	 * @param pieceIndex The index of the piece.
+	 * @return The amount of registered peers which have the piece.
+	 */
+	public synchronized int getAvailability(int pieceIndex) {
+		return availability[pieceIndex];
+	}
+
+	/**
+	 * @param peer The peer to check.
+	 * @return <code>true</code> when the peer is registered and has at least one piece which we have not completed.
+	 */
+	public synchronized boolean hasNeededPieces(Peer peer) {
+		return neededPieceCounts.getOrDefault(peer, 0) > 0;
+	}
+
+	/**
+	 * Passes the indices of all pieces to the consumer ordered from the least available to the most available piece.
+	 * The consumer is invoked while holding the lock on this object and therefore must not block.
+	 *
+	 * @param consumer The consumer of the piece indices.
+	 */
+	public synchronized void forEachRarestFirst(IntConsumer consumer) {
+		for (int pieceIndex : orderedPieces) {
+			consumer.accept(pieceIndex);
+		}
+	}
+
+	private void countPieces(Peer peer) {
+		for (int pieceIndex = 0; pieceIndex < availability.length; pieceIndex++) {
+			if (peer.hasPiece(pieceIndex)) {
+				addRegisteredPiece(peer, pieceIndex);
+			}
+		}
+	}
+
+	private void addRegisteredPiece(Peer peer, int pieceIndex) {
+		increment(pieceIndex);
+		if (!completedPieces.get(pieceIndex)) {
+			neededPieceCounts.merge(peer, 1, Integer::sum);
+		}
+	}
+
+	/**
+	 * Moves the piece to the end of its bucket and then shifts the start of the next bucket onto it.
+	 */
+	private void increment(int pieceIndex) {
+		int count = availability[pieceIndex];
+		int lastOfBucket = bucketStarts[count + 1] - 1;
+		swap(positions[pieceIndex], lastOfBucket);
+		bucketStarts[count + 1]--;
+		availability[pieceIndex]++;
+	}
+
+	/**
+	 * Moves the piece to the start of its bucket and then shifts the start of the bucket past it.
+	 */
+	private void decrement(int pieceIndex) {
+		int count = availability[pieceIndex];
+		int firstOfBucket = bucketStarts[count];
+		swap(positions[pieceIndex], firstOfBucket);
+		bucketStarts[count]++;
+		availability[pieceIndex]--;
+	}
+
+	private void swap(int positionA, int positionB) {
+		int pieceA = orderedPieces[positionA];
+		int pieceB = orderedPieces[positionB];
+		orderedPieces[positionA] = pieceB;
+		orderedPieces[positionB] = pieceA;
+		positions[pieceA] = positionB;
+		positions[pieceB] = positionA;
+	}
+
+	/**
+	 * Ensures that a bucket exists for every availability which can be reached with the registered peers.
+	 */
+	private void ensureBucketCapacity() {
+		int required = neededPieceCounts.size() + 2;
+		if (bucketStarts.length >= required) {
+			return;
+		}
+
+		int oldLength = bucketStarts.length;
+		bucketStarts = Arrays.copyOf(bucketStarts, Math.max(required, oldLength * 2));
+		// All pieces have a lower availability than the new buckets so they start past the end.
+		Arrays.fill(bucketStarts, Math.max(oldLength, 1), bucketStarts.length, orderedPieces.length);
+	}
+
+}
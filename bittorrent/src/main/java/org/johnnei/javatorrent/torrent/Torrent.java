@@ -8,6 +8,8 @@ import java.util.Collection;
 import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,7 +20,11 @@ import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBitfield;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageHave;
 import org.johnnei.javatorrent.disk.DiskJobCheckHash;
 import org.johnnei.javatorrent.disk.DiskJobWriteBlock;
+import org.johnnei.javatorrent.disk.FileChannelStorage;
+import org.johnnei.javatorrent.disk.IFileStorageFactory;
 import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.internal.torrent.PieceRecheck;
+import org.johnnei.javatorrent.internal.torrent.ResumeFile;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.torrent.algos.requests.IRequestLimiter;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
@@ -32,6 +38,11 @@ public class Torrent {
 
 	private static final Collection<BlockStatus> BLOCK_WRITABLE = EnumSet.of(BlockStatus.Needed, BlockStatus.Requested);
 
+	/**
+	 * The amount of hash checks which can be queued per disk worker during {@link #checkProgress()}.
+	 */
+	private static final int PENDING_CHECKS_PER_WORKER = 2;
+
 	/**
 	 * The display name of this torrent
 	 */
@@ -42,6 +53,11 @@ public class Torrent {
 	 */
 	private List<Peer> peers;
 
+	/**
+	 * The amount of connected peers which have each piece.
+	 */
+	private final PieceAvailability pieceAvailability;
+
 	/**
 	 * Contains all data of the actual torrent
 	 */
@@ -55,17 +71,27 @@ public class Torrent {
 	/**
 	 * The amount of downloaded bytes
 	 */
-	private long downloadedBytes;
+	private final AtomicLong downloadedBytes;
 	/**
 	 * The amount of uploaded bytes
 	 */
-	private long uploadedBytes;
+	private final AtomicLong uploadedBytes;
 
 	/**
 	 * The torrent client which created this Torrent object.
 	 */
 	private TorrentClient torrentClient;
 
+	/**
+	 * The check of the pieces which were available on disk when the torrent started.
+	 */
+	private volatile PieceRecheck pieceRecheck;
+
+	/**
+	 * The factory which opens the files of this torrent
+	 */
+	private final IFileStorageFactory storageFactory;
+
 	/**
 	 * Creates a new Torrent.
 	 *
@@ -79,7 +105,10 @@ public class Torrent {
 			displayName = builder.displayName;
 		}
 		torrentClient = builder.torrentClient;
-		downloadedBytes = 0L;
+		storageFactory = builder.storageFactory;
+		downloadedBytes = new AtomicLong();
+		uploadedBytes = new AtomicLong();
+		pieceAvailability = new PieceAvailability();
 		peers = new LinkedList<>();
 	}
 
@@ -109,6 +138,7 @@ public class Torrent {
 		}
 		sendHaveMessages(peer);
 
+		pieceAvailability.addPeer(peer);
 		synchronized (this) {
 			peers.add(peer);
 		}
@@ -124,6 +154,7 @@ public class Torrent {
 		synchronized (this) {
 			peers.remove(peer);
 		}
+		pieceAvailability.removePeer(peer);
 	}
 
 	private void sendHaveMessages(Peer peer) throws IOException {
@@ -181,25 +212,27 @@ public class Torrent {
 		int blockIndex = offset / fileSet.getBlockSize();
 
 		Piece piece = fileSet.getPiece(index);
-		if (BLOCK_WRITABLE.contains(piece.getBlockStatus(blockIndex))) {
-			if (piece.getBlockSize(blockIndex) != data.length) {
-				LOGGER.debug("Received incorrect sized block for piece {}, offset {}", index, offset);
-				piece.setBlockStatus(blockIndex, BlockStatus.Needed);
-			} else {
-				addDiskJob(new DiskJobWriteBlock(piece, blockIndex, data, this::onStoreBlockComplete));
-			}
+		if (!BLOCK_WRITABLE.contains(piece.getBlockStatus(blockIndex))) {
+			return;
+		}
+
+		if (piece.getBlockSize(blockIndex) != data.length) {
+			LOGGER.debug("Received incorrect sized block for piece {}, offset {}", index, offset);
+			piece.setBlockStatus(blockIndex, BlockStatus.Needed);
+		} else if (piece.claimBlock(blockIndex)) {
+			addDiskJob(new DiskJobWriteBlock(piece, blockIndex, data, fileSet.getFileForBytes(index, 0, 0), this::onStoreBlockComplete));
+		} else {
+			LOGGER.trace("Block {} of piece {} has already been received from another peer", blockIndex, index);
 		}
 	}
 
 	private void onStoreBlockComplete(DiskJobWriteBlock storeBlock) {
 		Piece piece = storeBlock.getPiece();
-		piece.setBlockStatus(storeBlock.getBlockIndex(), BlockStatus.Stored);
-
-		if (piece.countBlocksWithStatus(BlockStatus.Stored) != piece.getBlockCount()) {
+		if (!piece.onClaimedBlockWritten()) {
 			return;
 		}
 
-		addDiskJob(new DiskJobCheckHash(piece, this::onCheckPieceHashComplete));
+		addDiskJob(new DiskJobCheckHash(piece, storeBlock.getAffinity(), this::onCheckPieceHashComplete));
 	}
 
 	private void onCheckPieceHashComplete(DiskJobCheckHash checkJob) {
@@ -212,8 +245,9 @@ public class Torrent {
 
 		piece.getFileSet().setHavingPiece(piece.getIndex());
 		if (piece.getFileSet().equals(fileSet)) {
+			pieceAvailability.onPieceCompleted(piece.getIndex());
 			broadcastMessage(new MessageHave(piece.getIndex()));
-			downloadedBytes += piece.getSize();
+			downloadedBytes.addAndGet(piece.getSize());
 		}
 
 		LOGGER.debug("Completed piece {}", piece.getIndex());
@@ -235,25 +269,86 @@ public class Torrent {
 	}
 
 	/**
-	 * Calculates the current progress based on all available fileSet on the HDD
+	 * Calculates the current progress based on all available fileSet on the HDD.
+	 * When the resume file written by {@link #saveResumeData()} is available only the pieces within files which have been modified since are checked.
+	 * The pieces are verified in the background by the disk workers. Pieces which pass the check become available to peers immediately whereas the
+	 * pieces which fail it become available for download. This method returns once the check has been started, it does not wait for it to complete.
+	 *
+	 * @see #isCheckingProgress()
+	 * @see #getCheckProgress()
 	 */
 	public void checkProgress() {
-		LOGGER.info("Checking progress...");
-		fileSet.getNeededPieces()
-				.filter(p -> {
-					try {
-						return p.checkHash();
-					} catch (IOException e) {
-						LOGGER.warn("Failed hash check for piece {}.", p.getIndex(), e);
-						return false;
-					}
-				}).
-				forEach(p -> {
-						fileSet.setHavingPiece(p.getIndex());
-						broadcastMessage(new MessageHave(p.getIndex()));
-					}
-				);
-		LOGGER.info("Checking progress done");
+		ResumeFile resumeFile = new ResumeFile(fileSet.getResumeFile());
+		List<Piece> neededPieces = fileSet.getNeededPieces().collect(Collectors.toList());
+		List<Piece> pieces = resumeFile.restore(metadata.getHash(), fileSet).orElse(neededPieces);
+
+		// Peers which are already connected received our bitfield before the pieces got restored.
+		neededPieces.stream()
+			.filter(Piece::isDone)
+			.forEach(piece -> onPieceAvailable(piece.getIndex()));
+
+		int maxPendingChecks = Math.max(1, torrentClient.getDiskWorkerCount()) * PENDING_CHECKS_PER_WORKER;
+		pieceRecheck = new PieceRecheck(pieces, maxPendingChecks, this::addDiskJob, this::onRecheckedPieceVerified);
+		pieceRecheck.start();
+	}
+
+	/**
+	 * Writes the current progress of the torrent into the resume file of the {@link TorrentFileSet}.
+	 * This has no effect when the torrent is still downloading the metadata.
+	 *
+	 * @see TorrentFileSet#getResumeFile()
+	 */
+	public void saveResumeData() {
+		if (isDownloadingMetadata()) {
+			return;
+		}
+
+		try {
+			new ResumeFile(fileSet.getResumeFile()).write(metadata.getHash(), fileSet);
+		} catch (IOException e) {
+			LOGGER.warn("Failed to save resume data for {}.", this, e);
+		}
+	}
+
+	/**
+	 * Closes the files of the {@link TorrentFileSet} and the metadata fileset which releases their handles and memory mapped sections.
+	 * This should only be invoked once no more blocks of this torrent are being read or written.
+	 */
+	public void closeFiles() {
+		if (fileSet != null) {
+			fileSet.close();
+		}
+
+		metadata.getFileSet().filter(metadataFileSet -> metadataFileSet != fileSet).ifPresent(AbstractFileSet::close);
+	}
+
+	private void onRecheckedPieceVerified(Piece piece) {
+		fileSet.setHavingPiece(piece.getIndex());
+		onPieceAvailable(piece.getIndex());
+	}
+
+	private void onPieceAvailable(int pieceIndex) {
+		pieceAvailability.onPieceCompleted(pieceIndex);
+		broadcastMessage(new MessageHave(pieceIndex));
+	}
+
+	/**
+	 * @return <code>true</code> when the progress check started by {@link #checkProgress()} has not yet verified all pieces.
+	 */
+	public boolean isCheckingProgress() {
+		return pieceRecheck != null && !pieceRecheck.isDone();
+	}
+
+	/**
+	 * Calculates the ratio of pieces which have been checked by {@link #checkProgress()}.
+	 * @return The progress of the check between 0 and 1. When no check has been started this returns 1.
+	 */
+	public double getCheckProgress() {
+		if (pieceRecheck == null || pieceRecheck.getPieceCount() == 0) {
+			return 1;
+		}
+
+		return pieceRecheck.getCheckedPieceCount() / (double) pieceRecheck.getPieceCount();
 	}
 
 	/**
@@ -262,7 +357,7 @@ public class Torrent {
 	 * @param l The amount of bytes to add
 	 */
 	public void addUploadedBytes(long l) {
-		uploadedBytes += l;
+		uploadedBytes.addAndGet(l);
 	}
 
 	/**
@@ -272,6 +367,14 @@ public class Torrent {
 	 */
 	public void setFileSet(TorrentFileSet files) {
 		this.fileSet = files;
+		pieceAvailability.setFileSet(files);
+	}
+
+	/**
+	 * @return The factory with which the files of this torrent are opened.
+	 */
+	public IFileStorageFactory getStorageFactory() {
+		return storageFactory;
 	}
 
 	public Metadata getMetadata() {
@@ -311,6 +414,15 @@ public class Torrent {
 		return fileSet;
 	}
 
+	/**
+	 * Gets the availability of the pieces of {@link #getFileSet()} among the connected peers.
+	 *
+	 * @return The piece availability.
+	 */
+	public PieceAvailability getPieceAvailability() {
+		return pieceAvailability;
+	}
+
 	/**
 	 * Sums the download rates of all peers.
 	 * @return The sum of all download rates
@@ -375,7 +487,7 @@ public class Torrent {
 	 * @return The amount of bytes downloaded this session
 	 */
 	public long getDownloadedBytes() {
-		return downloadedBytes;
+		return downloadedBytes.get();
 	}
 
 	/**
@@ -384,7 +496,7 @@ public class Torrent {
 	 * @return The amount of bytes uploaded this session.
 	 */
 	public long getUploadedBytes() {
-		return uploadedBytes;
+		return uploadedBytes.get();
 	}
 
 	@Override
@@ -425,6 +537,8 @@ public class Torrent {
 
 		private String displayName;
 
+		private IFileStorageFactory storageFactory = FileChannelStorage::new;
+
 		/**
 		 * Sets the torrent client on which this torrent will be registered.
 		 * @param torrentClient The client.
@@ -455,6 +569,16 @@ public class Torrent {
 			return this;
 		}
 
+		/**
+		 * Sets the factory which opens the files of the torrent. Defaults to {@link FileChannelStorage}.
+		 * @param storageFactory The factory to use.
+		 * @return The adjusted builder.
+		 */
+		public Builder setStorageFactory(IFileStorageFactory storageFactory) {
+			this.storageFactory = Argument.requireNonNull(storageFactory, "Storage factory cannot be null");
+			return this;
+		}
+
 		/**
 		 * @return <code>true</code> if the hash of the metadata is available.
 		 */
@@ -474,7 +598,7 @@ public class Torrent {
 			}
 
 			if (!metadata.getFileEntries().isEmpty()) {
-				TorrentFileSet fileSet = new TorrentFileSet(metadata, downloadFolder);
+				TorrentFileSet fileSet = new TorrentFileSet(metadata, downloadFolder, storageFactory);
 				torrent.setFileSet(fileSet);
 			}
 
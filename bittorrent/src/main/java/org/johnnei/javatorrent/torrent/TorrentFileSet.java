@@ -4,6 +4,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.johnnei.javatorrent.disk.FileChannelStorage;
+import org.johnnei.javatorrent.disk.IFileStorageFactory;
 import org.johnnei.javatorrent.internal.torrent.TorrentFileSetRequestFactory;
 import org.johnnei.javatorrent.internal.torrent.peer.Bitfield;
 import org.johnnei.javatorrent.torrent.files.Piece;
@@ -38,7 +40,20 @@ public class TorrentFileSet extends AbstractFileSet {
 	 * @throws IllegalArgumentException When the torrent file is missing or incomplete.
 	 */
 	public TorrentFileSet(Metadata metadata, File downloadFolder) {
+		this(metadata, downloadFolder, FileChannelStorage::new);
+	}
+
+	/**
+	 * Creates a TorrentFileSet instance based upon a .torrent file
+	 *
+	 * @param metadata The metadata containing the torrent information
+	 * @param downloadFolder The folder in which the downloads need to be stored.
+	 * @param storageFactory The factory which opens the files in the download folder.
+	 * @throws IllegalArgumentException When the torrent file is missing or incomplete.
+	 */
+	public TorrentFileSet(Metadata metadata, File downloadFolder, IFileStorageFactory storageFactory) {
 		super(BLOCK_SIZE);
+		Argument.requireNonNull(storageFactory, "Storage factory cannot be null");
 		this.metadata = Argument.requireNonNull(metadata, "Torrent metadata can not be null");
 		this.downloadFolder = Argument.requireNonNull(downloadFolder, "Download folder cannot be null");
 
@@ -48,7 +63,7 @@ public class TorrentFileSet extends AbstractFileSet {
 		fileInfos = new ArrayList<>(metadata.getFileEntries().size());
 		for (FileEntry fileEntry : metadata.getFileEntries()) {
 			int pieceCount = (int) MathUtils.ceilDivision(fileEntry.getSize(), metadata.getPieceSize());
-			FileInfo info = new FileInfo(fileEntry.getSize(), fileEntry.getFirstByteOffset(), getFile(fileEntry.getFileName()), pieceCount);
+			FileInfo info = new FileInfo(fileEntry.getSize(), fileEntry.getFirstByteOffset(), getFile(fileEntry.getFileName()), pieceCount, storageFactory);
 			fileInfos.add(info);
 
 			remainingSize += fileEntry.getSize();
@@ -114,4 +129,13 @@ public class TorrentFileSet extends AbstractFileSet {
 	public File getDownloadFolder() {
 		return downloadFolder;
 	}
+
+	/**
+	 * Gets the file in which the progress of this file set is persisted. The file is stored in the download folder and named after the info hash so
+	 * torrents sharing a download folder don't overwrite each other's progress.
+	 * @return The resume file.
+	 */
+	public File getResumeFile() {
+		return new File(downloadFolder, metadata.getHashString() + ".resume");
+	}
 }
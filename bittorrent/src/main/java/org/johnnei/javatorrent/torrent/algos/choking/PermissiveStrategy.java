@@ -14,7 +14,7 @@ public class PermissiveStrategy extends PermissiveUploadStrategy {
 	 */
 	@Override
 	public void updateChoking(Peer peer) {
-		boolean interested = peer.getTorrent().getFileSet().getNeededPieces().anyMatch(piece -> peer.hasPiece(piece.getIndex()));
+		boolean interested = peer.getTorrent().getPieceAvailability().hasNeededPieces(peer);
 
 		if (peer.isInterested(PeerDirection.Download) != interested) {
 			peer.setInterested(PeerDirection.Download, interested);
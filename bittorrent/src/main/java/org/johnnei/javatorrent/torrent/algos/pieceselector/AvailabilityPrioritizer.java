@@ -2,31 +2,53 @@ package org.johnnei.javatorrent.torrent.algos.pieceselector;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
+import org.johnnei.javatorrent.torrent.PieceAvailability;
 import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.torrent.peer.Peer;
 
+/**
+ * Prioritizes the pieces which are the least available among the connected peers (rarest first).
+ */
 public class AvailabilityPrioritizer implements PiecePrioritizer {
 
-	@Override
-	public List<Piece> sortByPriority(Collection<Peer> peers, List<Piece> pieces) {
-		List<Piece> sorted = new ArrayList<>(pieces);
-		Map<Piece, Integer> memoizedAvailability = new HashMap<>();
+	private final PieceAvailability pieceAvailability;
 
-		sorted.sort((a, b) -> {
-			int availabilityA = memoizedAvailability.computeIfAbsent(a, (key) -> countAvailability(peers, key));
-			int availabilityB = memoizedAvailability.computeIfAbsent(b, (key) -> countAvailability(peers, key));
+	/**
+	 * Creates a new prioritizer based on the given availability.
+	 * @param pieceAvailability The availability of the pieces which will be prioritized.
+	 */
+	public AvailabilityPrioritizer(PieceAvailability pieceAvailability) {
+		this.pieceAvailability = pieceAvailability;
+	}
 
-			return Integer.compare(availabilityA, availabilityB);
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The availability is based on all connected peers as tracked by {@link PieceAvailability} and not only on the given peers.
+	 */
+	@Override
+	public List<Piece> sortByPriority(Collection<Peer> peers, List<Piece> pieces) {
+		int maxIndex = pieces.stream().mapToInt(Piece::getIndex).max().orElse(-1);
+		Piece[] piecesByIndex = new Piece[maxIndex + 1];
+		pieces.forEach(piece -> piecesByIndex[piece.getIndex()] = piece);
+
+		List<Piece> sorted = new ArrayList<>(pieces.size());
+		pieceAvailability.forEachRarestFirst(pieceIndex -> {
+			if (pieceIndex < piecesByIndex.length && piecesByIndex[pieceIndex] != null) {
+				sorted.add(piecesByIndex[pieceIndex]);
+				piecesByIndex[pieceIndex] = null;
+			}
 		});
 
-		return sorted;
-	}
+		// Pieces which are not tracked by the availability are the least preferred.
+		for (Piece piece : piecesByIndex) {
+			if (piece != null) {
+				sorted.add(piece);
+			}
+		}
 
-	private int countAvailability(Collection<Peer> peers, Piece piece) {
-		return (int) peers.stream().filter(peer -> peer.hasPiece(piece.getIndex())).count();
+		return sorted;
 	}
 }
@@ -21,7 +21,7 @@ public final class Block {
 	/**
 	 * The status of this block
 	 */
-	private BlockStatus status;
+	private volatile BlockStatus status;
 
 	/**
 	 * Creates a new block which is part of a {@link Piece}.
@@ -1,16 +1,15 @@
 package org.johnnei.javatorrent.torrent.files;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
 import org.johnnei.javatorrent.torrent.FileInfo;
 import org.johnnei.javatorrent.utils.MathUtils;
@@ -48,6 +47,36 @@ public class Piece {
 
 	private final byte[] expectedHash;
 
+	/**
+	 * The size of a non-truncated block in this piece.
+	 */
+	private final int blockSize;
+
+	/**
+	 * Lock guarding the status changes of the {@link #blocks} and {@link #pendingWrites}.
+	 */
+	private final Object blockLock = new Object();
+
+	/**
+	 * The amount of blocks which have been claimed by {@link #claimBlock(int)} but of which the write has not yet completed.
+	 */
+	private int pendingWrites;
+
+	/**
+	 * Lock guarding the {@link #pieceDigest}.
+	 */
+	private final Object digestLock = new Object();
+
+	/**
+	 * The hash state of the blocks which have been stored in order, <code>null</code> when no block has been stored yet.
+	 */
+	private PieceDigest pieceDigest;
+
+	/**
+	 * The digest which is being completed by {@link #checkHash()}, <code>null</code> when no check is running.
+	 */
+	private PieceDigest checkingDigest;
+
 	/**
 	 * Creates a new piece.
 	 * @param files The {@link AbstractFileSet} which owns this piece.
@@ -60,6 +89,7 @@ public class Piece {
 		this.index = index;
 		this.files = files;
 		this.expectedHash = hash;
+		this.blockSize = blockSize;
 		blocks = new ArrayList<>(MathUtils.ceilDivision(pieceSize, blockSize));
 		int blockIndex = 0;
 		int remainingPieceSize = pieceSize;
@@ -75,11 +105,17 @@ public class Piece {
 	 * Drops ceil(10%) of the blocks in order to maintain speed and still try to *not* redownload the entire piece
 	 */
 	public void onHashMismatch() {
+		synchronized (digestLock) {
+			pieceDigest = null;
+		}
+
 		int tenPercent = MathUtils.ceilDivision(blocks.size(), 10);
-		for (int i = 0; i < tenPercent; i++) {
-			blocks.get(hashFailCheck++).setStatus(BlockStatus.Needed);
-			if (hashFailCheck >= blocks.size()) {
-				hashFailCheck = 0;
+		synchronized (blockLock) {
+			for (int i = 0; i < tenPercent; i++) {
+				blocks.get(hashFailCheck++).setStatus(BlockStatus.Needed);
+				if (hashFailCheck >= blocks.size()) {
+					hashFailCheck = 0;
+				}
 			}
 		}
 	}
@@ -95,44 +131,48 @@ public class Piece {
 	@Deprecated(forRemoval = true)
 	public byte[] loadPiece(int offset, int length) throws IOException {
 		byte[] pieceData = new byte[length];
+		ByteBuffer buffer = ByteBuffer.wrap(pieceData);
 
-		int readBytes = 0;
-		while (readBytes < length) {
-			// Offset within the piece
-			int alreadyReadOffset = offset + readBytes;
-
-			// Find file for the given offset
-			FileInfo outputFile = files.getFileForBytes(index, alreadyReadOffset / files.getBlockSize(), alreadyReadOffset % files.getBlockSize());
-
-			// Calculate offset as if the torrent was one file
-			long pieceIndexOffset = index * files.getPieceSize();
-			long totalOffset = pieceIndexOffset + alreadyReadOffset;
-
-			// Calculate the offset within the file
-			long offsetInFile = totalOffset - outputFile.getFirstByteOffset();
+		forEachFileSection(offset, length, (file, offsetInFile, offsetInPiece, sectionLength) -> {
+			int bufferOffset = offsetInPiece - offset;
+			buffer.limit(bufferOffset + sectionLength);
+			buffer.position(bufferOffset);
+			file.getStorage().read(buffer, offsetInFile);
+			return true;
+		});
 
-			// Calculate how many bytes we want/can read from the file
-			int bytesToRead = Math.min(length - readBytes, (int) (outputFile.getSize() - offsetInFile));
+		return pieceData;
+	}
 
-			// Check if we don't read outside the file
-			if (offsetInFile < 0) {
-				// TODO Figure out why this exception can be thrown in the first place.
-				throw new IOException("Cannot seek to position: " + offsetInFile);
-			}
+	/**
+	 * Loads a bit of data from the file as a read-only view. When the data is contained within a single file the view is backed by the
+	 * {@link org.johnnei.javatorrent.disk.IFileStorage} and (depending on the implementation) doesn't require a copy on the heap.
+	 *
+	 * @param offset The offset in the piece
+	 * @param length The amount of bytes to read
+	 * @return The read bytes between position and limit.
+	 * @throws IOException When the underlying IO causes an error.
+	 */
+	public ByteBuffer loadBlock(int offset, int length) throws IOException {
+		List<ByteBuffer> sections = new ArrayList<>(1);
+		forEachFileSection(offset, length, (file, offsetInFile, offsetInPiece, sectionLength) -> {
+			sections.add(file.getStorage().view(offsetInFile, sectionLength));
+			return true;
+		});
 
-			// Read the actual files
-			synchronized (outputFile.fileLock) {
-				RandomAccessFile file = outputFile.getFileAccess();
-				file.seek(offsetInFile);
-				file.readFully(pieceData, readBytes, bytesToRead);
-				readBytes += bytesToRead;
-			}
+		if (sections.size() == 1) {
+			return sections.get(0);
 		}
-		return pieceData;
+
+		ByteBuffer data = ByteBuffer.allocate(length);
+		sections.forEach(data::put);
+		data.flip();
+		return data.asReadOnlyBuffer();
 	}
 
 	/**
-	 * Checks if the received bytes hash matches with the hash which was given in the metadata
+	 * Checks if the received bytes hash matches with the hash which was given in the metadata.
+	 * Blocks which have been stored in order via {@link #storeBlock(int, byte[])} have already been hashed and will not be read back from disk.
 	 *
 	 * @return hashMatched ? true : false
 	 */
@@ -141,35 +181,50 @@ public class Piece {
 		final int pieceSize = getSize();
 
 		// Test if the piece is completely available on disk.
-		int remainingBytes = pieceSize;
-		int alreadyReadOffset = 0;
-		while (remainingBytes > 0) {
-			FileInfo file = files.getFileForBytes(index, alreadyReadOffset / files.getBlockSize(), alreadyReadOffset % files.getBlockSize());
+		boolean isAvailable = forEachFileSection(0, pieceSize, (file, offsetInFile, offsetInPiece, sectionLength) ->
+			file.getStorage().size() >= offsetInFile + sectionLength
+		);
 
-			long pieceIndexOffset = index * files.getPieceSize();
-			long totalOffset = pieceIndexOffset + alreadyReadOffset;
+		if (!isAvailable) {
+			// Not enough bytes are available to read this entire piece.
+			return false;
+		}
 
-			// Calculate the offset within the file
-			long offsetInFile = totalOffset - file.getFirstByteOffset();
-			long fileSize;
-			synchronized (file.fileLock) {
-				fileSize = file.getFileAccess().length();
+		PieceDigest digest;
+		byte[] hash;
+		do {
+			synchronized (digestLock) {
+				digest = pieceDigest;
+				pieceDigest = null;
+				if (digest == null || digest.isInvalidated()) {
+					digest = new PieceDigest();
+				}
+				checkingDigest = digest;
 			}
 
-			// Subtract the available bytes.
-			long availableBytes = fileSize - offsetInFile;
-			if (availableBytes <= 0) {
-				// Not enough bytes are available to read this entire piece.
-				return false;
+			try {
+				hash = completeDigest(digest, pieceSize);
+			} finally {
+				synchronized (digestLock) {
+					checkingDigest = null;
+				}
 			}
+			// A block which got stored during the check may not be reflected in the hash, start over from the stored data.
+		} while (digest.isInvalidated());
 
-			remainingBytes -= availableBytes;
-			alreadyReadOffset += availableBytes;
-		}
+		return MessageDigest.isEqual(expectedHash, hash);
+	}
 
-		// Verify the hash.
-		byte[] pieceData = loadPiece(0, pieceSize);
-		return Arrays.equals(expectedHash, SHA1.hash(pieceData));
+	/**
+	 * Completes the digest by reading the blocks which haven't been hashed yet.
+	 */
+	private byte[] completeDigest(PieceDigest digest, int pieceSize) throws IOException {
+		final int hashedBytes = digest.getHashedBlocks() * blockSize;
+		forEachFileSection(hashedBytes, pieceSize - hashedBytes, (file, offsetInFile, offsetInPiece, sectionLength) -> {
+			digest.update(file.getStorage().view(offsetInFile, sectionLength));
+			return true;
+		});
+		return digest.digest();
 	}
 
 	/**
@@ -181,38 +236,72 @@ public class Piece {
 	@Deprecated(forRemoval = true)
 	public void storeBlock(int blockIndex, byte[] blockData) throws IOException {
 		Block block = blocks.get(blockIndex);
-		int remainingBytesToWrite = block.getSize();
-		// Write Block
-		while (remainingBytesToWrite > 0) {
-			// The offset within the block itself
-			int dataOffset = block.getSize() - remainingBytesToWrite;
-			// Retrieve the file to which we need to write
-			FileInfo outputFile = files.getFileForBytes(index, blockIndex, dataOffset);
-
-			// Calculate the offset in bytes as if the torrent was one file
-			final long pieceOffset = index * files.getPieceSize();
-			final long blockOffset = (long) blockIndex * files.getBlockSize();
-			final long totalOffset = pieceOffset + blockOffset + dataOffset;
+		final int blockOffset = blockIndex * blockSize;
+		ByteBuffer buffer = ByteBuffer.wrap(blockData);
+
+		forEachFileSection(blockOffset, block.getSize(), (file, offsetInFile, offsetInPiece, sectionLength) -> {
+			int dataOffset = offsetInPiece - blockOffset;
+			buffer.limit(dataOffset + sectionLength);
+			buffer.position(dataOffset);
+			file.getStorage().write(buffer, offsetInFile);
+			return true;
+		});
+
+		synchronized (digestLock) {
+			if (checkingDigest != null) {
+				// The running check has already hashed or might be reading this block while it was being written.
+				checkingDigest.invalidate();
+			}
+
+			if (pieceDigest == null) {
+				pieceDigest = new PieceDigest();
+			}
+
+			buffer.clear();
+			pieceDigest.onBlockStored(blockIndex, buffer);
+		}
+	}
+
+	/**
+	 * Splits the given range of this piece into the sections which are stored in a single file.
+	 *
+	 * @param offset The offset in the piece
+	 * @param length The amount of bytes in the range
+	 * @param consumer The consumer which processes each section in order.
+	 * @return <code>true</code> when all sections have been consumed, <code>false</code> when the consumer requested to stop.
+	 * @throws IOException When the range maps outside of the files or the consumer fails.
+	 */
+	private boolean forEachFileSection(int offset, int length, FileSectionConsumer consumer) throws IOException {
+		int processedBytes = 0;
+		while (processedBytes < length) {
+			// Offset within the piece
+			int offsetInPiece = offset + processedBytes;
+
+			// Find file for the given offset
+			FileInfo file = files.getFileForBytes(index, offsetInPiece / blockSize, offsetInPiece % blockSize);
+
+			// Calculate offset as if the torrent was one file
+			long totalOffset = index * files.getPieceSize() + offsetInPiece;
 
 			// Calculate the offset within the file
-			long offsetInFile = totalOffset - outputFile.getFirstByteOffset();
+			long offsetInFile = totalOffset - file.getFirstByteOffset();
 
-			// Determine how many bytes still belong in this file
-			int bytesToWrite = Math.min(remainingBytesToWrite, (int) (outputFile.getSize() - offsetInFile));
+			// Calculate how many bytes of the range are in this file
+			int sectionLength = (int) Math.min(length - processedBytes, file.getSize() - offsetInFile);
 
-			// Check if the calculated offset is within the file
-			if (offsetInFile < 0) {
-				throw new IOException("Cannot seek to position: " + offsetInFile);
+			// Check if we don't read outside the file
+			if (offsetInFile < 0 || sectionLength <= 0) {
+				throw new IOException(String.format("Cannot seek to position %d in %s", offsetInFile, file));
 			}
 
-			// Write the actual bytes
-			synchronized (outputFile.fileLock) {
-				RandomAccessFile file = outputFile.getFileAccess();
-				file.seek(offsetInFile);
-				file.write(blockData, dataOffset, bytesToWrite);
-				remainingBytesToWrite -= bytesToWrite;
+			if (!consumer.accept(file, offsetInFile, offsetInPiece, sectionLength)) {
+				return false;
 			}
+
+			processedBytes += sectionLength;
 		}
+
+		return true;
 	}
 
 	/**
@@ -235,7 +324,46 @@ public class Piece {
 			throw new IllegalArgumentException(String.format(ERR_BLOCK_IS_NOT_WITHIN_PIECE, blockIndex, blocks.size(), this));
 		}
 
-		blocks.get(blockIndex).setStatus(blockStatus);
+		synchronized (blockLock) {
+			blocks.get(blockIndex).setStatus(blockStatus);
+		}
+	}
+
+	/**
+	 * Claims the block for writing by changing its status from {@link BlockStatus#Needed} or {@link BlockStatus#Requested} to
+	 * {@link BlockStatus#Stored}. Only the caller which claimed the block may write it, so a block which is received from multiple peers is written once.
+	 *
+	 * @param blockIndex The index of the block.
+	 * @return <code>true</code> when the block has been claimed by this invocation.
+	 * @see #onClaimedBlockWritten()
+	 */
+	public boolean claimBlock(int blockIndex) {
+		if (blockIndex < 0 || blockIndex >= blocks.size()) {
+			throw new IllegalArgumentException(String.format(ERR_BLOCK_IS_NOT_WITHIN_PIECE, blockIndex, blocks.size(), this));
+		}
+
+		synchronized (blockLock) {
+			Block block = blocks.get(blockIndex);
+			if (block.getStatus() != BlockStatus.Needed && block.getStatus() != BlockStatus.Requested) {
+				return false;
+			}
+
+			block.setStatus(BlockStatus.Stored);
+			pendingWrites++;
+			return true;
+		}
+	}
+
+	/**
+	 * Marks the write of a block which got claimed by {@link #claimBlock(int)} as completed.
+	 *
+	 * @return <code>true</code> when all blocks are stored and none of them is still being written, the piece can then be hash checked.
+	 */
+	public boolean onClaimedBlockWritten() {
+		synchronized (blockLock) {
+			pendingWrites--;
+			return pendingWrites == 0 && blocks.stream().allMatch(block -> block.getStatus() == BlockStatus.Stored);
+		}
 	}
 
 	/**
@@ -394,4 +522,19 @@ public class Piece {
 		return String.format("Piece[index=%d, hash=%s]", index, StringUtils.byteArrayToString(expectedHash));
 	}
 
+	@FunctionalInterface
+	private interface FileSectionConsumer {
+
+		/**
+		 * Consumes a section of the piece which is stored within a single file.
+		 * @param file The file containing the section.
+		 * @param offsetInFile The offset of the section within the file.
+		 * @param offsetInPiece The offset of the section within the piece.
+		 * @param sectionLength The amount of bytes in the section.
+		 * @return <code>true</code> to continue with the next section, otherwise <code>false</code>.
+		 * @throws IOException When the underlying IO causes an error.
+		 */
+		boolean accept(FileInfo file, long offsetInFile, int offsetInPiece, int sectionLength) throws IOException;
+	}
+
 }
@@ -0,0 +1,82 @@
+package org.johnnei.javatorrent.torrent.files;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+
+/**
+ * The SHA-1 state of a {@link Piece} which is updated with the blocks as they are stored in order.
+ * Blocks which are stored out of order are not consumed and must be read back from the storage when the piece gets verified.
+ */
+class PieceDigest {
+
+	private final MessageDigest digest;
+
+	/**
+	 * The amount of blocks (starting from the first block) which have been fed into the digest.
+	 */
+	private int hashedBlocks;
+
+	/**
+	 * Flag indicating that a block has been stored which was already part of the digest.
+	 */
+	private volatile boolean invalidated;
+
+	PieceDigest() {
+		digest = SHA1.createDigest();
+	}
+
+	/**
+	 * Feeds the block into the digest when it is the next block in order.
+	 * @param blockIndex The index of the stored block.
+	 * @param data The stored data between position and limit. The position of the buffer will be moved to the limit when consumed.
+	 */
+	void onBlockStored(int blockIndex, ByteBuffer data) {
+		if (blockIndex == hashedBlocks) {
+			digest.update(data);
+			hashedBlocks++;
+		} else if (blockIndex < hashedBlocks) {
+			// The block got overwritten, the stored data might no longer be equal to the hashed data.
+			invalidate();
+		}
+	}
+
+	/**
+	 * Marks the digest as no longer representing the stored data.
+	 */
+	void invalidate() {
+		invalidated = true;
+	}
+
+	/**
+	 * Feeds data which has been read back from the storage into the digest.
+	 * @param data The data between position and limit.
+	 */
+	void update(ByteBuffer data) {
+		digest.update(data);
+	}
+
+	/**
+	 * @return The amount of blocks (starting from the first block) which have been fed into the digest.
+	 */
+	int getHashedBlocks() {
+		return hashedBlocks;
+	}
+
+	/**
+	 * @return <code>true</code> when the digest no longer represents the stored data.
+	 */
+	boolean isInvalidated() {
+		return invalidated;
+	}
+
+	/**
+	 * Completes the hash computation.
+	 * @return The SHA-1 hash of the data that has been fed.
+	 */
+	byte[] digest() {
+		return digest.digest();
+	}
+
+}
@@ -1,5 +1,6 @@
 package org.johnnei.javatorrent.torrent.peer;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -22,6 +23,7 @@ import org.johnnei.javatorrent.internal.torrent.peer.Client;
 import org.johnnei.javatorrent.internal.torrent.peer.Job;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.torrent.PieceAvailability;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
 import org.johnnei.javatorrent.torrent.files.Piece;
@@ -297,12 +299,17 @@ public class Peer {
 	}
 
 	/**
-	 * Registers that this peer has the given piece
+	 * Registers that this peer has the given piece and counts it in the {@link PieceAvailability} of the torrent.
 	 *
 	 * @param pieceIndex the piece to marked as "have"
 	 */
 	public void setHavingPiece(int pieceIndex) {
-		haveState.havePiece(pieceIndex, torrent.isDownloadingMetadata());
+		PieceAvailability availability = torrent.getPieceAvailability();
+		synchronized (availability) {
+			if (haveState.havePiece(pieceIndex, torrent.isDownloadingMetadata())) {
+				availability.addPiece(this, pieceIndex);
+			}
+		}
 	}
 
 	/**
@@ -512,7 +519,9 @@ public class Peer {
 
 			addToPendingMessages(1);
 
-			torrent.addDiskJob(new DiskJobReadBlock(request.getPiece(), request.getBlockIndex(), request.getLength(), this::onReadBlockComplete));
+			Piece piece = request.getPiece();
+			Object affinity = torrent.getFileSet().getFileForBytes(piece.getIndex(), 0, 0);
+			torrent.addDiskJob(new DiskJobReadBlock(piece, request.getBlockIndex(), request.getLength(), affinity, this::onReadBlockComplete));
 		}
 	}
 
@@ -524,10 +533,11 @@ public class Peer {
 	}
 
 	private void onReadBlockComplete(DiskJobReadBlock readJob) {
-		final byte[] data = readJob.getBlockData();
+		final ByteBuffer data = readJob.getBlockBuffer();
+		final int length = data.remaining();
 		socket.enqueueMessage(new MessageBlock(readJob.getPiece().getIndex(), readJob.getOffset(), data));
 		addToPendingMessages(-1);
-		torrent.addUploadedBytes(data.length);
+		torrent.addUploadedBytes(length);
 	}
 
 	public static final class Builder {
@@ -3,6 +3,7 @@ package org.johnnei.javatorrent.tracker.http;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.internal.tracker.http.HttpTracker;
@@ -10,15 +11,32 @@ import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.module.ModuleBuildException;
 import org.johnnei.javatorrent.torrent.peer.Peer;
 
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
 /**
  * A {@link IModule} to add support for HTTP trackers.
+ * All trackers share a single HTTP client so that connections to the trackers are pooled and kept alive between announces.
  */
 public class HttpTrackerModule implements IModule {
 
+	private static final int MAX_IDLE_CONNECTIONS = 8;
+
+	private static final long KEEP_ALIVE_MINUTES = 5;
+
+	private final OkHttpClient httpClient;
+
+	public HttpTrackerModule() {
+		httpClient = new OkHttpClient.Builder()
+				.connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+				.build();
+	}
+
 	@Override
 	public void configureTorrentClient(TorrentClient.Builder builder) {
 		builder.registerTrackerProtocol("http", (trackerUrl, torrentClient) -> new HttpTracker.Builder()
 				.setTorrentClient(torrentClient)
+				.setHttpClient(httpClient)
 				.setUrl(trackerUrl)
 				.build());
 	}
@@ -45,6 +63,7 @@ public class HttpTrackerModule implements IModule {
 
 	@Override
 	public void onShutdown() {
-		// HTTP tracker doesn't do anything on shutdown.
+		httpClient.dispatcher().executorService().shutdown();
+		httpClient.connectionPool().evictAll();
 	}
 }
@@ -11,7 +11,7 @@ import org.powermock.reflect.Whitebox;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
 import org.johnnei.javatorrent.disk.IDiskJob;
-import org.johnnei.javatorrent.internal.disk.IOManager;
+import org.johnnei.javatorrent.internal.disk.IOManagerPool;
 import org.johnnei.javatorrent.module.IModule;
 import org.johnnei.javatorrent.network.ConnectionDegradation;
 import org.johnnei.javatorrent.phases.IDownloadPhase;
@@ -230,7 +230,7 @@ public class TorrentClientTest {
 				.registerModule(moduleMock)
 				.build();
 
-		verify(executorServiceMock, times(2)).scheduleWithFixedDelay(notNull(), anyLong(), anyLong(), notNull());
+		verify(executorServiceMock, times(1)).scheduleWithFixedDelay(notNull(), anyLong(), anyLong(), notNull());
 
 		cut.shutdown();
 
@@ -240,7 +240,7 @@ public class TorrentClientTest {
 
 		verify(peerConnectorMock).start();
 		verify(peerConnectorMock).stop();
-		verify(futureMock, times(2)).cancel(false);
+		verify(futureMock).cancel(false);
 
 		verify(executorServiceMock).shutdown();
 	}
@@ -253,7 +253,7 @@ public class TorrentClientTest {
 		IPeerConnector peerConnectorMock = mock(IPeerConnector.class);
 		IPeerDistributor peerDistributor = mock(IPeerDistributor.class);
 		IRequestLimiter requestLimiterMock = mock(IRequestLimiter.class);
-		IOManager ioManagerMock = mock(IOManager.class);
+		IOManagerPool ioManagerMock = mock(IOManagerPool.class);
 		IDiskJob diskJobMock = mock(IDiskJob.class);
 
 		TorrentClient cut = new TorrentClient.Builder()
@@ -1,7 +1,10 @@
 package org.johnnei.javatorrent.bittorrent.protocol.messages;
 
+import java.nio.ByteBuffer;
+
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.network.ByteBufferUtils;
 import org.johnnei.javatorrent.network.InStream;
 import org.johnnei.javatorrent.network.OutStream;
 import org.johnnei.javatorrent.torrent.Torrent;
@@ -115,4 +118,49 @@ public class MessageBlockTest {
 		assertArrayEquals(expectedOutput, outStream.toByteArray(), "Incorrect output");
 	}
 
+	@Test
+	public void testWriteFromBuffer() {
+		ByteBuffer data = ByteBuffer.allocateDirect(5);
+		data.put(new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 });
+		data.position(1).limit(4);
+
+		MessageBlock cut = new MessageBlock(1, 2, data.asReadOnlyBuffer());
+
+		byte[] expectedOutput = new byte[] {
+				0x00, 0x00, 0x00, 0x01,
+				0x00, 0x00, 0x00, 0x02,
+				0x02, 0x03, 0x04
+		};
+
+		OutStream outStream = new OutStream();
+		cut.write(outStream);
+
+		assertEquals(12, cut.getLength(), "Incorrect message length");
+		assertArrayEquals(expectedOutput, outStream.toByteArray(), "Incorrect output");
+		assertEquals(1, data.position(), "Writing must not consume the given buffer");
+	}
+
+	@Test
+	public void testCreateSendBuffers() {
+		ByteBuffer data = ByteBuffer.allocateDirect(5);
+		data.put(new byte[] { 0x01, 0x02, 0x03, 0x04, 0x05 });
+		data.position(1).limit(4);
+
+		MessageBlock cut = new MessageBlock(1, 2, data.asReadOnlyBuffer());
+
+		byte[] expectedHeader = new byte[] {
+				0x00, 0x00, 0x00, 0x0C,
+				0x07,
+				0x00, 0x00, 0x00, 0x01,
+				0x00, 0x00, 0x00, 0x02
+		};
+
+		ByteBuffer[] buffers = cut.createSendBuffers();
+
+		assertEquals(2, buffers.length, "Header and data should be separate buffers");
+		assertArrayEquals(expectedHeader, ByteBufferUtils.getBytes(buffers[0], expectedHeader.length), "Incorrect header");
+		assertArrayEquals(new byte[] { 0x02, 0x03, 0x04 }, ByteBufferUtils.getBytes(buffers[1], 3), "Incorrect data");
+		assertEquals(1, data.position(), "Sending must not consume the given buffer");
+	}
+
 }
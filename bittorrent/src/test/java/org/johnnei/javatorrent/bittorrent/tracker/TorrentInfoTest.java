@@ -2,6 +2,9 @@ package org.johnnei.javatorrent.bittorrent.tracker;
 
 import java.time.Clock;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 
@@ -10,6 +13,8 @@ import org.johnnei.javatorrent.test.TestClock;
 import org.johnnei.javatorrent.torrent.Torrent;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Tests {@link TorrentInfo}
@@ -60,9 +65,40 @@ public class TorrentInfoTest {
 		assertEquals(torrent, cut.getTorrent(), "Torrent should be the same as the given one in the constructor");
 		assertEquals(TrackerEvent.EVENT_STARTED, cut.getEvent(), "Initial tracker event should be STARTED");
 
+		List<TrackerEvent> events = new ArrayList<>();
+		cut.setEventListener(events::add);
 		cut.setEvent(TrackerEvent.EVENT_COMPLETED);
 
 		assertEquals(TrackerEvent.EVENT_COMPLETED, cut.getEvent(), "Event should have changed by set.");
+		assertEquals(Collections.singletonList(TrackerEvent.EVENT_COMPLETED), events, "Listener should have been notified of the new event.");
+	}
+
+	@Test
+	public void testIsAnnounceAllowed() {
+		Torrent torrent = DummyEntity.createUniqueTorrent();
+		Clock baseClock = Clock.fixed(Clock.systemDefaultZone().instant(), Clock.systemDefaultZone().getZone());
+		TestClock testClock = new TestClock(baseClock);
+
+		TorrentInfo cut = new TorrentInfo(torrent, testClock);
+
+		assertEquals(TorrentInfo.DEFAULT_ANNOUNCE_INTERVAL, cut.getAnnounceInterval(), "Incorrect default interval");
+		assertEquals(Duration.ZERO, cut.getMinAnnounceInterval(), "Incorrect default minimum interval");
+		assertTrue(cut.isAnnounceAllowed(), "Initial announce should be allowed");
+
+		cut.setAnnounceInterval(Duration.ofMinutes(30));
+		cut.setMinAnnounceInterval(Duration.ofMinutes(5));
+		cut.setEvent(TrackerEvent.EVENT_NONE);
+		cut.setInfo(1, 2);
+
+		testClock.setClock(Clock.offset(baseClock, Duration.ofMinutes(5)));
+		assertFalse(cut.isAnnounceAllowed(), "Regular announce must respect the announce interval");
+
+		cut.setEvent(TrackerEvent.EVENT_COMPLETED);
+		assertTrue(cut.isAnnounceAllowed(), "Event announce must only respect the minimum interval");
+
+		cut.setEvent(TrackerEvent.EVENT_NONE);
+		testClock.setClock(Clock.offset(baseClock, Duration.ofMinutes(30)));
+		assertTrue(cut.isAnnounceAllowed(), "Regular announce should be allowed after the announce interval");
 	}
 
 }
@@ -0,0 +1,87 @@
+package org.johnnei.javatorrent.disk;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.network.ByteBufferUtils;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link FileChannelStorage}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class FileChannelStorageTest {
+
+	@Test
+	public void testWriteAndRead(@Folder Path tempFolder) throws Exception {
+		Path file = tempFolder.resolve("storage.bin");
+		try (FileChannelStorage cut = new FileChannelStorage(file, 8)) {
+			cut.write(ByteBuffer.wrap("Hello world!".getBytes(StandardCharsets.UTF_8)), 4);
+
+			ByteBuffer buffer = ByteBuffer.allocate(5);
+			cut.read(buffer, 10);
+			buffer.flip();
+
+			assertAll(
+				() -> assertEquals(16, cut.size(), "Incorrect file size after write"),
+				() -> assertEquals("world", ByteBufferUtils.getString(buffer, 5), "Incorrect data read")
+			);
+		}
+	}
+
+	@Test
+	public void testReadBeyondEndOfFile(@Folder Path tempFolder) throws Exception {
+		Path file = tempFolder.resolve("storage.bin");
+		Files.write(file, new byte[4]);
+
+		try (FileChannelStorage cut = new FileChannelStorage(file, 8)) {
+			assertThrows(EOFException.class, () -> cut.read(ByteBuffer.allocate(5), 0));
+			assertThrows(EOFException.class, () -> cut.view(2, 4));
+		}
+	}
+
+	@Test
+	public void testView(@Folder Path tempFolder) throws Exception {
+		Path file = tempFolder.resolve("storage.bin");
+		Files.write(file, "Hello world!".getBytes(StandardCharsets.UTF_8));
+
+		try (FileChannelStorage cut = new FileChannelStorage(file, 8)) {
+			ByteBuffer withinWindow = cut.view(6, 2);
+			ByteBuffer acrossWindows = cut.view(6, 5);
+
+			assertAll(
+				() -> assertTrue(withinWindow.isReadOnly(), "Views must not allow modification"),
+				() -> assertTrue(withinWindow.isDirect(), "Views within a window should be mapped"),
+				() -> assertEquals("wo", ByteBufferUtils.getString(withinWindow, 2), "Incorrect data within window"),
+				() -> assertTrue(acrossWindows.isReadOnly(), "Views must not allow modification"),
+				() -> assertEquals("world", ByteBufferUtils.getString(acrossWindows, 5), "Incorrect data across windows")
+			);
+		}
+	}
+
+	@Test
+	public void testViewAfterGrowth(@Folder Path tempFolder) throws Exception {
+		Path file = tempFolder.resolve("storage.bin");
+
+		try (FileChannelStorage cut = new FileChannelStorage(file, 16)) {
+			cut.write(ByteBuffer.wrap("Hello".getBytes(StandardCharsets.UTF_8)), 0);
+			assertEquals("Hello", ByteBufferUtils.getString(cut.view(0, 5), 5), "Incorrect data before growth");
+
+			cut.write(ByteBuffer.wrap(" world!".getBytes(StandardCharsets.UTF_8)), 5);
+			assertEquals("world", ByteBufferUtils.getString(cut.view(6, 5), 5), "Incorrect data after growth");
+		}
+	}
+
+}
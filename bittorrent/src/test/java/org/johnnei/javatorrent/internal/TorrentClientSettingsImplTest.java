@@ -22,6 +22,27 @@ public class TorrentClientSettingsImplTest {
 		);
 	}
 
+	@Test
+	public void testDiskWorkerCountBelowRange() {
+		assertThrows(IllegalArgumentException.class,
+			() -> new TorrentClientSettingsImpl.Builder().withDiskWorkerCount(0).build()
+		);
+	}
+
+	@Test
+	public void testPeerIoThreadCountBelowRange() {
+		assertThrows(IllegalArgumentException.class,
+			() -> new TorrentClientSettingsImpl.Builder().withPeerIoThreadCount(0).build()
+		);
+	}
+
+	@Test
+	public void testMaxConcurrentAnnouncesBelowRange() {
+		assertThrows(IllegalArgumentException.class,
+			() -> new TorrentClientSettingsImpl.Builder().withMaxConcurrentAnnounces(0).build()
+		);
+	}
+
 	@Test
 	public void testBuildDefaults() {
 		TorrentClientSettings clientSettings = new TorrentClientSettingsImpl.Builder()
@@ -29,7 +50,10 @@ public class TorrentClientSettingsImplTest {
 
 		assertAll(
 			() -> assertEquals(clientSettings.getAcceptingPort(), 6881),
-			() -> assertFalse(clientSettings.isAcceptingConnections())
+			() -> assertFalse(clientSettings.isAcceptingConnections()),
+			() -> assertEquals(clientSettings.getDiskWorkerCount(), 1),
+			() -> assertEquals(clientSettings.getPeerIoThreadCount(), 1),
+			() -> assertEquals(clientSettings.getMaxConcurrentAnnounces(), 16)
 		);
 	}
 
@@ -38,11 +62,17 @@ public class TorrentClientSettingsImplTest {
 		TorrentClientSettings clientSettings = new TorrentClientSettingsImpl.Builder()
 			.withAcceptingPort(42)
 			.withAcceptingConnections(true)
+			.withDiskWorkerCount(4)
+			.withPeerIoThreadCount(2)
+			.withMaxConcurrentAnnounces(3)
 			.build();
 
 		assertAll(
 			() -> assertEquals(clientSettings.getAcceptingPort(), 42),
-			() -> assertTrue(clientSettings.isAcceptingConnections())
+			() -> assertTrue(clientSettings.isAcceptingConnections()),
+			() -> assertEquals(clientSettings.getDiskWorkerCount(), 4),
+			() -> assertEquals(clientSettings.getPeerIoThreadCount(), 2),
+			() -> assertEquals(clientSettings.getMaxConcurrentAnnounces(), 3)
 		);
 	}
 
@@ -0,0 +1,113 @@
+package org.johnnei.javatorrent.internal.disk;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.disk.IDiskJob;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link IOManagerPool}
+ */
+public class IOManagerPoolTest {
+
+	@Test
+	public void testRejectNoWorkers() {
+		assertThrows(IllegalArgumentException.class, () -> new IOManagerPool(0));
+	}
+
+	@Test
+	public void testSameAffinityUsesSameWorker() {
+		IOManagerPool cut = new IOManagerPool(4);
+
+		IDiskJob jobOne = mock(IDiskJob.class);
+		IDiskJob jobTwo = mock(IDiskJob.class);
+		when(jobOne.getAffinity()).thenReturn("file.txt");
+		when(jobTwo.getAffinity()).thenReturn("file.txt");
+
+		assertEquals(cut.getWorkerIndex(jobOne), cut.getWorkerIndex(jobTwo));
+	}
+
+	@Test
+	public void testNoAffinityIsDistributed() {
+		IOManagerPool cut = new IOManagerPool(2);
+
+		IDiskJob job = mock(IDiskJob.class);
+
+		assertNotEquals(cut.getWorkerIndex(job), cut.getWorkerIndex(job));
+	}
+
+	@Test
+	public void testProcessInParallel() throws Exception {
+		IOManagerPool cut = new IOManagerPool(2);
+		cut.start();
+
+		CountDownLatch bothRunning = new CountDownLatch(2);
+		CountDownLatch completed = new CountDownLatch(2);
+
+		IDiskJob jobOne = mock(IDiskJob.class);
+		IDiskJob jobTwo = mock(IDiskJob.class);
+		when(jobOne.getAffinity()).thenReturn(0);
+		when(jobTwo.getAffinity()).thenReturn(1);
+
+		doAnswer(invocation -> {
+			// Both jobs can only complete when they are being processed at the same time.
+			bothRunning.countDown();
+			bothRunning.await(5, TimeUnit.SECONDS);
+			completed.countDown();
+			return null;
+		}).when(jobOne).process();
+		doAnswer(invocation -> {
+			bothRunning.countDown();
+			bothRunning.await(5, TimeUnit.SECONDS);
+			completed.countDown();
+			return null;
+		}).when(jobTwo).process();
+
+		try {
+			cut.addTask(jobOne);
+			cut.addTask(jobTwo);
+
+			assertTrue(completed.await(5, TimeUnit.SECONDS), "Jobs with different affinity should be processed in parallel.");
+			assertEquals(0, bothRunning.getCount());
+		} finally {
+			cut.stop();
+		}
+	}
+
+	@Test
+	public void testStopProcessesPendingJobs() throws Exception {
+		IOManagerPool cut = new IOManagerPool(1);
+		cut.start();
+
+		CountDownLatch firstJobStarted = new CountDownLatch(1);
+		CountDownLatch releaseFirstJob = new CountDownLatch(1);
+
+		IDiskJob blockingJob = mock(IDiskJob.class);
+		IDiskJob pendingJob = mock(IDiskJob.class);
+		doAnswer(invocation -> {
+			firstJobStarted.countDown();
+			releaseFirstJob.await(5, TimeUnit.SECONDS);
+			return null;
+		}).when(blockingJob).process();
+
+		cut.addTask(blockingJob);
+		assertTrue(firstJobStarted.await(5, TimeUnit.SECONDS), "First job should have been started.");
+		cut.addTask(pendingJob);
+		releaseFirstJob.countDown();
+
+		cut.stop();
+
+		verify(pendingJob).process();
+	}
+}
@@ -0,0 +1,90 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link ByteBufferPool}
+ */
+public class ByteBufferPoolTest {
+
+	@Test
+	public void testAcquire() {
+		ByteBufferPool cut = new ByteBufferPool(1);
+
+		ByteBuffer buffer = cut.acquire(100);
+
+		assertTrue(buffer.isDirect(), "Pooled buffers should be direct");
+		assertEquals(0, buffer.position(), "Incorrect position");
+		assertEquals(100, buffer.limit(), "Limit should be the requested size");
+		assertEquals(128, buffer.capacity(), "Capacity should be rounded up to the size class");
+	}
+
+	@Test
+	public void testReuseReleasedBuffer() {
+		ByteBufferPool cut = new ByteBufferPool(1);
+
+		ByteBuffer buffer = cut.acquire(100);
+		buffer.put((byte) 1);
+		cut.release(buffer);
+
+		assertEquals(1, cut.getIdleBufferCount(128));
+		ByteBuffer reusedBuffer = cut.acquire(128);
+		assertSame(buffer, reusedBuffer, "Released buffer should have been reused");
+		assertEquals(0, reusedBuffer.position(), "Reused buffer should have been reset");
+		assertEquals(128, reusedBuffer.limit(), "Reused buffer should have been reset");
+		assertEquals(0, cut.getIdleBufferCount(128));
+	}
+
+	@Test
+	public void testRetainLimitedAmountOfBuffers() {
+		ByteBufferPool cut = new ByteBufferPool(1);
+
+		ByteBuffer bufferOne = cut.acquire(10);
+		ByteBuffer bufferTwo = cut.acquire(10);
+		cut.release(bufferOne);
+		cut.release(bufferTwo);
+
+		assertEquals(1, cut.getIdleBufferCount(10));
+		assertSame(bufferOne, cut.acquire(10));
+		assertNotSame(bufferTwo, cut.acquire(10));
+	}
+
+	@Test
+	public void testAcquireLargerThanSizeClasses() {
+		ByteBufferPool cut = new ByteBufferPool(1);
+
+		ByteBuffer buffer = cut.acquire(1 << 20);
+
+		assertFalse(buffer.isDirect(), "Unpooled buffers should be on the heap");
+		assertEquals(1 << 20, buffer.capacity());
+	}
+
+	@Test
+	public void testIgnoreForeignBuffers() {
+		ByteBufferPool cut = new ByteBufferPool(1);
+
+		cut.release(ByteBuffer.allocate(64));
+		cut.release(ByteBuffer.allocateDirect(100));
+		cut.release(ByteBuffer.allocateDirect(32));
+
+		assertEquals(0, cut.getIdleBufferCount(64));
+		assertEquals(0, cut.getIdleBufferCount(128));
+	}
+
+	@Test
+	public void testRejectNegativeSize() {
+		ByteBufferPool cut = new ByteBufferPool(1);
+
+		assertThrows(IllegalArgumentException.class, () -> cut.acquire(-1));
+	}
+
+}
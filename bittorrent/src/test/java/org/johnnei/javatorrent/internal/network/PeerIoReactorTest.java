@@ -0,0 +1,272 @@
+package org.johnnei.javatorrent.internal.network;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.AbstractSelectableChannel;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.johnnei.javatorrent.bittorrent.protocol.BitTorrentProtocolViolationException;
+import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
+import org.johnnei.javatorrent.network.BitTorrentSocket;
+import org.johnnei.javatorrent.network.socket.INotifyingChannel;
+import org.johnnei.javatorrent.network.socket.ISocket;
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PeerIoReactor}
+ */
+public class PeerIoReactorTest {
+
+	private PeerIoReactor cut;
+
+	@BeforeEach
+	public void setUp() {
+		cut = new PeerIoReactor("Peer IO Test");
+		cut.start();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		cut.stop();
+	}
+
+	@Test
+	@DisplayName("testRegisterPeer() - Single underlying Channel")
+	public void testRegisterPeer() throws Exception {
+		Peer peer = mock(Peer.class);
+		BitTorrentSocket bitTorrentSocket = mock(BitTorrentSocket.class);
+		ISocket<SocketChannel, SocketChannel> socket = mock(ISocket.class);
+		when(peer.getBitTorrentSocket()).thenReturn(bitTorrentSocket);
+		try (SocketChannel channel = SocketChannel.open()) {
+			channel.configureBlocking(false);
+			when(socket.getReadableChannel()).thenReturn(channel);
+			when(socket.getWritableChannel()).thenReturn(channel);
+			cut.registerPeer(peer, socket);
+
+			verify(bitTorrentSocket, timeout(5_000).atLeast(1)).hasOutboundMessages();
+		}
+
+		verify(socket, atLeast(1)).getReadableChannel();
+		verify(socket, never()).getWritableChannel();
+	}
+
+	@Test
+	@DisplayName("testRegisterPeer() - Dual underlying Channels")
+	public void testRegisterPeerDual() throws Exception {
+		Peer peer = mock(Peer.class);
+		BitTorrentSocket bitTorrentSocket = mock(BitTorrentSocket.class);
+		ISocket<Pipe.SourceChannel, Pipe.SinkChannel> socket = mock(ISocket.class);
+		when(peer.getBitTorrentSocket()).thenReturn(bitTorrentSocket);
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+		pipe.sink().configureBlocking(false);
+		when(socket.getReadableChannel()).thenReturn(pipe.source());
+		when(socket.getWritableChannel()).thenReturn(pipe.sink());
+		cut.registerPeer(peer, socket);
+
+		verify(socket, timeout(5_000).atLeast(1)).getWritableChannel();
+		verify(socket, atLeast(1)).getReadableChannel();
+	}
+
+	@Test
+	@DisplayName("testRegisterPeer() - Blocking Channel")
+	public void testRegisterPeerBlocking() throws Exception {
+		Peer peer = mock(Peer.class);
+		ISocket<Pipe.SourceChannel, Pipe.SinkChannel> socket = mock(ISocket.class);
+		Pipe pipe = Pipe.open();
+		when(socket.getReadableChannel()).thenReturn(pipe.source());
+
+		assertThrows(IllegalStateException.class, () -> cut.registerPeer(peer, socket));
+	}
+
+	@Test
+	@DisplayName("testWriteInterest() - Only selected for writing with queued messages")
+	public void testWriteInterest() throws Exception {
+		Peer peer = mock(Peer.class);
+		BitTorrentSocket bitTorrentSocket = mock(BitTorrentSocket.class);
+		ISocket<Pipe.SourceChannel, Pipe.SinkChannel> socket = mock(ISocket.class);
+		when(peer.getBitTorrentSocket()).thenReturn(bitTorrentSocket);
+		when(peer.getIdAsString()).thenReturn("peer");
+		Pipe pipe = Pipe.open();
+		pipe.source().configureBlocking(false);
+		pipe.sink().configureBlocking(false);
+		when(socket.getReadableChannel()).thenReturn(pipe.source());
+		when(socket.getWritableChannel()).thenReturn(pipe.sink());
+
+		ArgumentCaptor<Runnable> listenerCaptor = ArgumentCaptor.forClass(Runnable.class);
+		cut.registerPeer(peer, socket);
+		verify(bitTorrentSocket).setOutboundMessageListener(listenerCaptor.capture());
+
+		// The sink is writable, but without queued messages it must not be selected.
+		verify(bitTorrentSocket, timeout(5_000)).hasOutboundMessages();
+		verify(bitTorrentSocket, after(100).never()).sendMessages();
+
+		when(bitTorrentSocket.hasOutboundMessages()).thenReturn(true, true, false);
+		listenerCaptor.getValue().run();
+
+		verify(bitTorrentSocket, timeout(5_000)).sendMessages();
+		verify(peer, timeout(5_000)).queueNextPieceForSending();
+	}
+
+	@Test
+	@DisplayName("testRegisterPeer() - Notifying Channel")
+	public void testRegisterPeerNotifying() throws Exception {
+		Peer peer = mock(Peer.class);
+		BitTorrentSocket bitTorrentSocket = mock(BitTorrentSocket.class);
+		IMessage message = mock(IMessage.class);
+		ISocket<NotifyingChannel, NotifyingChannel> socket = mock(ISocket.class);
+		NotifyingChannel channel = new NotifyingChannel();
+		when(peer.getBitTorrentSocket()).thenReturn(bitTorrentSocket);
+		when(peer.getIdAsString()).thenReturn("peer");
+		when(socket.getReadableChannel()).thenReturn(channel);
+		when(socket.getWritableChannel()).thenReturn(channel);
+		when(bitTorrentSocket.canReadMessage()).thenReturn(true, false);
+		when(bitTorrentSocket.readMessage()).thenReturn(message);
+
+		cut.registerPeer(peer, socket);
+		await("Reactor must listen for readiness").until(() -> channel.readinessListener != null);
+		verify(bitTorrentSocket, never()).canReadMessage();
+
+		channel.readyOps = SelectionKey.OP_READ;
+		channel.readinessListener.run();
+
+		verify(message, timeout(5_000)).process(peer);
+	}
+
+	@Test
+	@DisplayName("testHandlePeer() - Read")
+	public void testHandlePeerRead() throws Exception {
+		Peer peer = mock(Peer.class);
+		SelectionKey key = mock(SelectionKey.class);
+		BitTorrentSocket socket = mock(BitTorrentSocket.class);
+		IMessage message = mock(IMessage.class);
+
+		when(peer.getBitTorrentSocket()).thenReturn(socket);
+		when(key.readyOps()).thenReturn(SelectionKey.OP_READ);
+		when(socket.canReadMessage()).thenReturn(true, false);
+		when(socket.readMessage()).thenReturn(message);
+
+		cut.handlePeer(key, peer);
+
+		verify(message).process(peer);
+	}
+
+	@Test
+	@DisplayName("testHandlePeer() - Read - Protocol Error")
+	public void testHandlePeerReadViolation() throws Exception {
+		Peer peer = mock(Peer.class);
+		SelectionKey key = mock(SelectionKey.class);
+		BitTorrentSocket socket = mock(BitTorrentSocket.class);
+
+		when(peer.getBitTorrentSocket()).thenReturn(socket);
+		when(key.readyOps()).thenReturn(SelectionKey.OP_READ);
+		when(socket.canReadMessage()).thenReturn(true, false);
+		when(socket.readMessage()).thenThrow(new BitTorrentProtocolViolationException("Kapot"));
+
+		cut.handlePeer(key, peer);
+
+		verify(socket).close();
+	}
+
+	@Test
+	@DisplayName("testHandlePeer() - Write")
+	public void testHandlePeerWrite() throws Exception {
+		Peer peer = mock(Peer.class);
+		SelectionKey key = mock(SelectionKey.class);
+		BitTorrentSocket socket = mock(BitTorrentSocket.class);
+
+		when(peer.getBitTorrentSocket()).thenReturn(socket);
+		when(key.readyOps()).thenReturn(SelectionKey.OP_WRITE);
+		when(socket.hasOutboundMessages()).thenReturn(true, false);
+
+		cut.handlePeer(key, peer);
+
+		verify(socket).sendMessages();
+	}
+
+	@Test
+	@DisplayName("testHandlePeer() - Write - Exception")
+	public void testHandlePeerWriteException() throws Exception {
+		Peer peer = mock(Peer.class);
+		SelectionKey key = mock(SelectionKey.class);
+		BitTorrentSocket socket = mock(BitTorrentSocket.class);
+
+		when(peer.getBitTorrentSocket()).thenReturn(socket);
+		when(key.readyOps()).thenReturn(SelectionKey.OP_WRITE);
+		when(socket.hasOutboundMessages()).thenReturn(true, false);
+
+		doThrow(new IOException("Kapot")).when(socket).sendMessages();
+
+		cut.handlePeer(key, peer);
+
+		verify(socket).close();
+	}
+
+	private static final class NotifyingChannel extends AbstractSelectableChannel implements ByteChannel, INotifyingChannel {
+
+		private volatile Runnable readinessListener;
+
+		private volatile int readyOps;
+
+		NotifyingChannel() throws IOException {
+			super(null);
+			configureBlocking(false);
+		}
+
+		@Override
+		public void setReadinessListener(Runnable listener) {
+			readinessListener = listener;
+		}
+
+		@Override
+		public int readyOps() {
+			return readyOps;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) {
+			return 0;
+		}
+
+		@Override
+		public int write(ByteBuffer src) {
+			return 0;
+		}
+
+		@Override
+		public int validOps() {
+			return SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+		}
+
+		@Override
+		protected void implCloseSelectableChannel() {
+			// Nothing to close.
+		}
+
+		@Override
+		protected void implConfigureBlocking(boolean block) {
+			// Mode doesn't matter as the channel never blocks.
+		}
+	}
+
+}
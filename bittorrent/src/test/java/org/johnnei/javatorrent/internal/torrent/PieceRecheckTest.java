@@ -0,0 +1,97 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.disk.IDiskJob;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PieceRecheck}
+ */
+public class PieceRecheckTest {
+
+	@Test
+	public void testRejectNoPendingJobs() {
+		assertThrows(IllegalArgumentException.class, () -> new PieceRecheck(Collections.emptyList(), 0, job -> {}, piece -> {}));
+	}
+
+	@Test
+	public void testNoPieces() {
+		PieceRecheck cut = new PieceRecheck(Collections.emptyList(), 1, job -> {}, piece -> {});
+		cut.start();
+
+		assertTrue(cut.isDone(), "Nothing to check, so the check is done.");
+	}
+
+	@Test
+	public void testCheckInOrderWithBoundedPendingJobs() throws Exception {
+		Piece pieceOne = mock(Piece.class);
+		Piece pieceTwo = mock(Piece.class);
+		Piece pieceThree = mock(Piece.class);
+		when(pieceOne.getBlockCount()).thenReturn(2);
+		when(pieceOne.checkHash()).thenReturn(true);
+		when(pieceTwo.checkHash()).thenReturn(false);
+		when(pieceTwo.getBlockCount()).thenReturn(1);
+		when(pieceThree.checkHash()).thenReturn(true);
+
+		List<IDiskJob> jobs = new ArrayList<>();
+		List<Piece> verifiedPieces = new ArrayList<>();
+		PieceRecheck cut = new PieceRecheck(Arrays.asList(pieceOne, pieceTwo, pieceThree), 2, jobs::add, verifiedPieces::add);
+
+		cut.start();
+
+		verify(pieceOne).setBlockStatus(0, BlockStatus.Stored);
+		verify(pieceOne).setBlockStatus(1, BlockStatus.Stored);
+		verify(pieceTwo).setBlockStatus(0, BlockStatus.Stored);
+		assertEquals(2, jobs.size(), "Only two jobs are allowed to be pending.");
+		assertNull(jobs.get(0).getAffinity(), "Rechecks should be spread over all workers.");
+
+		jobs.get(1).process();
+		assertEquals(3, jobs.size(), "Completing a job should submit the next piece.");
+		verify(pieceTwo).setBlockStatus(0, BlockStatus.Needed);
+
+		jobs.get(0).process();
+		assertFalse(cut.isDone(), "Third piece has not been checked yet.");
+		assertEquals(2, cut.getCheckedPieceCount());
+
+		jobs.get(2).process();
+		assertTrue(cut.isDone(), "All pieces have been checked.");
+		assertEquals(3, cut.getPieceCount());
+		assertEquals(Arrays.asList(pieceOne, pieceThree), verifiedPieces);
+	}
+
+	@Test
+	public void testUnreadablePieceIsNeeded() throws Exception {
+		Piece piece = mock(Piece.class);
+		when(piece.getBlockCount()).thenReturn(1);
+		when(piece.checkHash()).thenThrow(new IOException("Test unreadable piece"));
+
+		List<IDiskJob> jobs = new ArrayList<>();
+		List<Piece> verifiedPieces = new ArrayList<>();
+		PieceRecheck cut = new PieceRecheck(Collections.singletonList(piece), 1, jobs::add, verifiedPieces::add);
+
+		cut.start();
+		jobs.get(0).process();
+
+		assertTrue(cut.isDone(), "Failing check should complete the recheck.");
+		assertTrue(verifiedPieces.isEmpty(), "Unreadable piece must not be verified.");
+		verify(piece).setBlockStatus(0, BlockStatus.Needed);
+	}
+
+}
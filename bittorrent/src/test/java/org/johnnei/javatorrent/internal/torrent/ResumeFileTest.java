@@ -0,0 +1,154 @@
+package org.johnnei.javatorrent.internal.torrent;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedInteger;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedList;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedMap;
+import org.johnnei.javatorrent.bittorrent.encoding.BencodedString;
+import org.johnnei.javatorrent.bittorrent.encoding.Bencoding;
+import org.johnnei.javatorrent.bittorrent.encoding.IBencodedValue;
+import org.johnnei.javatorrent.network.InStream;
+import org.johnnei.javatorrent.test.DummyEntity;
+import org.johnnei.javatorrent.torrent.Metadata;
+import org.johnnei.javatorrent.torrent.TorrentFileSet;
+import org.johnnei.javatorrent.torrent.files.BlockStatus;
+import org.johnnei.javatorrent.torrent.files.Piece;
+import org.johnnei.javatorrent.torrent.fileset.FileEntry;
+import org.johnnei.javatorrent.utils.StringUtils;
+import org.johnnei.junit.jupiter.Folder;
+import org.johnnei.junit.jupiter.TempFolderExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link ResumeFile}
+ */
+@ExtendWith(TempFolderExtension.class)
+public class ResumeFileTest {
+
+	private static final byte[] INFO_HASH = DummyEntity.createRandomBytes(20);
+
+	private Metadata metadataMock;
+
+	@BeforeEach
+	public void setUp() {
+		metadataMock = mock(Metadata.class);
+		when(metadataMock.getHashString()).thenReturn(StringUtils.byteArrayToString(INFO_HASH));
+		when(metadataMock.getPieceSize()).thenReturn(32_768L);
+		when(metadataMock.getFileEntries()).thenReturn(Arrays.asList(
+			new FileEntry("file1.txt", 32_768, 0),
+			new FileEntry("file2.txt", 65_536, 32_768)
+		));
+		when(metadataMock.getPieceHashes()).thenReturn(Arrays.asList(
+			DummyEntity.createRandomBytes(20),
+			DummyEntity.createRandomBytes(20),
+			DummyEntity.createRandomBytes(20)
+		));
+	}
+
+	private TorrentFileSet createFileSetWithProgress(File downloadFolder) throws Exception {
+		TorrentFileSet fileSet = new TorrentFileSet(metadataMock, downloadFolder);
+		fileSet.setHavingPiece(0);
+		fileSet.getPiece(1).setBlockStatus(0, BlockStatus.Stored);
+		fileSet.getPiece(2).setBlockStatus(0, BlockStatus.Stored);
+		fileSet.getPiece(2).setBlockStatus(1, BlockStatus.Stored);
+
+		new ResumeFile(fileSet.getResumeFile()).write(INFO_HASH, fileSet);
+		return fileSet;
+	}
+
+	@Test
+	public void testRestore(@Folder Path tmp) throws Exception {
+		File downloadFolder = tmp.resolve("download").toFile();
+		createFileSetWithProgress(downloadFolder);
+
+		TorrentFileSet cut = new TorrentFileSet(metadataMock, downloadFolder);
+		Optional<List<Piece>> uncheckedPieces = new ResumeFile(cut.getResumeFile()).restore(INFO_HASH, cut);
+
+		assertTrue(uncheckedPieces.isPresent(), "Resume file should have been usable.");
+		assertEquals(Arrays.asList(cut.getPiece(2)), uncheckedPieces.get(), "Completely stored piece should be checked.");
+		assertTrue(cut.hasPiece(0), "Verified piece should have been restored.");
+		assertEquals(BlockStatus.Stored, cut.getPiece(1).getBlockStatus(0));
+		assertEquals(BlockStatus.Needed, cut.getPiece(1).getBlockStatus(1));
+	}
+
+	@Test
+	public void testRestoreChangedFile(@Folder Path tmp) throws Exception {
+		File downloadFolder = tmp.resolve("download").toFile();
+		TorrentFileSet fileSet = createFileSetWithProgress(downloadFolder);
+		File changedFile = fileSet.getFiles().get(0).getFile();
+		assertTrue(changedFile.setLastModified(changedFile.lastModified() - 10_000), "Failed to modify file.");
+
+		TorrentFileSet cut = new TorrentFileSet(metadataMock, downloadFolder);
+		Optional<List<Piece>> uncheckedPieces = new ResumeFile(cut.getResumeFile()).restore(INFO_HASH, cut);
+
+		assertTrue(uncheckedPieces.isPresent(), "Resume file should have been usable.");
+		assertEquals(Arrays.asList(cut.getPiece(0), cut.getPiece(2)), uncheckedPieces.get(), "Piece in changed file should be checked.");
+		assertFalse(cut.hasPiece(0), "Piece in changed file must not be restored.");
+	}
+
+	@Test
+	public void testRestoreOtherTorrent(@Folder Path tmp) throws Exception {
+		File downloadFolder = tmp.resolve("download").toFile();
+		createFileSetWithProgress(downloadFolder);
+
+		TorrentFileSet cut = new TorrentFileSet(metadataMock, downloadFolder);
+
+		assertFalse(new ResumeFile(cut.getResumeFile()).restore(DummyEntity.createRandomBytes(20), cut).isPresent());
+		assertFalse(cut.hasPiece(0), "Progress of another torrent must not be restored.");
+	}
+
+	@Test
+	public void testRestoreMissingFile(@Folder Path tmp) {
+		TorrentFileSet cut = new TorrentFileSet(metadataMock, tmp.resolve("download").toFile());
+
+		assertFalse(new ResumeFile(cut.getResumeFile()).restore(INFO_HASH, cut).isPresent());
+	}
+
+	@Test
+	public void testRestoreMalformedFile(@Folder Path tmp) throws Exception {
+		TorrentFileSet cut = new TorrentFileSet(metadataMock, tmp.resolve("download").toFile());
+		Files.write(cut.getResumeFile().toPath(), "d4:infoi1ee".getBytes());
+
+		assertFalse(new ResumeFile(cut.getResumeFile()).restore(INFO_HASH, cut).isPresent());
+	}
+
+	@Test
+	public void testRestoreInvalidBlocksLeavesFileSetUnchanged(@Folder Path tmp) throws Exception {
+		File downloadFolder = tmp.resolve("download").toFile();
+		TorrentFileSet fileSet = createFileSetWithProgress(downloadFolder);
+
+		Map<String, IBencodedValue> resumeData = new Bencoding().decode(new InStream(Files.readAllBytes(fileSet.getResumeFile().toPath()))).asMap();
+		BencodedMap invalidPiece = new BencodedMap();
+		invalidPiece.put("piece", new BencodedInteger(7));
+		invalidPiece.put("stored", new BencodedString(new byte[] { (byte) 0x80 }));
+		BencodedList blocks = new BencodedList();
+		blocks.add(invalidPiece);
+
+		BencodedMap invalidResumeData = new BencodedMap();
+		resumeData.forEach(invalidResumeData::put);
+		invalidResumeData.put("blocks", blocks);
+		Files.write(fileSet.getResumeFile().toPath(), invalidResumeData.serialize());
+
+		TorrentFileSet cut = new TorrentFileSet(metadataMock, downloadFolder);
+
+		assertFalse(new ResumeFile(cut.getResumeFile()).restore(INFO_HASH, cut).isPresent());
+		assertFalse(cut.hasPiece(0), "Progress must not be partially restored.");
+	}
+
+}
@@ -54,7 +54,7 @@ public class TorrentManagerTest {
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(0L), eq(250L), eq(TimeUnit.MILLISECONDS))).thenReturn(futureMock);
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(1L), eq(10L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(30L), eq(60L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
-		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(10L), eq(30L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
+		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(60L), eq(60L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 
 		Metadata metadata = new Metadata.Builder(DummyEntity.createUniqueTorrentHash())
 			.withPieceSize(1)
@@ -116,7 +116,7 @@ public class TorrentManagerTest {
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(0L), eq(250L), eq(TimeUnit.MILLISECONDS))).thenReturn(futureMock);
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(1L), eq(10L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(30L), eq(60L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
-		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(10L), eq(30L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
+		when(executorServiceMock.scheduleAtFixedRate(notNull(), eq(60L), eq(60L), eq(TimeUnit.SECONDS))).thenReturn(futureMock);
 
 		Metadata metadata = new Metadata.Builder(DummyEntity.createUniqueTorrentHash())
 			.withPieceSize(1)
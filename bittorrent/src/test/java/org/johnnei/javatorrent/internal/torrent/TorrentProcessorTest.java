@@ -72,6 +72,9 @@ public class TorrentProcessorTest {
 
 		verify(phaseMock).onPhaseExit();
 		verify(managerMock).removeTorrent(same(torrentMock));
+		verify(trackerManagerMock).startAnnouncing(same(torrentMock));
+		verify(trackerManagerMock).stopAnnouncing(same(torrentMock));
+		verify(torrentMock).closeFiles();
 	}
 
 	@Test
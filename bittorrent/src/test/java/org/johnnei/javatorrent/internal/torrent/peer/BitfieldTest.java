@@ -16,7 +16,8 @@ public class BitfieldTest {
 	public void testHavePiece() {
 		Bitfield cut = new Bitfield(1);
 
-		cut.havePiece(9, true);
+		assertTrue(cut.havePiece(9, true), "Piece 9 should have been newly marked");
+		assertFalse(cut.havePiece(9, true), "Piece 9 was already marked");
 
 		assertEquals(1, cut.countHavePieces(), "One Piece should have been marked as having");
 		assertTrue(cut.hasPiece(9), "Piece 9 should have been marked as having");
@@ -32,7 +33,7 @@ public class BitfieldTest {
 	public void testHavePieceCantExpand() {
 		Bitfield cut = new Bitfield(1);
 
-		cut.havePiece(9);
+		assertFalse(cut.havePiece(9, false), "Piece 9 should not fit");
 
 		assertEquals(0, cut.countHavePieces(), "Piece should not have been marked as having");
 		assertFalse(cut.hasPiece(9), "Piece 9 should not have been marked as having");
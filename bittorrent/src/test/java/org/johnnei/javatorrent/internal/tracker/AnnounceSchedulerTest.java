@@ -0,0 +1,242 @@
+package org.johnnei.javatorrent.internal.tracker;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
+import org.johnnei.javatorrent.bittorrent.tracker.TorrentInfo;
+import org.johnnei.javatorrent.bittorrent.tracker.TrackerEvent;
+import org.johnnei.javatorrent.test.TestClock;
+import org.johnnei.javatorrent.torrent.Torrent;
+
+import static org.johnnei.javatorrent.test.DummyEntity.createUniqueTorrent;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link AnnounceScheduler}
+ */
+public class AnnounceSchedulerTest {
+
+	private Clock baseClock;
+
+	private TestClock testClock;
+
+	private Random random;
+
+	@BeforeEach
+	public void setUp() {
+		baseClock = Clock.fixed(Clock.systemDefaultZone().instant(), Clock.systemDefaultZone().getZone());
+		testClock = new TestClock(baseClock);
+		random = new Random() {
+			@Override
+			public double nextDouble() {
+				return 0.5;
+			}
+		};
+	}
+
+	private void setClockOffset(Duration offset) {
+		testClock.setClock(Clock.offset(baseClock, offset));
+	}
+
+	private ITracker createTracker(Torrent torrent, CompletableFuture<Void> result) {
+		return createTracker(new TorrentInfo(torrent, testClock), result);
+	}
+
+	private ITracker createTracker(TorrentInfo info, CompletableFuture<Void> result) {
+		Torrent torrent = info.getTorrent();
+		info.setAnnounceInterval(Duration.ofSeconds(60));
+		info.setMinAnnounceInterval(Duration.ofSeconds(10));
+
+		ITracker tracker = mock(ITracker.class);
+		when(tracker.getInfo(same(torrent))).thenReturn(Optional.of(info));
+		when(tracker.announce(same(torrent))).thenReturn(result);
+		return tracker;
+	}
+
+	@Test
+	public void testAnnounceWithIntervalAndJitter() {
+		Torrent torrent = createUniqueTorrent();
+		ITracker tracker = createTracker(torrent, CompletableFuture.completedFuture(null));
+
+		AnnounceScheduler cut = new AnnounceScheduler(4, testClock, random);
+		cut.addTorrent(torrent, Collections.singletonList(tracker));
+
+		cut.announceDueTorrents();
+		verify(tracker).announce(same(torrent));
+
+		cut.announceDueTorrents();
+		verify(tracker).announce(same(torrent));
+
+		// The announce interval of 60 seconds is extended by half of the maximum jitter of 6 seconds.
+		setClockOffset(Duration.ofSeconds(62));
+		cut.announceDueTorrents();
+		verify(tracker).announce(same(torrent));
+
+		setClockOffset(Duration.ofSeconds(63));
+		cut.announceDueTorrents();
+		verify(tracker, times(2)).announce(same(torrent));
+		assertEquals(0, cut.getActiveAnnounces(), "Completed announces should no longer be active");
+	}
+
+	@Test
+	public void testConcurrencyLimit() {
+		Torrent torrent = createUniqueTorrent();
+		CompletableFuture<Void> resultOne = new CompletableFuture<>();
+		CompletableFuture<Void> resultTwo = new CompletableFuture<>();
+		ITracker trackerOne = createTracker(torrent, resultOne);
+		ITracker trackerTwo = createTracker(torrent, resultTwo);
+
+		AnnounceScheduler cut = new AnnounceScheduler(1, testClock, random);
+		cut.addTorrent(torrent, Arrays.asList(trackerOne, trackerTwo));
+
+		cut.announceDueTorrents();
+		verify(trackerOne).announce(same(torrent));
+		verify(trackerTwo, never()).announce(same(torrent));
+		assertEquals(1, cut.getActiveAnnounces(), "Only a single announce is allowed at once");
+
+		resultOne.complete(null);
+		cut.announceDueTorrents();
+		verify(trackerTwo).announce(same(torrent));
+		verify(trackerOne).announce(same(torrent));
+	}
+
+	@Test
+	public void testRemoveTorrent() {
+		Torrent torrent = createUniqueTorrent();
+		CompletableFuture<Void> result = new CompletableFuture<>();
+		TorrentInfo info = new TorrentInfo(torrent, testClock);
+		ITracker tracker = createTracker(info, result);
+
+		AnnounceScheduler cut = new AnnounceScheduler(4, testClock, random);
+		cut.addTorrent(torrent, Collections.singletonList(tracker));
+		cut.announceDueTorrents();
+
+		cut.removeTorrent(torrent);
+		assertEquals(TrackerEvent.EVENT_STOPPED, info.getEvent(), "Stopped event should have been set");
+
+		cut.announceDueTorrents();
+		verify(tracker).announce(same(torrent));
+
+		// The stopped announce is sent once the announce which was in progress completes.
+		result.complete(null);
+		cut.announceDueTorrents();
+		verify(tracker, times(2)).announce(same(torrent));
+
+		setClockOffset(Duration.ofHours(1));
+		cut.announceDueTorrents();
+
+		verify(tracker, times(2)).announce(same(torrent));
+		assertEquals(0, cut.getActiveAnnounces(), "Completed announce should no longer be active");
+	}
+
+	@Test
+	public void testRemoveTorrentBeforeAnnounce() {
+		Torrent torrent = createUniqueTorrent();
+		TorrentInfo info = new TorrentInfo(torrent, testClock);
+		ITracker tracker = createTracker(info, CompletableFuture.completedFuture(null));
+
+		AnnounceScheduler cut = new AnnounceScheduler(4, testClock, random);
+		cut.addTorrent(torrent, Collections.singletonList(tracker));
+		cut.removeTorrent(torrent);
+		cut.announceDueTorrents();
+
+		verify(tracker, never()).announce(same(torrent));
+		assertEquals(TrackerEvent.EVENT_STARTED, info.getEvent(), "Torrent which was never announced doesn't need to be stopped");
+	}
+
+	@Test
+	public void testEventMovesAnnounceForward() {
+		Torrent torrent = createUniqueTorrent();
+		TorrentInfo info = new TorrentInfo(torrent, testClock);
+		ITracker tracker = createTracker(info, CompletableFuture.completedFuture(null));
+
+		AnnounceScheduler cut = new AnnounceScheduler(4, testClock, random);
+		cut.addTorrent(torrent, Collections.singletonList(tracker));
+		cut.announceDueTorrents();
+		verify(tracker).announce(same(torrent));
+		info.setInfo(0, 0);
+
+		// Resetting the event after announcing must not cause another announce.
+		info.setEvent(TrackerEvent.EVENT_NONE);
+		setClockOffset(Duration.ofSeconds(10));
+		cut.announceDueTorrents();
+		verify(tracker).announce(same(torrent));
+
+		// The event is announced once the minimum interval of 10 seconds has passed since the last announce.
+		info.setEvent(TrackerEvent.EVENT_COMPLETED);
+		cut.announceDueTorrents();
+		verify(tracker, times(2)).announce(same(torrent));
+	}
+
+	@Test
+	public void testEventRespectsMinInterval() {
+		Torrent torrent = createUniqueTorrent();
+		TorrentInfo info = new TorrentInfo(torrent, testClock);
+		ITracker tracker = createTracker(info, CompletableFuture.completedFuture(null));
+
+		AnnounceScheduler cut = new AnnounceScheduler(4, testClock, random);
+		cut.addTorrent(torrent, Collections.singletonList(tracker));
+		cut.announceDueTorrents();
+		info.setInfo(0, 0);
+
+		info.setEvent(TrackerEvent.EVENT_COMPLETED);
+		setClockOffset(Duration.ofSeconds(9));
+		cut.announceDueTorrents();
+		verify(tracker).announce(same(torrent));
+
+		setClockOffset(Duration.ofSeconds(10));
+		cut.announceDueTorrents();
+		verify(tracker, times(2)).announce(same(torrent));
+	}
+
+	@Test
+	public void testAddTracker() {
+		Torrent torrent = createUniqueTorrent();
+		ITracker tracker = createTracker(torrent, CompletableFuture.completedFuture(null));
+
+		AnnounceScheduler cut = new AnnounceScheduler(4, testClock, random);
+
+		cut.addTracker(torrent, tracker);
+		cut.announceDueTorrents();
+		verify(tracker, never()).announce(same(torrent));
+
+		cut.addTorrent(torrent, Collections.emptyList());
+		cut.addTracker(torrent, tracker);
+		cut.addTracker(torrent, tracker);
+		cut.announceDueTorrents();
+		verify(tracker).announce(same(torrent));
+	}
+
+	@Test
+	public void testFailingTracker() {
+		Torrent torrent = createUniqueTorrent();
+		ITracker tracker = createTracker(torrent, null);
+		when(tracker.announce(same(torrent))).thenThrow(new IllegalStateException("Test failure"));
+
+		AnnounceScheduler cut = new AnnounceScheduler(1, testClock, random);
+		cut.addTorrent(torrent, Collections.singletonList(tracker));
+
+		cut.announceDueTorrents();
+
+		assertEquals(0, cut.getActiveAnnounces(), "Failed announce should no longer be active");
+		setClockOffset(Duration.ofSeconds(66));
+		cut.announceDueTorrents();
+		verify(tracker, times(2)).announce(same(torrent));
+	}
+
+}
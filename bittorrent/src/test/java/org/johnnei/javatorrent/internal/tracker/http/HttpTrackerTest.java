@@ -1,6 +1,9 @@
 package org.johnnei.javatorrent.internal.tracker.http;
 
-import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
@@ -8,12 +11,19 @@ import org.johnnei.javatorrent.TorrentClient;
 import org.johnnei.javatorrent.bittorrent.tracker.TorrentInfo;
 import org.johnnei.javatorrent.network.PeerConnectInfo;
 import org.johnnei.javatorrent.test.DummyEntity;
-import org.johnnei.javatorrent.test.ExecutorServiceMock;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.tracker.IPeerConnector;
 
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
 import static org.johnnei.javatorrent.bittorrent.tracker.TrackerEvent.EVENT_NONE;
 import static org.johnnei.javatorrent.test.TestUtils.assertPresent;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -119,11 +129,10 @@ public class HttpTrackerTest {
 	}
 
 	@Test
-	public void testAnnounceEndpointNotAvailable() throws IOException {
+	public void testAnnounceEndpointNotAvailable() throws Exception {
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
 
 		when(torrentClientMock.getPeerId()).thenReturn(DummyEntity.createPeerId());
-		when(torrentClientMock.getExecutorService()).thenReturn(new ExecutorServiceMock());
 
 		Torrent torrent = DummyEntity.createUniqueTorrent();
 
@@ -133,8 +142,82 @@ public class HttpTrackerTest {
 				.build();
 
 		cut.addTorrent(torrent);
-		cut.announce(torrent);
+		cut.announce(torrent).get(5, TimeUnit.SECONDS);
 
 		assertEquals("Announce failed", cut.getStatus(), "Incorrect tracker status after announce error");
 	}
+
+	@Test
+	public void testAnnounceUnsuccessfulResponse() throws Exception {
+		HttpTracker cut = createTrackerWithResponse(500, "d8:intervali1800ee");
+
+		Torrent torrent = DummyEntity.createUniqueTorrent();
+		cut.addTorrent(torrent);
+		cut.announce(torrent).get(5, TimeUnit.SECONDS);
+
+		assertEquals("Announce failed", cut.getStatus(), "Non-successful HTTP status should fail the announce");
+	}
+
+	@Test
+	public void testAnnounceMalformedResponse() throws Exception {
+		HttpTracker cut = createTrackerWithResponse(200, "i42e");
+
+		Torrent torrent = DummyEntity.createUniqueTorrent();
+		cut.addTorrent(torrent);
+		cut.announce(torrent).get(5, TimeUnit.SECONDS);
+
+		assertEquals("Announce failed", cut.getStatus(), "Response which isn't a dictionary should fail the announce");
+	}
+
+	private HttpTracker createTrackerWithResponse(int code, String body) {
+		TorrentClient torrentClientMock = mock(TorrentClient.class);
+		when(torrentClientMock.getPeerId()).thenReturn(DummyEntity.createPeerId());
+
+		OkHttpClient httpClient = new OkHttpClient.Builder()
+				.addInterceptor(chain -> new Response.Builder()
+						.request(chain.request())
+						.protocol(Protocol.HTTP_1_1)
+						.code(code)
+						.message("Test")
+						.body(ResponseBody.create(body, MediaType.get("text/plain")))
+						.build())
+				.build();
+
+		return new HttpTracker.Builder()
+				.setTorrentClient(torrentClientMock)
+				.setHttpClient(httpClient)
+				.setUrl("http://tracker.localhost:8989/announce")
+				.build();
+	}
+
+	@Test
+	public void testParseCompactPeers() throws Exception {
+		byte[] compactPeers = new byte[] {
+			// 127.0.0.1:27960
+			0x7F, 0x00, 0x00, 0x01, 0x6D, 0x38,
+			// 192.168.1.2:65535
+			(byte) 0xC0, (byte) 0xA8, 0x01, 0x02, (byte) 0xFF, (byte) 0xFF,
+			// Incomplete entry
+			0x01, 0x02
+		};
+
+		List<InetSocketAddress> peers = HttpTracker.parseCompactPeers(compactPeers, 6);
+
+		assertThat("Incorrect peers", peers, contains(
+			new InetSocketAddress(InetAddress.getByAddress(new byte[] { 127, 0, 0, 1 }), 27960),
+			new InetSocketAddress(InetAddress.getByAddress(new byte[] { (byte) 192, (byte) 168, 1, 2 }), 65535)
+		));
+	}
+
+	@Test
+	public void testParseCompactPeersIpv6() throws Exception {
+		byte[] compactPeers = new byte[] {
+			// [::1]:6881
+			0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x1A, (byte) 0xE1
+		};
+
+		List<InetSocketAddress> peers = HttpTracker.parseCompactPeers(compactPeers, 18);
+
+		assertThat("Incorrect peers", peers, contains(new InetSocketAddress(InetAddress.getByName("::1"), 6881)));
+	}
 }
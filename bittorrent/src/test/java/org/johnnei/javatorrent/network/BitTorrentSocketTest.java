@@ -8,6 +8,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Queue;
 
 import org.junit.jupiter.api.DisplayName;
@@ -20,6 +21,7 @@ import org.johnnei.javatorrent.bittorrent.protocol.MessageFactory;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.IMessage;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageBlock;
 import org.johnnei.javatorrent.bittorrent.protocol.messages.MessageKeepAlive;
+import org.johnnei.javatorrent.internal.network.ByteBufferPool;
 import org.johnnei.javatorrent.network.socket.ISocket;
 import org.johnnei.javatorrent.test.DummyEntity;
 import org.johnnei.javatorrent.test.TestClock;
@@ -35,6 +37,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNotNull;
 import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -57,6 +60,18 @@ public class BitTorrentSocketTest {
 		assertTrue(cut.getSocketName().length() > 0, "Incorrect socket name on nonnull socket");
 	}
 
+	@Test
+	public void testOutboundMessageListener() {
+		Runnable listenerMock = mock(Runnable.class);
+
+		BitTorrentSocket cut = new BitTorrentSocket(mock(MessageFactory.class), mock(ISocket.class));
+		cut.setOutboundMessageListener(listenerMock);
+		cut.enqueueMessage(new MessageKeepAlive());
+
+		verify(listenerMock).run();
+		assertTrue(cut.hasOutboundMessages(), "Message should have been queued before the listener got notified.");
+	}
+
 	@Test
 	public void testIsClosed() {
 		MessageFactory messageFactoryMock = mock(MessageFactory.class);
@@ -101,9 +116,13 @@ public class BitTorrentSocketTest {
 		when(socket.getReadableChannel()).thenReturn(socketChannel);
 		when(socket.getWritableChannel()).thenReturn(socketChannel);
 
-		when(socketChannel.write((ByteBuffer) notNull())).thenAnswer(inv -> {
-			ByteBuffer buffer = inv.getArgument(0);
-			return buffer.remaining();
+		when(socketChannel.write((ByteBuffer[]) notNull(), eq(0), eq(2))).thenAnswer(inv -> {
+			long transferredBytes = 0;
+			for (ByteBuffer buffer : (ByteBuffer[]) inv.getArgument(0)) {
+				transferredBytes += buffer.remaining();
+				buffer.position(buffer.limit());
+			}
+			return transferredBytes;
 		});
 
 		Clock fixedClock = Clock.fixed(Instant.now(), ZoneId.systemDefault());
@@ -118,7 +137,7 @@ public class BitTorrentSocketTest {
 		cut.sendMessages();
 		cut.pollRates();
 
-		assertThat("Incorrect upload speed", cut.getUploadRate(), equalTo(10));
+		assertThat("Incorrect upload speed", cut.getUploadRate(), equalTo(18));
 	}
 
 	@Test
@@ -169,6 +188,39 @@ public class BitTorrentSocketTest {
 		verify(messageMock).read(any());
 	}
 
+	@Test
+	public void testReadAndSendMessageReleaseBuffers() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		IMessage messageMock = mock(IMessage.class);
+		ByteBufferPool bufferPoolMock = mock(ByteBufferPool.class);
+		ByteBuffer readBuffer = ByteBuffer.allocate(5);
+		ByteBuffer writeBuffer = ByteBuffer.allocate(4);
+		when(bufferPoolMock.acquire(5)).thenReturn(readBuffer);
+		when(bufferPoolMock.acquire(4)).thenReturn(writeBuffer);
+
+		ISocket socketMock = mock(ISocket.class);
+		SocketChannel channelMock = mock(SocketChannel.class);
+		when(socketMock.getReadableChannel()).thenReturn(channelMock);
+		when(socketMock.getWritableChannel()).thenReturn(channelMock);
+		when(channelMock.write((ByteBuffer) notNull())).thenAnswer(inv -> {
+			ByteBuffer buffer = inv.getArgument(0);
+			int transferredBytes = buffer.remaining();
+			buffer.position(buffer.limit());
+			return transferredBytes;
+		});
+		mockReadMessage(messageFactoryMock, messageMock, channelMock);
+
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock, Clock.systemDefaultZone(), bufferPoolMock);
+
+		assertTrue(cut.canReadMessage(), "Should be able to read message");
+		cut.readMessage();
+		verify(bufferPoolMock).release(same(readBuffer));
+
+		cut.enqueueMessage(new MessageKeepAlive());
+		cut.sendMessages();
+		verify(bufferPoolMock).release(same(writeBuffer));
+	}
+
 	@Test
 	public void testCanReadMessageNotEnoughBytes() throws Exception {
 		MessageFactory messageFactoryMock = mock(MessageFactory.class);
@@ -300,30 +352,47 @@ public class BitTorrentSocketTest {
 
 		cut.sendMessages();
 
-		ArgumentCaptor<ByteBuffer> bufferCaptor = ArgumentCaptor.forClass(ByteBuffer.class);
-		verify(channelMock).write(bufferCaptor.capture());
+		ArgumentCaptor<ByteBuffer[]> bufferCaptor = ArgumentCaptor.forClass(ByteBuffer[].class);
+		verify(channelMock).write(bufferCaptor.capture(), eq(0), eq(2));
 
-		byte[] expectedBytes = new byte[5 + randomBytes.length];
-		expectedBytes[3] = (byte) randomBytes.length;
+		byte[] expectedBytes = new byte[13 + randomBytes.length];
+		expectedBytes[3] = (byte) (9 + randomBytes.length);
 		expectedBytes[4] = (byte) BitTorrent.MESSAGE_PIECE;
-		TestUtils.copySection(randomBytes, expectedBytes, 5);
-		assertArrayEquals(expectedBytes, ByteBufferUtils.getBytes(bufferCaptor.getValue(), expectedBytes.length), "Incorrect piece output.");
+		expectedBytes[8] = 1;
+		expectedBytes[12] = 2;
+		TestUtils.copySection(randomBytes, expectedBytes, 13);
+		ByteBuffer[] buffers = bufferCaptor.getValue();
+		assertArrayEquals(Arrays.copyOf(expectedBytes, 13), ByteBufferUtils.getBytes(buffers[0], 13), "Incorrect piece header output.");
+		assertArrayEquals(randomBytes, ByteBufferUtils.getBytes(buffers[1], randomBytes.length), "Block data should be written from the message buffer.");
 		assertEquals(LocalDateTime.now(clock), cut.getLastActivity(), "Incorrect last activity timestamp");
 	}
 
-	private byte[] mockSendBlock(BitTorrentSocket cut) {
-		IMessage pieceMessageMock = mock(MessageBlock.class);
-		when(pieceMessageMock.getId()).thenReturn(BitTorrent.MESSAGE_PIECE);
+	@Test
+	public void testSendMessagePiecePartially() throws Exception {
+		MessageFactory messageFactoryMock = mock(MessageFactory.class);
+		ISocket socketMock = mock(ISocket.class);
+		SocketChannel channelMock = mock(SocketChannel.class);
+		when(socketMock.getWritableChannel()).thenReturn(channelMock);
+		when(channelMock.write((ByteBuffer[]) notNull(), eq(0), eq(2))).thenAnswer(inv -> {
+			// Only the header fits in the socket buffer.
+			ByteBuffer header = ((ByteBuffer[]) inv.getArgument(0))[0];
+			int transferredBytes = header.remaining();
+			header.position(header.limit());
+			return (long) transferredBytes;
+		});
 
-		byte[] randomBytes = DummyEntity.createRandomBytes(5);
-		when(pieceMessageMock.getLength()).thenReturn(randomBytes.length);
-		ArgumentCaptor<OutStream> outStreamCapture = ArgumentCaptor.forClass(OutStream.class);
-		doAnswer(inv -> {
-			outStreamCapture.getValue().write(randomBytes);
-			return null;
-		}).when(pieceMessageMock).write(outStreamCapture.capture());
+		BitTorrentSocket cut = new BitTorrentSocket(messageFactoryMock, socketMock);
+		mockSendBlock(cut);
 
-		cut.enqueueMessage(pieceMessageMock);
+		cut.sendMessages();
+
+		assertTrue(cut.hasOutboundMessages(), "Block data has not been sent yet.");
+		assertTrue(Whitebox.<Queue>getInternalState(cut, "blockQueue").isEmpty(), "Block should be pending in the write buffers.");
+	}
+
+	private byte[] mockSendBlock(BitTorrentSocket cut) {
+		byte[] randomBytes = DummyEntity.createRandomBytes(5);
+		cut.enqueueMessage(new MessageBlock(1, 2, ByteBuffer.wrap(randomBytes)));
 		return randomBytes;
 	}
 
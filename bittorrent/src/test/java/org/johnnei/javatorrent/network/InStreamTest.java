@@ -1,6 +1,7 @@
 package org.johnnei.javatorrent.network;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 
 import org.junit.jupiter.api.Assertions;
@@ -13,6 +14,7 @@ import org.johnnei.javatorrent.internal.utils.CheckedSupplier;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -125,4 +127,21 @@ public class InStreamTest {
 		assertThat(e.getMessage(), containsString("IO Exception on in-memory byte array"));
 	}
 
+	@Test
+	public void testReadFromByteBuffer() {
+		ByteBuffer data = ByteBuffer.allocateDirect(8);
+		data.put(new byte[] { 0x00, 0x00, 0x00, 0x05, 0x01, 0x02, 0x03, 0x04 });
+		data.flip();
+		data.position(4);
+
+		InStream inStream = new InStream(data, Duration.ofSeconds(1));
+
+		assertEquals(4, inStream.available(), "Only the remaining bytes should be available");
+		assertEquals(0x0102, inStream.readShort());
+		inStream.moveBack(1);
+		assertEquals(0x02, inStream.readByte());
+		assertEquals(Duration.ofSeconds(1), inStream.getReadDuration().get());
+		assertEquals(4, data.position(), "Reading must not modify the given buffer");
+	}
+
 }
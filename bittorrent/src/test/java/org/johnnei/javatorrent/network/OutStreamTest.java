@@ -1,6 +1,8 @@
 package org.johnnei.javatorrent.network;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -121,4 +123,19 @@ public class OutStreamTest {
 		RuntimeException exception = assertThrows(RuntimeException.class, () -> Whitebox.invokeMethod(cut, "writeUnchecked", runnable));
 		assertThat(exception.getMessage(), containsString("IO Exception on in-memory byte array"));
 	}
+
+	@Test
+	public void testWriteIntoByteBuffer() {
+		ByteBuffer target = ByteBuffer.allocateDirect(6);
+		target.position(1);
+
+		OutStream outStream = new OutStream(target);
+		outStream.writeInt(0x01020304);
+
+		assertEquals(4, outStream.size(), "Incorrect amount of bytes written");
+		assertArrayEquals(new byte[] { 1, 2, 3, 4 }, outStream.toByteArray(), "Incorrect written bytes");
+		assertEquals(5, target.position(), "Bytes should have been written into the given buffer");
+		assertThrows(BufferOverflowException.class, () -> outStream.writeShort(1));
+	}
+
 }
@@ -0,0 +1,118 @@
+package org.johnnei.javatorrent.network.udp;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link UdpDemultiplexer}
+ */
+public class UdpDemultiplexerTest {
+
+	private UdpDemultiplexer cut;
+
+	private InetSocketAddress address;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		DatagramChannel channel = DatagramChannel.open();
+		channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		address = (InetSocketAddress) channel.getLocalAddress();
+		cut = new UdpDemultiplexer(channel);
+	}
+
+	@AfterEach
+	public void tearDown() throws IOException {
+		cut.close();
+	}
+
+	private void send(byte... data) throws IOException {
+		try (DatagramChannel remote = DatagramChannel.open()) {
+			remote.send(ByteBuffer.wrap(data), address);
+		}
+	}
+
+	private static IUdpPacketHandler createHandler(byte firstByte) {
+		return createHandler(firstByte, new ArrayList<>());
+	}
+
+	private static IUdpPacketHandler createHandler(byte firstByte, List<Byte> receivedSecondBytes) {
+		IUdpPacketHandler handler = mock(IUdpPacketHandler.class);
+		when(handler.isMatch(any())).thenAnswer(invocation -> {
+			ByteBuffer datagram = invocation.getArgument(0);
+			return datagram.get(datagram.position()) == firstByte;
+		});
+		// The buffer is reused for the next datagram, so the content must be inspected while handling it.
+		doAnswer(invocation -> {
+			ByteBuffer datagram = invocation.getArgument(1);
+			receivedSecondBytes.add(datagram.get(datagram.position() + 1));
+			return null;
+		}).when(handler).onReceivedPacket(any(), any());
+		when(handler.getMillisUntilProcess()).thenReturn(-1L);
+		return handler;
+	}
+
+	@Test
+	public void testRouteByFirstBytes() throws IOException {
+		List<Byte> receivedByOne = new CopyOnWriteArrayList<>();
+		List<Byte> receivedByTwo = new CopyOnWriteArrayList<>();
+		IUdpPacketHandler handlerOne = createHandler((byte) 1, receivedByOne);
+		IUdpPacketHandler handlerTwo = createHandler((byte) 2, receivedByTwo);
+		cut.register(handlerOne);
+		cut.register(handlerTwo);
+
+		send((byte) 2, (byte) 5);
+		send((byte) 1, (byte) 6);
+
+		verify(handlerTwo, timeout(5_000)).onReceivedPacket(any(SocketAddress.class), any());
+		verify(handlerOne, timeout(5_000)).onReceivedPacket(any(SocketAddress.class), any());
+		assertThat("Datagram should have been routed to the first handler", receivedByOne, contains((byte) 6));
+		assertThat("Datagram should have been routed to the second handler", receivedByTwo, contains((byte) 5));
+		verify(handlerOne, atLeastOnce()).process();
+		verify(handlerTwo, atLeastOnce()).process();
+	}
+
+	@Test
+	public void testDiscardUnclaimedDatagram() throws IOException {
+		IUdpPacketHandler handler = createHandler((byte) 1);
+		cut.register(handler);
+
+		send((byte) 3);
+
+		verify(handler, timeout(5_000)).isMatch(any());
+		verify(handler, after(100).never()).onReceivedPacket(any(), any());
+	}
+
+	@Test
+	public void testProcessAfterTimeout() {
+		IUdpPacketHandler handler = createHandler((byte) 1);
+		when(handler.getMillisUntilProcess()).thenReturn(10L);
+		cut.register(handler);
+
+		verify(handler, timeout(5_000).atLeast(3)).process();
+		verify(handler, never()).onReceivedPacket(any(), any());
+	}
+
+}
@@ -6,12 +6,15 @@ import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import org.johnnei.javatorrent.disk.IFileStorage;
 import org.johnnei.javatorrent.test.TestUtils;
 import org.johnnei.junit.jupiter.Folder;
 import org.johnnei.junit.jupiter.TempFolderExtension;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests {@link FileInfo}
@@ -41,6 +44,16 @@ public class FileInfoTest {
 		assertEquals(42, cut.getPieceCount(), "Incorrect amount of pieces have been returned");
 	}
 
+	@Test
+	public void testClose(@Folder Path temporaryFolder) throws Exception {
+		IFileStorage storageMock = mock(IFileStorage.class);
+		FileInfo cut = new FileInfo(0, 0, temporaryFolder.resolve("a").toFile(), 0, file -> storageMock);
+
+		cut.close();
+
+		verify(storageMock).close();
+	}
+
 	@Test
 	public void testToString(@Folder Path temporaryFolder) throws Exception {
 		FileInfo base = new FileInfo(0, 0, temporaryFolder.resolve("a").toFile(), 0);
@@ -0,0 +1,170 @@
+package org.johnnei.javatorrent.torrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.peer.Peer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests {@link PieceAvailability}
+ */
+public class PieceAvailabilityTest {
+
+	private static AbstractFileSet createFileSet(int pieceCount, Integer... completedPieces) {
+		Set<Integer> completed = new HashSet<>(Arrays.asList(completedPieces));
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getPieceCount()).thenReturn(pieceCount);
+		when(fileSetMock.hasPiece(anyInt())).thenAnswer(invocation -> completed.contains(invocation.<Integer>getArgument(0)));
+		return fileSetMock;
+	}
+
+	private static Peer createPeer(Set<Integer> pieces) {
+		Peer peerMock = mock(Peer.class);
+		when(peerMock.hasPiece(anyInt())).thenAnswer(invocation -> pieces.contains(invocation.<Integer>getArgument(0)));
+		return peerMock;
+	}
+
+	private static List<Integer> getRarestFirst(PieceAvailability cut) {
+		List<Integer> order = new ArrayList<>();
+		cut.forEachRarestFirst(order::add);
+		return order;
+	}
+
+	@Test
+	public void testRarestFirst() {
+		PieceAvailability cut = new PieceAvailability();
+		cut.setFileSet(createFileSet(4));
+
+		Peer peerOne = createPeer(new HashSet<>(Arrays.asList(0, 1, 2)));
+		cut.addPeer(peerOne);
+		cut.addPeer(createPeer(new HashSet<>(Arrays.asList(0, 1))));
+		cut.addPeer(createPeer(new HashSet<>(Arrays.asList(0))));
+
+		assertEquals(Arrays.asList(3, 2, 1, 0), getRarestFirst(cut), "Pieces should be ordered by availability");
+		assertEquals(3, cut.getAvailability(0), "Incorrect availability for piece 0");
+		assertEquals(0, cut.getAvailability(3), "Incorrect availability for piece 3");
+
+		cut.removePeer(peerOne);
+		cut.removePeer(peerOne);
+
+		List<Integer> order = getRarestFirst(cut);
+		assertEquals(new HashSet<>(Arrays.asList(2, 3)), new HashSet<>(order.subList(0, 2)), "Unavailable pieces should be first");
+		assertEquals(Arrays.asList(1, 0), order.subList(2, 4), "Available pieces should be last");
+		assertEquals(2, cut.getAvailability(0), "Pieces of the removed peer should no longer be counted");
+	}
+
+	@Test
+	public void testAddPiece() {
+		PieceAvailability cut = new PieceAvailability();
+		cut.setFileSet(createFileSet(2));
+
+		Set<Integer> pieces = new HashSet<>();
+		Peer peer = createPeer(pieces);
+
+		cut.addPiece(peer, 1);
+		assertEquals(0, cut.getAvailability(1), "Pieces of unregistered peers should not be counted");
+
+		cut.addPeer(peer);
+		pieces.add(1);
+		cut.addPiece(peer, 1);
+		cut.addPiece(peer, 2);
+
+		assertEquals(1, cut.getAvailability(1), "Piece should have been counted");
+		assertEquals(Arrays.asList(0, 1), getRarestFirst(cut), "Incorrect order after adding a piece");
+	}
+
+	@Test
+	public void testHasNeededPieces() {
+		PieceAvailability cut = new PieceAvailability();
+		cut.setFileSet(createFileSet(3, 0));
+
+		Set<Integer> pieces = new HashSet<>(Arrays.asList(0));
+		Peer peer = createPeer(pieces);
+
+		assertFalse(cut.hasNeededPieces(peer), "Unregistered peer should not have needed pieces");
+
+		cut.addPeer(peer);
+		assertFalse(cut.hasNeededPieces(peer), "Peer only has a completed piece");
+
+		pieces.add(2);
+		cut.addPiece(peer, 2);
+		assertTrue(cut.hasNeededPieces(peer), "Peer has a piece which we need");
+
+		cut.onPieceCompleted(2);
+		cut.onPieceCompleted(2);
+		assertFalse(cut.hasNeededPieces(peer), "Peer no longer has a piece which we need");
+	}
+
+	@Test
+	public void testSetFileSetRecountsPeers() {
+		PieceAvailability cut = new PieceAvailability();
+		Peer peer = createPeer(new HashSet<>(Arrays.asList(1, 5)));
+
+		cut.addPeer(peer);
+		cut.addPiece(peer, 1);
+		assertEquals(Arrays.asList(), getRarestFirst(cut), "No pieces are known without file set");
+
+		cut.setFileSet(createFileSet(3, 1));
+
+		assertEquals(1, cut.getAvailability(1), "Registered peer should have been counted");
+		assertEquals(0, cut.getAvailability(0), "Piece 0 isn't available");
+		assertFalse(cut.hasNeededPieces(peer), "Peer only has a completed piece");
+	}
+
+	@Test
+	public void testMatchesRecount() {
+		final int pieceCount = 64;
+		PieceAvailability cut = new PieceAvailability();
+		cut.setFileSet(createFileSet(pieceCount));
+
+		Map<Peer, Set<Integer>> peers = new HashMap<>();
+		List<Peer> peerList = new ArrayList<>();
+		Random random = new Random(42);
+
+		for (int i = 0; i < 5_000; i++) {
+			int action = random.nextInt(10);
+			if (action == 0 || peerList.isEmpty()) {
+				Set<Integer> pieces = new HashSet<>();
+				Peer peer = createPeer(pieces);
+				peers.put(peer, pieces);
+				peerList.add(peer);
+				cut.addPeer(peer);
+			} else if (action == 1) {
+				Peer peer = peerList.remove(random.nextInt(peerList.size()));
+				cut.removePeer(peer);
+				peers.remove(peer);
+			} else {
+				Peer peer = peerList.get(random.nextInt(peerList.size()));
+				int pieceIndex = random.nextInt(pieceCount);
+				if (peers.get(peer).add(pieceIndex)) {
+					cut.addPiece(peer, pieceIndex);
+				}
+			}
+		}
+
+		int previous = 0;
+		for (int pieceIndex : getRarestFirst(cut)) {
+			final int piece = pieceIndex;
+			int expected = (int) peers.values().stream().filter(pieces -> pieces.contains(piece)).count();
+			assertEquals(expected, cut.getAvailability(pieceIndex), "Incorrect availability for piece " + pieceIndex);
+			assertTrue(previous <= expected, "Pieces must be ordered by ascending availability");
+			previous = expected;
+		}
+	}
+
+}
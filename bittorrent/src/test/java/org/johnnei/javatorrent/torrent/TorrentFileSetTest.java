@@ -1,5 +1,6 @@
 package org.johnnei.javatorrent.torrent;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -19,6 +20,7 @@ import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -199,6 +201,27 @@ public class TorrentFileSetTest {
 		assertEquals(4194304, cut.getTotalFileSize(), "Incorrect total size");
 	}
 
+	@Test
+	public void testGetResumeFileIsUniquePerTorrent(@Folder Path tmp) throws Exception {
+		File downloadFolder = Files.createDirectory(tmp.resolve("a")).toFile();
+		Metadata metadataMockOne = mock(Metadata.class);
+		when(metadataMockOne.getHashString()).thenReturn("C8369F0BA4BF6CD87FB13B3437782E2C7820BB38");
+		when(metadataMockOne.getPieceSize()).thenReturn(32_768L);
+		when(metadataMockOne.getFileEntries()).thenReturn(Collections.singletonList(new FileEntry("file1.txt", 1, 0)));
+		when(metadataMockOne.getPieceHashes()).thenReturn(Collections.singletonList(DummyEntity.createRandomBytes(20)));
+		Metadata metadataMockTwo = mock(Metadata.class);
+		when(metadataMockTwo.getHashString()).thenReturn("0D33C7A1AA66A0A02C2A22A7C2D3E38C5C5C8D7F");
+		when(metadataMockTwo.getPieceSize()).thenReturn(32_768L);
+		when(metadataMockTwo.getFileEntries()).thenReturn(Collections.singletonList(new FileEntry("file2.txt", 1, 0)));
+		when(metadataMockTwo.getPieceHashes()).thenReturn(Collections.singletonList(DummyEntity.createRandomBytes(20)));
+
+		File resumeFileOne = new TorrentFileSet(metadataMockOne, downloadFolder).getResumeFile();
+		File resumeFileTwo = new TorrentFileSet(metadataMockTwo, downloadFolder).getResumeFile();
+
+		assertEquals(new File(downloadFolder, "C8369F0BA4BF6CD87FB13B3437782E2C7820BB38.resume"), resumeFileOne);
+		assertNotEquals(resumeFileOne, resumeFileTwo, "Torrents sharing a download folder must not share a resume file.");
+	}
+
 	@Test
 	public void testCountRemainingBytes(@Folder Path tmp) throws Exception {
 		TorrentFileSet cut = getSingleFileTorrent(tmp);
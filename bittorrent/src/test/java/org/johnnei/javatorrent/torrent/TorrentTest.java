@@ -1,6 +1,7 @@
 package org.johnnei.javatorrent.torrent;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -30,6 +31,7 @@ import org.johnnei.javatorrent.test.TestUtils;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
 import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.torrent.peer.Peer;
+import org.johnnei.junit.jupiter.Folder;
 import org.johnnei.junit.jupiter.TempFolderExtension;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -48,6 +50,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -87,8 +90,9 @@ public class TorrentTest {
 	}
 
 	@Test
-	public void testCheckForProgress() throws Exception {
+	public void testCheckForProgress(@Folder Path tmp) throws Exception {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		when(fileSetMock.getResumeFile()).thenReturn(tmp.resolve("missing.resume").toFile());
 
 		Piece pieceMockOne = mock(Piece.class);
 		Piece pieceMockTwo = mock(Piece.class);
@@ -99,17 +103,21 @@ public class TorrentTest {
 		when(pieceMockOne.checkHash()).thenReturn(true);
 		when(pieceMockOne.getIndex()).thenReturn(0);
 		when(pieceMockTwo.checkHash()).thenReturn(false);
+		when(pieceMockTwo.getBlockCount()).thenReturn(1);
 		when(pieceMockThree.checkHash()).thenThrow(new IOException("Test Check For Progress IO Exception"));
+		when(pieceMockThree.getBlockCount()).thenReturn(1);
 		when(pieceMockThree.getIndex()).thenReturn(2);
 
 		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
 		Peer peerMock = mock(Peer.class);
 
 		when(peerMock.getBitTorrentSocket()).thenReturn(socketMock);
-		socketMock.enqueueMessage(isA(MessageHave.class));
 
 		TorrentClient torrentClientMock = mock(TorrentClient.class);
 		when(torrentClientMock.getModules()).thenReturn(Collections.emptyList());
+		when(torrentClientMock.getDiskWorkerCount()).thenReturn(1);
+		List<IDiskJob> diskJobs = new ArrayList<>();
+		doAnswer(invocation -> diskJobs.add(invocation.getArgument(0))).when(torrentClientMock).addDiskJob(any());
 
 		Torrent cut = new Torrent.Builder()
 				.setTorrentClient(torrentClientMock)
@@ -119,9 +127,25 @@ public class TorrentTest {
 		cut.setFileSet(fileSetMock);
 
 		cut.addPeer(peerMock);
+		assertFalse(cut.isCheckingProgress(), "No check has been started yet.");
 		cut.checkProgress();
 
+		assertTrue(cut.isCheckingProgress(), "Check should be running until all jobs have been processed.");
+		verify(pieceMockTwo).setBlockStatus(0, BlockStatus.Stored);
+
+		assertThat("Only two checks may be pending for a single worker.", diskJobs, hasSize(2));
+		diskJobs.get(0).process();
+		assertThat("Completing a check should submit the next piece.", diskJobs, hasSize(3));
+		diskJobs.get(1).process();
+		diskJobs.get(2).process();
+
+		assertFalse(cut.isCheckingProgress(), "All jobs have been processed.");
+		assertEquals(1, cut.getCheckProgress(), 0.01);
 		verify(fileSetMock).setHavingPiece(eq(0));
+		verify(fileSetMock, never()).setHavingPiece(eq(2));
+		verify(socketMock).enqueueMessage(isA(MessageHave.class));
+		verify(pieceMockTwo).setBlockStatus(0, BlockStatus.Needed);
+		verify(pieceMockThree).setBlockStatus(0, BlockStatus.Needed);
 	}
 
 	@Test
@@ -210,12 +234,13 @@ public class TorrentTest {
 		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
 		when(pieceMock.getBlockSize(eq(1))).thenReturn(15);
 		when(pieceMock.getBlockStatus(1)).thenReturn(BlockStatus.Requested);
+		when(pieceMock.claimBlock(1)).thenReturn(true);
 		pieceMock.onHashMismatch();
 
 		pieceMock.storeBlock(eq(1), aryEq(new byte[15]));
 		pieceMock.setBlockStatus(eq(1), eq(BlockStatus.Stored));
 		when(pieceMock.checkHash()).thenReturn(false);
-		when(pieceMock.countBlocksWithStatus(eq(BlockStatus.Stored))).thenReturn(2);
+		when(pieceMock.onClaimedBlockWritten()).thenReturn(true);
 		when(pieceMock.getBlockCount()).thenReturn(2);
 
 		Torrent cut = new Torrent.Builder()
@@ -247,6 +272,7 @@ public class TorrentTest {
 		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
 		when(pieceMock.getBlockSize(eq(1))).thenReturn(15);
 		when(pieceMock.getBlockStatus(1)).thenReturn(BlockStatus.Requested);
+		when(pieceMock.claimBlock(1)).thenReturn(true);
 		when(pieceMock.getIndex()).thenReturn(1);
 		when(pieceMock.getSize()).thenReturn(15);
 		fileSetMock.setHavingPiece(eq(1));
@@ -255,9 +281,11 @@ public class TorrentTest {
 		pieceMock.storeBlock(eq(1), aryEq(new byte[15]));
 		pieceMock.setBlockStatus(eq(1), eq(BlockStatus.Stored));
 		when(pieceMock.checkHash()).thenReturn(true);
-		when(pieceMock.countBlocksWithStatus(eq(BlockStatus.Stored))).thenReturn(2);
+		when(pieceMock.onClaimedBlockWritten()).thenReturn(true);
 		when(pieceMock.getBlockCount()).thenReturn(2);
 		when(pieceMock.getFileSet()).thenReturn(fileSetMock);
+		FileInfo fileInfo = mock(FileInfo.class);
+		when(fileSetMock.getFileForBytes(0, 0, 0)).thenReturn(fileInfo);
 
 		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
 		Peer peerMock = mock(Peer.class);
@@ -279,8 +307,10 @@ public class TorrentTest {
 		assertEquals(0, cut.getDownloadedBytes(), "Incorrect downloaded bytes, nothing is completed yet.");
 
 		verify(torrentClient).addDiskJob(writeJobCapture.capture());
+		assertEquals(fileInfo, writeJobCapture.getValue().getAffinity(), "Write should be bound to the file in which the piece starts.");
 		writeJobCapture.getValue().process();
 		verify(torrentClient, times(2)).addDiskJob(checkHashCapture.capture());
+		assertEquals(fileInfo, checkHashCapture.getValue().getAffinity(), "Hash check should be bound to the file in which the piece starts.");
 		checkHashCapture.getValue().process();
 
 		assertEquals(15, cut.getDownloadedBytes(), "Incorrect downloaded bytes, piece size should have been added.");
@@ -308,6 +338,30 @@ public class TorrentTest {
 		cut.onReceivedBlock(fileSetMock, 0, 15, new byte[15]);
 	}
 
+	@Test
+	public void testOnReceivedBlockAlreadyClaimed() {
+		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
+		TorrentClient torrentClient = mock(TorrentClient.class);
+		Piece pieceMock = mock(Piece.class);
+
+		when(fileSetMock.getBlockSize()).thenReturn(15);
+		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
+		when(pieceMock.getBlockSize(eq(1))).thenReturn(15);
+		when(pieceMock.getBlockStatus(1)).thenReturn(BlockStatus.Requested);
+		when(pieceMock.claimBlock(1)).thenReturn(false);
+
+		Torrent cut = new Torrent.Builder()
+				.setName("On Received Block Test")
+				.setMetadata(DummyEntity.createMetadata())
+				.setTorrentClient(torrentClient)
+				.build();
+		cut.setFileSet(fileSetMock);
+
+		cut.onReceivedBlock(fileSetMock, 0, 15, new byte[15]);
+
+		verify(torrentClient, never()).addDiskJob(any());
+	}
+
 	@Test
 	public void testOnReceivedBlockPieceNotDone() throws Exception {
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
@@ -320,10 +374,11 @@ public class TorrentTest {
 		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
 		when(pieceMock.getBlockSize(eq(1))).thenReturn(15);
 		when(pieceMock.getBlockStatus(1)).thenReturn(BlockStatus.Requested);
+		when(pieceMock.claimBlock(1)).thenReturn(true);
 
 		pieceMock.storeBlock(eq(1), aryEq(new byte[15]));
 		pieceMock.setBlockStatus(eq(1), eq(BlockStatus.Stored));
-		when(pieceMock.countBlocksWithStatus(eq(BlockStatus.Stored))).thenReturn(1);
+		when(pieceMock.onClaimedBlockWritten()).thenReturn(false);
 		when(pieceMock.getBlockCount()).thenReturn(2);
 
 		Torrent cut = new Torrent.Builder()
@@ -352,11 +407,12 @@ public class TorrentTest {
 		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
 		when(pieceMock.getBlockSize(eq(1))).thenReturn(15);
 		when(pieceMock.getBlockStatus(1)).thenReturn(BlockStatus.Requested);
+		when(pieceMock.claimBlock(1)).thenReturn(true);
 		when(pieceMock.getIndex()).thenReturn(0);
 
 		pieceMock.storeBlock(eq(1), aryEq(new byte[15]));
 		pieceMock.setBlockStatus(eq(1), eq(BlockStatus.Stored));
-		when(pieceMock.countBlocksWithStatus(eq(BlockStatus.Stored))).thenReturn(2);
+		when(pieceMock.onClaimedBlockWritten()).thenReturn(true);
 		when(pieceMock.getBlockCount()).thenReturn(2);
 		when(pieceMock.checkHash()).thenReturn(true);
 
@@ -393,7 +449,7 @@ public class TorrentTest {
 
 		pieceMock.storeBlock(eq(1), aryEq(new byte[15]));
 		pieceMock.setBlockStatus(eq(1), eq(BlockStatus.Stored));
-		when(pieceMock.countBlocksWithStatus(eq(BlockStatus.Stored))).thenReturn(2);
+		when(pieceMock.onClaimedBlockWritten()).thenReturn(true);
 		when(pieceMock.getBlockCount()).thenReturn(2);
 
 		Torrent cut = new Torrent.Builder()
@@ -421,10 +477,11 @@ public class TorrentTest {
 		when(fileSetMock.getPiece(eq(0))).thenReturn(pieceMock);
 		when(pieceMock.getBlockSize(eq(1))).thenReturn(15);
 		when(pieceMock.getBlockStatus(1)).thenReturn(BlockStatus.Requested);
+		when(pieceMock.claimBlock(1)).thenReturn(true);
 
 		pieceMock.storeBlock(eq(1), aryEq(new byte[15]));
 		pieceMock.setBlockStatus(eq(1), eq(BlockStatus.Stored));
-		when(pieceMock.countBlocksWithStatus(eq(BlockStatus.Stored))).thenReturn(2);
+		when(pieceMock.onClaimedBlockWritten()).thenReturn(true);
 		when(pieceMock.getBlockCount()).thenReturn(2);
 
 		Torrent cut = new Torrent.Builder()
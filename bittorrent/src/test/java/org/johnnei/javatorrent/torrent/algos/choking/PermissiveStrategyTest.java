@@ -1,16 +1,14 @@
 package org.johnnei.javatorrent.torrent.algos.choking;
 
-import java.util.stream.Stream;
-
 import org.junit.jupiter.api.Test;
 
+import org.johnnei.javatorrent.torrent.PieceAvailability;
 import org.johnnei.javatorrent.torrent.Torrent;
-import org.johnnei.javatorrent.torrent.TorrentFileSet;
-import org.johnnei.javatorrent.torrent.files.Piece;
 import org.johnnei.javatorrent.torrent.peer.Peer;
 import org.johnnei.javatorrent.torrent.peer.PeerDirection;
 
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,15 +21,12 @@ public class PermissiveStrategyTest {
 	@Test
 	public void testUpdateChokingChoke() throws Exception {
 		Torrent torrentMock = mock(Torrent.class);
-		TorrentFileSet filesMock = mock(TorrentFileSet.class);
-		Piece piece = new Piece(null, new byte[0], 1, 1, 1);
-
-		when(torrentMock.getFileSet()).thenReturn(filesMock);
-		when(filesMock.getNeededPieces()).thenReturn(Stream.of(piece));
-
+		PieceAvailability availabilityMock = mock(PieceAvailability.class);
 		Peer peerMock = mock(Peer.class);
+
+		when(torrentMock.getPieceAvailability()).thenReturn(availabilityMock);
+		when(availabilityMock.hasNeededPieces(same(peerMock))).thenReturn(true);
 		when(peerMock.getTorrent()).thenReturn(torrentMock);
-		when(peerMock.hasPiece(eq(1))).thenReturn(true);
 		when(peerMock.isInterested(eq(PeerDirection.Download))).thenReturn(true);
 		when(peerMock.isInterested(eq(PeerDirection.Upload))).thenReturn(false);
 		when(peerMock.isChoked(eq(PeerDirection.Upload))).thenReturn(false);
@@ -45,15 +40,12 @@ public class PermissiveStrategyTest {
 	@Test
 	public void testUpdateChokingUnchoke() throws Exception {
 		Torrent torrentMock = mock(Torrent.class);
-		TorrentFileSet filesMock = mock(TorrentFileSet.class);
-		Piece piece = new Piece(null, new byte[0], 1, 1, 1);
-
-		when(torrentMock.getFileSet()).thenReturn(filesMock);
-		when(filesMock.getNeededPieces()).thenReturn(Stream.of(piece));
-
+		PieceAvailability availabilityMock = mock(PieceAvailability.class);
 		Peer peerMock = mock(Peer.class);
+
+		when(torrentMock.getPieceAvailability()).thenReturn(availabilityMock);
+		when(availabilityMock.hasNeededPieces(same(peerMock))).thenReturn(true);
 		when(peerMock.getTorrent()).thenReturn(torrentMock);
-		when(peerMock.hasPiece(eq(1))).thenReturn(true);
 		when(peerMock.isInterested(eq(PeerDirection.Download))).thenReturn(true);
 		when(peerMock.isInterested(eq(PeerDirection.Upload))).thenReturn(true);
 		when(peerMock.isChoked(eq(PeerDirection.Upload))).thenReturn(true);
@@ -67,15 +59,12 @@ public class PermissiveStrategyTest {
 	@Test
 	public void testUpdateChokingUpdateInterested() throws Exception {
 		Torrent torrentMock = mock(Torrent.class);
-		TorrentFileSet filesMock = mock(TorrentFileSet.class);
-		Piece piece = new Piece(null, new byte[0], 1, 1, 1);
-
-		when(torrentMock.getFileSet()).thenReturn(filesMock);
-		when(filesMock.getNeededPieces()).thenReturn(Stream.of(piece));
-
+		PieceAvailability availabilityMock = mock(PieceAvailability.class);
 		Peer peerMock = mock(Peer.class);
+
+		when(torrentMock.getPieceAvailability()).thenReturn(availabilityMock);
+		when(availabilityMock.hasNeededPieces(same(peerMock))).thenReturn(true);
 		when(peerMock.getTorrent()).thenReturn(torrentMock);
-		when(peerMock.hasPiece(eq(1))).thenReturn(true);
 		when(peerMock.isInterested(eq(PeerDirection.Download))).thenReturn(false);
 		when(peerMock.isInterested(eq(PeerDirection.Upload))).thenReturn(false);
 		when(peerMock.isChoked(eq(PeerDirection.Upload))).thenReturn(true);
@@ -85,4 +74,23 @@ public class PermissiveStrategyTest {
 
 		verify(peerMock).setInterested(eq(PeerDirection.Download), eq(true));
 	}
+
+	@Test
+	public void testUpdateChokingUpdateUninterested() throws Exception {
+		Torrent torrentMock = mock(Torrent.class);
+		PieceAvailability availabilityMock = mock(PieceAvailability.class);
+		Peer peerMock = mock(Peer.class);
+
+		when(torrentMock.getPieceAvailability()).thenReturn(availabilityMock);
+		when(availabilityMock.hasNeededPieces(same(peerMock))).thenReturn(false);
+		when(peerMock.getTorrent()).thenReturn(torrentMock);
+		when(peerMock.isInterested(eq(PeerDirection.Download))).thenReturn(true);
+		when(peerMock.isInterested(eq(PeerDirection.Upload))).thenReturn(false);
+		when(peerMock.isChoked(eq(PeerDirection.Upload))).thenReturn(true);
+
+		PermissiveStrategy cut = new PermissiveStrategy();
+		cut.updateChoking(peerMock);
+
+		verify(peerMock).setInterested(eq(PeerDirection.Download), eq(false));
+	}
 }
@@ -0,0 +1,42 @@
+package org.johnnei.javatorrent.torrent.algos.pieceselector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import org.junit.jupiter.api.Test;
+
+import org.johnnei.javatorrent.torrent.PieceAvailability;
+import org.johnnei.javatorrent.torrent.files.Piece;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests {@link AvailabilityPrioritizer}
+ */
+public class AvailabilityPrioritizerTest {
+
+	@Test
+	public void testSortByPriority() {
+		PieceAvailability availabilityMock = mock(PieceAvailability.class);
+		doAnswer(invocation -> {
+			IntConsumer consumer = invocation.getArgument(0);
+			Arrays.asList(2, 0, 3, 1).forEach(consumer::accept);
+			return null;
+		}).when(availabilityMock).forEachRarestFirst(any());
+
+		Piece pieceOne = new Piece(null, new byte[0], 1, 1, 1);
+		Piece pieceTwo = new Piece(null, new byte[0], 2, 1, 1);
+		Piece pieceThree = new Piece(null, new byte[0], 3, 1, 1);
+		Piece pieceSeven = new Piece(null, new byte[0], 7, 1, 1);
+
+		AvailabilityPrioritizer cut = new AvailabilityPrioritizer(availabilityMock);
+		List<Piece> sorted = cut.sortByPriority(Collections.emptyList(), Arrays.asList(pieceOne, pieceSeven, pieceThree, pieceTwo));
+
+		assertEquals(Arrays.asList(pieceTwo, pieceThree, pieceOne, pieceSeven), sorted, "Pieces should be ordered rarest first");
+	}
+}
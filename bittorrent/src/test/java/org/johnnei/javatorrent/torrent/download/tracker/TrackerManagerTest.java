@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test;
 
 import org.johnnei.javatorrent.bittorrent.tracker.ITracker;
 import org.johnnei.javatorrent.bittorrent.tracker.TrackerFactory;
+import org.johnnei.javatorrent.internal.tracker.AnnounceScheduler;
 import org.johnnei.javatorrent.internal.tracker.TrackerManager;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.tracker.IPeerConnector;
@@ -28,24 +29,29 @@ public class TrackerManagerTest {
 
 	private TrackerFactory trackerFactoryMock;
 
+	private AnnounceScheduler announceSchedulerMock;
+
 	@BeforeEach
 	public void setUp() {
 		peerConnectorMock = mock(IPeerConnector.class);
 		trackerFactoryMock = mock(TrackerFactory.class);
-		cut = new TrackerManager(peerConnectorMock, trackerFactoryMock);
+		announceSchedulerMock = mock(AnnounceScheduler.class);
+		cut = new TrackerManager(peerConnectorMock, trackerFactoryMock, announceSchedulerMock);
 	}
 
 	@Test
-	public void testAnnounce() {
+	public void testStartAndStopAnnouncing() {
 		Torrent torrentMock = mock(Torrent.class);
 
 		List<ITracker> trackers = Arrays.asList(mock(ITracker.class), mock(ITracker.class));
 
 		when(trackerFactoryMock.getTrackersHavingTorrent(same(torrentMock))).thenReturn(trackers);
 
-		cut.announce(torrentMock);
+		cut.startAnnouncing(torrentMock);
+		verify(announceSchedulerMock).addTorrent(same(torrentMock), same(trackers));
 
-		trackers.forEach(trackerMock -> verify(trackerMock).announce(same(torrentMock)));
+		cut.stopAnnouncing(torrentMock);
+		verify(announceSchedulerMock).removeTorrent(same(torrentMock));
 	}
 
 	@Test
@@ -74,6 +80,7 @@ public class TrackerManagerTest {
 		cut.addTorrent(torrent, trackerUrl);
 
 		verify(trackerMock).addTorrent(same(torrent));
+		verify(announceSchedulerMock).addTracker(same(torrent), same(trackerMock));
 	}
 
 }
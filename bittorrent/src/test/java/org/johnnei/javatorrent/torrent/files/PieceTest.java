@@ -1,7 +1,11 @@
 package org.johnnei.javatorrent.torrent.files;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -10,17 +14,29 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import org.johnnei.javatorrent.bittorrent.encoding.SHA1;
+import org.johnnei.javatorrent.disk.IFileStorage;
+import org.johnnei.javatorrent.network.ByteBufferUtils;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
 import org.johnnei.javatorrent.torrent.FileInfo;
 import org.johnnei.junit.jupiter.Folder;
 import org.johnnei.junit.jupiter.TempFolderExtension;
 
 import static org.johnnei.javatorrent.test.TestUtils.assertEqualityMethods;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -105,6 +121,20 @@ public class PieceTest {
 		}
 	}
 
+	@Test
+	public void testClaimBlock() {
+		Piece piece = new Piece(null, new byte[20], 0, 10, 5);
+		piece.setBlockStatus(1, BlockStatus.Requested);
+
+		assertTrue(piece.claimBlock(0), "Needed block should have been claimed");
+		assertFalse(piece.claimBlock(0), "Block can only be claimed once");
+		assertTrue(piece.claimBlock(1), "Requested block should have been claimed");
+		assertEquals(2, piece.countBlocksWithStatus(BlockStatus.Stored), "Claimed blocks should be marked as stored");
+
+		assertFalse(piece.onClaimedBlockWritten(), "Piece must not be checked while the other block is still being written");
+		assertTrue(piece.onClaimedBlockWritten(), "Piece should be checked once the last claimed block has been written");
+	}
+
 	@Test
 	public void testGetFileSet() {
 		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
@@ -139,6 +169,145 @@ public class PieceTest {
 		);
 	}
 
+	@Test
+	public void testStoreAndLoadSpanningMultipleFiles(@Folder Path temporaryFolder) throws Exception {
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		when(fileSetMock.getBlockSize()).thenReturn(5);
+		when(fileSetMock.getPieceSize()).thenReturn(10L);
+
+		FileInfo fileInfoOne = new FileInfo(7, 0, temporaryFolder.resolve("1").toFile(), 1);
+		FileInfo fileInfoTwo = new FileInfo(3, 7, temporaryFolder.resolve("2").toFile(), 1);
+		when(fileSetMock.getFileForBytes(0, 0, 0)).thenReturn(fileInfoOne);
+		when(fileSetMock.getFileForBytes(0, 1, 0)).thenReturn(fileInfoOne);
+		when(fileSetMock.getFileForBytes(0, 1, 2)).thenReturn(fileInfoTwo);
+
+		byte[] data = "0123456789".getBytes(StandardCharsets.UTF_8);
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 10, 5);
+		cut.storeBlock(0, Arrays.copyOfRange(data, 0, 5));
+		cut.storeBlock(1, Arrays.copyOfRange(data, 5, 10));
+
+		ByteBuffer withinFile = cut.loadBlock(0, 5);
+		ByteBuffer acrossFiles = cut.loadBlock(5, 5);
+
+		assertAll(
+			() -> assertTrue(cut.checkHash(), "Hash should match the stored data"),
+			() -> assertArrayEquals(data, cut.loadPiece(0, 10), "Incorrect piece data"),
+			() -> assertEquals("01234", ByteBufferUtils.getString(withinFile, 5), "Incorrect block within single file"),
+			() -> assertEquals("56789", ByteBufferUtils.getString(acrossFiles, 5), "Incorrect block spanning files")
+		);
+	}
+
+	@Test
+	public void testCheckHashAfterInOrderStore(@Folder Path temporaryFolder) throws Exception {
+		IFileStorage storageMock = mock(IFileStorage.class);
+		when(storageMock.size()).thenReturn(10L);
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		FileInfo fileInfo = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1, file -> storageMock);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenReturn(fileInfo);
+
+		byte[] data = "0123456789".getBytes(StandardCharsets.UTF_8);
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 10, 5);
+		cut.storeBlock(0, Arrays.copyOfRange(data, 0, 5));
+		cut.storeBlock(1, Arrays.copyOfRange(data, 5, 10));
+
+		assertTrue(cut.checkHash(), "Hash should match the stored data");
+		verify(storageMock, never()).view(anyLong(), anyInt());
+		verify(storageMock, never()).read(any(), anyLong());
+	}
+
+	@Test
+	public void testCheckHashAfterOutOfOrderStore(@Folder Path temporaryFolder) throws Exception {
+		IFileStorage storageMock = mock(IFileStorage.class);
+		when(storageMock.size()).thenReturn(15L);
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		FileInfo fileInfo = new FileInfo(15, 0, temporaryFolder.resolve("1").toFile(), 1, file -> storageMock);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenReturn(fileInfo);
+
+		byte[] data = "0123456789abcde".getBytes(StandardCharsets.UTF_8);
+		when(storageMock.view(10, 5)).thenReturn(ByteBuffer.wrap(data, 10, 5));
+
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 15, 5);
+		cut.storeBlock(2, Arrays.copyOfRange(data, 10, 15));
+		cut.storeBlock(0, Arrays.copyOfRange(data, 0, 5));
+		cut.storeBlock(1, Arrays.copyOfRange(data, 5, 10));
+
+		assertTrue(cut.checkHash(), "Hash should match the stored data");
+		verify(storageMock).view(10, 5);
+		verify(storageMock, never()).view(eq(0L), anyInt());
+	}
+
+	@Test
+	public void testCheckHashAfterMismatchRereads(@Folder Path temporaryFolder) throws Exception {
+		IFileStorage storageMock = mock(IFileStorage.class);
+		when(storageMock.size()).thenReturn(10L);
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		FileInfo fileInfo = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1, file -> storageMock);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenReturn(fileInfo);
+
+		byte[] data = "0123456789".getBytes(StandardCharsets.UTF_8);
+		when(storageMock.view(0, 10)).thenReturn(ByteBuffer.wrap(data));
+
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 10, 5);
+		cut.storeBlock(0, new byte[5]);
+		cut.storeBlock(1, Arrays.copyOfRange(data, 5, 10));
+		assertFalse(cut.checkHash(), "Hash should not match the corrupted data");
+
+		cut.onHashMismatch();
+		cut.storeBlock(1, Arrays.copyOfRange(data, 5, 10));
+
+		assertTrue(cut.checkHash(), "Hash should match after re-reading the stored data");
+	}
+
+	@Test
+	public void testCheckHashAfterRewriteRereads(@Folder Path temporaryFolder) throws Exception {
+		IFileStorage storageMock = mock(IFileStorage.class);
+		when(storageMock.size()).thenReturn(10L);
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		FileInfo fileInfo = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1, file -> storageMock);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenReturn(fileInfo);
+
+		byte[] data = "0123456789".getBytes(StandardCharsets.UTF_8);
+		when(storageMock.view(0, 10)).thenReturn(ByteBuffer.wrap(data));
+
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 10, 5);
+		cut.storeBlock(0, new byte[5]);
+		cut.storeBlock(1, Arrays.copyOfRange(data, 5, 10));
+		cut.storeBlock(0, Arrays.copyOfRange(data, 0, 5));
+
+		assertTrue(cut.checkHash(), "Hash should match the data which was stored last");
+		verify(storageMock).view(0, 10);
+	}
+
+	@Test
+	public void testCheckHashRestartsWhenBlockIsStoredDuringCheck(@Folder Path temporaryFolder) throws Exception {
+		IFileStorage storageMock = mock(IFileStorage.class);
+		when(storageMock.size()).thenReturn(10L);
+
+		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
+		FileInfo fileInfo = new FileInfo(10, 0, temporaryFolder.resolve("1").toFile(), 1, file -> storageMock);
+		when(fileSetMock.getFileForBytes(eq(0), anyInt(), anyInt())).thenReturn(fileInfo);
+
+		byte[] data = "0123456789".getBytes(StandardCharsets.UTF_8);
+		Piece cut = new Piece(fileSetMock, SHA1.hash(data), 0, 10, 5);
+		cut.storeBlock(0, new byte[5]);
+
+		AtomicBoolean rewritten = new AtomicBoolean();
+		when(storageMock.view(5, 5)).thenAnswer(invocation -> {
+			if (rewritten.compareAndSet(false, true)) {
+				// Overwrite the already hashed block while the check is reading the remainder of the piece.
+				cut.storeBlock(0, Arrays.copyOfRange(data, 0, 5));
+			}
+			return ByteBuffer.wrap(data, 5, 5);
+		});
+
+		assertTrue(cut.checkHash(), "Hash should have been computed again with the rewritten block");
+		verify(storageMock, times(2)).view(5, 5);
+	}
+
 	@Test
 	public void testCheckHashOnIncompleteFile(@Folder Path temporaryFolder) throws Exception {
 		AbstractFileSet fileSetMock = mock(AbstractFileSet.class);
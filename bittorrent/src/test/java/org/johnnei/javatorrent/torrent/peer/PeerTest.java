@@ -1,5 +1,6 @@
 package org.johnnei.javatorrent.torrent.peer;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 
@@ -18,6 +19,7 @@ import org.johnnei.javatorrent.network.BitTorrentSocket;
 import org.johnnei.javatorrent.test.DummyEntity;
 import org.johnnei.javatorrent.test.TestUtils;
 import org.johnnei.javatorrent.torrent.AbstractFileSet;
+import org.johnnei.javatorrent.torrent.PieceAvailability;
 import org.johnnei.javatorrent.torrent.Torrent;
 import org.johnnei.javatorrent.torrent.TorrentFileSet;
 import org.johnnei.javatorrent.torrent.files.BlockStatus;
@@ -371,7 +373,7 @@ public class PeerTest {
 		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
 		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
 		when(pieceMock.getIndex()).thenReturn(0);
-		when(pieceMock.loadPiece(eq(0), eq(15))).thenReturn(new byte[15]);
+		when(pieceMock.loadBlock(eq(0), eq(15))).thenReturn(ByteBuffer.allocate(15));
 
 		Peer cut = new Peer.Builder()
 				.setTorrent(torrentMock)
@@ -396,7 +398,10 @@ public class PeerTest {
 		BitTorrentSocket socketMock = mock(BitTorrentSocket.class);
 		TorrentFileSet fileSetMock = mock(TorrentFileSet.class);
 
+		PieceAvailability availabilityMock = mock(PieceAvailability.class);
+
 		when(torrentMock.getFileSet()).thenReturn(fileSetMock);
+		when(torrentMock.getPieceAvailability()).thenReturn(availabilityMock);
 		when(torrentMock.isDownloadingMetadata()).thenReturn(false);
 		when(fileSetMock.getBitfieldBytes()).thenReturn(new byte[1]);
 		when(fileSetMock.getBlockSize()).thenReturn(15);
@@ -415,6 +420,10 @@ public class PeerTest {
 
 		assertTrue(cut.hasPiece(0), "Piece 0 should be available");
 		assertEquals(1, cut.countHavePieces(), "One pieces should be completed");
+
+		cut.setHavingPiece(0);
+
+		verify(availabilityMock).addPiece(same(cut), eq(0));
 	}
 
 	@Test